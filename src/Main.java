@@ -2,42 +2,128 @@ import bg.sofia.uni.fmi.mjt.goodreads.Server;
 import bg.sofia.uni.fmi.mjt.goodreads.book.BookRepository;
 import bg.sofia.uni.fmi.mjt.goodreads.book.api.google.books.GoogleBooksAPI;
 import bg.sofia.uni.fmi.mjt.goodreads.command.CommandExecutor;
+import bg.sofia.uni.fmi.mjt.goodreads.command.scheduling.CommandScheduler;
 import bg.sofia.uni.fmi.mjt.goodreads.storage.Storage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.crdt.CrdtStorage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.crdt.DeltaSync;
 import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.FileSystemStorage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.backup.BackupConsole;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.backup.OnlineBackup;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.format.BinaryTableFormat;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.loader.TableLoader;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.tiering.ColdTier;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.tiering.UserSegments;
 import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater.FileUpdater;
 import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater.Updater;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.kv.KeyValueStorage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.migration.MigratingStorage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.replication.Follower;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.replication.MutationLog;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.replication.PrimaryStorage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.replication.ReplicationServer;
 
+import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.Reader;
+import java.net.InetSocketAddress;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class Main {
     private static final int PORT = 7777;
     private static final Path PROPERTIES_PATH = Paths.get("src/app.properties");
+    private static final String BINARY_STORAGE_FORMAT = "binary";
+    private static final String KEY_VALUE_STORAGE_FORMAT = "kv";
+    private static final String KEY_VALUE_FILE = "goodreads.kv";
+    private static final String PRIMARY_ROLE = "primary";
+    private static final String FOLLOWER_ROLE = "follower";
+    private static final String REGION_ROLE = "region";
+    private static final String PEER_SEPARATOR = ",";
+    private static final String HOST_PORT_SEPARATOR = ":";
+    private static final int REPLICATION_PORT = 7778;
+    private static final int FOLLOWER_PORT = 7779;
+    private static final int REGION_SYNC_PORT = 7780;
+    private static final int BACKUP_THREADS = 4;
+    private static final int MIGRATION_THREADS = 4;
+    private static final int MIGRATION_BATCH_SIZE = 256;
+    private static final int MUTATION_LOG_CAPACITY = 100_000;
+    private static final String COLD_TIER_DIRECTORY = "cold";
+    private static final int COLD_SWEEP_PERIOD_MINUTES = 60;
+    private static final int LANE_STATS_PERIOD_MINUTES = 5;
+    private static final Path REPLICA_DIRECTORY = Paths.get("replica");
 
     public static void main(String[] args) throws IOException {
         Properties properties = new Properties();
         properties.load(new FileReader(String.valueOf(PROPERTIES_PATH)));
         String apiKey = properties.getProperty("GoogleApiKey");
+        String storageFormat = properties.getProperty("StorageFormat", "json");
+        String replicationRole = properties.getProperty("ReplicationRole", "");
 
+        if (FOLLOWER_ROLE.equals(replicationRole)) {
+            startFollower(apiKey, properties);
+            return;
+        }
+        if (REGION_ROLE.equals(replicationRole)) {
+            startRegion(apiKey, properties);
+            return;
+        }
+        boolean primary = PRIMARY_ROLE.equals(replicationRole);
+        Path keyValueFile = Paths.get(properties.getProperty("KeyValueFile", KEY_VALUE_FILE));
+        if (KEY_VALUE_STORAGE_FORMAT.equals(storageFormat)) {
+            try (KeyValueStorage storage = new KeyValueStorage(keyValueFile)) {
+                startServer(storage, apiKey);
+            }
+            return;
+        }
+        boolean migrate = Boolean.parseBoolean(properties.getProperty("MigrateToKeyValue")) && !primary;
+        Path migrationTarget = migrate ? keyValueFile : null;
+        OnlineBackup onlineBackup = new OnlineBackup(
+                Integer.parseInt(properties.getProperty("BackupThreads", String.valueOf(BACKUP_THREADS))),
+                OnlineBackup.DEFAULT_USERS_PER_CHUNK,
+                Long.parseLong(properties.getProperty("BackupBytesPerSecond",
+                        String.valueOf(OnlineBackup.UNTHROTTLED))));
+        int coldAfterDays = Integer.parseInt(properties.getProperty("ColdAfterDays", "0"));
+        try (UserSegments coldSegments = coldAfterDays > 0
+                ? new UserSegments(Paths.get(properties.getProperty("ColdTierDirectory", COLD_TIER_DIRECTORY)),
+                        UserSegments.DEFAULT_SEGMENT_BYTES)
+                : null) {
+            ColdTier coldTier = coldSegments == null
+                    ? ColdTier.disabled()
+                    : new ColdTier(coldSegments, Duration.ofDays(coldAfterDays), Clock.systemUTC());
+            if (BINARY_STORAGE_FORMAT.equals(storageFormat)) {
+                startWithBinaryTables(apiKey, Boolean.parseBoolean(properties.getProperty("LazyBookshelves")),
+                        primary, onlineBackup, migrationTarget, coldTier);
+            } else {
+                startWithJsonTables(apiKey, primary, onlineBackup, migrationTarget, coldTier);
+            }
+        }
+    }
+
+    private static void startWithJsonTables(String apiKey, boolean primary, OnlineBackup onlineBackup,
+                                            Path migrationTarget, ColdTier coldTier) throws IOException {
         Updater userTableUpdater = new FileUpdater(FileSystemStorage.USERS_TABLE);
         Updater listTableUpdater = new FileUpdater(FileSystemStorage.LISTS_TABLE);
 
-        FileReader userTable = new FileReader(FileSystemStorage.USERS_TABLE);
-        FileReader listTable = new FileReader(FileSystemStorage.LISTS_TABLE);
+        Reader userTable = TableLoader.openTable(FileSystemStorage.USERS_TABLE.toPath());
+        Reader listTable = TableLoader.openTable(FileSystemStorage.LISTS_TABLE.toPath());
 
         ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1);
-        Storage storage = new FileSystemStorage(userTable, listTable, userTableUpdater, listTableUpdater, executor);
-        BookRepository bookRepository = new GoogleBooksAPI(apiKey);
-
-        CommandExecutor commandExecutor = new CommandExecutor(storage, bookRepository);
-        Server server = new Server(PORT, commandExecutor);
-        server.start();
+        FileSystemStorage storage =
+                new FileSystemStorage(userTable, listTable, userTableUpdater, listTableUpdater, executor, coldTier);
+        scheduleColdSweep(storage, coldTier, executor);
+        startServer(storage, apiKey, primary, onlineBackup, migrationTarget);
+        storage.saveActivity();
 
         try {
             stop(executor, userTable, listTable);
@@ -46,6 +132,132 @@ public class Main {
         }
     }
 
+    private static void startWithBinaryTables(String apiKey, boolean lazyBookshelves, boolean primary,
+                                              OnlineBackup onlineBackup, Path migrationTarget, ColdTier coldTier)
+            throws IOException {
+        Updater userTableUpdater = new FileUpdater(FileSystemStorage.USERS_BINARY_TABLE);
+        Updater listTableUpdater = new FileUpdater(FileSystemStorage.LISTS_BINARY_TABLE);
+
+        ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1);
+        FileSystemStorage storage = new FileSystemStorage(new BinaryTableFormat(lazyBookshelves),
+                FileSystemStorage.USERS_BINARY_TABLE.toPath(), FileSystemStorage.LISTS_BINARY_TABLE.toPath(),
+                userTableUpdater, listTableUpdater, executor, coldTier);
+        scheduleColdSweep(storage, coldTier, executor);
+        startServer(storage, apiKey, primary, onlineBackup, migrationTarget);
+        storage.saveActivity();
+
+        executor.close();
+    }
+
+    // archives the inactive users every so often and reports how long finding hot and cold users takes
+    private static void scheduleColdSweep(FileSystemStorage storage, ColdTier coldTier,
+                                          ScheduledExecutorService executor) {
+        if (!coldTier.enabled()) {
+            return;
+        }
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                int archived = storage.archiveInactiveUsers();
+                ColdTier.Stats stats = storage.coldTierStats();
+                System.out.printf("Archived %d users, %d cold; %d hits %.1f us, %d misses %.1f us%n", archived,
+                        stats.coldUsers(), stats.hits(), stats.meanHitMicros(), stats.misses(),
+                        stats.meanMissMicros());
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, COLD_SWEEP_PERIOD_MINUTES, COLD_SWEEP_PERIOD_MINUTES, TimeUnit.MINUTES);
+    }
+
+    // a primary also streams its writes to the followers; the admin backs the tables up from the server's console
+    private static void startServer(FileSystemStorage storage, String apiKey, boolean primary,
+                                    OnlineBackup onlineBackup, Path migrationTarget) throws IOException {
+        Thread backupConsole = new Thread(new BackupConsole(storage, onlineBackup,
+                new BufferedReader(new InputStreamReader(System.in)), System.out), "backup-console");
+        backupConsole.setDaemon(true);
+        backupConsole.start();
+        if (migrationTarget != null) {
+            startMigration(storage, apiKey, migrationTarget);
+            return;
+        }
+        if (!primary) {
+            startServer(storage, apiKey);
+            return;
+        }
+        PrimaryStorage primaryStorage = new PrimaryStorage(storage, new MutationLog(MUTATION_LOG_CAPACITY));
+        try (ReplicationServer replicationServer = new ReplicationServer(REPLICATION_PORT, primaryStorage,
+                Paths.get(System.getProperty("java.io.tmpdir")))) {
+            replicationServer.start();
+            startServer(primaryStorage, apiKey);
+        }
+    }
+
+    // serves from the tables while copying them into the key-value store in the background, then from the store
+    private static void startMigration(FileSystemStorage storage, String apiKey, Path migrationTarget)
+            throws IOException {
+        try (KeyValueStorage target = new KeyValueStorage(migrationTarget)) {
+            MigratingStorage<FileSystemStorage, KeyValueStorage> migratingStorage =
+                    new MigratingStorage<>(storage, target, MIGRATION_THREADS, MIGRATION_BATCH_SIZE);
+            Thread migration = new Thread(() -> migratingStorage.migrate(progress -> System.out.printf(
+                    "Migration %s: %d/%d copied, %d/%d verified, %d copied again, %.0f users/s%n",
+                    progress.phase(), progress.copiedUsers(), progress.totalUsers(), progress.verifiedUsers(),
+                    progress.totalUsers(), progress.recopiedUsers(), progress.usersPerSecond())), "migration");
+            migration.setDaemon(true);
+            migration.start();
+            startServer(migratingStorage, apiKey);
+        }
+    }
+
+    private static void startFollower(String apiKey, Properties properties) throws IOException {
+        InetSocketAddress primaryAddress = new InetSocketAddress(properties.getProperty("PrimaryHost", "localhost"),
+                Integer.parseInt(properties.getProperty("PrimaryReplicationPort", String.valueOf(REPLICATION_PORT))));
+        int port = Integer.parseInt(properties.getProperty("FollowerPort", String.valueOf(FOLLOWER_PORT)));
+        try (Follower follower = new Follower(primaryAddress, REPLICA_DIRECTORY)) {
+            follower.start();
+            CommandExecutor commandExecutor = CommandExecutor.readOnly(follower.storage(), new GoogleBooksAPI(apiKey));
+            serve(port, commandExecutor);
+        }
+    }
+
+    // every region takes writes and exchanges them with its peers, it starts empty and fills up from them
+    private static void startRegion(String apiKey, Properties properties) throws IOException {
+        List<InetSocketAddress> peers = new ArrayList<>();
+        for (String peer : properties.getProperty("RegionPeers", "").split(PEER_SEPARATOR)) {
+            if (!peer.isBlank()) {
+                String[] hostAndPort = peer.trim().split(HOST_PORT_SEPARATOR);
+                peers.add(new InetSocketAddress(hostAndPort[0], Integer.parseInt(hostAndPort[1])));
+            }
+        }
+        int syncPort = Integer.parseInt(properties.getProperty("RegionSyncPort", String.valueOf(REGION_SYNC_PORT)));
+        CrdtStorage storage = new CrdtStorage(properties.getProperty("RegionName"));
+        try (DeltaSync sync = new DeltaSync(storage, syncPort, peers)) {
+            sync.start();
+            startServer(storage, apiKey);
+        }
+    }
+
+    private static void startServer(Storage storage, String apiKey) {
+        BookRepository bookRepository = new GoogleBooksAPI(apiKey);
+
+        CommandExecutor commandExecutor = new CommandExecutor(storage, bookRepository);
+        serve(PORT, commandExecutor);
+    }
+
+    // cheap commands and book API calls run in separate lanes, their queues and latencies are reported every so often
+    private static void serve(int port, CommandExecutor commandExecutor) {
+        CommandScheduler commandScheduler = CommandScheduler.withDefaults(commandExecutor);
+        try (ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor()) {
+            reporter.scheduleWithFixedDelay(() -> {
+                for (CommandScheduler.LaneStats stats : commandScheduler.stats()) {
+                    System.out.printf("%s lane: %d queued (max %d), %d done, %d rejected; p50 %.0f us, " +
+                            "p99 %.0f us, max %.0f us%n", stats.lane(), stats.queueDepth(), stats.maxQueueDepth(),
+                            stats.completed(), stats.rejected(), stats.p50Micros(), stats.p99Micros(),
+                            stats.maxMicros());
+                }
+            }, LANE_STATS_PERIOD_MINUTES, LANE_STATS_PERIOD_MINUTES, TimeUnit.MINUTES);
+            new Server(port, commandExecutor, commandScheduler).start();
+        }
+    }
+
     static void stop(ScheduledExecutorService executor, Reader userTable, Reader listTable) throws IOException {
         executor.close();
         userTable.close();
@@ -12,16 +12,23 @@ import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
-import bg.sofia.uni.fmi.mjt.goodreads.command.CommandCreator;
 import bg.sofia.uni.fmi.mjt.goodreads.command.CommandExecutor;
+import bg.sofia.uni.fmi.mjt.goodreads.command.CommandTokenizer;
+import bg.sofia.uni.fmi.mjt.goodreads.command.scheduling.CommandScheduler;
 import bg.sofia.uni.fmi.mjt.goodreads.user.Session;
 
 public class Server {
     private static final String HOST = "localhost";
-    private static final String KILL_COMMAND = "killcommand";
+    private static final ByteBuffer KILL_COMMAND = ByteBuffer.wrap("killcommand".getBytes(StandardCharsets.UTF_8));
 
-    private final CommandExecutor commandExecutor;
+    private final CommandScheduler commandScheduler;
+    // requests are parsed in the session's buffer, the selector thread handles one at a time
+    private final CommandTokenizer tokenizer;
+    // answers of the commands the lanes have finished, written back by the selector thread
+    private final Queue<Answer> answers;
 
     private final int port;
     private boolean isServerWorking;
@@ -29,9 +36,18 @@ public class Server {
     private Selector selector;
     private final Map<SocketChannel, Session> sessionMap;
 
+    private record Answer(SelectionKey key, String output) {
+    }
+
     public Server(int port, CommandExecutor commandExecutor) {
+        this(port, commandExecutor, CommandScheduler.withDefaults(commandExecutor));
+    }
+
+    public Server(int port, CommandExecutor commandExecutor, CommandScheduler commandScheduler) {
         this.port = port;
-        this.commandExecutor = commandExecutor;
+        this.commandScheduler = commandScheduler;
+        this.tokenizer = new CommandTokenizer(commandExecutor.definitions());
+        this.answers = new ConcurrentLinkedQueue<>();
         sessionMap = new HashMap<>();
     }
 
@@ -44,6 +60,7 @@ public class Server {
             while (isServerWorking) {
                 try {
                     int readyChannels = selector.select();
+                    writeAnswers();
                     if (readyChannels == 0) {
                         continue;
                     }
@@ -52,6 +69,7 @@ public class Server {
                     System.out.println("Error occurred while processing client request: " + e.getMessage());
                 }
             }
+            commandScheduler.close();
         } catch (IOException e) {
             throw new UncheckedIOException("failed to start server", e);
         }
@@ -70,8 +88,7 @@ public class Server {
             SelectionKey key = keyIterator.next();
             if (key.isReadable()) {
                 SocketChannel clientChannel = (SocketChannel) key.channel();
-                String clientInput = getClientInput(clientChannel);
-                System.out.println(clientInput);
+                ByteBuffer clientInput = getClientInput(clientChannel);
                 if (clientInput == null) {
                     continue;
                 }
@@ -80,8 +97,15 @@ public class Server {
                 }
                 Session userSession = sessionMap.get(clientChannel);
 
-                String output = commandExecutor.execute(CommandCreator.newCommand(clientInput), userSession);
-                writeClientOutput(clientChannel, output);
+                tokenizer.tokenize(clientInput);
+                // the client waits for its answer, so nothing is read from it until the lane has answered
+                key.interestOps(0);
+                commandScheduler.submit(tokenizer.toCommand(), userSession)
+                        .exceptionally(e -> "Error occurred while processing the command")
+                        .thenAccept(output -> {
+                            answers.add(new Answer(key, output));
+                            selector.wakeup();
+                        });
             } else if (key.isAcceptable()) {
                 accept(selector, key);
             }
@@ -90,13 +114,29 @@ public class Server {
         }
     }
 
+    private void writeAnswers() {
+        Answer answer;
+        while ((answer = answers.poll()) != null) {
+            if (!answer.key().isValid()) {
+                continue;
+            }
+            try {
+                writeClientOutput((SocketChannel) answer.key().channel(), answer.output());
+                answer.key().interestOps(SelectionKey.OP_READ);
+            } catch (IOException e) {
+                System.out.println("Error occurred while answering client: " + e.getMessage());
+            }
+        }
+    }
+
     private void configureServerSocketChannel(ServerSocketChannel channel, Selector selector) throws IOException {
         channel.bind(new InetSocketAddress(HOST, this.port));
         channel.configureBlocking(false);
         channel.register(selector, SelectionKey.OP_ACCEPT);
     }
 
-    private String getClientInput(SocketChannel clientChannel) throws IOException {
+    // the request stays in the session's buffer, flipped for reading
+    private ByteBuffer getClientInput(SocketChannel clientChannel) throws IOException {
         ByteBuffer buffer = sessionMap.get(clientChannel).getBuffer();
         buffer.clear();
 
@@ -107,11 +147,7 @@ public class Server {
         }
 
         buffer.flip();
-
-        byte[] clientInputBytes = new byte[buffer.remaining()];
-        buffer.get(clientInputBytes);
-
-        return new String(clientInputBytes, StandardCharsets.UTF_8);
+        return buffer;
     }
 
     private void writeClientOutput(SocketChannel clientChannel, String output) throws IOException {
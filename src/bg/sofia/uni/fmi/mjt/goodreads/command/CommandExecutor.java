@@ -4,6 +4,10 @@ import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
 import bg.sofia.uni.fmi.mjt.goodreads.book.BookDetails;
 import bg.sofia.uni.fmi.mjt.goodreads.book.BookRepository;
 import bg.sofia.uni.fmi.mjt.goodreads.book.BookRequest;
+import bg.sofia.uni.fmi.mjt.goodreads.command.registry.CommandDefinition;
+import bg.sofia.uni.fmi.mjt.goodreads.command.registry.CommandDefinition.Access;
+import bg.sofia.uni.fmi.mjt.goodreads.command.registry.CommandDefinition.Cost;
+import bg.sofia.uni.fmi.mjt.goodreads.command.registry.CommandRegistry;
 import bg.sofia.uni.fmi.mjt.goodreads.exception.APIResponseException;
 import bg.sofia.uni.fmi.mjt.goodreads.exception.BookNotInListException;
 import bg.sofia.uni.fmi.mjt.goodreads.exception.InvalidCredentials;
@@ -12,20 +16,23 @@ import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameAlreadyExistsException;
 import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameDoesntExistException;
 import bg.sofia.uni.fmi.mjt.goodreads.exception.UserDoesntExistException;
 import bg.sofia.uni.fmi.mjt.goodreads.exception.UsernameAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.goodreads.popularity.PopularBook;
+import bg.sofia.uni.fmi.mjt.goodreads.popularity.PopularityTracker;
+import bg.sofia.uni.fmi.mjt.goodreads.popularity.TimeWindow;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Page;
 import bg.sofia.uni.fmi.mjt.goodreads.storage.Storage;
+import bg.sofia.uni.fmi.mjt.goodreads.user.FriendSuggestion;
+import bg.sofia.uni.fmi.mjt.goodreads.user.Recommendation;
 import bg.sofia.uni.fmi.mjt.goodreads.user.Session;
 
 import java.net.URISyntaxException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class CommandExecutor {
-    private static final String INVALID_ARGS_COUNT_MESSAGE_FORMAT =
-            "Invalid count of arguments: \"%s\" expects %d arguments. Example: \"%s\"";
-
     private static final String LOGIN = "login";
     private static final String REGISTER = "register";
     private static final String LOGOUT = "logout";
@@ -42,11 +49,19 @@ public class CommandExecutor {
     private static final String REMOVE_LIST = "remove-list";
     private static final String VIEW_LIST = "view-list";
     private static final String REMOVE_BOOK = "remove-book";
+    private static final String REMOVE_BOOK_BY_ID = "remove-book-id";
     private static final String RECOMMEND_BOOK = "recommend-book";
     private static final String VIEW_FRIENDS_RECOMMENDED = "view-friends-recommended";
     private static final String VIEW_USER_RECOMMENDED = "view-user-recommended";
+    private static final String VIEW_FEED = "view-feed";
+    private static final String SIMILAR_BOOKS = "similar-books";
+    private static final String TRENDING = "trending";
+    private static final String MOST_SHELVED = "most-shelved";
+    private static final String FRIENDS_WITH_BOOK = "friends-with-book";
+    private static final String SUGGEST_FRIENDS = "suggest-friends";
     private static final String MENU = "menu";
     private static final String HELP = "help";
+    private static final int PAGE_SIZE = 10;
 
 
     private Storage storage;
@@ -55,42 +70,132 @@ public class CommandExecutor {
 
     private Map<String, BookDetails> loadedBookDetails;
 
+    private PopularityTracker popularityTracker;
+
+    private boolean readOnly;
+
+    private final List<CommandDefinition> definitions;
+
+    private final CommandRegistry registry;
+
     public CommandExecutor(Storage storage, BookRepository bookRepository) {
+        this(storage, bookRepository, new PopularityTracker());
+    }
+
+    public CommandExecutor(Storage storage, BookRepository bookRepository, PopularityTracker popularityTracker) {
         this.storage = storage;
         this.bookRepository = bookRepository;
-        this.loadedBookDetails = new HashMap<>();
+        // the lanes run commands of different clients at the same time
+        this.loadedBookDetails = new ConcurrentHashMap<>();
+        this.popularityTracker = popularityTracker;
+        this.definitions = commandDefinitions();
+        this.registry = new CommandRegistry(definitions);
+    }
+
+    public static CommandExecutor readOnly(Storage storage, BookRepository bookRepository) {
+        CommandExecutor commandExecutor = new CommandExecutor(storage, bookRepository);
+        commandExecutor.readOnly = true;
+        return commandExecutor;
+    }
+
+    // every command execute knows, for recognising them without decoding the request
+    public List<String> commandNames() {
+        return registry.names();
+    }
+
+    public List<CommandDefinition> definitions() {
+        return definitions;
+    }
+
+    // null for an unknown command
+    public CommandDefinition definition(String command) {
+        CommandRegistry.Entry entry = registry.lookup(command);
+        return entry == null ? null : entry.definition();
+    }
+
+    public List<CommandRegistry.Stats> commandStats() {
+        return registry.stats();
     }
 
     public String execute(Command cmd, Session session) {
-        return switch (cmd.command()) {
-            case REGISTER -> register(cmd.arguments(), session);
-            case LOGIN -> login(cmd.arguments(), session);
-            case LOGOUT -> logout(cmd.arguments(), session);
-            case SEARCH_TITLE -> searchTitle(cmd.arguments(), session);
-            case SEARCH_AUTHOR -> searchAuthor(cmd.arguments(), session);
-            case SEARCH_TITLE_AUTHOR -> searchTitleAndAuthor(cmd.arguments(), session);
-            case SELECT_BOOK -> selectBook(cmd.arguments(), session);
-            case DESELECT_BOOK -> deselect(cmd.arguments(), session);
-            case NEXT_PAGE -> nextPage(cmd.arguments(), session);
-            case PREV_PAGE -> prevPage(cmd.arguments(), session);
-            case ADD_TO_LIST -> addToList(cmd.arguments(), session);
-            case CREATE_LIST -> createList(cmd.arguments(), session);
-            case ADD_FRIEND -> addFriend(cmd.arguments(), session);
-            case REMOVE_LIST -> removeList(cmd.arguments(), session);
-            case REMOVE_BOOK -> removeBook(cmd.arguments(), session);
-            case RECOMMEND_BOOK -> recommendBook(cmd.arguments(), session);
-            case VIEW_USER_RECOMMENDED -> viewUserRecommended(cmd.arguments(), session);
-            case VIEW_FRIENDS_RECOMMENDED -> viewFriendsRecommended(cmd.arguments(), session);
-            case VIEW_LIST -> viewList(cmd.arguments(), session);
-            case HELP, MENU -> getCommandsDescription(cmd.arguments(), session);
-            default -> "Unknown command";
-        };
+        CommandRegistry.Entry entry = registry.lookup(cmd.command());
+        if (readOnly && (entry == null || !entry.definition().allowedOnReplica())) {
+            return "This server is a read-only replica, send that command to the primary";
+        }
+        if (entry == null) {
+            return "Unknown command";
+        }
+        return entry.run(cmd.arguments(), session);
+    }
+
+    // a new command only needs its definition here, the registry checks its arguments and session before the call
+    private List<CommandDefinition> commandDefinitions() {
+        return List.of(
+                CommandDefinition.builder(REGISTER, this::register).setArguments(2)
+                        .setUsage(REGISTER + " <username> <password>").setAccess(Access.LOGGED_OUT)
+                        .setCost(Cost.STORAGE).build(),
+                CommandDefinition.builder(LOGIN, this::login).setArguments(2)
+                        .setUsage(LOGIN + " <username> <password>").setAccess(Access.LOGGED_OUT)
+                        .setAllowedOnReplica(true).setCost(Cost.STORAGE).build(),
+                // logout answers a logged out user with a message of its own
+                CommandDefinition.builder(LOGOUT, this::logout).setAllowedOnReplica(true).build(),
+                CommandDefinition.builder(SEARCH_TITLE, this::searchTitle).setArguments(1)
+                        .setUsage(SEARCH_TITLE + " \"<book-title>\"").setCost(Cost.REMOTE).build(),
+                CommandDefinition.builder(SEARCH_AUTHOR, this::searchAuthor).setArguments(1)
+                        .setUsage(SEARCH_AUTHOR + " \"<book-author>\"").setCost(Cost.REMOTE).build(),
+                CommandDefinition.builder(SEARCH_TITLE_AUTHOR, this::searchTitleAndAuthor).setArguments(2)
+                        .setUsage(SEARCH_TITLE_AUTHOR + " \"<book-title>\" \"<book-author>\"")
+                        .setCost(Cost.REMOTE).build(),
+                CommandDefinition.builder(SELECT_BOOK, this::selectBook).setArguments(1)
+                        .setUsage(SELECT_BOOK + " <book number from list>").setCost(Cost.REMOTE).build(),
+                CommandDefinition.builder(DESELECT_BOOK, this::deselect).build(),
+                CommandDefinition.builder(NEXT_PAGE, this::nextPage).setCost(Cost.REMOTE).build(),
+                CommandDefinition.builder(PREV_PAGE, this::prevPage).build(),
+                CommandDefinition.builder(ADD_TO_LIST, this::addToList).setArguments(1)
+                        .setUsage(ADD_TO_LIST + " <list-name>").setAccess(Access.LOGGED_IN)
+                        .setCost(Cost.STORAGE).build(),
+                CommandDefinition.builder(CREATE_LIST, this::createList).setArguments(1)
+                        .setUsage(CREATE_LIST + " <list-name>").setAccess(Access.LOGGED_IN)
+                        .setCost(Cost.STORAGE).build(),
+                CommandDefinition.builder(ADD_FRIEND, this::addFriend).setArguments(1)
+                        .setUsage(ADD_FRIEND + " <friend-username>").setAccess(Access.LOGGED_IN)
+                        .setCost(Cost.STORAGE).build(),
+                CommandDefinition.builder(REMOVE_LIST, this::removeList).setArguments(1)
+                        .setUsage(REMOVE_LIST + " <list-name>").setAccess(Access.LOGGED_IN)
+                        .setCost(Cost.STORAGE).build(),
+                CommandDefinition.builder(REMOVE_BOOK, this::removeBook).setArguments(2)
+                        .setUsage(REMOVE_BOOK + " <list-name> <book index in list>").setAccess(Access.LOGGED_IN)
+                        .setCost(Cost.STORAGE).build(),
+                CommandDefinition.builder(REMOVE_BOOK_BY_ID, this::removeBookById).setArguments(2)
+                        .setUsage(REMOVE_BOOK_BY_ID + " <list-name> <book-id>").setAccess(Access.LOGGED_IN)
+                        .setCost(Cost.STORAGE).build(),
+                CommandDefinition.builder(RECOMMEND_BOOK, this::recommendBook).setAccess(Access.LOGGED_IN)
+                        .setCost(Cost.STORAGE).build(),
+                CommandDefinition.builder(VIEW_USER_RECOMMENDED, this::viewUserRecommended).setArguments(0, 1)
+                        .setUsage(VIEW_USER_RECOMMENDED + " [offset]").setAccess(Access.LOGGED_IN)
+                        .setAllowedOnReplica(true).setCost(Cost.STORAGE).build(),
+                CommandDefinition.builder(VIEW_FRIENDS_RECOMMENDED, this::viewFriendsRecommended).setArguments(0, 1)
+                        .setUsage(VIEW_FRIENDS_RECOMMENDED + " [cursor]").setAccess(Access.LOGGED_IN)
+                        .setAllowedOnReplica(true).setCost(Cost.STORAGE).build(),
+                CommandDefinition.builder(VIEW_LIST, this::viewList).setArguments(1, 2)
+                        .setUsage(VIEW_LIST + " <list-name> [offset]").setAccess(Access.LOGGED_IN)
+                        .setAllowedOnReplica(true).setCost(Cost.STORAGE).build(),
+                CommandDefinition.builder(VIEW_FEED, this::viewFeed).setArguments(0, 1)
+                        .setUsage(VIEW_FEED + " [cursor]").setAccess(Access.LOGGED_IN).setCost(Cost.STORAGE).build(),
+                CommandDefinition.builder(SIMILAR_BOOKS, this::similarBooks).setCost(Cost.STORAGE).build(),
+                CommandDefinition.builder(TRENDING, this::trending).setArguments(0, 1)
+                        .setUsage(TRENDING + " [hour|day|week]").build(),
+                CommandDefinition.builder(MOST_SHELVED, this::mostShelved).setArguments(0, 1)
+                        .setUsage(MOST_SHELVED + " [hour|day|week]").build(),
+                CommandDefinition.builder(FRIENDS_WITH_BOOK, this::friendsWithBook).setAccess(Access.LOGGED_IN)
+                        .setCost(Cost.STORAGE).build(),
+                CommandDefinition.builder(SUGGEST_FRIENDS, this::suggestFriends).setAccess(Access.LOGGED_IN)
+                        .setCost(Cost.STORAGE).build(),
+                CommandDefinition.builder(HELP, this::getCommandsDescription).addAlias(MENU)
+                        .setAllowedOnReplica(true).build());
     }
 
     private String getCommandsDescription(String[] args, Session session) {
-        if (args.length != 0) {
-            return String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT, HELP, 0, HELP) ;
-        }
         StringBuilder sb = new StringBuilder();
         sb.append("Command Descriptions:").append(System.lineSeparator());
         sb.append("login <username> <password>: Log in to the system.").append(System.lineSeparator());
@@ -108,24 +213,33 @@ public class CommandExecutor {
         sb.append("add-friend <friend_username>: Add a friend to your network.").append(System.lineSeparator());
         sb.append("create-list <list_name>: Create a new list for organizing books.").append(System.lineSeparator());
         sb.append("remove-list <list_name>: Remove a list from your collections.").append(System.lineSeparator());
-        sb.append("view-list <list_name>: View the contents of a specific list.").append(System.lineSeparator());
+        sb.append("view-list <list_name> [offset]: View a page of the contents of a specific list.")
+                .append(System.lineSeparator());
         sb.append("remove-book <list_name> <index>: Remove book at given index from a list.")
                 .append(System.lineSeparator());
+        sb.append("remove-book-id <list_name> <book_id>: Remove book with given id from a list.")
+                .append(System.lineSeparator());
         sb.append("recommend-book: Recommend the selected book to friends.").append(System.lineSeparator());
-        sb.append("view-friends-recommended: View books recommended by your friends.").append(System.lineSeparator());
-        sb.append("view-user-recommended: View books you have recommended.").append(System.lineSeparator());
+        sb.append("view-friends-recommended [cursor]: View books recommended by your friends.")
+                .append(System.lineSeparator());
+        sb.append("view-user-recommended [offset]: View books you have recommended.").append(System.lineSeparator());
+        sb.append("view-feed [cursor]: View the latest recommendations of your friends, page by page.")
+                .append(System.lineSeparator());
+        sb.append("similar-books: View books that readers of the selected book also shelved.")
+                .append(System.lineSeparator());
+        sb.append("trending [hour|day|week]: View the most popular books of the last day or the given window.")
+                .append(System.lineSeparator());
+        sb.append("most-shelved [hour|day|week]: View the most shelved books of the last day or the given window.")
+                .append(System.lineSeparator());
+        sb.append("friends-with-book: View which of your friends have the selected book on their lists.")
+                .append(System.lineSeparator());
+        sb.append("suggest-friends: View friends of your friends, ranked by mutual friends.")
+                .append(System.lineSeparator());
 
         return sb.toString();
     }
 
     private String register(String[] args, Session session) {
-        if (args.length != 2) {
-            return String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT, REGISTER, 2, REGISTER + " <username> <password>");
-        }
-        if (!session.getLoggedUserId().isEmpty()) {
-            return "You are already logged in the system";
-        }
-
         try {
             String newId = storage.register(args[0], args[1]);
             session.setLoggedUserId(newId);
@@ -137,12 +251,6 @@ public class CommandExecutor {
     }
 
     private String login(String[] args, Session session) {
-        if (args.length != 2) {
-            return String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT, LOGIN, 2, LOGIN + " <username> <password>");
-        }
-        if (!session.getLoggedUserId().isEmpty()) {
-            return "You are already logged in the system";
-        }
         try {
             String userId = storage.login(args[0], args[1]);
             session.setLoggedUserId(userId);
@@ -153,9 +261,6 @@ public class CommandExecutor {
     }
 
     private String logout(String[] args, Session session) {
-        if (args.length != 0) {
-            return String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT, LOGOUT, 0, LOGOUT);
-        }
         if (session.getLoggedUserId().isEmpty()) {
             return "You are not logged in the system";
         }
@@ -163,20 +268,6 @@ public class CommandExecutor {
         return "Logged out";
     }
 
-    private String printBooksResult(List<Book> books) {
-        if (books == null || books.isEmpty()) {
-            return "No books to show";
-        }
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < books.size(); i++) {
-            sb.append(i).append(" ").append(books.get(i));
-            if (i < books.size() - 1) {
-                sb.append(System.lineSeparator());
-            }
-        }
-        return sb.toString();
-    }
-
     private String printPage(List<Book> books, int page) {
         if (books == null || books.isEmpty() || page < 0) {
             return "No books to show";
@@ -195,11 +286,6 @@ public class CommandExecutor {
     }
 
     private String searchTitle(String[] args, Session session) {
-        if (args.length != 1) {
-            return String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT,
-                    SEARCH_TITLE, 1, SEARCH_TITLE + " \"<book-title>\"");
-        }
-
         try {
             BookRequest request = BookRequest.builder().setTitle(args[0]).build();
             List<Book> books  = new ArrayList<>(bookRepository.searchByRequest(request));
@@ -214,10 +300,6 @@ public class CommandExecutor {
     }
 
     private String searchAuthor(String[] args, Session session) {
-        if (args.length != 1) {
-            return String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT, SEARCH_AUTHOR, 1,
-                    SEARCH_AUTHOR + " \"<book-author>\"");
-        }
         try {
             BookRequest request = BookRequest.builder().setAuthor(args[0]).build();
             session.setLastRequest(request);
@@ -232,10 +314,6 @@ public class CommandExecutor {
     }
 
     private String searchTitleAndAuthor(String[] args, Session session) {
-        if (args.length != 2) {
-            return String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT, SEARCH_TITLE_AUTHOR, 2,
-                    SEARCH_TITLE_AUTHOR + " \"<book-title>\" \"<book-author>\"");
-        }
         try {
             BookRequest request = BookRequest.builder()
                     .setTitle(args[0])
@@ -253,9 +331,6 @@ public class CommandExecutor {
     }
 
     private String nextPage(String[] args, Session session) {
-        if (args.length != 0) {
-            return String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT, NEXT_PAGE, 0, NEXT_PAGE);
-        }
         if (session.getLastRequest() == null) {
             return "You haven't searched for a book yet";
         }
@@ -281,9 +356,6 @@ public class CommandExecutor {
     }
 
     private String prevPage(String[] args, Session session) {
-        if (args.length != 0) {
-            return String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT, PREV_PAGE, 0, PREV_PAGE);
-        }
         if (session.getLastRequest() == null) {
             return "You haven't searched for a book yet";
         }
@@ -295,10 +367,6 @@ public class CommandExecutor {
     }
 
     private String selectBook(String[] args, Session session) {
-        if (args.length != 1) {
-            return String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT, SELECT_BOOK, 1,
-                    SELECT_BOOK + " <book number from list>");
-        }
         if (session.getSelectedBook() != null) {
             return String.format("You already have a book selected. To deselect it use: %s", DESELECT_BOOK);
         }
@@ -317,6 +385,7 @@ public class CommandExecutor {
             Book book = session.getDisplayedBooks().get(passedIndex);
             BookDetails selectedBook = getBookDetails(book.id());
             session.setSelectedBook(book);
+            popularityTracker.bookSelected(book);
             return selectedBook.toString();
         } catch (APIResponseException | URISyntaxException e) {
             return String.format("Error occurred while processing request: %s", e.getMessage());
@@ -334,9 +403,6 @@ public class CommandExecutor {
     }
 
     private String deselect(String[] args, Session session) {
-        if (args.length != 0) {
-            return String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT, DESELECT_BOOK, 0, DESELECT_BOOK);
-        }
         if (session.getSelectedBook() == null) {
             return "You haven't selected a book";
         }
@@ -345,17 +411,15 @@ public class CommandExecutor {
     }
 
     private String addToList(String[] args, Session session) {
-        if (args.length != 1) {
-            return String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT, ADD_TO_LIST, 1, ADD_TO_LIST + " <list-name>");
-        }
-        if (session.getLoggedUserId() == null || session.getLoggedUserId().isEmpty()) {
-            return "You aren't logged in the system";
-        }
         if (session.getSelectedBook() == null) {
             return "You haven't selected a book, select a book by first searching the Book Repository";
         }
         try {
+            if (storage.containsBook(session.getLoggedUserId(), args[0], session.getSelectedBook().id())) {
+                return String.format("%s is already in %s", session.getSelectedBook().title(), args[0]);
+            }
             storage.addToList(session.getLoggedUserId(), args[0], session.getSelectedBook());
+            popularityTracker.bookShelved(session.getSelectedBook());
             return String.format("Successfully added %s to %s", session.getSelectedBook().title(), args[0]);
         } catch (ListNameDoesntExistException e) {
             return e.getMessage();
@@ -363,12 +427,6 @@ public class CommandExecutor {
     }
 
     private String addFriend(String[] args, Session session) {
-        if (args.length != 1) {
-            return String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT, ADD_FRIEND, 1, ADD_FRIEND + " <friend-username>");
-        }
-        if (session.getLoggedUserId() == null || session.getLoggedUserId().isEmpty()) {
-            return "You aren't logged in the system";
-        }
         try {
             storage.addFriend(session.getLoggedUserId(), args[0]);
             return "Friend added successfully";
@@ -378,12 +436,6 @@ public class CommandExecutor {
     }
 
     private String createList(String[] args, Session session) {
-        if (args.length != 1) {
-            return String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT, CREATE_LIST, 1, CREATE_LIST + " <list-name>");
-        }
-        if (session.getLoggedUserId() == null || session.getLoggedUserId().isEmpty()) {
-            return "You aren't logged in the system";
-        }
         try {
             storage.createList(session.getLoggedUserId(), args[0]);
             return "List created successfully";
@@ -393,12 +445,6 @@ public class CommandExecutor {
     }
 
     private String removeList(String[] args, Session session) {
-        if (args.length != 1) {
-            return String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT, REMOVE_LIST, 1, REMOVE_LIST + " <list-name>");
-        }
-        if (session.getLoggedUserId() == null || session.getLoggedUserId().isEmpty()) {
-            return "You aren't logged in the system";
-        }
         try {
             storage.removeList(session.getLoggedUserId(), args[0]);
             return "List removed successfully";
@@ -408,13 +454,6 @@ public class CommandExecutor {
     }
 
     private String removeBook(String[] args, Session session) {
-        if (args.length != 2) {
-            return String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT, REMOVE_BOOK, 2,
-                    REMOVE_BOOK + " <list-name> <book index in list>");
-        }
-        if (session.getLoggedUserId() == null || session.getLoggedUserId().isEmpty()) {
-            return "You aren't logged in the system";
-        }
         try {
             storage.removeFromList(session.getLoggedUserId(), args[0], Integer.parseInt(args[1]));
             return "Book removed successfully";
@@ -425,71 +464,208 @@ public class CommandExecutor {
         }
     }
 
-    private String recommendBook(String[] args, Session session) {
-        if (args.length != 0) {
-            return String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT, RECOMMEND_BOOK, 0, RECOMMEND_BOOK);
-        }
-        if (session.getLoggedUserId() == null || session.getLoggedUserId().isEmpty()) {
-            return "You aren't logged in the system";
+    private String removeBookById(String[] args, Session session) {
+        try {
+            storage.removeBookFromList(session.getLoggedUserId(), args[0], args[1]);
+            return "Book removed successfully";
+        } catch (BookNotInListException | ListNameDoesntExistException e) {
+            return e.getMessage();
         }
+    }
+
+    private String recommendBook(String[] args, Session session) {
         if (session.getSelectedBook() == null) {
             return "You haven't selected a book, select a book by first searching the Book Repository";
         }
         storage.recommendBook(session.getLoggedUserId(), session.getSelectedBook());
+        popularityTracker.bookRecommended(session.getSelectedBook());
         return "Book added to recommendations";
     }
 
     private String viewUserRecommended(String[] args, Session session) {
-        if (args.length != 0) {
-            return String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT, VIEW_USER_RECOMMENDED, 0, VIEW_USER_RECOMMENDED);
+        try {
+            int offset = args.length == 0 ? 0 : Integer.parseInt(args[0]);
+            Page<Book> page = storage.getUserRecommendations(session.getLoggedUserId(), offset, PAGE_SIZE);
+            if (page.items().isEmpty() && offset == 0) {
+                return "No recommended books";
+            }
+            return printBooksPage(page, offset, VIEW_USER_RECOMMENDED);
+        } catch (IllegalArgumentException e) {
+            return "Invalid offset";
+        }
+    }
+
+    private String viewFriendsRecommended(String[] args, Session session) {
+        Page<Recommendation> page;
+        try {
+            page = storage.getFriendsRecommendations(session.getLoggedUserId(), args.length == 0 ? null : args[0],
+                    PAGE_SIZE);
+        } catch (IllegalArgumentException e) {
+            return "Invalid cursor";
         }
-        if (session.getLoggedUserId() == null || session.getLoggedUserId().isEmpty()) {
-            return "You aren't logged in the system";
+        // consecutive recommendations of the same friend are shown on one line
+        StringBuilder sb = new StringBuilder();
+        String lastFriend = null;
+        for (Recommendation recommendation : page.items()) {
+            if (recommendation.friendUsername().equals(lastFriend)) {
+                sb.append(", ");
+            } else {
+                if (lastFriend != null) {
+                    sb.append(System.lineSeparator());
+                }
+                sb.append(recommendation.friendUsername()).append(" recommends ");
+                lastFriend = recommendation.friendUsername();
+            }
+            sb.append(recommendation.book());
         }
-        List<Book> userRecommendations = storage.getUserRecommendations(session.getLoggedUserId());
-        if (userRecommendations == null || userRecommendations.isEmpty()) {
-            return "No recommended books";
+        if (lastFriend != null) {
+            sb.append(System.lineSeparator());
         }
-        return printBooksResult(userRecommendations);
+        appendNextPage(sb, page, VIEW_FRIENDS_RECOMMENDED);
+        return sb.toString();
     }
 
-    private String viewFriendsRecommended(String[] args, Session session) {
-        if (args.length != 0) {
-            return String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT, VIEW_FRIENDS_RECOMMENDED, 0,
-                    VIEW_FRIENDS_RECOMMENDED);
+    private String viewList(String[] args, Session session) {
+        try {
+            int offset = args.length == 1 ? 0 : Integer.parseInt(args[1]);
+            Page<Book> page = storage.getList(session.getLoggedUserId(), args[0], offset, PAGE_SIZE);
+            return printBooksPage(page, offset, VIEW_LIST + " " + args[0]);
+        } catch (ListNameDoesntExistException e) {
+            return e.getMessage();
+        } catch (IllegalArgumentException e) {
+            return "Invalid offset";
         }
-        if (session.getLoggedUserId() == null || session.getLoggedUserId().isEmpty()) {
-            return "You aren't logged in the system";
+    }
+
+    // books are numbered by their position in the whole list, so the numbers can be passed to remove-book
+    private String printBooksPage(Page<Book> page, int offset, String nextPageCommand) {
+        if (page.items().isEmpty()) {
+            return "No books to show";
         }
-        Map<String, List<Book>> friendsRecommendation = storage.getFriendsRecommendations(session.getLoggedUserId());
         StringBuilder sb = new StringBuilder();
-        for (String s : friendsRecommendation.keySet()) {
-            if (friendsRecommendation.get(s).isEmpty()) {
-                continue;
+        for (int i = 0; i < page.items().size(); i++) {
+            sb.append(offset + i).append(" ").append(page.items().get(i));
+            if (i < page.items().size() - 1) {
+                sb.append(System.lineSeparator());
             }
-
-            sb.append(s).append(" recommends ");
-            sb.append(
-                    friendsRecommendation.get(s).stream()
-                            .map(Book::toString)
-                            .collect(Collectors.joining(", "))
-            );
+        }
+        if (page.hasNext()) {
             sb.append(System.lineSeparator());
+            appendNextPage(sb, page, nextPageCommand);
         }
         return sb.toString();
     }
 
-    private String viewList(String[] args, Session session) {
-        if (args.length != 1) {
-            return String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT, VIEW_LIST, 1, VIEW_LIST + " <list-name>");
+    private static void appendNextPage(StringBuilder sb, Page<?> page, String nextPageCommand) {
+        if (page.hasNext()) {
+            sb.append("More: ").append(nextPageCommand).append(' ').append(page.nextCursor())
+                    .append(System.lineSeparator());
+        }
+    }
+
+    private String viewFeed(String[] args, Session session) {
+        Page<Recommendation> page;
+        try {
+            page = storage.getRecommendationFeed(session.getLoggedUserId(), args.length == 0 ? null : args[0],
+                    PAGE_SIZE);
+        } catch (IllegalArgumentException e) {
+            return "Invalid cursor";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Recommendation recommendation : page.items()) {
+            sb.append(recommendation.friendUsername()).append(" recommends ")
+                    .append(recommendation.book()).append(System.lineSeparator());
+        }
+        appendNextPage(sb, page, VIEW_FEED);
+        return sb.toString();
+    }
+
+    private String similarBooks(String[] args, Session session) {
+        if (session.getSelectedBook() == null) {
+            return "You haven't selected a book, select a book by first searching the Book Repository";
+        }
+        List<Book> similar = storage.getSimilarBooks(session.getSelectedBook().id(), PAGE_SIZE);
+        if (similar.isEmpty()) {
+            return "No similar books found";
+        }
+        StringBuilder sb = new StringBuilder("Readers also shelved:");
+        for (Book book : similar) {
+            sb.append(System.lineSeparator()).append(book);
+        }
+        return sb.toString();
+    }
+
+    private String trending(String[] args, Session session) {
+        TimeWindow window = parseWindow(args);
+        if (window == null) {
+            return "Invalid window, expected one of hour, day or week";
+        }
+        return printPopularBooks(popularityTracker.trending(window, PAGE_SIZE));
+    }
+
+    private String mostShelved(String[] args, Session session) {
+        TimeWindow window = parseWindow(args);
+        if (window == null) {
+            return "Invalid window, expected one of hour, day or week";
         }
-        if (session.getLoggedUserId() == null || session.getLoggedUserId().isEmpty()) {
-            return "You aren't logged in the system";
+        return printPopularBooks(popularityTracker.mostShelved(window, PAGE_SIZE));
+    }
+
+    private static TimeWindow parseWindow(String[] args) {
+        if (args.length == 0) {
+            return TimeWindow.DAY;
         }
         try {
-            return printBooksResult(storage.getList(session.getLoggedUserId(), args[0]));
-        } catch (ListNameDoesntExistException e) {
-            return e.getMessage();
+            return TimeWindow.valueOf(args[0].toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private String printPopularBooks(List<PopularBook> books) {
+        if (books.isEmpty()) {
+            return "No books to show";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < books.size(); i++) {
+            sb.append(i).append(" ").append(books.get(i).book()).append(" (").append(books.get(i).count()).append(")");
+            if (i < books.size() - 1) {
+                sb.append(System.lineSeparator());
+            }
+        }
+        return sb.toString();
+    }
+
+    private String friendsWithBook(String[] args, Session session) {
+        if (session.getSelectedBook() == null) {
+            return "You haven't selected a book, select a book by first searching the Book Repository";
+        }
+        Map<String, List<String>> friends =
+                storage.getFriendsWithBook(session.getLoggedUserId(), session.getSelectedBook().id());
+        if (friends.isEmpty()) {
+            return "None of your friends have this book";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, List<String>> friend : friends.entrySet()) {
+            sb.append(friend.getKey()).append(" has it on ").append(String.join(", ", friend.getValue()))
+                    .append(System.lineSeparator());
         }
+        return sb.toString();
+    }
+
+    private String suggestFriends(String[] args, Session session) {
+        List<FriendSuggestion> suggestions = storage.suggestFriends(session.getLoggedUserId(), PAGE_SIZE);
+        if (suggestions.isEmpty()) {
+            return "No friend suggestions yet";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < suggestions.size(); i++) {
+            FriendSuggestion suggestion = suggestions.get(i);
+            sb.append(suggestion.username()).append(" (").append(suggestion.mutualFriends()).append(" mutual)");
+            if (i < suggestions.size() - 1) {
+                sb.append(System.lineSeparator());
+            }
+        }
+        return sb.toString();
     }
 }
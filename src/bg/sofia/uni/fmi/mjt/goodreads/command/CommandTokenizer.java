@@ -0,0 +1,170 @@
+package bg.sofia.uni.fmi.mjt.goodreads.command;
+
+import bg.sofia.uni.fmi.mjt.goodreads.command.registry.CommandDefinition;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * Splits a command the way CommandCreator does, spaces outside quotes end a token and quotes are dropped, but
+ * straight from the bytes the server read. Tokens are kept as offsets into the buffer in arrays that are reused
+ * from command to command, so tokenizing allocates nothing. Quotes and spaces are ASCII and never occur inside a
+ * multi-byte UTF-8 sequence, so the bytes can be split without decoding them. The command name is matched
+ * against the known names byte by byte, and the argument count is checked against the command's definition
+ * before anything is decoded: arguments become strings only for a known command that will run with them.
+ * One instance serves one thread; a token is valid until the buffer is refilled.
+ */
+public class CommandTokenizer {
+    private static final byte SPACE = ' ';
+    private static final byte QUOTE = '"';
+    private static final int INITIAL_TOKENS = 8;
+    private static final int INITIAL_TOKEN_BYTES = 64;
+    private static final String[] NO_ARGUMENTS = new String[0];
+    private static final int BYTE_VALUES = 256;
+    private static final int[] NO_CANDIDATES = new int[0];
+
+    private final String[] commandNames;
+    private final CommandDefinition[] definitionOfName;
+    private final byte[][] commandNameBytes;
+    // indexes of the names starting with each byte, so a name is compared only with the few that could match
+    private final int[][] candidatesByFirstByte;
+    private ByteBuffer input;
+    private int[] starts;
+    private int[] ends;
+    private int count;
+    private byte[] tokenBytes;
+
+    public CommandTokenizer(List<CommandDefinition> definitions) {
+        List<String> names = new ArrayList<>();
+        List<CommandDefinition> definitionOfName = new ArrayList<>();
+        for (CommandDefinition definition : definitions) {
+            names.add(definition.name());
+            definitionOfName.add(definition);
+            for (String alias : definition.aliases()) {
+                names.add(alias);
+                definitionOfName.add(definition);
+            }
+        }
+        this.commandNames = names.toArray(new String[0]);
+        this.definitionOfName = definitionOfName.toArray(new CommandDefinition[0]);
+        this.commandNameBytes = new byte[this.commandNames.length][];
+        for (int i = 0; i < this.commandNames.length; i++) {
+            commandNameBytes[i] = this.commandNames[i].getBytes(StandardCharsets.UTF_8);
+        }
+        this.candidatesByFirstByte = new int[BYTE_VALUES][];
+        Arrays.fill(candidatesByFirstByte, NO_CANDIDATES);
+        for (int i = 0; i < commandNameBytes.length; i++) {
+            if (commandNameBytes[i].length > 0) {
+                int first = Byte.toUnsignedInt(commandNameBytes[i][0]);
+                candidatesByFirstByte[first] = Arrays.copyOf(candidatesByFirstByte[first],
+                        candidatesByFirstByte[first].length + 1);
+                candidatesByFirstByte[first][candidatesByFirstByte[first].length - 1] = i;
+            }
+        }
+        this.starts = new int[INITIAL_TOKENS];
+        this.ends = new int[INITIAL_TOKENS];
+        this.tokenBytes = new byte[INITIAL_TOKEN_BYTES];
+    }
+
+    // splits the buffer's remaining bytes, the buffer's position and limit are left as they are
+    public void tokenize(ByteBuffer buffer) {
+        input = buffer;
+        count = 0;
+        boolean insideQuote = false;
+        int start = buffer.position();
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            byte b = buffer.get(i);
+            if (b == QUOTE) {
+                insideQuote = !insideQuote;
+            } else if (b == SPACE && !insideQuote) {
+                addToken(start, i);
+                start = i + 1;
+            }
+        }
+        addToken(start, buffer.limit());
+    }
+
+    public int tokenCount() {
+        return count;
+    }
+
+    public boolean tokenEquals(int token, byte[] expected) {
+        int matched = 0;
+        for (int i = starts[token]; i < ends[token]; i++) {
+            byte b = input.get(i);
+            if (b == QUOTE) {
+                continue;
+            }
+            if (matched == expected.length || b != expected[matched]) {
+                return false;
+            }
+            matched++;
+        }
+        return matched == expected.length;
+    }
+
+    // the known name the first token spells, without allocating; null for an unknown command
+    public String commandName() {
+        int index = commandIndex();
+        return index < 0 ? null : commandNames[index];
+    }
+
+    public String token(int token) {
+        int length = 0;
+        for (int i = starts[token]; i < ends[token]; i++) {
+            byte b = input.get(i);
+            if (b != QUOTE) {
+                if (length == tokenBytes.length) {
+                    tokenBytes = Arrays.copyOf(tokenBytes, 2 * tokenBytes.length);
+                }
+                tokenBytes[length++] = b;
+            }
+        }
+        return new String(tokenBytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    // an unknown command, or one with the wrong number of arguments, is answered without looking at its arguments,
+    // so they aren't decoded; the latter keeps an array of the right length for the definition to turn down
+    public Command toCommand() {
+        int index = commandIndex();
+        if (index < 0) {
+            return new Command(token(0), NO_ARGUMENTS);
+        }
+        String[] arguments = count == 1 ? NO_ARGUMENTS : new String[count - 1];
+        if (definitionOfName[index].acceptsArguments(arguments.length)) {
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = token(i + 1);
+            }
+        }
+        return new Command(commandNames[index], arguments);
+    }
+
+    private int commandIndex() {
+        int first = starts[0];
+        while (first < ends[0] && input.get(first) == QUOTE) {
+            first++;
+        }
+        if (first == ends[0]) {
+            return -1;
+        }
+        for (int candidate : candidatesByFirstByte[Byte.toUnsignedInt(input.get(first))]) {
+            if (tokenEquals(0, commandNameBytes[candidate])) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    private void addToken(int start, int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, 2 * count);
+            ends = Arrays.copyOf(ends, 2 * count);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+}
@@ -0,0 +1,180 @@
+package bg.sofia.uni.fmi.mjt.goodreads.command.registry;
+
+import bg.sofia.uni.fmi.mjt.goodreads.user.Session;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * What the registry needs to know about a command before running its handler: how many arguments it takes, who
+ * may run it, whether a read-only replica answers it and how expensive it is. The argument count and the session
+ * are checked here, so a handler starts with arguments it can use.
+ */
+public class CommandDefinition {
+    private static final String INVALID_ARGS_COUNT_MESSAGE_FORMAT =
+            "Invalid count of arguments: \"%s\" expects %d arguments. Example: \"%s\"";
+
+    public enum Access {
+        ANYONE(null),
+        LOGGED_IN("You aren't logged in the system"),
+        LOGGED_OUT("You are already logged in the system");
+
+        private final String deniedMessage;
+
+        Access(String deniedMessage) {
+            this.deniedMessage = deniedMessage;
+        }
+
+        boolean allows(Session session) {
+            boolean loggedIn = session.getLoggedUserId() != null && !session.getLoggedUserId().isEmpty();
+            return switch (this) {
+                case ANYONE -> true;
+                case LOGGED_IN -> loggedIn;
+                case LOGGED_OUT -> !loggedIn;
+            };
+        }
+    }
+
+    // MEMORY only touches the session, STORAGE reads or writes the user tables, REMOTE calls the book API
+    public enum Cost {
+        MEMORY,
+        STORAGE,
+        REMOTE
+    }
+
+    private final String name;
+    private final List<String> aliases;
+    private final int minArguments;
+    private final int maxArguments;
+    private final String usage;
+    private final Access access;
+    private final boolean allowedOnReplica;
+    private final Cost cost;
+    private final Lane lane;
+    private final CommandHandler handler;
+
+    private CommandDefinition(CommandDefinitionBuilder builder) {
+        this.name = builder.name;
+        this.aliases = List.copyOf(builder.aliases);
+        this.minArguments = builder.minArguments;
+        this.maxArguments = builder.maxArguments;
+        this.usage = builder.usage == null ? builder.name : builder.usage;
+        this.access = builder.access;
+        this.allowedOnReplica = builder.allowedOnReplica;
+        this.cost = builder.cost;
+        this.lane = builder.lane != null ? builder.lane : builder.cost == Cost.REMOTE ? Lane.BLOCKING : Lane.FAST;
+        this.handler = builder.handler;
+    }
+
+    public static CommandDefinitionBuilder builder(String name, CommandHandler handler) {
+        return new CommandDefinitionBuilder(name, handler);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public List<String> aliases() {
+        return aliases;
+    }
+
+    public Access access() {
+        return access;
+    }
+
+    public boolean allowedOnReplica() {
+        return allowedOnReplica;
+    }
+
+    public Cost cost() {
+        return cost;
+    }
+
+    public Lane lane() {
+        return lane;
+    }
+
+    public boolean acceptsArguments(int count) {
+        return count >= minArguments && count <= maxArguments;
+    }
+
+    // checks the arguments and the session, then hands over to the handler
+    public String run(String[] args, Session session) {
+        if (!acceptsArguments(args.length)) {
+            // the usage names the required arguments, or the optional one when nothing is required
+            int expected = minArguments > 0 ? minArguments : maxArguments;
+            return String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT, name, expected, usage);
+        }
+        if (!access.allows(session)) {
+            return access.deniedMessage;
+        }
+        return handler.handle(args, session);
+    }
+
+    public static class CommandDefinitionBuilder {
+        private final String name;
+        private final CommandHandler handler;
+        private final List<String> aliases = new ArrayList<>();
+        private int minArguments;
+        private int maxArguments;
+        private String usage;
+        private Access access = Access.ANYONE;
+        private boolean allowedOnReplica;
+        private Cost cost = Cost.MEMORY;
+        private Lane lane;
+
+        private CommandDefinitionBuilder(String name, CommandHandler handler) {
+            this.name = name;
+            this.handler = handler;
+        }
+
+        public CommandDefinitionBuilder setArguments(int count) {
+            return setArguments(count, count);
+        }
+
+        public CommandDefinitionBuilder setArguments(int min, int max) {
+            this.minArguments = min;
+            this.maxArguments = max;
+            return this;
+        }
+
+        // the example shown when the argument count is wrong, the bare name by default
+        public CommandDefinitionBuilder setUsage(String usage) {
+            this.usage = usage;
+            return this;
+        }
+
+        public CommandDefinitionBuilder setAccess(Access access) {
+            this.access = access;
+            return this;
+        }
+
+        public CommandDefinitionBuilder setAllowedOnReplica(boolean allowedOnReplica) {
+            this.allowedOnReplica = allowedOnReplica;
+            return this;
+        }
+
+        public CommandDefinitionBuilder setCost(Cost cost) {
+            this.cost = cost;
+            return this;
+        }
+
+        // REMOTE commands go to the blocking lane unless told otherwise, the rest to the fast one
+        public CommandDefinitionBuilder setLane(Lane lane) {
+            this.lane = lane;
+            return this;
+        }
+
+        public CommandDefinitionBuilder addAlias(String alias) {
+            aliases.add(alias);
+            return this;
+        }
+
+        public CommandDefinition build() {
+            if (minArguments < 0 || maxArguments < minArguments) {
+                throw new IllegalArgumentException("Invalid argument range for " + name);
+            }
+            return new CommandDefinition(this);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package bg.sofia.uni.fmi.mjt.goodreads.command.registry;
+
+import bg.sofia.uni.fmi.mjt.goodreads.user.Session;
+
+@FunctionalInterface
+public interface CommandHandler {
+    String handle(String[] args, Session session);
+}
@@ -0,0 +1,160 @@
+package bg.sofia.uni.fmi.mjt.goodreads.command.registry;
+
+import bg.sofia.uni.fmi.mjt.goodreads.user.Session;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Finds a command's definition by name with a perfect hash: the names are known up front, so a seed is searched
+ * for that sends every one of them to its own slot of a power-of-two table. A lookup is then one multiplication
+ * and one string comparison, which also rejects unknown names that land on a taken slot. Every command counts
+ * its calls and times them.
+ */
+public class CommandRegistry {
+    private static final int INT_BITS = 32;
+    private static final int HALF_INT_BITS = 16;
+    // a table twice the number of names usually gets a seed within a few hundred tries
+    private static final int LOAD_FACTOR_INVERSE = 2;
+    private static final int SEEDS_PER_SIZE = 1 << 16;
+    private static final int MAX_TABLE_BITS = 20;
+    private static final double NANOS_PER_MICRO = 1_000.0;
+
+    private final List<Entry> entries;
+    private final String[] names;
+    private final Entry[] slots;
+    private final int seed;
+    private final int shift;
+
+    public record Stats(String name, Lane lane, CommandDefinition.Cost cost, long calls, double meanMicros,
+                        double maxMicros) {
+    }
+
+    public static final class Entry {
+        private final CommandDefinition definition;
+        private final LongAdder calls;
+        private final LongAdder nanos;
+        private final LongAccumulator maxNanos;
+
+        private Entry(CommandDefinition definition) {
+            this.definition = definition;
+            this.calls = new LongAdder();
+            this.nanos = new LongAdder();
+            this.maxNanos = new LongAccumulator(Math::max, 0);
+        }
+
+        public CommandDefinition definition() {
+            return definition;
+        }
+
+        public String run(String[] args, Session session) {
+            long start = System.nanoTime();
+            try {
+                return definition.run(args, session);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                calls.increment();
+                nanos.add(elapsed);
+                maxNanos.accumulate(elapsed);
+            }
+        }
+
+        private Stats stats() {
+            long count = calls.sum();
+            return new Stats(definition.name(), definition.lane(), definition.cost(), count,
+                    count == 0 ? 0 : nanos.sum() / NANOS_PER_MICRO / count, maxNanos.get() / NANOS_PER_MICRO);
+        }
+    }
+
+    public CommandRegistry(List<CommandDefinition> definitions) {
+        List<Entry> entries = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Entry> entryOfName = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (CommandDefinition definition : definitions) {
+            Entry entry = new Entry(definition);
+            entries.add(entry);
+            List<String> entryNames = new ArrayList<>(definition.aliases());
+            entryNames.addFirst(definition.name());
+            for (String name : entryNames) {
+                if (!seen.add(name)) {
+                    throw new IllegalArgumentException("Command registered twice: " + name);
+                }
+                names.add(name);
+                entryOfName.add(entry);
+            }
+        }
+        this.entries = Collections.unmodifiableList(entries);
+
+        int minSlots = LOAD_FACTOR_INVERSE * Math.max(1, names.size());
+        int bits = Math.max(1, INT_BITS - Integer.numberOfLeadingZeros(minSlots - 1));
+        int foundSeed = 0;
+        while (foundSeed == 0) {
+            if (bits > MAX_TABLE_BITS) {
+                throw new IllegalStateException("No perfect hash for the command names");
+            }
+            foundSeed = findSeed(names, bits);
+            if (foundSeed == 0) {
+                bits++;
+            }
+        }
+        this.seed = foundSeed;
+        this.shift = INT_BITS - bits;
+        this.names = new String[1 << bits];
+        this.slots = new Entry[1 << bits];
+        for (int i = 0; i < names.size(); i++) {
+            int slot = slot(names.get(i), seed, shift);
+            this.names[slot] = names.get(i);
+            this.slots[slot] = entryOfName.get(i);
+        }
+    }
+
+    // null for a name that isn't registered
+    public Entry lookup(String name) {
+        int slot = slot(name, seed, shift);
+        return name.equals(names[slot]) ? slots[slot] : null;
+    }
+
+    // every registered name, aliases included
+    public List<String> names() {
+        List<String> result = new ArrayList<>();
+        for (Entry entry : entries) {
+            result.add(entry.definition.name());
+            result.addAll(entry.definition.aliases());
+        }
+        return result;
+    }
+
+    public List<Stats> stats() {
+        return entries.stream().map(Entry::stats).toList();
+    }
+
+    // an odd seed that gives every name its own slot, 0 when none of the tried ones does
+    private static int findSeed(List<String> names, int bits) {
+        boolean[] taken = new boolean[1 << bits];
+        for (int seed = 1; seed < 2 * SEEDS_PER_SIZE; seed += 2) {
+            Arrays.fill(taken, false);
+            boolean collision = false;
+            for (int i = 0; i < names.size() && !collision; i++) {
+                int slot = slot(names.get(i), seed, INT_BITS - bits);
+                collision = taken[slot];
+                taken[slot] = true;
+            }
+            if (!collision) {
+                return seed;
+            }
+        }
+        return 0;
+    }
+
+    private static int slot(String name, int seed, int shift) {
+        int hash = name.hashCode();
+        return ((hash ^ (hash >>> HALF_INT_BITS)) * seed) >>> shift;
+    }
+}
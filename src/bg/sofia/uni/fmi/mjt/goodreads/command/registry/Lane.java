@@ -0,0 +1,7 @@
+package bg.sofia.uni.fmi.mjt.goodreads.command.registry;
+
+// where a command runs: FAST commands finish in memory, BLOCKING ones may wait on a remote service
+public enum Lane {
+    FAST,
+    BLOCKING
+}
@@ -0,0 +1,148 @@
+package bg.sofia.uni.fmi.mjt.goodreads.command.scheduling;
+
+import bg.sofia.uni.fmi.mjt.goodreads.command.Command;
+import bg.sofia.uni.fmi.mjt.goodreads.command.CommandExecutor;
+import bg.sofia.uni.fmi.mjt.goodreads.command.registry.CommandDefinition;
+import bg.sofia.uni.fmi.mjt.goodreads.command.registry.Lane;
+import bg.sofia.uni.fmi.mjt.goodreads.user.Session;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Runs every command in the lane its definition names, each lane with its own bounded pool and queue, so commands
+ * answered from memory never wait behind searches that are waiting on the book API. A full lane turns the command
+ * away at once instead of queueing it without bound. Latencies are measured from submission to the answer, so
+ * they include the time spent in the queue.
+ */
+public class CommandScheduler implements Closeable {
+    public static final String BUSY_MESSAGE = "The server is busy, please try again later";
+    private static final int DEFAULT_FAST_QUEUE = 1024;
+    private static final int DEFAULT_BLOCKING_THREADS = 32;
+    private static final int DEFAULT_BLOCKING_QUEUE = 256;
+    private static final double MEDIAN = 0.5;
+    private static final double P99 = 0.99;
+
+    private final CommandExecutor commandExecutor;
+    private final Map<Lane, LaneExecutor> lanes;
+
+    public record LaneConfig(int threads, int queueCapacity) {
+        public LaneConfig {
+            if (threads <= 0 || queueCapacity <= 0) {
+                throw new IllegalArgumentException("A lane needs at least one thread and one queue slot");
+            }
+        }
+    }
+
+    public record LaneStats(Lane lane, int threads, int queueDepth, int maxQueueDepth, long completed,
+                            long rejected, double p50Micros, double p99Micros, double maxMicros) {
+    }
+
+    private static final class LaneExecutor {
+        private final Lane lane;
+        private final int threads;
+        private final ThreadPoolExecutor pool;
+        private final LatencyHistogram latencies;
+        private final LongAdder rejected;
+        private final LongAccumulator maxQueueDepth;
+
+        private LaneExecutor(Lane lane, LaneConfig config) {
+            this.lane = lane;
+            this.threads = config.threads();
+            this.pool = new ThreadPoolExecutor(config.threads(), config.threads(), 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(config.queueCapacity()), threadFactory(lane));
+            this.latencies = new LatencyHistogram();
+            this.rejected = new LongAdder();
+            this.maxQueueDepth = new LongAccumulator(Math::max, 0);
+        }
+
+        private LaneStats stats() {
+            return new LaneStats(lane, threads, pool.getQueue().size(), (int) maxQueueDepth.get(),
+                    latencies.count(), rejected.sum(), latencies.percentileMicros(MEDIAN),
+                    latencies.percentileMicros(P99), latencies.maxMicros());
+        }
+
+        private static ThreadFactory threadFactory(Lane lane) {
+            AtomicInteger number = new AtomicInteger();
+            return runnable -> {
+                String name = lane.name().toLowerCase(Locale.ROOT) + "-lane-" + number.incrementAndGet();
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+    }
+
+    public CommandScheduler(CommandExecutor commandExecutor, Map<Lane, LaneConfig> configs) {
+        this.commandExecutor = commandExecutor;
+        this.lanes = new EnumMap<>(Lane.class);
+        for (Lane lane : Lane.values()) {
+            if (!configs.containsKey(lane)) {
+                throw new IllegalArgumentException("No configuration for the " + lane + " lane");
+            }
+            lanes.put(lane, new LaneExecutor(lane, configs.get(lane)));
+        }
+    }
+
+    // a fast thread per core, and enough blocking ones to keep a few dozen searches waiting on the API at once
+    public static CommandScheduler withDefaults(CommandExecutor commandExecutor) {
+        return new CommandScheduler(commandExecutor, Map.of(
+                Lane.FAST, new LaneConfig(Runtime.getRuntime().availableProcessors(), DEFAULT_FAST_QUEUE),
+                Lane.BLOCKING, new LaneConfig(DEFAULT_BLOCKING_THREADS, DEFAULT_BLOCKING_QUEUE)));
+    }
+
+    // unknown commands are answered in the fast lane; a full lane answers with BUSY_MESSAGE right away
+    public CompletableFuture<String> submit(Command command, Session session) {
+        CommandDefinition definition = commandExecutor.definition(command.command());
+        LaneExecutor lane = lanes.get(definition == null ? Lane.FAST : definition.lane());
+        CompletableFuture<String> answer = new CompletableFuture<>();
+        long submitted = System.nanoTime();
+        try {
+            lane.pool.execute(() -> {
+                // recorded before completing, so whoever waits on the answer already sees it in the stats
+                try {
+                    String output = commandExecutor.execute(command, session);
+                    lane.latencies.record(System.nanoTime() - submitted);
+                    answer.complete(output);
+                } catch (RuntimeException e) {
+                    lane.latencies.record(System.nanoTime() - submitted);
+                    answer.completeExceptionally(e);
+                }
+            });
+            lane.maxQueueDepth.accumulate(lane.pool.getQueue().size());
+        } catch (RejectedExecutionException e) {
+            lane.rejected.increment();
+            answer.complete(BUSY_MESSAGE);
+        }
+        return answer;
+    }
+
+    public List<LaneStats> stats() {
+        List<LaneStats> stats = new ArrayList<>();
+        for (LaneExecutor lane : lanes.values()) {
+            stats.add(lane.stats());
+        }
+        return stats;
+    }
+
+    // waits for the commands already accepted
+    @Override
+    public void close() {
+        for (LaneExecutor lane : lanes.values()) {
+            lane.pool.close();
+        }
+    }
+}
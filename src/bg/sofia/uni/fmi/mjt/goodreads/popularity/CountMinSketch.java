@@ -0,0 +1,63 @@
+package bg.sofia.uni.fmi.mjt.goodreads.popularity;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/*
+ * Count-min sketch over 64-bit key hashes with atomic counters, so many threads can add without locking.
+ * Estimates never undercount; they overcount by at most total / width with high probability.
+ */
+public class CountMinSketch {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int width;
+    private final int depth;
+    private final AtomicIntegerArray counts;
+
+    // width has to be a power of two
+    public CountMinSketch(int width, int depth) {
+        if (Integer.bitCount(width) != 1 || depth <= 0) {
+            throw new IllegalArgumentException("Width has to be a power of two and depth positive");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counts = new AtomicIntegerArray(width * depth);
+    }
+
+    public static long hash(String key) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    public void add(long hash, int delta) {
+        for (int row = 0; row < depth; row++) {
+            counts.addAndGet(cell(row, hash), delta);
+        }
+    }
+
+    public int count(int row, long hash) {
+        return counts.get(cell(row, hash));
+    }
+
+    public int estimate(long hash) {
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, count(row, hash));
+        }
+        return estimate;
+    }
+
+    public int depth() {
+        return depth;
+    }
+
+    // double hashing derives the row hashes from the two halves of the key hash
+    private int cell(int row, long hash) {
+        int first = (int) hash;
+        int second = (int) (hash >>> Integer.SIZE) | 1;
+        return row * width + ((first + row * second) & (width - 1));
+    }
+}
@@ -0,0 +1,6 @@
+package bg.sofia.uni.fmi.mjt.goodreads.popularity;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+
+public record PopularBook(Book book, int count) {
+}
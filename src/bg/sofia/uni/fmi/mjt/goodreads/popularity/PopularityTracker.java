@@ -0,0 +1,68 @@
+package bg.sofia.uni.fmi.mjt.goodreads.popularity;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+
+import java.time.Clock;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Streaming popularity statistics. Selecting, shelving and recommending a book all count towards trending,
+ * shelving also counts towards most shelved. Memory is bounded by the sketch size times the buckets of all windows.
+ */
+public class PopularityTracker {
+    private static final int SKETCH_WIDTH = 1024;
+    private static final int SKETCH_DEPTH = 4;
+    private static final int CANDIDATES = 100;
+
+    private final Clock clock;
+    private final Map<TimeWindow, TopBooks> trending;
+    private final Map<TimeWindow, TopBooks> shelved;
+
+    public PopularityTracker() {
+        this(Clock.systemUTC());
+    }
+
+    public PopularityTracker(Clock clock) {
+        this.clock = clock;
+        this.trending = createWindows();
+        this.shelved = createWindows();
+    }
+
+    public void bookSelected(Book book) {
+        record(trending, book);
+    }
+
+    public void bookRecommended(Book book) {
+        record(trending, book);
+    }
+
+    public void bookShelved(Book book) {
+        record(trending, book);
+        record(shelved, book);
+    }
+
+    public List<PopularBook> trending(TimeWindow window, int limit) {
+        return trending.get(window).top(limit, clock.millis());
+    }
+
+    public List<PopularBook> mostShelved(TimeWindow window, int limit) {
+        return shelved.get(window).top(limit, clock.millis());
+    }
+
+    private void record(Map<TimeWindow, TopBooks> windows, Book book) {
+        long now = clock.millis();
+        for (TopBooks topBooks : windows.values()) {
+            topBooks.record(book, now);
+        }
+    }
+
+    private static Map<TimeWindow, TopBooks> createWindows() {
+        Map<TimeWindow, TopBooks> windows = new EnumMap<>(TimeWindow.class);
+        for (TimeWindow window : TimeWindow.values()) {
+            windows.put(window, new TopBooks(new SlidingWindowCounter(window, SKETCH_WIDTH, SKETCH_DEPTH), CANDIDATES));
+        }
+        return windows;
+    }
+}
@@ -0,0 +1,73 @@
+package bg.sofia.uni.fmi.mjt.goodreads.popularity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+ * Approximate counts over a sliding time window: a ring of count-min sketches, one per time bucket.
+ * A bucket that has fallen out of the window is swapped for a fresh sketch with a compare-and-set,
+ * so updates stay lock free. An update racing with the swap may land in the discarded bucket and be lost.
+ */
+class SlidingWindowCounter {
+    private record Bucket(long epoch, CountMinSketch sketch) {
+    }
+
+    private final long bucketMillis;
+    private final int width;
+    private final int depth;
+    private final AtomicReferenceArray<Bucket> buckets;
+
+    SlidingWindowCounter(TimeWindow window, int width, int depth) {
+        this.bucketMillis = window.bucketMillis();
+        this.width = width;
+        this.depth = depth;
+        this.buckets = new AtomicReferenceArray<>(window.buckets());
+    }
+
+    long bucketMillis() {
+        return bucketMillis;
+    }
+
+    void add(long hash, long now) {
+        bucket(now / bucketMillis).sketch().add(hash, 1);
+    }
+
+    // the sum of the window's sketches is a sketch as well, so the estimate is the minimum over rows of the sums
+    int estimate(long hash, long now) {
+        List<CountMinSketch> live = liveSketches(now / bucketMillis);
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int sum = 0;
+            for (CountMinSketch sketch : live) {
+                sum += sketch.count(row, hash);
+            }
+            estimate = Math.min(estimate, sum);
+        }
+        return estimate;
+    }
+
+    private Bucket bucket(long epoch) {
+        int slot = (int) (epoch % buckets.length());
+        Bucket current = buckets.get(slot);
+        while (current == null || current.epoch() < epoch) {
+            Bucket fresh = new Bucket(epoch, new CountMinSketch(width, depth));
+            if (buckets.compareAndSet(slot, current, fresh)) {
+                return fresh;
+            }
+            current = buckets.get(slot);
+        }
+        return current;
+    }
+
+    private List<CountMinSketch> liveSketches(long epoch) {
+        List<CountMinSketch> live = new ArrayList<>(buckets.length());
+        for (int slot = 0; slot < buckets.length(); slot++) {
+            Bucket bucket = buckets.get(slot);
+            if (bucket != null && bucket.epoch() > epoch - buckets.length() && bucket.epoch() <= epoch) {
+                live.add(bucket.sketch());
+            }
+        }
+        return live;
+    }
+}
@@ -0,0 +1,26 @@
+package bg.sofia.uni.fmi.mjt.goodreads.popularity;
+
+import java.time.Duration;
+
+// sliding windows are made of buckets, the oldest bucket is dropped when a new one starts
+public enum TimeWindow {
+    HOUR(Duration.ofMinutes(5), 12),
+    DAY(Duration.ofHours(1), 24),
+    WEEK(Duration.ofDays(1), 7);
+
+    private final Duration bucket;
+    private final int buckets;
+
+    TimeWindow(Duration bucket, int buckets) {
+        this.bucket = bucket;
+        this.buckets = buckets;
+    }
+
+    public long bucketMillis() {
+        return bucket.toMillis();
+    }
+
+    public int buckets() {
+        return buckets;
+    }
+}
@@ -0,0 +1,109 @@
+package bg.sofia.uni.fmi.mjt.goodreads.popularity;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Top books of one sliding window. Every event goes to the sketches; only a book whose estimate beats the weakest
+ * candidate takes the lock to enter the bounded candidate set. Rankings are recomputed from the sketches when
+ * asked for, so candidates whose events have slid out of the window drop back on their own. Counts only fall when
+ * a bucket slides out, so once per bucket the candidates left with no events are dropped and the admission
+ * threshold is recomputed from the current estimates.
+ */
+class TopBooks {
+    private static final Comparator<PopularBook> BY_COUNT = Comparator.comparingInt(PopularBook::count);
+
+    private final SlidingWindowCounter counter;
+    private final int capacity;
+    private final Map<String, Book> candidates;
+    private volatile int threshold;
+    private volatile long thresholdEpoch;
+
+    TopBooks(SlidingWindowCounter counter, int capacity) {
+        this.counter = counter;
+        this.capacity = capacity;
+        this.candidates = new ConcurrentHashMap<>();
+    }
+
+    void record(Book book, long now) {
+        long hash = CountMinSketch.hash(book.id());
+        counter.add(hash, now);
+        if (candidates.containsKey(book.id())) {
+            return;
+        }
+        int estimate = counter.estimate(hash, now);
+        refreshIfSlid(now);
+        if (candidates.size() < capacity || estimate > threshold) {
+            admit(book, now);
+        }
+    }
+
+    List<PopularBook> top(int limit, long now) {
+        refreshIfSlid(now);
+        PriorityQueue<PopularBook> best = new PriorityQueue<>(BY_COUNT);
+        for (Book book : candidates.values()) {
+            int count = counter.estimate(CountMinSketch.hash(book.id()), now);
+            if (count > 0) {
+                best.add(new PopularBook(book, count));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+        List<PopularBook> result = new ArrayList<>(best);
+        result.sort(BY_COUNT.reversed());
+        return result;
+    }
+
+    private void refreshIfSlid(long now) {
+        if (now / counter.bucketMillis() != thresholdEpoch) {
+            refresh(now);
+        }
+    }
+
+    private synchronized void refresh(long now) {
+        long epoch = now / counter.bucketMillis();
+        if (epoch == thresholdEpoch) {
+            return;
+        }
+        int weakestCount = Integer.MAX_VALUE;
+        for (String bookId : candidates.keySet()) {
+            int count = counter.estimate(CountMinSketch.hash(bookId), now);
+            if (count == 0) {
+                candidates.remove(bookId);
+            } else {
+                weakestCount = Math.min(weakestCount, count);
+            }
+        }
+        threshold = candidates.size() < capacity ? 0 : weakestCount;
+        thresholdEpoch = epoch;
+    }
+
+    private synchronized void admit(Book book, long now) {
+        candidates.put(book.id(), book);
+        if (candidates.size() <= capacity) {
+            return;
+        }
+        String weakest = null;
+        int weakestCount = Integer.MAX_VALUE;
+        int secondCount = Integer.MAX_VALUE;
+        for (String bookId : candidates.keySet()) {
+            int count = counter.estimate(CountMinSketch.hash(bookId), now);
+            if (count < weakestCount) {
+                secondCount = weakestCount;
+                weakestCount = count;
+                weakest = bookId;
+            } else if (count < secondCount) {
+                secondCount = count;
+            }
+        }
+        candidates.remove(weakest);
+        threshold = secondCount;
+    }
+}
@@ -0,0 +1,69 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.user.Recommendation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Pages through the recommendations of a user's friends in the order of the friends list. The cursor is the
+ * position of the friend in the list and of the next book in their recommendations, "friend:book". A page looks up
+ * at most MAX_FRIENDS_PER_PAGE friends, so a long run of friends without recommendations ends a page early with a
+ * cursor instead of being read in one go.
+ */
+public final class FriendsCursor {
+    public static final int MAX_FRIENDS_PER_PAGE = 128;
+
+    private static final String SEPARATOR = ":";
+
+    @FunctionalInterface
+    public interface Recommendations<E extends Exception> {
+        List<Book> of(String friendUsername) throws E;
+    }
+
+    private FriendsCursor() {
+    }
+
+    // the friends a page may read, for storages that fetch them ahead
+    public static List<String> friendsOfPage(List<String> friends, String cursor) {
+        int first = Math.min(parse(cursor)[0], friends.size());
+        return friends.subList(first, Math.min(friends.size(), first + MAX_FRIENDS_PER_PAGE));
+    }
+
+    // friends with nothing left are skipped, so there is no cursor once the last recommendation is read
+    public static <E extends Exception> Page<Recommendation> page(List<String> friends, String cursor, int limit,
+                                                                  Recommendations<E> recommendations) throws E {
+        int[] position = parse(cursor);
+        List<Recommendation> items = new ArrayList<>();
+        int visited = 0;
+        while (position[0] < friends.size() && visited++ < MAX_FRIENDS_PER_PAGE) {
+            List<Book> books = recommendations.of(friends.get(position[0]));
+            while (position[1] < books.size() && items.size() < limit) {
+                items.add(new Recommendation(friends.get(position[0]), books.get(position[1]++)));
+            }
+            if (position[1] < books.size()) {
+                break;
+            }
+            position[0]++;
+            position[1] = 0;
+        }
+        String nextCursor = position[0] < friends.size() ? position[0] + SEPARATOR + position[1] : null;
+        return new Page<>(items, nextCursor);
+    }
+
+    private static int[] parse(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return new int[] {0, 0};
+        }
+        String[] parts = cursor.split(SEPARATOR);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        int[] position = {Integer.parseInt(parts[0]), Integer.parseInt(parts[1])};
+        if (position[0] < 0 || position[1] < 0) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        return position;
+    }
+}
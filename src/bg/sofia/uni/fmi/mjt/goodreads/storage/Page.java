@@ -0,0 +1,25 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * One page of a larger result, nextCursor is passed back to read the following page
+ * and is null when there is nothing more to read.
+ */
+public record Page<T>(List<T> items, String nextCursor) {
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    // copies at most limit items starting at offset, the cursor of the next page is its offset
+    public static <T> Page<T> slice(List<T> source, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("Offset and limit can't be negative");
+        }
+        int from = Math.min(offset, source.size());
+        int to = Math.min(source.size(), from + limit);
+        String nextCursor = to < source.size() ? String.valueOf(to) : null;
+        return new Page<>(new ArrayList<>(source.subList(from, to)), nextCursor);
+    }
+}
@@ -7,6 +7,8 @@ import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameAlreadyExistsException;
 import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameDoesntExistException;
 import bg.sofia.uni.fmi.mjt.goodreads.exception.UserDoesntExistException;
 import bg.sofia.uni.fmi.mjt.goodreads.exception.UsernameAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.goodreads.user.FriendSuggestion;
+import bg.sofia.uni.fmi.mjt.goodreads.user.Recommendation;
 
 import java.util.List;
 import java.util.Map;
@@ -21,6 +23,8 @@ public interface Storage {
 
     List<Book> getList(String userId, String listName) throws ListNameDoesntExistException;
 
+    Page<Book> getList(String userId, String listName, int offset, int limit) throws ListNameDoesntExistException;
+
     void createList(String userId, String listName) throws ListNameAlreadyExistsException;
 
     void removeList(String userId, String listName) throws ListNameDoesntExistException;
@@ -30,13 +34,30 @@ public interface Storage {
     void removeFromList(String userId, String listName, int index)
             throws ListNameDoesntExistException, BookNotInListException;
 
+    boolean containsBook(String userId, String listName, String bookId) throws ListNameDoesntExistException;
+
+    void removeBookFromList(String userId, String listName, String bookId)
+            throws ListNameDoesntExistException, BookNotInListException;
+
+    Map<String, List<String>> getFriendsWithBook(String userId, String bookId);
+
+    List<Book> getSimilarBooks(String bookId, int limit);
+
     void addFriend(String userId, String friendUsername) throws UserDoesntExistException;
 
     List<String> getUserFriends(String userId);
 
+    List<FriendSuggestion> suggestFriends(String userId, int limit);
+
     void recommendBook(String userId, Book book);
 
     Map<String, List<Book>> getFriendsRecommendations(String userId);
 
+    Page<Recommendation> getFriendsRecommendations(String userId, String cursor, int limit);
+
+    Page<Recommendation> getRecommendationFeed(String userId, String cursor, int limit);
+
     List<Book> getUserRecommendations(String userId);
+
+    Page<Book> getUserRecommendations(String userId, int offset, int limit);
 }
\ No newline at end of file
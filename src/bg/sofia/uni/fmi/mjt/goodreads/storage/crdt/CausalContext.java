@@ -0,0 +1,73 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.crdt;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * The dots a replica has seen: a version vector for every replica's gap-free prefix and a cloud of the dots
+ * that arrived out of order. Dots move from the cloud into the vector as the gaps fill.
+ */
+public class CausalContext {
+    private final Map<String, Long> versions;
+    private final Set<Dot> cloud;
+
+    public CausalContext() {
+        this.versions = new HashMap<>();
+        this.cloud = new HashSet<>();
+    }
+
+    public boolean contains(Dot dot) {
+        return dot.counter() <= versions.getOrDefault(dot.replica(), 0L) || cloud.contains(dot);
+    }
+
+    // the next dot of the replica, which generates its dots one after the other
+    public Dot next(String replica) {
+        return new Dot(replica, versions.getOrDefault(replica, 0L) + 1);
+    }
+
+    // returns whether the dot is new
+    public boolean add(Dot dot) {
+        if (contains(dot)) {
+            return false;
+        }
+        cloud.add(dot);
+        compact(dot.replica());
+        return true;
+    }
+
+    public boolean merge(CausalContext other) {
+        boolean changed = false;
+        for (Map.Entry<String, Long> version : other.versions.entrySet()) {
+            long current = versions.getOrDefault(version.getKey(), 0L);
+            if (version.getValue() > current) {
+                versions.put(version.getKey(), version.getValue());
+                changed = true;
+            }
+        }
+        for (Dot dot : other.cloud) {
+            changed |= !contains(dot) && cloud.add(dot);
+        }
+        if (changed) {
+            cloud.removeIf(dot -> dot.counter() <= versions.getOrDefault(dot.replica(), 0L));
+            for (String replica : Set.copyOf(versions.keySet())) {
+                compact(replica);
+            }
+            for (Dot dot : Set.copyOf(cloud)) {
+                compact(dot.replica());
+            }
+        }
+        return changed;
+    }
+
+    private void compact(String replica) {
+        long version = versions.getOrDefault(replica, 0L);
+        while (cloud.remove(new Dot(replica, version + 1))) {
+            version++;
+        }
+        if (version > 0) {
+            versions.put(replica, version);
+        }
+    }
+}
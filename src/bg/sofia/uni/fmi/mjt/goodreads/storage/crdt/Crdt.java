@@ -0,0 +1,7 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.crdt;
+
+// state that replicas converge on by merging: merge is commutative, associative and idempotent
+public interface Crdt<T extends Crdt<T>> {
+    // returns whether the other state brought anything new
+    boolean merge(T other);
+}
@@ -0,0 +1,553 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.crdt;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.BookNotInListException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.InvalidCredentials;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameDoesntExistException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.UserDoesntExistException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.UsernameAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.FriendsCursor;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Page;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Storage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph.FriendGraph;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph.FriendsOfFriends;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph.RecommendationFeed;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.loader.TableLoader;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.similarity.CoOccurrenceIndex;
+import bg.sofia.uni.fmi.mjt.goodreads.user.FriendSuggestion;
+import bg.sofia.uni.fmi.mjt.goodreads.user.Recommendation;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/*
+ * Storage of one region in a multi-master setup. Users, lists, friends and recommendations are CRDTs, so every
+ * region accepts writes locally and regions that exchanged the same deltas hold the same data, whatever the
+ * order the deltas arrived in. A local write mutates the state and yields a delta for the other regions; a delta
+ * from another region is merged into the state. Both paths then diff the user's visible data to keep the
+ * derived indexes (usernames, friend graph, feed, co-occurrences) current, like FileSystemStorage keeps its own.
+ * Usernames can't be reserved without a leader: if two regions register the same one, the earlier
+ * registration keeps it everywhere. The feed is derived per region, so its order may differ between regions.
+ */
+public class CrdtStorage implements Storage {
+    private static final int FEED_CAPACITY = 1000;
+    private static final int SUGGESTION_BUDGET = 10_000;
+
+    private final String replica;
+    private final Map<String, UserState> users;
+    private final Map<String, String> idsByUsername;
+    private final BookCatalog bookCatalog;
+    private final FriendGraph friendGraph;
+    private final RecommendationFeed recommendationFeed;
+    private final CoOccurrenceIndex coOccurrences;
+    private final List<Consumer<Delta>> deltaListeners;
+
+    // what a user's data looked like before a write, to tell which index entries it changed
+    private record View(Map<String, Set<String>> lists, List<String> friends, List<Book> recommendations) {
+        private static final View EMPTY = new View(Map.of(), List.of(), List.of());
+    }
+
+    public CrdtStorage(String replica) {
+        this.replica = replica;
+        this.users = new HashMap<>();
+        this.idsByUsername = new HashMap<>();
+        this.bookCatalog = new BookCatalog();
+        this.friendGraph = new FriendGraph();
+        this.recommendationFeed = new RecommendationFeed(FEED_CAPACITY);
+        this.coOccurrences = CoOccurrenceIndex.build(Map.of(), bookCatalog);
+        this.deltaListeners = new CopyOnWriteArrayList<>();
+    }
+
+    // starts the region with the JSON tables, as if they had been written to it
+    public CrdtStorage(String replica, Reader usersTableReader, Reader bookshelfTableReader) throws IOException {
+        this(replica);
+        BookCatalog catalog = new BookCatalog();
+        List<User> tableUsers = TableLoader.readUsers(usersTableReader, catalog).users();
+        for (User user : tableUsers) {
+            addUser(UserState.registered(user.id(), user.username(), user.password(), 0));
+            for (Book book : user.recommendedBooks()) {
+                write(user.id(), state -> state.recommendations().append(replica, book), UserState::recommendations);
+            }
+        }
+        for (User user : tableUsers) {
+            for (String friend : user.friends()) {
+                write(user.id(), state -> state.friends().add(replica, friend), UserState::friends);
+            }
+        }
+        Map<String, Map<String, List<Book>>> bookshelves = TableLoader.readBookshelves(bookshelfTableReader, catalog);
+        for (Map.Entry<String, Map<String, List<Book>>> bookshelf : bookshelves.entrySet()) {
+            for (Map.Entry<String, List<Book>> list : bookshelf.getValue().entrySet()) {
+                write(bookshelf.getKey(), state -> state.lists().add(replica, list.getKey()), UserState::lists);
+                for (Book book : list.getValue()) {
+                    appendToList(bookshelf.getKey(), list.getKey(), book);
+                }
+            }
+        }
+    }
+
+    public String replica() {
+        return replica;
+    }
+
+    // called with every delta that changed this region, local writes and merged remote ones alike
+    public void onDelta(Consumer<Delta> listener) {
+        deltaListeners.add(listener);
+    }
+
+    // the whole state as one delta, for a region that has nothing yet
+    public synchronized Delta snapshot() {
+        Delta snapshot = new Delta();
+        for (UserState user : users.values()) {
+            snapshot.join(Delta.of(user));
+        }
+        return snapshot;
+    }
+
+    // returns whether the delta brought anything new
+    public boolean merge(Delta delta) {
+        boolean changed = false;
+        synchronized (this) {
+            for (UserState incoming : delta.users().values()) {
+                UserState user = users.get(incoming.id());
+                if (user == null) {
+                    UserState created = UserState.delta(incoming.id());
+                    created.merge(incoming);
+                    changed |= addUser(created);
+                    continue;
+                }
+                boolean wasRegistered = user.isRegistered();
+                View before = view(user);
+                if (user.merge(incoming)) {
+                    changed = true;
+                    if (!wasRegistered && user.isRegistered()) {
+                        registered(user);
+                    }
+                    reindex(user, before);
+                }
+            }
+        }
+        if (changed) {
+            deltaListeners.forEach(listener -> listener.accept(delta));
+        }
+        return changed;
+    }
+
+    private boolean addUser(UserState user) {
+        users.put(user.id(), user);
+        friendGraph.addUser(user.id());
+        if (user.isRegistered()) {
+            registered(user);
+        }
+        reindex(user, View.EMPTY);
+        return true;
+    }
+
+    // the earlier registration keeps the username, ties go to the smaller id
+    private void registered(UserState user) {
+        String holderId = idsByUsername.get(user.username());
+        UserState holder = holderId == null ? null : users.get(holderId);
+        if (holder != null && (holder.registeredAt() < user.registeredAt()
+                || (holder.registeredAt() == user.registeredAt() && holder.id().compareTo(user.id()) < 0))) {
+            return;
+        }
+        idsByUsername.put(user.username(), user.id());
+        for (UserState follower : users.values()) {
+            if (follower.friends().contains(user.username())) {
+                follow(follower, user);
+            }
+        }
+    }
+
+    private View view(UserState user) {
+        Map<String, Set<String>> lists = new HashMap<>();
+        for (String listName : user.lists().elements()) {
+            Set<String> bookIds = new HashSet<>();
+            for (Book book : books(user, listName)) {
+                bookIds.add(book.id());
+            }
+            lists.put(listName, bookIds);
+        }
+        return new View(lists, user.friends().elements(), books(user.recommendations()));
+    }
+
+    private void reindex(UserState user, View before) {
+        View after = view(user);
+        Map<String, Book> booksById = new HashMap<>();
+        for (String listName : after.lists().keySet()) {
+            books(user, listName).forEach(book -> booksById.put(book.id(), book));
+        }
+        for (Map.Entry<String, Set<String>> list : after.lists().entrySet()) {
+            for (String bookId : list.getValue()) {
+                if (!before.lists().getOrDefault(list.getKey(), Set.of()).contains(bookId)) {
+                    coOccurrences.add(user.id(), bookCatalog.intern(booksById.get(bookId)));
+                }
+            }
+        }
+        for (Map.Entry<String, Set<String>> list : before.lists().entrySet()) {
+            for (String bookId : list.getValue()) {
+                if (!after.lists().getOrDefault(list.getKey(), Set.of()).contains(bookId)) {
+                    coOccurrences.remove(user.id(), bookCatalog.find(bookId));
+                }
+            }
+        }
+
+        for (String friendUsername : after.friends()) {
+            UserState friend = findUserByUsername(friendUsername);
+            if (!before.friends().contains(friendUsername) && friend != null) {
+                follow(user, friend);
+            }
+        }
+
+        Set<String> recommendedBefore = new HashSet<>();
+        before.recommendations().forEach(book -> recommendedBefore.add(book.id()));
+        int author = friendGraph.node(user.id());
+        for (Book book : after.recommendations()) {
+            if (!recommendedBefore.contains(book.id())) {
+                int bookRef = bookCatalog.intern(book);
+                for (int follower : friendGraph.followers(author)) {
+                    recommendationFeed.publish(follower, author, bookRef);
+                }
+            }
+        }
+    }
+
+    private void follow(UserState user, UserState friend) {
+        int userNode = friendGraph.node(user.id());
+        int friendNode = friendGraph.node(friend.id());
+        if (!friendGraph.follow(userNode, friendNode)) {
+            return;
+        }
+        for (Book book : books(friend.recommendations())) {
+            recommendationFeed.publish(userNode, friendNode, bookCatalog.intern(book));
+        }
+    }
+
+    // applies a local write to one part of the user's state and hands its delta to the listeners
+    private <T extends Crdt<T>> void write(String userId, Function<UserState, T> mutation,
+                                           Function<UserState, T> part) {
+        Delta delta;
+        synchronized (this) {
+            UserState user = getUserById(userId);
+            View before = view(user);
+            T partDelta = mutation.apply(user);
+            reindex(user, before);
+            UserState userDelta = UserState.delta(userId);
+            part.apply(userDelta).merge(partDelta);
+            delta = Delta.of(userDelta);
+        }
+        deltaListeners.forEach(listener -> listener.accept(delta));
+    }
+
+    private void writeList(String userId, String listName, Function<Rga, Rga> mutation) {
+        write(userId, state -> mutation.apply(state.contents(listName)), state -> state.contents(listName));
+    }
+
+    @Override
+    public synchronized boolean exists(String userId) {
+        UserState user = userId == null ? null : users.get(userId);
+        return user != null && user.isRegistered();
+    }
+
+    @Override
+    public String register(String username, String password)
+            throws UsernameAlreadyExistsException, ListNameAlreadyExistsException {
+        String newUserId = UUID.randomUUID().toString();
+        UserState user = UserState.registered(newUserId, username, password, System.currentTimeMillis());
+        synchronized (this) {
+            if (idsByUsername.containsKey(username)) {
+                throw new UsernameAlreadyExistsException("This username is already in use");
+            }
+            addUser(user);
+        }
+        Delta delta = Delta.of(UserState.registered(newUserId, username, password, user.registeredAt()));
+        deltaListeners.forEach(listener -> listener.accept(delta));
+
+        createList(newUserId, User.WANT_TO_READ_LIST_NAME);
+        createList(newUserId, User.READ_LIST_NAME);
+
+        return newUserId;
+    }
+
+    @Override
+    public synchronized String login(String username, String password) throws InvalidCredentials {
+        UserState sameUsernameUser = findUserByUsername(username);
+        if (sameUsernameUser == null) {
+            throw new InvalidCredentials("Invalid username");
+        }
+        if (!sameUsernameUser.password().equals(password)) {
+            throw new InvalidCredentials("Invalid password");
+        }
+        return sameUsernameUser.id();
+    }
+
+    @Override
+    public synchronized List<Book> getList(String userId, String listName) throws ListNameDoesntExistException {
+        return books(existingList(getUserById(userId), listName), listName);
+    }
+
+    @Override
+    public Page<Book> getList(String userId, String listName, int offset, int limit)
+            throws ListNameDoesntExistException {
+        return Page.slice(getList(userId, listName), offset, limit);
+    }
+
+    // a list created again starts empty, even if another region added to the old one meanwhile
+    @Override
+    public void createList(String userId, String listName) throws ListNameAlreadyExistsException {
+        synchronized (this) {
+            if (getUserById(userId).lists().contains(listName)) {
+                throw new ListNameAlreadyExistsException("List name already exists");
+            }
+            write(userId, state -> state.lists().add(replica, listName), UserState::lists);
+            clearList(userId, listName);
+        }
+    }
+
+    @Override
+    public void removeList(String userId, String listName) throws ListNameDoesntExistException {
+        synchronized (this) {
+            existingList(getUserById(userId), listName);
+            clearList(userId, listName);
+            write(userId, state -> state.lists().remove(listName), UserState::lists);
+        }
+    }
+
+    private void clearList(String userId, String listName) {
+        UserState user = getUserById(userId);
+        if (!user.contents(listName).visible().isEmpty()) {
+            Set<Dot> all = new HashSet<>();
+            user.contents(listName).visible().forEach(node -> all.add(node.id()));
+            writeList(userId, listName, rga -> rga.remove(all));
+        }
+    }
+
+    @Override
+    public void addToList(String userId, String listName, Book book) throws ListNameDoesntExistException {
+        synchronized (this) {
+            List<Book> books = books(existingList(getUserById(userId), listName), listName);
+            if (indexOf(books, book.id()) >= 0) {
+                return;
+            }
+            appendToList(userId, listName, book);
+        }
+    }
+
+    private void appendToList(String userId, String listName, Book book) {
+        writeList(userId, listName, rga -> rga.append(replica, book));
+    }
+
+    @Override
+    public void removeFromList(String userId, String listName, int index)
+            throws ListNameDoesntExistException, BookNotInListException {
+        synchronized (this) {
+            UserState user = existingList(getUserById(userId), listName);
+            List<Book> books = books(user, listName);
+            if (index < 0 || index >= books.size()) {
+                throw new BookNotInListException("Index out of range");
+            }
+            removeBook(user, listName, books.get(index).id());
+        }
+    }
+
+    @Override
+    public synchronized boolean containsBook(String userId, String listName, String bookId)
+            throws ListNameDoesntExistException {
+        return indexOf(books(existingList(getUserById(userId), listName), listName), bookId) >= 0;
+    }
+
+    @Override
+    public void removeBookFromList(String userId, String listName, String bookId)
+            throws ListNameDoesntExistException, BookNotInListException {
+        synchronized (this) {
+            UserState user = existingList(getUserById(userId), listName);
+            if (indexOf(books(user, listName), bookId) < 0) {
+                throw new BookNotInListException("No book with that id in the list");
+            }
+            removeBook(user, listName, bookId);
+        }
+    }
+
+    // concurrent adds of the same book leave several nodes for it, all of them go
+    private void removeBook(UserState user, String listName, String bookId) {
+        Set<Dot> ids = new HashSet<>();
+        for (Rga.Node node : user.contents(listName).visible()) {
+            if (node.book().id().equals(bookId)) {
+                ids.add(node.id());
+            }
+        }
+        writeList(user.id(), listName, rga -> rga.remove(ids));
+    }
+
+    @Override
+    public synchronized Map<String, List<String>> getFriendsWithBook(String userId, String bookId) {
+        UserState user = getUserById(userId);
+        Map<String, List<String>> friendsWithBook = new HashMap<>();
+        for (int friendNode : friendGraph.following(friendGraph.node(user.id()))) {
+            UserState friend = users.get(friendGraph.userId(friendNode));
+            List<String> listNames = new ArrayList<>();
+            for (String listName : friend.lists().elements()) {
+                if (indexOf(books(friend, listName), bookId) >= 0) {
+                    listNames.add(listName);
+                }
+            }
+            if (!listNames.isEmpty()) {
+                friendsWithBook.put(friend.username(), listNames);
+            }
+        }
+        return friendsWithBook;
+    }
+
+    @Override
+    public synchronized List<Book> getSimilarBooks(String bookId, int limit) {
+        return coOccurrences.similar(bookCatalog.find(bookId), limit);
+    }
+
+    @Override
+    public void addFriend(String userId, String friendUsername) throws UserDoesntExistException {
+        synchronized (this) {
+            UserState user = getUserById(userId);
+            if (findUserByUsername(friendUsername) == null) {
+                throw new UserDoesntExistException("Username doesn't exist");
+            }
+            if (user.friends().contains(friendUsername)) {
+                return;
+            }
+            write(userId, state -> state.friends().add(replica, friendUsername), UserState::friends);
+        }
+    }
+
+    @Override
+    public synchronized List<String> getUserFriends(String userId) {
+        return getUserById(userId).friends().elements();
+    }
+
+    @Override
+    public synchronized List<FriendSuggestion> suggestFriends(String userId, int limit) {
+        UserState user = getUserById(userId);
+        List<FriendSuggestion> suggestions = new ArrayList<>();
+        for (FriendsOfFriends.Candidate candidate :
+                FriendsOfFriends.rank(friendGraph, friendGraph.node(user.id()), limit, SUGGESTION_BUDGET)) {
+            UserState suggested = users.get(friendGraph.userId(candidate.node()));
+            suggestions.add(new FriendSuggestion(suggested.username(), candidate.mutualFriends()));
+        }
+        return suggestions;
+    }
+
+    @Override
+    public void recommendBook(String userId, Book book) {
+        synchronized (this) {
+            UserState user = getUserById(userId);
+            if (indexOf(books(user.recommendations()), book.id()) >= 0) {
+                return;
+            }
+            write(userId, state -> state.recommendations().append(replica, book), UserState::recommendations);
+        }
+    }
+
+    @Override
+    public synchronized Map<String, List<Book>> getFriendsRecommendations(String userId) {
+        UserState user = getUserById(userId);
+        Map<String, List<Book>> recommendations = new HashMap<>();
+        for (int friendNode : friendGraph.following(friendGraph.node(user.id()))) {
+            UserState friend = users.get(friendGraph.userId(friendNode));
+            recommendations.put(friend.username(), books(friend.recommendations()));
+        }
+        return recommendations;
+    }
+
+    @Override
+    public synchronized Page<Recommendation> getFriendsRecommendations(String userId, String cursor, int limit) {
+        return FriendsCursor.page(getUserById(userId).friends().elements(), cursor, limit, friendUsername -> {
+            UserState friend = findUserByUsername(friendUsername);
+            return friend == null ? List.of() : books(friend.recommendations());
+        });
+    }
+
+    @Override
+    public synchronized Page<Recommendation> getRecommendationFeed(String userId, String cursor, int limit) {
+        UserState user = getUserById(userId);
+        long before = cursor == null || cursor.isEmpty() ? RecommendationFeed.FROM_NEWEST : Long.parseLong(cursor);
+        List<RecommendationFeed.Entry> entries =
+                recommendationFeed.page(friendGraph.node(user.id()), before, limit + 1);
+        boolean hasNext = entries.size() > limit;
+        if (hasNext) {
+            entries = entries.subList(0, limit);
+        }
+
+        List<Recommendation> recommendations = new ArrayList<>(entries.size());
+        for (RecommendationFeed.Entry entry : entries) {
+            recommendations.add(new Recommendation(users.get(friendGraph.userId(entry.author())).username(),
+                    bookCatalog.get(entry.bookRef())));
+        }
+        String nextCursor = hasNext ? String.valueOf(entries.getLast().sequence()) : null;
+        return new Page<>(recommendations, nextCursor);
+    }
+
+    @Override
+    public synchronized List<Book> getUserRecommendations(String userId) {
+        return books(getUserById(userId).recommendations());
+    }
+
+    @Override
+    public Page<Book> getUserRecommendations(String userId, int offset, int limit) {
+        return Page.slice(getUserRecommendations(userId), offset, limit);
+    }
+
+    private UserState getUserById(String userId) {
+        UserState user = userId == null ? null : users.get(userId);
+        if (user == null || !user.isRegistered()) {
+            throw new RuntimeException("Invalid user ID");
+        }
+        return user;
+    }
+
+    private UserState findUserByUsername(String username) {
+        String userId = username == null ? null : idsByUsername.get(username);
+        return userId == null ? null : users.get(userId);
+    }
+
+    private static UserState existingList(UserState user, String listName) throws ListNameDoesntExistException {
+        if (!user.lists().contains(listName)) {
+            throw new ListNameDoesntExistException("This user doesn't have such list name");
+        }
+        return user;
+    }
+
+    private static List<Book> books(UserState user, String listName) {
+        return books(user.contents(listName));
+    }
+
+    // nodes added concurrently for the same book show up once, at the first position
+    private static List<Book> books(Rga rga) {
+        Set<String> seen = new HashSet<>();
+        List<Book> books = new ArrayList<>();
+        for (Rga.Node node : rga.visible()) {
+            if (seen.add(node.book().id())) {
+                books.add(node.book());
+            }
+        }
+        return List.copyOf(books);
+    }
+
+    private static int indexOf(List<Book> books, String bookId) {
+        for (int i = 0; i < books.size(); i++) {
+            if (books.get(i).id().equals(bookId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
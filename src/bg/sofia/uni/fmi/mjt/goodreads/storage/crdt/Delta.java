@@ -0,0 +1,29 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.crdt;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// a piece of replicated state keyed by user id; deltas join into bigger deltas and the whole state is one too
+public class Delta {
+    private final Map<String, UserState> users;
+
+    public Delta() {
+        this.users = new HashMap<>();
+    }
+
+    public static Delta of(UserState user) {
+        Delta delta = new Delta();
+        delta.users.put(user.id(), user);
+        return delta;
+    }
+
+    public Map<String, UserState> users() {
+        return users;
+    }
+
+    public void join(Delta other) {
+        for (Map.Entry<String, UserState> user : other.users.entrySet()) {
+            users.computeIfAbsent(user.getKey(), UserState::delta).merge(user.getValue());
+        }
+    }
+}
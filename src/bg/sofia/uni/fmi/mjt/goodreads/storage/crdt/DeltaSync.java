@@ -0,0 +1,224 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.crdt;
+
+import bg.sofia.uni.fmi.mjt.goodreads.storage.partition.NodeClient;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.partition.RequestHandler;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.partition.StorageNode;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc.MessageReader;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc.MessageWriter;
+import com.google.gson.Gson;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+/*
+ * Delta-state anti-entropy between regions. Every delta that changes the local storage, local write or merged
+ * remote delta, is numbered and kept in an outbox. One thread per peer sends the peer the deltas it hasn't
+ * acknowledged yet, joined into one, and the peer's StorageNode merges them and acknowledges the last number.
+ * Deltas are idempotent, so resending after a lost acknowledgement is harmless; a peer that is new, restarted
+ * or too far behind for the outbox gets the whole state instead. A partition only means failing connections:
+ * the threads retry until the peer is reachable again and then catch it up. Peers that have acknowledged a
+ * delta don't need it anymore, so the outbox drops it once every peer has.
+ */
+public class DeltaSync implements Closeable {
+    private static final int HELLO = 0;
+    private static final int DELTA = 1;
+    private static final long NOTHING_RECEIVED = -1;
+    private static final long UNKNOWN = -2;
+    private static final long RETRY_MILLIS = 200;
+    private static final long HEARTBEAT_MILLIS = 1000;
+    private static final int OUTBOX_CAPACITY = 10_000;
+    private static final int MAX_BATCH = 512;
+
+    private final CrdtStorage storage;
+    private final long incarnation;
+    private final Gson gson;
+    private final StorageNode node;
+    private final List<Thread> senders;
+    private final NavigableMap<Long, Delta> outbox;
+    private final Map<InetSocketAddress, Long> acknowledged;
+    // replica -> incarnation of it we hear from and the last sequence received from that incarnation
+    private final Map<String, long[]> received;
+    private long lastSequence;
+    private volatile boolean running;
+
+    private record Batch(long sequence, Delta delta) {
+    }
+
+    // port 0 binds an ephemeral port, see port()
+    public DeltaSync(CrdtStorage storage, int port, List<InetSocketAddress> peers) throws IOException {
+        this.storage = storage;
+        this.incarnation = new Random().nextLong();
+        this.gson = new Gson();
+        this.node = new StorageNode(port, new Inbox());
+        this.senders = new ArrayList<>();
+        this.outbox = new TreeMap<>();
+        this.acknowledged = new HashMap<>();
+        this.received = new HashMap<>();
+        for (InetSocketAddress peer : peers) {
+            acknowledged.put(peer, NOTHING_RECEIVED);
+            senders.add(new Thread(() -> replicate(peer), "delta-sync-" + peer));
+        }
+        storage.onDelta(this::enqueue);
+    }
+
+    public int port() {
+        return node.port();
+    }
+
+    public void start() {
+        running = true;
+        node.start();
+        senders.forEach(Thread::start);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            running = false;
+            notifyAll();
+        }
+        for (Thread sender : senders) {
+            try {
+                sender.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        node.close();
+    }
+
+    // the last sequence the peer has acknowledged, for watching how far behind it is
+    public synchronized long acknowledged(InetSocketAddress peer) {
+        return acknowledged.get(peer);
+    }
+
+    public synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    private synchronized void enqueue(Delta delta) {
+        outbox.put(++lastSequence, delta);
+        if (outbox.size() > OUTBOX_CAPACITY) {
+            outbox.pollFirstEntry();
+        }
+        notifyAll();
+    }
+
+    private void replicate(InetSocketAddress peer) {
+        NodeClient client = new NodeClient(peer);
+        long peerSequence = UNKNOWN;
+        while (running) {
+            try {
+                if (peerSequence == UNKNOWN) {
+                    MessageWriter hello = new MessageWriter().putByte(HELLO)
+                            .putString(storage.replica()).putLong(incarnation);
+                    peerSequence = client.call(hello).getLong();
+                }
+                Batch batch = nextBatch(peerSequence);
+                if (batch == null) {
+                    // nothing to send, say hello again to notice a restarted peer
+                    peerSequence = UNKNOWN;
+                    continue;
+                }
+                MessageWriter deltaMessage = new MessageWriter().putByte(DELTA).putString(storage.replica())
+                        .putLong(incarnation).putLong(batch.sequence()).putString(gson.toJson(batch.delta()));
+                peerSequence = client.call(deltaMessage).getLong();
+                acknowledge(peer, peerSequence);
+            } catch (RuntimeException e) {
+                peerSequence = UNKNOWN;
+                pause();
+            }
+        }
+        try {
+            client.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // waits for deltas the peer hasn't seen, null if there were none for a heartbeat
+    private Batch nextBatch(long peerSequence) {
+        long snapshotSequence;
+        synchronized (this) {
+            if (running && lastSequence <= peerSequence) {
+                waitQuietly(HEARTBEAT_MILLIS);
+            }
+            if (!running || lastSequence <= peerSequence) {
+                return null;
+            }
+            long firstRetained = outbox.isEmpty() ? lastSequence + 1 : outbox.firstKey();
+            if (peerSequence != NOTHING_RECEIVED && peerSequence >= firstRetained - 1) {
+                Delta joined = new Delta();
+                long sequence = peerSequence;
+                for (Map.Entry<Long, Delta> entry : outbox.tailMap(peerSequence, false).entrySet()) {
+                    if (sequence - peerSequence == MAX_BATCH) {
+                        break;
+                    }
+                    joined.join(entry.getValue());
+                    sequence = entry.getKey();
+                }
+                return new Batch(sequence, joined);
+            }
+            snapshotSequence = lastSequence;
+        }
+        // every delta up to the sequence was applied before it was numbered, so the snapshot holds them all
+        return new Batch(snapshotSequence, storage.snapshot());
+    }
+
+    private synchronized void acknowledge(InetSocketAddress peer, long sequence) {
+        acknowledged.put(peer, sequence);
+        long everyone = Collections.min(acknowledged.values());
+        outbox.headMap(everyone, true).clear();
+    }
+
+    private synchronized void pause() {
+        if (running) {
+            waitQuietly(RETRY_MILLIS);
+        }
+    }
+
+    private void waitQuietly(long millis) {
+        try {
+            wait(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    // answers the peers' senders on the StorageNode's selector thread
+    private class Inbox implements RequestHandler {
+        @Override
+        public void handle(MessageReader request, MessageWriter response) {
+            int type = request.getByte();
+            String replica = request.getString();
+            long senderIncarnation = request.getLong();
+            long[] state = received.get(replica);
+            if (state == null || state[0] != senderIncarnation) {
+                state = new long[] {senderIncarnation, NOTHING_RECEIVED};
+                received.put(replica, state);
+            }
+            if (type == DELTA) {
+                long sequence = request.getLong();
+                storage.merge(gson.fromJson(request.getString(), Delta.class));
+                state[1] = Math.max(state[1], sequence);
+            } else if (type != HELLO) {
+                throw new IllegalArgumentException("Unknown sync message " + type);
+            }
+            response.putLong(state[1]);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.crdt;
+
+import java.util.Comparator;
+
+// a unique event: the counter-th event some replica generated, ordered by counter and then by replica
+public record Dot(String replica, long counter) implements Comparable<Dot> {
+    private static final Comparator<Dot> ORDER = Comparator.comparingLong(Dot::counter).thenComparing(Dot::replica);
+
+    @Override
+    public int compareTo(Dot other) {
+        return ORDER.compare(this, other);
+    }
+}
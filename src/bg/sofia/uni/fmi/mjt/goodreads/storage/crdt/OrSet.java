@@ -0,0 +1,83 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.crdt;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Add-wins observed-remove set of strings. Every add tags the element with a new dot and a remove forgets only
+ * the dots it has seen, so an add concurrent with a remove survives. add and remove return a delta: the
+ * smallest set that, merged anywhere, has the same effect. Elements iterate in the order of their first dot,
+ * which is the order they were added in.
+ */
+public class OrSet implements Crdt<OrSet> {
+    private final Map<String, Set<Dot>> entries;
+    private final CausalContext context;
+
+    public OrSet() {
+        this.entries = new HashMap<>();
+        this.context = new CausalContext();
+    }
+
+    public boolean contains(String element) {
+        return entries.containsKey(element);
+    }
+
+    public List<String> elements() {
+        return entries.entrySet().stream()
+                .sorted(Comparator.comparing(entry -> Collections.min(entry.getValue())))
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    public OrSet add(String replica, String element) {
+        OrSet delta = new OrSet();
+        Dot dot = context.next(replica);
+        delta.entries.put(element, new HashSet<>(Set.of(dot)));
+        delta.context.add(dot);
+        entries.getOrDefault(element, Set.of()).forEach(delta.context::add);
+        merge(delta);
+        return delta;
+    }
+
+    public OrSet remove(String element) {
+        OrSet delta = new OrSet();
+        entries.getOrDefault(element, Set.of()).forEach(delta.context::add);
+        merge(delta);
+        return delta;
+    }
+
+    // a dot survives if both sides have it, or if the side lacking it has never seen it
+    @Override
+    public boolean merge(OrSet other) {
+        boolean changed = false;
+        Set<String> elements = new HashSet<>(entries.keySet());
+        elements.addAll(other.entries.keySet());
+        for (String element : elements) {
+            Set<Dot> ours = entries.getOrDefault(element, Set.of());
+            Set<Dot> theirs = other.entries.getOrDefault(element, Set.of());
+            Set<Dot> merged = new HashSet<>();
+            for (Dot dot : ours) {
+                if (theirs.contains(dot) || !other.context.contains(dot)) {
+                    merged.add(dot);
+                }
+            }
+            for (Dot dot : theirs) {
+                if (!context.contains(dot)) {
+                    merged.add(dot);
+                }
+            }
+            changed |= !merged.equals(ours);
+            if (merged.isEmpty()) {
+                entries.remove(element);
+            } else {
+                entries.put(element, merged);
+            }
+        }
+        return context.merge(other.context) || changed;
+    }
+}
@@ -0,0 +1,120 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.crdt;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Replicated growable array of books. Every insert is a node naming the node it was inserted after; removes
+ * only mark nodes, so the state grows and merging is a union. Reading walks the tree from the head, visiting
+ * the nodes inserted after the same node newest first, which puts concurrent inserts in the same order on
+ * every replica. Ids are Lamport timestamps, always newer than every node the inserting replica has seen.
+ */
+public class Rga implements Crdt<Rga> {
+    public record Node(Dot id, Dot after, Book book) {
+    }
+
+    private static final Comparator<Node> NEWEST_FIRST = Comparator.comparing(Node::id).reversed();
+
+    private final List<Node> nodes;
+    private final Set<Dot> removed;
+    private transient List<Node> visible;
+
+    public Rga() {
+        this.nodes = new ArrayList<>();
+        this.removed = new HashSet<>();
+    }
+
+    // the nodes that are not removed, in list order
+    public List<Node> visible() {
+        if (visible == null) {
+            visible = walk();
+        }
+        return visible;
+    }
+
+    public boolean isEmpty() {
+        return nodes.isEmpty() && removed.isEmpty();
+    }
+
+    public Rga insertAfter(String replica, Dot after, Book book) {
+        long newest = 0;
+        for (Node node : nodes) {
+            newest = Math.max(newest, node.id().counter());
+        }
+        Rga delta = new Rga();
+        delta.nodes.add(new Node(new Dot(replica, newest + 1), after, book));
+        merge(delta);
+        return delta;
+    }
+
+    // appends after the last visible node
+    public Rga append(String replica, Book book) {
+        List<Node> current = visible();
+        return insertAfter(replica, current.isEmpty() ? null : current.getLast().id(), book);
+    }
+
+    public Rga remove(Set<Dot> ids) {
+        Rga delta = new Rga();
+        delta.removed.addAll(ids);
+        merge(delta);
+        return delta;
+    }
+
+    @Override
+    public boolean merge(Rga other) {
+        Set<Dot> known = new HashSet<>();
+        for (Node node : nodes) {
+            known.add(node.id());
+        }
+        boolean changed = false;
+        for (Node node : other.nodes) {
+            if (known.add(node.id())) {
+                nodes.add(node);
+                changed = true;
+            }
+        }
+        changed |= removed.addAll(other.removed);
+        if (changed) {
+            visible = null;
+        }
+        return changed;
+    }
+
+    private List<Node> walk() {
+        Map<Dot, List<Node>> children = new HashMap<>();
+        for (Node node : nodes) {
+            children.computeIfAbsent(node.after(), after -> new ArrayList<>()).add(node);
+        }
+        List<Node> order = new ArrayList<>();
+        Deque<Node> stack = new ArrayDeque<>();
+        pushChildren(stack, children.get(null));
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (!removed.contains(node.id())) {
+                order.add(node);
+            }
+            pushChildren(stack, children.get(node.id()));
+        }
+        return List.copyOf(order);
+    }
+
+    // pushed oldest first so the newest is visited first
+    private static void pushChildren(Deque<Node> stack, List<Node> children) {
+        if (children == null) {
+            return;
+        }
+        children.sort(NEWEST_FIRST);
+        for (int i = children.size() - 1; i >= 0; i--) {
+            stack.push(children.get(i));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.crdt;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Everything one user owns, as CRDTs: the names of their lists, the books of every list, their friends and their
+ * recommendations. The registration fields never change after the user is created; a delta about some other
+ * field leaves them null.
+ */
+public class UserState {
+    private String id;
+    private String username;
+    private String password;
+    private long registeredAt;
+    private final OrSet lists;
+    private final Map<String, Rga> contents;
+    private final OrSet friends;
+    private final Rga recommendations;
+
+    public UserState() {
+        this.lists = new OrSet();
+        this.contents = new HashMap<>();
+        this.friends = new OrSet();
+        this.recommendations = new Rga();
+    }
+
+    public static UserState registered(String id, String username, String password, long registeredAt) {
+        UserState user = new UserState();
+        user.id = id;
+        user.username = username;
+        user.password = password;
+        user.registeredAt = registeredAt;
+        return user;
+    }
+
+    public static UserState delta(String id) {
+        UserState delta = new UserState();
+        delta.id = id;
+        return delta;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public String username() {
+        return username;
+    }
+
+    public String password() {
+        return password;
+    }
+
+    public long registeredAt() {
+        return registeredAt;
+    }
+
+    public boolean isRegistered() {
+        return username != null;
+    }
+
+    public OrSet lists() {
+        return lists;
+    }
+
+    public Rga contents(String listName) {
+        return contents.computeIfAbsent(listName, name -> new Rga());
+    }
+
+    public Map<String, Rga> allContents() {
+        return contents;
+    }
+
+    public OrSet friends() {
+        return friends;
+    }
+
+    public Rga recommendations() {
+        return recommendations;
+    }
+
+    public boolean merge(UserState other) {
+        boolean changed = false;
+        if (username == null && other.username != null) {
+            username = other.username;
+            password = other.password;
+            registeredAt = other.registeredAt;
+            changed = true;
+        }
+        changed |= lists.merge(other.lists);
+        for (Map.Entry<String, Rga> list : other.contents.entrySet()) {
+            changed |= contents(list.getKey()).merge(list.getValue());
+        }
+        changed |= friends.merge(other.friends);
+        changed |= recommendations.merge(other.recommendations);
+        return changed;
+    }
+}
@@ -7,43 +7,96 @@ import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameAlreadyExistsException;
 import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameDoesntExistException;
 import bg.sofia.uni.fmi.mjt.goodreads.exception.UserDoesntExistException;
 import bg.sofia.uni.fmi.mjt.goodreads.exception.UsernameAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.FriendsCursor;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Page;
 import bg.sofia.uni.fmi.mjt.goodreads.storage.Storage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.backup.TablesSnapshot;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookList;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.filter.BloomFilter;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.format.JsonTableFormat;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.format.TableFormat;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph.BookPostings;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph.FriendGraph;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph.FriendsOfFriends;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph.RecommendationFeed;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.loader.TableLoader;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.similarity.CoOccurrenceIndex;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.loader.UsersTable;
 import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.thread.SaveToFileThread;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.tiering.ColdTier;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.tiering.UserSegments;
 import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater.Updater;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.migration.UserExport;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.migration.UserRecord;
+import bg.sofia.uni.fmi.mjt.goodreads.user.FriendSuggestion;
+import bg.sofia.uni.fmi.mjt.goodreads.user.Recommendation;
 import bg.sofia.uni.fmi.mjt.goodreads.user.User;
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Reader;
-import java.lang.reflect.Type;
+import java.io.UncheckedIOException;
+import java.lang.ref.SoftReference;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
-public class FileSystemStorage implements Storage {
+public class FileSystemStorage implements Storage, UserExport {
     private static final String RELATIVE_PATH_STRING = "src/bg/sofia/uni/fmi/mjt/goodreads/storage/filesystem/tables";
     private static final Path TABLES_PATH = Paths.get(RELATIVE_PATH_STRING);
     public static final File USERS_TABLE = new File(RELATIVE_PATH_STRING + "/users_table.json");
     public static final File LISTS_TABLE = new File(RELATIVE_PATH_STRING + "/lists_table.json");
+    public static final File USERS_BINARY_TABLE = new File(RELATIVE_PATH_STRING + "/users_table.bin");
+    public static final File LISTS_BINARY_TABLE = new File(RELATIVE_PATH_STRING + "/lists_table.bin");
     private static final int INITIAL_DELAY_SECONDS = 10;
     private static final int SAVE_PERIOD_SECONDS = 60;
+    private static final int FEED_CAPACITY = 1000;
+    private static final int SUGGESTION_BUDGET = 10_000;
+    private static final int MIN_USERNAME_CAPACITY = 1024;
+    private static final double USERNAME_FALSE_POSITIVE_RATE = 0.01;
 
     private final List<User> users;
+    private final Map<String, User> usersById;
+    private final Map<String, User> usersByUsername;
     private final Map<String, Map<String, List<Book>>> userBookshelfs;
-    private Reader usersTableReader;
-    private Reader bookshelfTableReader;
-    private Gson gson;
+    private final BookCatalog bookCatalog;
+    private final FriendGraph friendGraph;
+    private final RecommendationFeed recommendationFeed;
+    private final CoOccurrenceIndex coOccurrences;
+    private final BookPostings bookPostings;
+    // immutable views published for readers that don't take the storage lock, held softly so that they don't keep
+    // bookshelves the mapped tables have released on heap; a cleared view is published again on the next read
+    private final Map<String, SoftReference<Map<String, List<Book>>>> listViews;
+    private final Map<String, List<String>> friendViews;
+    // answers definite misses for unknown usernames without the storage lock, rebuilt when the users outgrow it
+    private volatile BloomFilter usernameFilter;
+    // users who weren't active for a while live there instead of the tables, see archiveInactiveUsers
+    private final ColdTier coldTier;
+
+    // what indexing an archived user needs to keep once their record is read, see indexColdUsers
+    private record ColdUser(int node, int[] friendNodes, int[] recommendationRefs) {
+    }
+
+    @FunctionalInterface
+    private interface TableReader<T> {
+        T read(BookCatalog catalog) throws IOException;
+    }
 
     public FileSystemStorage(Reader usersTableReader, Reader bookshelfTableReader,
                              Updater usersTableUpdater, Updater bookshelfTableUpdater,
@@ -56,18 +109,87 @@ public class FileSystemStorage implements Storage {
                              Updater usersTableUpdater, Updater bookshelfTableUpdater,
                              ScheduledExecutorService saveToFileExecutor, int initialDelayToSave, int savePeriod)
             throws IOException {
-        gson = new Gson();
-        this.usersTableReader = usersTableReader;
-        this.bookshelfTableReader = bookshelfTableReader;
+        this(new JsonTableFormat(new Gson()),
+                catalog -> TableLoader.readUsers(usersTableReader, catalog),
+                catalog -> TableLoader.readBookshelves(bookshelfTableReader, catalog),
+                usersTableUpdater, bookshelfTableUpdater, saveToFileExecutor, initialDelayToSave, savePeriod,
+                ColdTier.disabled());
+    }
+
+    public FileSystemStorage(Reader usersTableReader, Reader bookshelfTableReader,
+                             Updater usersTableUpdater, Updater bookshelfTableUpdater,
+                             ScheduledExecutorService saveToFileExecutor, ColdTier coldTier) throws IOException {
+        this(new JsonTableFormat(new Gson()),
+                catalog -> TableLoader.readUsers(usersTableReader, catalog),
+                catalog -> TableLoader.readBookshelves(bookshelfTableReader, catalog),
+                usersTableUpdater, bookshelfTableUpdater, saveToFileExecutor, INITIAL_DELAY_SECONDS,
+                SAVE_PERIOD_SECONDS, coldTier);
+    }
+
+    public FileSystemStorage(TableFormat tableFormat, Path usersTable, Path bookshelfTable,
+                             Updater usersTableUpdater, Updater bookshelfTableUpdater,
+                             ScheduledExecutorService saveToFileExecutor) throws IOException {
+        this(tableFormat, usersTable, bookshelfTable, usersTableUpdater, bookshelfTableUpdater, saveToFileExecutor,
+                ColdTier.disabled());
+    }
+
+    public FileSystemStorage(TableFormat tableFormat, Path usersTable, Path bookshelfTable,
+                             Updater usersTableUpdater, Updater bookshelfTableUpdater,
+                             ScheduledExecutorService saveToFileExecutor, ColdTier coldTier) throws IOException {
+        this(tableFormat,
+                catalog -> tableFormat.readUsers(usersTable, catalog),
+                catalog -> tableFormat.readBookshelves(bookshelfTable, catalog),
+                usersTableUpdater, bookshelfTableUpdater, saveToFileExecutor, INITIAL_DELAY_SECONDS,
+                SAVE_PERIOD_SECONDS, coldTier);
+    }
+
+    private FileSystemStorage(TableFormat tableFormat, TableReader<UsersTable> usersTableReader,
+                              TableReader<Map<String, Map<String, List<Book>>>> bookshelfTableReader,
+                              Updater usersTableUpdater, Updater bookshelfTableUpdater,
+                              ScheduledExecutorService saveToFileExecutor, int initialDelayToSave, int savePeriod,
+                              ColdTier coldTier) throws IOException {
         initializeTables();
-        users = readUserTableDirectory();
-        userBookshelfs = readListDirectory();
+        bookCatalog = new BookCatalog();
+
+        CompletableFuture<UsersTable> usersTable =
+                CompletableFuture.supplyAsync(() -> readUsersTable(usersTableReader));
+        userBookshelfs = bookshelfTableReader.read(bookCatalog);
+        UsersTable loadedUsers = joinUsersTable(usersTable);
+        users = loadedUsers.users();
+        usersById = new ConcurrentHashMap<>(loadedUsers.usersById());
+        usersByUsername = loadedUsers.usersByUsername();
+        listViews = new ConcurrentHashMap<>();
+        friendViews = new ConcurrentHashMap<>();
+        this.coldTier = coldTier;
+        List<UserSegments.Entry> cold = coldTier.load(Set.copyOf(usersById.keySet()));
+        usernameFilter = buildUsernameFilter();
+        friendGraph = new FriendGraph();
+        recommendationFeed = new RecommendationFeed(FEED_CAPACITY);
+        for (User user : users) {
+            friendGraph.addUser(user.id());
+        }
+        for (UserSegments.Entry stub : cold) {
+            friendGraph.addUser(stub.userId());
+        }
+        coOccurrences = CoOccurrenceIndex.build(userBookshelfs, bookCatalog);
+        bookPostings = new BookPostings();
+        indexPostings();
+        indexFriendships(indexColdUsers(cold));
+        for (User user : users) {
+            friendViews.put(user.id(), List.copyOf(user.friends()));
+        }
 
-        saveToFileExecutor.scheduleAtFixedRate(
-                new SaveToFileThread(users, userBookshelfs, usersTableUpdater, bookshelfTableUpdater, gson),
-                initialDelayToSave,
-                savePeriod,
-                TimeUnit.SECONDS);
+        SaveToFileThread saveTables =
+                new SaveToFileThread(users, userBookshelfs, usersTableUpdater, bookshelfTableUpdater, tableFormat);
+        // the cold tier's activity is saved with the tables, so a restart loses no more of it than of them
+        saveToFileExecutor.scheduleAtFixedRate(() -> {
+            saveTables.run();
+            try {
+                coldTier.saveActivity();
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, initialDelayToSave, savePeriod, TimeUnit.SECONDS);
     }
 
     private synchronized void initializeTables() throws IOException {
@@ -84,187 +206,765 @@ public class FileSystemStorage implements Storage {
         }
     }
 
-    private synchronized List<User> readUserTableDirectory() {
-        Type listUser = new TypeToken<List<User>>() { }.getType();
-        return gson.fromJson(usersTableReader, listUser);
+    private UsersTable readUsersTable(TableReader<UsersTable> usersTableReader) {
+        try {
+            return usersTableReader.read(bookCatalog);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static UsersTable joinUsersTable(CompletableFuture<UsersTable> usersTable) throws IOException {
+        try {
+            return usersTable.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException ioException) {
+                throw ioException.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private BloomFilter buildUsernameFilter() {
+        BloomFilter filter = new BloomFilter(Math.max(MIN_USERNAME_CAPACITY, 2 * usernameCount()),
+                USERNAME_FALSE_POSITIVE_RATE);
+        for (String username : usersByUsername.keySet()) {
+            filter.add(username);
+        }
+        for (String username : coldTier.usernames()) {
+            filter.add(username);
+        }
+        return filter;
     }
 
-    private synchronized Map<String, Map<String, List<Book>>> readListDirectory() {
-        Type userBookshelfMapType = new TypeToken<Map<String, Map<String, List<Book>>>>() { }.getType();
-        return gson.fromJson(bookshelfTableReader, userBookshelfMapType);
+    private int usernameCount() {
+        return usersByUsername.size() + coldTier.size();
+    }
+
+    public double getUsernameFilterFalsePositiveRate() {
+        return usernameFilter.falsePositiveRate();
+    }
+
+    public int getUsernameFilterBitSize() {
+        return usernameFilter.bitSize();
+    }
+
+    private boolean mightBeUsername(String username) {
+        return username != null && usernameFilter.mightContain(username);
+    }
+
+    /*
+     * Archived users are read from their segments one record at a time. Their books go straight into the postings
+     * and the similar books index; only their friends' nodes and their recommendations' references are kept until
+     * indexFriendships is done with them.
+     */
+    private Map<String, ColdUser> indexColdUsers(List<UserSegments.Entry> cold) throws IOException {
+        Map<String, ColdUser> coldUsers = new LinkedHashMap<>();
+        for (UserSegments.Entry stub : cold) {
+            UserRecord record = coldTier.read(stub);
+            int node = friendGraph.node(stub.userId());
+            for (Map.Entry<String, List<Book>> list : record.bookshelf().entrySet()) {
+                for (Book book : list.getValue()) {
+                    int ref = bookCatalog.intern(book);
+                    bookPostings.add(ref, node, list.getKey());
+                    coOccurrences.add(stub.userId(), ref);
+                }
+            }
+            coldUsers.put(stub.userId(), new ColdUser(node, friendNodes(record.user().friends()),
+                    bookRefs(record.user().recommendedBooks())));
+        }
+        return coldUsers;
+    }
+
+    private int[] friendNodes(List<String> friendUsernames) {
+        List<Integer> nodes = new ArrayList<>(friendUsernames.size());
+        for (String friendUsername : friendUsernames) {
+            User friend = usersByUsername.get(friendUsername);
+            UserSegments.Entry stub = friend == null ? coldTier.stubByUsername(friendUsername) : null;
+            if (friend != null || stub != null) {
+                nodes.add(friendGraph.node(friend != null ? friend.id() : stub.userId()));
+            }
+        }
+        return nodes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private int[] bookRefs(List<Book> books) {
+        int[] refs = new int[books.size()];
+        for (int i = 0; i < refs.length; i++) {
+            refs[i] = bookCatalog.intern(books.get(i));
+        }
+        return refs;
+    }
+
+    // hot users follow first and cold ones after them, the order the feeds had when cold users were loaded hot
+    private void indexFriendships(Map<String, ColdUser> coldUsers) {
+        for (User user : users) {
+            for (String friendUsername : user.friends()) {
+                User friend = usersByUsername.get(friendUsername);
+                UserSegments.Entry stub = friend == null ? coldTier.stubByUsername(friendUsername) : null;
+                if (friend != null) {
+                    follow(user, friend);
+                } else if (stub != null) {
+                    ColdUser coldFriend = coldUsers.get(stub.userId());
+                    follow(friendGraph.node(user.id()), coldFriend.node(), coldFriend.recommendationRefs());
+                }
+            }
+        }
+        for (ColdUser user : coldUsers.values()) {
+            for (int friendNode : user.friendNodes()) {
+                String friendId = friendGraph.userId(friendNode);
+                ColdUser coldFriend = coldUsers.get(friendId);
+                follow(user.node(), friendNode, coldFriend != null
+                        ? coldFriend.recommendationRefs()
+                        : bookRefs(usersById.get(friendId).recommendedBooks()));
+            }
+        }
+    }
+
+    private void indexPostings() {
+        for (Map.Entry<String, Map<String, List<Book>>> bookshelf : userBookshelfs.entrySet()) {
+            int user = friendGraph.addUser(bookshelf.getKey());
+            for (Map.Entry<String, List<Book>> list : bookshelf.getValue().entrySet()) {
+                for (Book book : list.getValue()) {
+                    bookPostings.add(bookCatalog.intern(book), user, list.getKey());
+                }
+            }
+        }
+    }
+
+    // the new friend's earlier recommendations are copied into the user's feed, later ones are pushed as they happen
+    private void follow(User user, User friend) {
+        int userNode = friendGraph.node(user.id());
+        int friendNode = friendGraph.node(friend.id());
+        if (!friendGraph.follow(userNode, friendNode)) {
+            return;
+        }
+        for (Book book : friend.recommendedBooks()) {
+            recommendationFeed.publish(userNode, friendNode, bookCatalog.intern(book));
+        }
+    }
+
+    private void follow(int userNode, int friendNode, int[] friendRecommendationRefs) {
+        if (!friendGraph.follow(userNode, friendNode)) {
+            return;
+        }
+        for (int bookRef : friendRecommendationRefs) {
+            recommendationFeed.publish(userNode, friendNode, bookRef);
+        }
     }
 
     @Override
-    public synchronized boolean exists(String userId) {
-        return users.stream().anyMatch(x -> x.id().equals(userId));
+    public boolean exists(String userId) {
+        return userId != null && (usersById.containsKey(userId) || coldTier.stubById(userId) != null);
     }
 
     @Override
     public synchronized String register(String username, String password)
             throws UsernameAlreadyExistsException, ListNameAlreadyExistsException {
-        if (!users.isEmpty()) {
-            Optional<User> sameUsernameUser = users.stream().filter(x -> x.username().equals(username)).findFirst();
-            if (sameUsernameUser.isPresent()) {
-                throw new UsernameAlreadyExistsException("This username is already in use");
-            }
+        String newUserId = UUID.randomUUID().toString();
+        register(newUserId, username, password);
+        return newUserId;
+    }
+
+    // registers under an id chosen elsewhere, replicas use it to replay the registrations of the primary
+    public synchronized void register(String newUserId, String username, String password)
+            throws UsernameAlreadyExistsException, ListNameAlreadyExistsException {
+        if (mightBeUsername(username)
+                && (usersByUsername.containsKey(username) || coldTier.stubByUsername(username) != null)) {
+            throw new UsernameAlreadyExistsException("This username is already in use");
         }
 
-        String newUserId = UUID.randomUUID().toString();
-        users.add(new User(newUserId, username, password, new ArrayList<>(), new ArrayList<>()));
+        User newUser = new User(newUserId, username, password, new ArrayList<>(), new BookList(bookCatalog));
+        synchronized (users) {
+            users.add(newUser);
+        }
+        usersById.put(newUserId, newUser);
+        usersByUsername.put(username, newUser);
+        if (usernameCount() > usernameFilter.expectedInsertions()) {
+            usernameFilter = buildUsernameFilter();
+        } else {
+            usernameFilter.add(username);
+        }
+        friendGraph.addUser(newUserId);
+        friendViews.put(newUserId, List.of());
+        coldTier.touch(newUserId);
 
         createList(newUserId, User.WANT_TO_READ_LIST_NAME);
         createList(newUserId, User.READ_LIST_NAME);
+    }
 
-        return newUserId;
+    // a consistent copy of both tables in the JSON format, archived users included
+    public void writeTables(OutputStream usersOut, OutputStream bookshelvesOut) throws IOException {
+        TablesSnapshot snapshot = snapshotTables();
+        TableFormat snapshotFormat = new JsonTableFormat(new Gson());
+        snapshotFormat.writeUsers(snapshot.users(), usersOut);
+        snapshotFormat.writeBookshelves(snapshot.bookshelves(), bookshelvesOut);
+    }
+
+    // a point-in-time copy of both tables for an online backup: lists and recommendations are copy-on-write views,
+    // so the lock is held only to collect references and the caller serializes the copy while writes go on.
+    // Archived records are never rewritten, so the ones that were cold at that point are read after the lock
+    public TablesSnapshot snapshotTables() {
+        List<UserSegments.Entry> cold = new ArrayList<>();
+        TablesSnapshot hot = snapshotHotTables(cold);
+        if (cold.isEmpty()) {
+            return hot;
+        }
+        List<User> usersCopy = new ArrayList<>(hot.users());
+        Map<String, Map<String, List<Book>>> bookshelvesCopy = new HashMap<>(hot.bookshelves());
+        for (UserSegments.Entry stub : cold) {
+            UserRecord record = readCold(stub);
+            usersCopy.add(record.user());
+            bookshelvesCopy.put(stub.userId(), record.bookshelf());
+        }
+        return new TablesSnapshot(List.copyOf(usersCopy), Map.copyOf(bookshelvesCopy));
+    }
+
+    private synchronized TablesSnapshot snapshotHotTables(List<UserSegments.Entry> cold) {
+        cold.addAll(coldTier.stubs());
+        List<User> usersCopy = new ArrayList<>();
+        synchronized (users) {
+            for (User user : users) {
+                usersCopy.add(new User(user.id(), user.username(), user.password(), List.copyOf(user.friends()),
+                        recommendationsView(user)));
+            }
+        }
+        // users without published views are copied from the bookshelves without publishing any, iterating the
+        // mapped bookshelves doesn't make them resident either
+        Map<String, Map<String, List<Book>>> bookshelvesCopy = new HashMap<>();
+        synchronized (userBookshelfs) {
+            for (Map.Entry<String, Map<String, List<Book>>> bookshelf : userBookshelfs.entrySet()) {
+                Map<String, List<Book>> published = publishedLists(bookshelf.getKey());
+                bookshelvesCopy.put(bookshelf.getKey(), published != null ? published : viewOf(bookshelf.getValue()));
+            }
+        }
+        return new TablesSnapshot(List.copyOf(usersCopy), Map.copyOf(bookshelvesCopy));
+    }
+
+    @Override
+    public List<String> userIds() {
+        List<String> userIds;
+        synchronized (users) {
+            userIds = new ArrayList<>(users.stream().map(User::id).toList());
+        }
+        for (UserSegments.Entry stub : coldTier.stubs()) {
+            if (!usersById.containsKey(stub.userId())) {
+                userIds.add(stub.userId());
+            }
+        }
+        return userIds;
     }
 
+    // archived users are exported from their record and stay cold
     @Override
-    public synchronized String login(String username, String password) throws InvalidCredentials {
-        if (users.isEmpty()) {
+    public synchronized UserRecord exportUser(String userId) {
+        User user = userId == null ? null : usersById.get(userId);
+        if (user == null) {
+            UserSegments.Entry stub = coldTier.stubById(userId);
+            return stub == null ? null : readCold(stub);
+        }
+        Map<String, List<Book>> lists = publishedLists(userId);
+        synchronized (users) {
+            return new UserRecord(new User(user.id(), user.username(), user.password(), List.copyOf(user.friends()),
+                    recommendationsView(user)), lists != null ? lists : publishLists(userId));
+        }
+    }
+
+    @Override
+    public String login(String username, String password) throws InvalidCredentials {
+        if (!mightBeUsername(username)) {
             throw new InvalidCredentials("Invalid username");
         }
-        Optional<User> sameUsernameUser = users.stream().filter(x -> x.username().equals(username)).findFirst();
-        if (sameUsernameUser.isEmpty()) {
+        return checkCredentials(username, password);
+    }
+
+    private synchronized String checkCredentials(String username, String password) throws InvalidCredentials {
+        User sameUsernameUser = hotUserByUsername(username);
+        if (sameUsernameUser == null) {
             throw new InvalidCredentials("Invalid username");
         }
-        if (!sameUsernameUser.get().password().equals(password)) {
+        if (!sameUsernameUser.password().equals(password)) {
             throw new InvalidCredentials("Invalid password");
         }
-        return sameUsernameUser.get().id();
+        return sameUsernameUser.id();
+    }
+
+    @Override
+    public List<Book> getList(String userId, String listName) throws ListNameDoesntExistException {
+        Map<String, List<Book>> lists = publishedLists(userId);
+        if (lists == null) {
+            lists = publishLists(getUserById(userId).id());
+        }
+        List<Book> list = lists.get(listName);
+        if (list == null) {
+            throw new ListNameDoesntExistException("This user doesn't have such list name");
+        }
+        return list;
     }
 
     @Override
-    public synchronized List<Book> getList(String userId, String listName) throws ListNameDoesntExistException {
+    public Page<Book> getList(String userId, String listName, int offset, int limit)
+            throws ListNameDoesntExistException {
+        return Page.slice(getList(userId, listName), offset, limit);
+    }
+
+    // the first read of a user publishes their views, after that every write to their lists republishes them
+    private synchronized Map<String, List<Book>> publishLists(String userId) {
+        synchronized (userBookshelfs) {
+            Map<String, List<Book>> published = viewOf(userBookshelfs.get(userId));
+            listViews.put(userId, new SoftReference<>(published));
+            return published;
+        }
+    }
+
+    // null when the user's views weren't published or the GC has cleared them
+    private Map<String, List<Book>> publishedLists(String userId) {
+        SoftReference<Map<String, List<Book>>> published = listViews.get(userId);
+        return published == null ? null : published.get();
+    }
+
+    private static Map<String, List<Book>> viewOf(Map<String, List<Book>> lists) {
+        Map<String, List<Book>> views = new HashMap<>();
+        if (lists != null) {
+            for (Map.Entry<String, List<Book>> list : lists.entrySet()) {
+                views.put(list.getKey(), list.getValue() instanceof BookList bookList
+                        ? bookList.snapshot()
+                        : List.copyOf(list.getValue()));
+            }
+        }
+        return Map.copyOf(views);
+    }
 
-        Map<String, List<Book>> booksList = userBookshelfs.get(userId);
-        if (!booksList.containsKey(listName)) {
+    private List<Book> liveList(String userId, String listName) throws ListNameDoesntExistException {
+        Map<String, List<Book>> lists = userBookshelfs.get(getUserById(userId).id());
+        if (lists == null || !lists.containsKey(listName)) {
             throw new ListNameDoesntExistException("This user doesn't have such list name");
         }
-        return booksList.get(listName);
+        return lists.get(listName);
     }
 
     @Override
     public synchronized void createList(String userId, String listName) throws ListNameAlreadyExistsException {
         User user = getUserById(userId);
-        if (!userBookshelfs.containsKey(userId)) {
-            userBookshelfs.put(userId, new HashMap<>());
-        }
-        Map<String, List<Book>> userLists = userBookshelfs.get(user.id());
-        if (userLists.containsKey(listName)) {
-            throw new ListNameAlreadyExistsException("List name already exists");
+        synchronized (userBookshelfs) {
+            if (!userBookshelfs.containsKey(userId)) {
+                userBookshelfs.put(userId, new HashMap<>());
+            }
+            Map<String, List<Book>> userLists = userBookshelfs.get(user.id());
+            if (userLists.containsKey(listName)) {
+                throw new ListNameAlreadyExistsException("List name already exists");
+            }
+            userBookshelfs.get(user.id()).put(listName, new BookList(bookCatalog));
+            publishLists(user.id());
         }
-        userBookshelfs.get(user.id()).put(listName, new ArrayList<>());
     }
 
     @Override
     public synchronized void removeList(String userId, String listName) throws ListNameDoesntExistException {
         User user = getUserById(userId);
-        if (!userBookshelfs.containsKey(user.id())) {
-            throw new ListNameDoesntExistException("This user doesn't have any lists");
-        }
-        Map<String, List<Book>> userList = userBookshelfs.get(user.id());
-        if (!userList.containsKey(listName)) {
-            throw new ListNameDoesntExistException("No list with that name exists");
+        synchronized (userBookshelfs) {
+            if (!userBookshelfs.containsKey(user.id())) {
+                throw new ListNameDoesntExistException("This user doesn't have any lists");
+            }
+            Map<String, List<Book>> userList = userBookshelfs.get(user.id());
+            if (!userList.containsKey(listName)) {
+                throw new ListNameDoesntExistException("No list with that name exists");
+            }
+            for (Book book : userList.remove(listName)) {
+                unshelved(user.id(), listName, bookCatalog.find(book.id()));
+            }
+            publishLists(user.id());
         }
-        userList.remove(listName);
     }
 
     @Override
     public synchronized void addToList(String userId, String listName, Book book) throws ListNameDoesntExistException {
         User user = getUserById(userId);
-        if (!userBookshelfs.containsKey(user.id())) {
-            throw new ListNameDoesntExistException("This user doesn't have any lists");
-        }
-        Map<String, List<Book>> userList = userBookshelfs.get(user.id());
-        if (!userList.containsKey(listName)) {
-            throw new ListNameDoesntExistException("No list with that name exists");
+        synchronized (userBookshelfs) {
+            if (!userBookshelfs.containsKey(user.id())) {
+                throw new ListNameDoesntExistException("This user doesn't have any lists");
+            }
+            Map<String, List<Book>> userList = userBookshelfs.get(user.id());
+            if (!userList.containsKey(listName)) {
+                throw new ListNameDoesntExistException("No list with that name exists");
+            }
+            if (userList.get(listName).add(book)) {
+                int ref = bookCatalog.intern(book);
+                coOccurrences.add(user.id(), ref);
+                bookPostings.add(ref, friendGraph.node(user.id()), listName);
+                publishLists(user.id());
+            }
         }
-        userList.get(listName).add(book);
     }
 
     @Override
     public synchronized void removeFromList(String userId, String listName, int index)
             throws ListNameDoesntExistException, BookNotInListException {
         User user = getUserById(userId);
-        if (!userBookshelfs.containsKey(user.id())) {
-            throw new ListNameDoesntExistException("This user doesn't have any lists");
+        synchronized (userBookshelfs) {
+            if (!userBookshelfs.containsKey(user.id())) {
+                throw new ListNameDoesntExistException("This user doesn't have any lists");
+            }
+            Map<String, List<Book>> userList = userBookshelfs.get(user.id());
+            if (!userList.containsKey(listName)) {
+                throw new ListNameDoesntExistException("No list with that name exists");
+            }
+            if (index < 0 || index >= userList.get(listName).size()) {
+                throw new BookNotInListException("Index out of range");
+            }
+            Book removed = userList.get(listName).remove(index);
+            unshelved(user.id(), listName, bookCatalog.find(removed.id()));
+            publishLists(user.id());
         }
-        Map<String, List<Book>> userList = userBookshelfs.get(user.id());
-        if (!userList.containsKey(listName)) {
-            throw new ListNameDoesntExistException("No list with that name exists");
+    }
+
+    @Override
+    public synchronized boolean containsBook(String userId, String listName, String bookId)
+            throws ListNameDoesntExistException {
+        synchronized (userBookshelfs) {
+            List<Book> list = liveList(userId, listName);
+            if (list instanceof BookList bookList) {
+                return bookList.containsId(bookId);
+            }
+            return list.stream().anyMatch(book -> book.id().equals(bookId));
         }
-        if (index < 0 || index >= userList.get(listName).size()) {
-            throw new BookNotInListException("Index out of range");
+    }
+
+    @Override
+    public synchronized void removeBookFromList(String userId, String listName, String bookId)
+            throws ListNameDoesntExistException, BookNotInListException {
+        synchronized (userBookshelfs) {
+            List<Book> list = liveList(userId, listName);
+            boolean removed = list instanceof BookList bookList
+                    ? bookList.removeById(bookId)
+                    : list.removeIf(book -> book.id().equals(bookId));
+            if (!removed) {
+                throw new BookNotInListException("No book with that id in the list");
+            }
+            unshelved(userId, listName, bookCatalog.find(bookId));
+            publishLists(userId);
         }
-        userList.get(listName).remove(index);
+    }
+
+    // keeps the indexes over all bookshelves in step with a book leaving one of the user's lists
+    private void unshelved(String userId, String listName, int ref) {
+        coOccurrences.remove(userId, ref);
+        bookPostings.remove(ref, friendGraph.node(userId), listName);
     }
 
     @Override
-    public synchronized void addFriend(String userId, String friendUsername) throws UserDoesntExistException {
+    public synchronized Map<String, List<String>> getFriendsWithBook(String userId, String bookId) {
         User user = getUserById(userId);
+        Map<Integer, List<String>> holders = bookPostings.holdersAmong(bookCatalog.find(bookId),
+                friendGraph.following(friendGraph.node(user.id())));
+        Map<String, List<String>> friendsWithBook = new HashMap<>();
+        for (Map.Entry<Integer, List<String>> holder : holders.entrySet()) {
+            friendsWithBook.put(usernameOf(friendGraph.userId(holder.getKey())), holder.getValue());
+        }
+        return friendsWithBook;
+    }
+
+    @Override
+    public List<Book> getSimilarBooks(String bookId, int limit) {
+        return coOccurrences.similar(bookCatalog.find(bookId), limit);
+    }
+
+    @Override
+    public void addFriend(String userId, String friendUsername) throws UserDoesntExistException {
+        User user = getUserById(userId);
+        if (!mightBeUsername(friendUsername)) {
+            throw new UserDoesntExistException("Username doesn't exist");
+        }
+        addFriend(user, friendUsername);
+    }
+
+    private synchronized void addFriend(User user, String friendUsername) throws UserDoesntExistException {
         User friend = getUserByUsername(friendUsername);
 
-        if (user.friends().contains(friendUsername)) {
-            return;
+        synchronized (users) {
+            if (user.friends().contains(friendUsername)) {
+                return;
+            }
+            user.friends().add(friend.username());
+            friendViews.put(user.id(), List.copyOf(user.friends()));
+        }
+        follow(user, friend);
+    }
+
+    @Override
+    public List<String> getUserFriends(String userId) {
+        List<String> friends = userId == null ? null : friendViews.get(userId);
+        if (friends == null && coldTier.stubById(userId) != null) {
+            friends = friendViews.get(getUserById(userId).id());
+        }
+        if (friends == null) {
+            throw new RuntimeException("Invalid user ID");
         }
-        user.friends().add(friend.username());
+        return friends;
     }
 
     @Override
-    public synchronized List<String> getUserFriends(String userId) {
+    public synchronized List<FriendSuggestion> suggestFriends(String userId, int limit) {
         User user = getUserById(userId);
-        return user.friends();
+        List<FriendSuggestion> suggestions = new ArrayList<>();
+        for (FriendsOfFriends.Candidate candidate :
+                FriendsOfFriends.rank(friendGraph, friendGraph.node(user.id()), limit, SUGGESTION_BUDGET)) {
+            suggestions.add(new FriendSuggestion(usernameOf(friendGraph.userId(candidate.node())),
+                    candidate.mutualFriends()));
+        }
+        return suggestions;
     }
 
     @Override
     public synchronized void recommendBook(String userId, Book book) {
         User user = getUserById(userId);
-        if (user.recommendedBooks().contains(book)) {
-            return;
+        synchronized (users) {
+            // recommendations are a BookList, which ignores books that are already in it
+            if (!user.recommendedBooks().add(book)) {
+                return;
+            }
+        }
+        int author = friendGraph.node(user.id());
+        int bookRef = bookCatalog.intern(book);
+        for (int follower : friendGraph.followers(author)) {
+            recommendationFeed.publish(follower, author, bookRef);
         }
-        user.recommendedBooks().add(book);
     }
 
     @Override
     public synchronized Map<String, List<Book>> getFriendsRecommendations(String userId) {
         User user = getUserById(userId);
-        return user.friends().stream()
-                .map(x -> {
-                    try {
-                        return getUserByUsername(x);
-                    } catch (UserDoesntExistException e) {
-                        throw new RuntimeException(e);
-                    }
-                })
-                .collect(Collectors.toMap(
-                        User::username,
-                        friend -> getUserRecommendations(friend.id())
-                        )
-                );
+        Map<String, List<Book>> recommendations = new HashMap<>();
+        for (int friendNode : friendGraph.following(friendGraph.node(user.id()))) {
+            String friendId = friendGraph.userId(friendNode);
+            User friend = usersById.get(friendId);
+            recommendations.put(usernameOf(friendId), friend != null
+                    ? recommendationsView(friend)
+                    : readCold(coldTier.stubById(friendId)).user().recommendedBooks());
+        }
+        return recommendations;
     }
 
     @Override
-    public synchronized List<Book> getUserRecommendations(String userId) {
+    public synchronized Page<Recommendation> getFriendsRecommendations(String userId, String cursor, int limit) {
+        Map<String, List<Book>> coldFriends = new HashMap<>();
+        return FriendsCursor.page(getUserById(userId).friends(), cursor, limit,
+                friendUsername -> friendRecommendations(friendUsername, coldFriends));
+    }
+
+    // reading a friend's recommendations leaves them cold, their record is read once per page
+    private List<Book> friendRecommendations(String friendUsername, Map<String, List<Book>> coldFriends) {
+        User friend = usersByUsername.get(friendUsername);
+        if (friend != null) {
+            return friend.recommendedBooks();
+        }
+        UserSegments.Entry stub = coldTier.stubByUsername(friendUsername);
+        if (stub == null) {
+            return List.of();
+        }
+        return coldFriends.computeIfAbsent(friendUsername, username -> readCold(stub).user().recommendedBooks());
+    }
+
+    @Override
+    public synchronized Page<Recommendation> getRecommendationFeed(String userId, String cursor, int limit) {
         User user = getUserById(userId);
-        return user.recommendedBooks();
+        long before = cursor == null || cursor.isEmpty() ? RecommendationFeed.FROM_NEWEST : Long.parseLong(cursor);
+        // one extra entry tells whether there is a next page
+        List<RecommendationFeed.Entry> entries =
+                recommendationFeed.page(friendGraph.node(user.id()), before, limit + 1);
+        boolean hasNext = entries.size() > limit;
+        if (hasNext) {
+            entries = entries.subList(0, limit);
+        }
+
+        List<Recommendation> recommendations = new ArrayList<>(entries.size());
+        for (RecommendationFeed.Entry entry : entries) {
+            recommendations.add(new Recommendation(usernameOf(friendGraph.userId(entry.author())),
+                    bookCatalog.get(entry.bookRef())));
+        }
+        String nextCursor = hasNext ? String.valueOf(entries.getLast().sequence()) : null;
+        return new Page<>(recommendations, nextCursor);
+    }
+
+    @Override
+    public List<Book> getUserRecommendations(String userId) {
+        return recommendationsView(getUserById(userId));
+    }
+
+    @Override
+    public Page<Book> getUserRecommendations(String userId, int offset, int limit) {
+        return Page.slice(getUserRecommendations(userId), offset, limit);
+    }
+
+    private List<Book> recommendationsView(User user) {
+        if (user.recommendedBooks() instanceof BookList bookList) {
+            return bookList.snapshot();
+        }
+        synchronized (users) {
+            return List.copyOf(user.recommendedBooks());
+        }
     }
 
-    private synchronized User getUserById(String userId) {
-        if (users.isEmpty()) {
+    private User getUserById(String userId) {
+        User user = userId == null ? null : hotUserById(userId);
+        if (user == null) {
             throw new RuntimeException("Invalid user ID");
         }
-        return users.stream()
-                .filter(x -> x.id().equals(userId))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Invalid user ID"));
+        return user;
     }
 
     private synchronized User getUserByUsername(String username) throws UserDoesntExistException {
-        return users.stream()
-                .filter(x -> x.username().equals(username))
-                .findFirst()
-                .orElseThrow(() -> new UserDoesntExistException("Username doesn't exist"));
+        User user = hotUserByUsername(username);
+        if (user == null) {
+            throw new UserDoesntExistException("Username doesn't exist");
+        }
+        return user;
+    }
+
+    // the user as they are on heap, brought back from the cold tier if they were archived
+    private User hotUserById(String userId) {
+        long start = System.nanoTime();
+        User user = usersById.get(userId);
+        if (user != null) {
+            coldTier.touch(userId);
+            coldTier.recordHit(System.nanoTime() - start);
+            return user;
+        }
+        return coldTier.stubById(userId) == null ? null : rehydrateById(userId, start);
+    }
+
+    private synchronized User hotUserByUsername(String username) {
+        long start = System.nanoTime();
+        User user = usersByUsername.get(username);
+        if (user != null) {
+            coldTier.touch(user.id());
+            coldTier.recordHit(System.nanoTime() - start);
+            return user;
+        }
+        UserSegments.Entry stub = coldTier.stubByUsername(username);
+        return stub == null ? null : rehydrate(stub, start);
+    }
+
+    // the stub is looked up again under the lock, a sweep may have archived the user anew in the meantime
+    private synchronized User rehydrateById(String userId, long start) {
+        User user = usersById.get(userId);
+        if (user != null) {
+            return user;
+        }
+        UserSegments.Entry stub = coldTier.stubById(userId);
+        return stub == null ? null : rehydrate(stub, start);
+    }
+
+    private User rehydrate(UserSegments.Entry stub, long start) {
+        try {
+            User user = putHot(coldTier.rehydrate(stub));
+            friendViews.put(user.id(), List.copyOf(user.friends()));
+            coldTier.recordMiss(System.nanoTime() - start);
+            return user;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private UserRecord readCold(UserSegments.Entry stub) {
+        try {
+            return coldTier.read(stub);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    // naming a friend doesn't make them hot
+    private String usernameOf(String userId) {
+        User user = usersById.get(userId);
+        return user != null ? user.username() : coldTier.stubById(userId).username();
+    }
+
+    // puts an archived user back into the tables, with their lists and recommendations as BookLists again
+    private User putHot(UserRecord record) {
+        User archived = record.user();
+        List<Book> recommendations = new BookList(bookCatalog);
+        recommendations.addAll(archived.recommendedBooks());
+        User user = new User(archived.id(), archived.username(), archived.password(),
+                new ArrayList<>(archived.friends()), recommendations);
+        Map<String, List<Book>> lists = new HashMap<>();
+        for (Map.Entry<String, List<Book>> list : record.bookshelf().entrySet()) {
+            List<Book> books = new BookList(bookCatalog);
+            books.addAll(list.getValue());
+            lists.put(list.getKey(), books);
+        }
+        synchronized (users) {
+            users.add(user);
+        }
+        usersById.put(user.id(), user);
+        usersByUsername.put(user.username(), user);
+        synchronized (userBookshelfs) {
+            userBookshelfs.put(user.id(), lists);
+        }
+        return user;
+    }
+
+    private void dropHot(Set<String> userIds) {
+        synchronized (users) {
+            users.removeIf(user -> userIds.contains(user.id()));
+        }
+        synchronized (userBookshelfs) {
+            for (String userId : userIds) {
+                userBookshelfs.remove(userId);
+            }
+        }
+        for (String userId : userIds) {
+            User user = usersById.remove(userId);
+            if (user != null) {
+                usersByUsername.remove(user.username());
+            }
+            listViews.remove(userId);
+            friendViews.remove(userId);
+        }
+    }
+
+    /*
+     * Moves the users who weren't active for the cold tier's inactivity period to its segments, so they are
+     * neither on heap nor in the tables every save rewrites. Only their rows and lists leave: the friend graph,
+     * feeds and book indexes keep their compact entries, so friends still see their books and recommendations.
+     * The records are durable before the users leave the tables; a login or a friend request brings one back.
+     */
+    public synchronized int archiveInactiveUsers() {
+        if (!coldTier.enabled()) {
+            return 0;
+        }
+        Set<String> inactive = new HashSet<>();
+        synchronized (users) {
+            for (User user : users) {
+                if (coldTier.inactive(user.id())) {
+                    inactive.add(user.id());
+                }
+            }
+        }
+        try {
+            for (String userId : inactive) {
+                coldTier.archive(exportUser(userId));
+            }
+            coldTier.flush();
+            dropHot(inactive);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        saveActivity();
+        return inactive.size();
+    }
+
+    // when the hot users were last active, saved with the tables, after every sweep and on shutdown
+    public void saveActivity() {
+        try {
+            coldTier.saveActivity();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
+    public ColdTier.Stats coldTierStats() {
+        return coldTier.stats();
     }
 
 }
@@ -0,0 +1,56 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.backup;
+
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.FileSystemStorage;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// the admin's side of a running server: "backup <archive>" on its input writes an online backup of the storage
+public class BackupConsole implements Runnable {
+    private static final String BACKUP = "backup";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileSystemStorage storage;
+    private final OnlineBackup onlineBackup;
+    private final BufferedReader input;
+    private final PrintStream output;
+
+    public BackupConsole(FileSystemStorage storage, OnlineBackup onlineBackup, BufferedReader input,
+                         PrintStream output) {
+        this.storage = storage;
+        this.onlineBackup = onlineBackup;
+        this.input = input;
+        this.output = output;
+    }
+
+    @Override
+    public void run() {
+        try {
+            for (String line = input.readLine(); line != null; line = input.readLine()) {
+                output.println(execute(line.trim().split("\\s+")));
+            }
+        } catch (IOException e) {
+            output.println("Backup console stopped: " + e.getMessage());
+        }
+    }
+
+    String execute(String[] command) {
+        if (command.length != 2 || !BACKUP.equals(command[0])) {
+            return "Usage: backup <archive>";
+        }
+        Path archive = Path.of(command[1]);
+        long start = System.currentTimeMillis();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(archive), BUFFER_SIZE)) {
+            OnlineBackup.Summary summary = onlineBackup.backup(storage, out);
+            return String.format("Backed up %d users in %d chunks, %d bytes, to %s in %d ms", summary.users(),
+                    summary.chunks(), summary.bytes(), archive, System.currentTimeMillis() - start);
+        } catch (IOException e) {
+            return "Backup failed: " + e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.backup;
+
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.FileSystemStorage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.format.BinaryTableFormat;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.format.JsonTableFormat;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater.FileUpdater;
+import com.google.gson.Gson;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// restores the tables of a FileSystemStorage from a backup while the server is down: BackupRestore <archive> [binary]
+public class BackupRestore {
+    private static final String BINARY_STORAGE_FORMAT = "binary";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.out.println("Usage: BackupRestore <archive> [binary]");
+            return;
+        }
+        boolean binary = args.length == 2 && BINARY_STORAGE_FORMAT.equals(args[1]);
+        OnlineBackup onlineBackup = new OnlineBackup(Runtime.getRuntime().availableProcessors(),
+                OnlineBackup.DEFAULT_USERS_PER_CHUNK, OnlineBackup.UNTHROTTLED);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(Path.of(args[0])), BUFFER_SIZE)) {
+            OnlineBackup.Summary summary = binary
+                    ? onlineBackup.restore(in, new BinaryTableFormat(),
+                            new FileUpdater(FileSystemStorage.USERS_BINARY_TABLE),
+                            new FileUpdater(FileSystemStorage.LISTS_BINARY_TABLE))
+                    : onlineBackup.restore(in, new JsonTableFormat(new Gson()),
+                            new FileUpdater(FileSystemStorage.USERS_TABLE),
+                            new FileUpdater(FileSystemStorage.LISTS_TABLE));
+            System.out.println("Restored " + summary.users() + " users to "
+                    + FileSystemStorage.USERS_TABLE.getParent());
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.backup;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.FileSystemStorage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.format.JsonTableFormat;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.format.TableFormat;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.loader.TableLoader;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater.SnapshotWriter;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater.Updater;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+import com.google.gson.Gson;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ * Backs up a running FileSystemStorage without stopping it. The storage lock is held only to take a
+ * copy-on-write snapshot of the tables; the snapshot is then cut into chunks of users that are serialized and
+ * gzip-compressed in parallel and written in order, paced by a throttle, so the server keeps its disk bandwidth.
+ * The archive is a magic number, then every chunk as an int length and its gzip bytes, then a zero length and
+ * the number of users for checking the archive is complete. Chunks hold the users' rows and their bookshelves
+ * as JSON, so restore decompresses and parses them in parallel too and writes the tables in any TableFormat.
+ */
+public class OnlineBackup {
+    public static final int DEFAULT_USERS_PER_CHUNK = 1024;
+    public static final long UNTHROTTLED = Throttle.UNLIMITED;
+
+    private static final int MAGIC = 0x47524231;
+    private static final int END_OF_CHUNKS = 0;
+    private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 2;
+
+    private final int parallelism;
+    private final int usersPerChunk;
+    private final long bytesPerSecond;
+    private final JsonTableFormat chunkFormat;
+
+    public record Summary(int users, int chunks, long bytes) {
+    }
+
+    private record Chunk(List<User> users, Map<String, Map<String, List<Book>>> bookshelves) {
+    }
+
+    // UNTHROTTLED writes as fast as the disk allows
+    public OnlineBackup(int parallelism, int usersPerChunk, long bytesPerSecond) {
+        this.parallelism = parallelism;
+        this.usersPerChunk = usersPerChunk;
+        this.bytesPerSecond = bytesPerSecond;
+        this.chunkFormat = new JsonTableFormat(new Gson());
+    }
+
+    public Summary backup(FileSystemStorage storage, OutputStream out) throws IOException {
+        TablesSnapshot snapshot = storage.snapshotTables();
+        List<User> users = snapshot.users();
+        DataOutputStream archive = new DataOutputStream(out);
+        archive.writeInt(MAGIC);
+        Throttle throttle = new Throttle(bytesPerSecond);
+        long bytes = Integer.BYTES;
+        int chunks = 0;
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            // compressed chunks waiting to be written in order, bounded so a slow disk doesn't fill the heap
+            Queue<Future<byte[]>> inFlight = new ArrayDeque<>();
+            for (int from = 0; from < users.size(); from += usersPerChunk) {
+                List<User> chunkUsers = users.subList(from, Math.min(users.size(), from + usersPerChunk));
+                inFlight.add(executor.submit(() -> compress(chunkUsers, snapshot.bookshelves())));
+                if (inFlight.size() >= parallelism * CHUNKS_IN_FLIGHT_PER_THREAD) {
+                    bytes += writeChunk(archive, await(inFlight.poll()), throttle);
+                    chunks++;
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                bytes += writeChunk(archive, await(inFlight.poll()), throttle);
+                chunks++;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        archive.writeInt(END_OF_CHUNKS);
+        archive.writeInt(users.size());
+        archive.flush();
+        return new Summary(users.size(), chunks, bytes + 2 * Integer.BYTES);
+    }
+
+    private byte[] compress(List<User> users, Map<String, Map<String, List<Book>>> bookshelves) throws IOException {
+        Map<String, Map<String, List<Book>>> chunkBookshelves = new HashMap<>();
+        for (User user : users) {
+            Map<String, List<Book>> lists = bookshelves.get(user.id());
+            if (lists != null) {
+                chunkBookshelves.put(user.id(), lists);
+            }
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            writeTable(out, tableOut -> chunkFormat.writeUsers(users, tableOut));
+            writeTable(out, tableOut -> chunkFormat.writeBookshelves(chunkBookshelves, tableOut));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeTable(DataOutputStream out, SnapshotWriter table) throws IOException {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        table.write(json);
+        out.writeInt(json.size());
+        json.writeTo(out);
+    }
+
+    private static long writeChunk(DataOutputStream archive, byte[] chunk, Throttle throttle) throws IOException {
+        try {
+            throttle.acquire(Integer.BYTES + chunk.length);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Backup interrupted", e);
+        }
+        archive.writeInt(chunk.length);
+        archive.write(chunk);
+        return Integer.BYTES + chunk.length;
+    }
+
+    // decodes the archive in parallel and writes the tables it holds through the updaters
+    public Summary restore(InputStream in, TableFormat tableFormat, Updater usersTable, Updater bookshelvesTable)
+            throws IOException {
+        DataInputStream archive = new DataInputStream(in);
+        if (archive.readInt() != MAGIC) {
+            throw new IOException("Not a backup archive");
+        }
+        List<Future<Chunk>> decoded = new ArrayList<>();
+        long bytes = Integer.BYTES;
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            for (int length = archive.readInt(); length != END_OF_CHUNKS; length = archive.readInt()) {
+                byte[] chunk = archive.readNBytes(length);
+                if (chunk.length != length) {
+                    throw new IOException("Backup archive is truncated");
+                }
+                decoded.add(executor.submit(() -> decompress(chunk)));
+                bytes += Integer.BYTES + length;
+            }
+            int expectedUsers = archive.readInt();
+            List<User> users = new ArrayList<>();
+            Map<String, Map<String, List<Book>>> bookshelves = new HashMap<>();
+            for (Future<Chunk> chunk : decoded) {
+                Chunk tables = await(chunk);
+                users.addAll(tables.users());
+                bookshelves.putAll(tables.bookshelves());
+            }
+            if (users.size() != expectedUsers) {
+                throw new IOException("Backup archive holds " + users.size() + " users instead of " + expectedUsers);
+            }
+            usersTable.update(out -> tableFormat.writeUsers(users, out));
+            bookshelvesTable.update(out -> tableFormat.writeBookshelves(bookshelves, out));
+            return new Summary(users.size(), decoded.size(), bytes + 2 * Integer.BYTES);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Chunk decompress(byte[] chunk) throws IOException {
+        BookCatalog catalog = new BookCatalog();
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(new ByteArrayInputStream(chunk)))) {
+            List<User> users = TableLoader.readUsers(readTable(in), catalog).users();
+            return new Chunk(users, TableLoader.readBookshelves(readTable(in), catalog));
+        }
+    }
+
+    private static InputStreamReader readTable(DataInputStream in) throws IOException {
+        byte[] json = in.readNBytes(in.readInt());
+        return new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8);
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Backup interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
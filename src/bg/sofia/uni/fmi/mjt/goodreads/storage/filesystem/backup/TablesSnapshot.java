@@ -0,0 +1,11 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.backup;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+
+import java.util.List;
+import java.util.Map;
+
+// both tables as they were at one moment, immutable so it can be read without the storage lock
+public record TablesSnapshot(List<User> users, Map<String, Map<String, List<Book>>> bookshelves) {
+}
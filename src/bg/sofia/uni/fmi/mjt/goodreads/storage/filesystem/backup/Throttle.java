@@ -0,0 +1,30 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.backup;
+
+import java.util.concurrent.TimeUnit;
+
+// paces a stream to a number of bytes per second on average, so a backup doesn't starve the server of disk
+class Throttle {
+    static final long UNLIMITED = 0;
+
+    private final long bytesPerSecond;
+    private final long startNanos;
+    private long bytes;
+
+    Throttle(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.startNanos = System.nanoTime();
+    }
+
+    // blocks until sending the bytes keeps the stream within its rate
+    void acquire(long count) throws InterruptedException {
+        bytes += count;
+        if (bytesPerSecond == UNLIMITED) {
+            return;
+        }
+        long dueNanos = bytes * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond;
+        long aheadNanos = dueNanos - (System.nanoTime() - startNanos);
+        if (aheadNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(aheadNanos);
+        }
+    }
+}
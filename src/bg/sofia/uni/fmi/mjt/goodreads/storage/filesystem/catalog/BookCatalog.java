@@ -0,0 +1,69 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Canonical table of every book stored in lists or recommendations. Each distinct book id is stored once and
+ * referenced everywhere else by its int position in the catalog; author names are shared between books.
+ */
+public class BookCatalog {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Map<String, Integer> refsByBookId;
+    private final Map<String, String> authors;
+    private volatile Book[] books;
+    private int size;
+
+    public BookCatalog() {
+        this.refsByBookId = new HashMap<>();
+        this.authors = new HashMap<>();
+        this.books = new Book[INITIAL_CAPACITY];
+    }
+
+    public synchronized int intern(Book book) {
+        Integer ref = refsByBookId.get(book.id());
+        if (ref != null) {
+            return ref;
+        }
+        Book[] current = books;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[size] = new Book(book.id(), book.title(), internAuthors(book.authors()));
+        refsByBookId.put(book.id(), size);
+        books = current;
+        return size++;
+    }
+
+    // -1 when the book has never been interned
+    public synchronized int find(String bookId) {
+        Integer ref = refsByBookId.get(bookId);
+        return ref == null ? -1 : ref;
+    }
+
+    public Book get(int ref) {
+        return books[ref];
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private List<String> internAuthors(List<String> bookAuthors) {
+        if (bookAuthors == null) {
+            return null;
+        }
+        String[] shared = new String[bookAuthors.size()];
+        for (int i = 0; i < shared.length; i++) {
+            String author = bookAuthors.get(i);
+            shared[i] = author == null ? null : authors.computeIfAbsent(author, a -> a);
+        }
+        return Collections.unmodifiableList(Arrays.asList(shared));
+    }
+}
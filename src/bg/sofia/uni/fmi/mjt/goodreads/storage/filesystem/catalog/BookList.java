@@ -0,0 +1,322 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/*
+ * Insertion-ordered set of books, kept as an int array of BookCatalog references plus a hash index from
+ * reference to array slot, so books are matched by id and contains/remove by id take constant time.
+ * Removing by id only leaves a hole in the array, holes are compacted away before the next positional access.
+ * Every write publishes an immutable view for readers that don't hold the storage lock. A view shares the slots
+ * array until a write would change a slot the view can see; appends only write past the end of every view.
+ */
+public class BookList extends AbstractList<Book> implements RandomAccess {
+    private static final int INITIAL_CAPACITY = 4;
+    private static final int REMOVED = -1;
+
+    private final BookCatalog catalog;
+    private final RefIndex index;
+    private int[] slots;
+    private int used;
+    private int size;
+    private volatile View view;
+    private boolean shared;
+
+    public BookList(BookCatalog catalog) {
+        this.catalog = catalog;
+        this.index = new RefIndex();
+        this.slots = new int[INITIAL_CAPACITY];
+        this.view = new View(catalog, slots, 0);
+    }
+
+    public List<Book> snapshot() {
+        return view;
+    }
+
+    @Override
+    public Book get(int position) {
+        return catalog.get(getRef(position));
+    }
+
+    public int getRef(int position) {
+        checkIndex(position, size);
+        compact();
+        return slots[position];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(Book book) {
+        return addRef(catalog.intern(book));
+    }
+
+    public boolean addRef(int ref) {
+        if (index.get(ref) >= 0) {
+            return false;
+        }
+        if (used == slots.length) {
+            slots = Arrays.copyOf(slots, slots.length * 2);
+            shared = false;
+        }
+        slots[used] = ref;
+        index.put(ref, used++);
+        size++;
+        modCount++;
+        publish();
+        return true;
+    }
+
+    @Override
+    public void add(int position, Book book) {
+        checkIndex(position, size + 1);
+        int ref = catalog.intern(book);
+        if (position == size || !addRef(ref)) {
+            addRef(ref);
+            return;
+        }
+        compact();
+        unshare();
+        System.arraycopy(slots, position, slots, position + 1, size - position - 1);
+        slots[position] = ref;
+        reindex(position);
+        publish();
+    }
+
+    @Override
+    public Book remove(int position) {
+        int ref = getRef(position);
+        removeRef(ref);
+        return catalog.get(ref);
+    }
+
+    public boolean removeById(String bookId) {
+        int ref = catalog.find(bookId);
+        return ref >= 0 && removeRef(ref);
+    }
+
+    public boolean containsId(String bookId) {
+        int ref = catalog.find(bookId);
+        return ref >= 0 && index.get(ref) >= 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Book book && containsId(book.id());
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!contains(o)) {
+            return -1;
+        }
+        compact();
+        return index.get(catalog.find(((Book) o).id()));
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public void clear() {
+        index.clear();
+        slots = new int[INITIAL_CAPACITY];
+        shared = false;
+        used = 0;
+        size = 0;
+        modCount++;
+        publish();
+    }
+
+    private boolean removeRef(int ref) {
+        int slot = index.remove(ref);
+        if (slot < 0) {
+            return false;
+        }
+        unshare();
+        slots[slot] = REMOVED;
+        size--;
+        modCount++;
+        publish();
+        return true;
+    }
+
+    private void compact() {
+        if (used == size) {
+            return;
+        }
+        unshare();
+        int live = 0;
+        for (int slot = 0; slot < used; slot++) {
+            if (slots[slot] != REMOVED) {
+                slots[live++] = slots[slot];
+            }
+        }
+        used = live;
+        reindex(0);
+    }
+
+    private void publish() {
+        if (used == size) {
+            view = new View(catalog, slots, size);
+            shared = true;
+            return;
+        }
+        int[] refs = new int[size];
+        int live = 0;
+        for (int slot = 0; slot < used; slot++) {
+            if (slots[slot] != REMOVED) {
+                refs[live++] = slots[slot];
+            }
+        }
+        view = new View(catalog, refs, size);
+    }
+
+    private void unshare() {
+        if (shared) {
+            slots = slots.clone();
+            shared = false;
+        }
+    }
+
+    private void reindex(int from) {
+        for (int slot = from; slot < used; slot++) {
+            index.put(slots[slot], slot);
+        }
+    }
+
+    private static void checkIndex(int position, int length) {
+        if (position < 0 || position >= length) {
+            throw new IndexOutOfBoundsException("Index " + position + " out of bounds for length " + length);
+        }
+    }
+
+    private static class View extends AbstractList<Book> implements RandomAccess {
+        private final BookCatalog catalog;
+        private final int[] refs;
+        private final int size;
+
+        View(BookCatalog catalog, int[] refs, int size) {
+            this.catalog = catalog;
+            this.refs = refs;
+            this.size = size;
+        }
+
+        @Override
+        public Book get(int position) {
+            checkIndex(position, size);
+            return catalog.get(refs[position]);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    // open addressing map from catalog reference to slot, linear probing with backward shift deletion
+    private static class RefIndex {
+        private static final int EMPTY = -1;
+        private static final int INITIAL_TABLE_SIZE = 8;
+        private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+        private int[] keys;
+        private int[] values;
+        private int count;
+
+        RefIndex() {
+            allocate(INITIAL_TABLE_SIZE);
+        }
+
+        int get(int key) {
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return EMPTY;
+        }
+
+        void put(int key, int value) {
+            if ((count + 1) * 2 > keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (keys[i] != EMPTY && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == EMPTY) {
+                count++;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        int remove(int key) {
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (keys[i] != key) {
+                if (keys[i] == EMPTY) {
+                    return EMPTY;
+                }
+                i = (i + 1) & mask;
+            }
+            int removed = values[i];
+            shiftBack(i, mask);
+            count--;
+            return removed;
+        }
+
+        void clear() {
+            Arrays.fill(keys, EMPTY);
+            count = 0;
+        }
+
+        private void shiftBack(int hole, int mask) {
+            int gap = hole;
+            for (int i = (gap + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+                int home = hash(keys[i]) & mask;
+                if (((i - home) & mask) >= ((i - gap) & mask)) {
+                    keys[gap] = keys[i];
+                    values[gap] = values[i];
+                    gap = i;
+                }
+            }
+            keys[gap] = EMPTY;
+        }
+
+        private void resize() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            allocate(oldKeys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new int[capacity];
+            values = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            count = 0;
+        }
+
+        private static int hash(int key) {
+            int h = key * GOLDEN_RATIO;
+            return h ^ (h >>> (Integer.SIZE / 2));
+        }
+    }
+}
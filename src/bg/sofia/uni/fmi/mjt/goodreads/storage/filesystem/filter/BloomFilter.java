@@ -0,0 +1,97 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.filter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Bloom filter over strings whose bits are set with compare-and-set, so lookups never need a lock.
+ * A negative answer is definite, a positive one has to be confirmed against the real index.
+ */
+public class BloomFilter {
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long MIX = 0x9e3779b97f4a7c15L;
+    private static final int WORD_SHIFT = 6;
+    private static final double LN2 = Math.log(2);
+
+    private final int bits;
+    private final int hashes;
+    private final int expectedInsertions;
+    private final AtomicLongArray words;
+    private final AtomicInteger bitsSet;
+
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Expected insertions must be positive and the rate between 0 and 1");
+        }
+        double optimalBits = -expectedInsertions * Math.log(falsePositiveRate) / (LN2 * LN2);
+        this.bits = (int) Math.min(Integer.MAX_VALUE - Long.SIZE, Math.max(Long.SIZE, Math.ceil(optimalBits)));
+        this.hashes = Math.max(1, (int) Math.round((double) bits / expectedInsertions * LN2));
+        this.expectedInsertions = expectedInsertions;
+        this.words = new AtomicLongArray((bits + Long.SIZE - 1) >>> WORD_SHIFT);
+        this.bitsSet = new AtomicInteger();
+    }
+
+    public void add(String key) {
+        long hash = hash(key);
+        for (int i = 0; i < hashes; i++) {
+            set(bit(hash, i));
+        }
+    }
+
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        for (int i = 0; i < hashes; i++) {
+            int bit = bit(hash, i);
+            if ((words.get(bit >>> WORD_SHIFT) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // chance that a key never added is reported as present, estimated from the share of bits already set
+    public double falsePositiveRate() {
+        return Math.pow((double) bitsSet.get() / bits, hashes);
+    }
+
+    public int bitSize() {
+        return bits;
+    }
+
+    public int hashCount() {
+        return hashes;
+    }
+
+    public int expectedInsertions() {
+        return expectedInsertions;
+    }
+
+    private void set(int bit) {
+        int word = bit >>> WORD_SHIFT;
+        long mask = 1L << bit;
+        long current;
+        do {
+            current = words.get(word);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!words.compareAndSet(word, current, current | mask));
+        bitsSet.incrementAndGet();
+    }
+
+    // double hashing derives every probe from the two halves of one 64-bit hash
+    private int bit(long hash, int i) {
+        int first = (int) hash;
+        int second = (int) (hash >>> Integer.SIZE) | 1;
+        return Math.floorMod(first + i * second, bits);
+    }
+
+    private static long hash(String key) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * FNV_PRIME;
+        }
+        return (hash ^ (hash >>> Integer.SIZE)) * MIX;
+    }
+}
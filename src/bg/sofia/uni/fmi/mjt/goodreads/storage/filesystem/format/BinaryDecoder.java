@@ -0,0 +1,156 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.format;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookList;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+class BinaryDecoder {
+    private static final int SEVEN_BITS = 0x7F;
+    private static final int CONTINUATION_BIT = 0x80;
+    private static final int BITS_PER_BYTE = 7;
+    private static final byte BOOK_TABLE_VERSION = 2;
+
+    private final ByteBuffer buffer;
+    private final BookCatalog catalog;
+    private byte version;
+    private int[] bookRefs;
+    private String[] strings;
+    private int[] stringOffsets;
+    private int[] stringLengths;
+
+    BinaryDecoder(ByteBuffer buffer, BookCatalog catalog) {
+        this.buffer = buffer;
+        this.catalog = catalog;
+    }
+
+    boolean isEmpty() {
+        return !buffer.hasRemaining();
+    }
+
+    void readHeader(byte expectedTableKind) throws IOException {
+        if (buffer.remaining() < Integer.BYTES + 2 || buffer.getInt() != BinaryTableFormat.MAGIC) {
+            throw new IOException("Not a binary table file");
+        }
+        version = buffer.get();
+        if (version < 1 || version > BinaryTableFormat.VERSION) {
+            throw new IOException("Unsupported binary table version " + version);
+        }
+        byte tableKind = buffer.get();
+        if (tableKind != expectedTableKind) {
+            throw new IOException("Unexpected binary table kind " + tableKind);
+        }
+    }
+
+    void readStringTable() {
+        strings = new String[readVarInt()];
+        for (int i = 0; i < strings.length; i++) {
+            int length = readVarInt();
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    // records only where each string lives, so strings are decoded on demand instead of all at once
+    void indexStringTable() {
+        int count = readVarInt();
+        stringOffsets = new int[count];
+        stringLengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            stringLengths[i] = readVarInt();
+            stringOffsets[i] = buffer.position();
+            buffer.position(buffer.position() + stringLengths[i]);
+        }
+    }
+
+    // version 1 tables store books inline in every record instead of in a book table
+    void readBookTable() {
+        if (version < BOOK_TABLE_VERSION) {
+            return;
+        }
+        bookRefs = new int[readVarInt()];
+        for (int i = 0; i < bookRefs.length; i++) {
+            int recordEnd = beginRecord();
+            bookRefs[i] = catalog.intern(readInlineBook());
+            endRecord(recordEnd);
+        }
+    }
+
+    int position() {
+        return buffer.position();
+    }
+
+    void seek(int position) {
+        buffer.position(position);
+    }
+
+    int readCount() {
+        return readVarInt();
+    }
+
+    // returns the position right after the record, so readers can skip fields they don't know about
+    int beginRecord() {
+        int length = readVarInt();
+        return buffer.position() + length;
+    }
+
+    void endRecord(int recordEnd) {
+        buffer.position(recordEnd);
+    }
+
+    String readString() {
+        int reference = readVarInt();
+        if (reference == 0) {
+            return null;
+        }
+        if (strings != null) {
+            return strings[reference - 1];
+        }
+        byte[] bytes = new byte[stringLengths[reference - 1]];
+        buffer.get(stringOffsets[reference - 1], bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    List<String> readStrings() {
+        int count = readVarInt();
+        if (count == 0) {
+            return null;
+        }
+        List<String> values = new ArrayList<>(count - 1);
+        for (int i = 1; i < count; i++) {
+            values.add(readString());
+        }
+        return values;
+    }
+
+    List<Book> readBooks() {
+        int count = readVarInt();
+        BookList books = new BookList(catalog);
+        for (int i = 0; i < count; i++) {
+            books.addRef(version < BOOK_TABLE_VERSION ? catalog.intern(readInlineBook()) : bookRefs[readVarInt()]);
+        }
+        return books;
+    }
+
+    private Book readInlineBook() {
+        return new Book(readString(), readString(), readStrings());
+    }
+
+    private int readVarInt() {
+        int value = 0;
+        int shift = 0;
+        byte current;
+        do {
+            current = buffer.get();
+            value |= (current & SEVEN_BITS) << shift;
+            shift += BITS_PER_BYTE;
+        } while ((current & CONTINUATION_BIT) != 0);
+        return value;
+    }
+}
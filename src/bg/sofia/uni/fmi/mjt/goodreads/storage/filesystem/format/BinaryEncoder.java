@@ -0,0 +1,140 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.format;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class BinaryEncoder {
+    private static final int SEVEN_BITS = 0x7F;
+    private static final int CONTINUATION_BIT = 0x80;
+    private static final int BITS_PER_BYTE = 7;
+    private static final int BYTE_MASK = 0xFF;
+    private static final int MAX_VARINT_BYTES = 5;
+
+    private final OutputStream out;
+    private final Map<String, Integer> stringIndexes;
+    private final List<String> strings;
+    private final Map<String, Integer> bookIndexes;
+    private final List<Book> books;
+    private final ByteArrayOutputStream record;
+    private final byte[] varIntBytes;
+
+    BinaryEncoder(OutputStream out) {
+        this.out = out;
+        this.stringIndexes = new HashMap<>();
+        this.strings = new ArrayList<>();
+        this.bookIndexes = new HashMap<>();
+        this.books = new ArrayList<>();
+        this.record = new ByteArrayOutputStream();
+        this.varIntBytes = new byte[MAX_VARINT_BYTES];
+    }
+
+    void intern(String value) {
+        if (value != null && stringIndexes.putIfAbsent(value, strings.size()) == null) {
+            strings.add(value);
+        }
+    }
+
+    void intern(Book book) {
+        if (bookIndexes.putIfAbsent(book.id(), books.size()) != null) {
+            return;
+        }
+        books.add(book);
+        intern(book.id());
+        intern(book.title());
+        if (book.authors() != null) {
+            book.authors().forEach(this::intern);
+        }
+    }
+
+    void writeHeader(byte tableKind) throws IOException {
+        for (int shift = Integer.SIZE - Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+            out.write((BinaryTableFormat.MAGIC >>> shift) & BYTE_MASK);
+        }
+        out.write(BinaryTableFormat.VERSION);
+        out.write(tableKind);
+    }
+
+    void writeStringTable() throws IOException {
+        writeVarInt(out, strings.size());
+        for (String value : strings) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    // every distinct book is written once, records refer to books by their position in this table
+    void writeBookTable() throws IOException {
+        writeVarInt(out, books.size());
+        for (Book book : books) {
+            writeString(book.id());
+            writeString(book.title());
+            writeStrings(book.authors());
+            endRecord();
+        }
+    }
+
+    void writeRecordCount(int count) throws IOException {
+        writeVarInt(out, count);
+    }
+
+    // string references are shifted by one so that 0 can stand for null
+    void writeString(String value) {
+        writeVarInt(record, value == null ? 0 : stringIndexes.get(value) + 1);
+    }
+
+    void writeCount(int count) {
+        writeVarInt(record, count);
+    }
+
+    void writeStrings(List<String> values) {
+        if (values == null) {
+            writeVarInt(record, 0);
+            return;
+        }
+        writeVarInt(record, values.size() + 1);
+        values.forEach(this::writeString);
+    }
+
+    void writeBook(Book book) {
+        writeVarInt(record, bookIndexes.get(book.id()));
+    }
+
+    void writeBooks(List<Book> books) {
+        writeCount(books.size());
+        books.forEach(this::writeBook);
+    }
+
+    void endRecord() throws IOException {
+        writeVarInt(out, record.size());
+        record.writeTo(out);
+        record.reset();
+    }
+
+    private void writeVarInt(OutputStream target, int value) throws IOException {
+        target.write(varIntBytes, 0, encodeVarInt(value));
+    }
+
+    private void writeVarInt(ByteArrayOutputStream target, int value) {
+        target.write(varIntBytes, 0, encodeVarInt(value));
+    }
+
+    private int encodeVarInt(int value) {
+        int remaining = value;
+        int length = 0;
+        while ((remaining & ~SEVEN_BITS) != 0) {
+            varIntBytes[length++] = (byte) ((remaining & SEVEN_BITS) | CONTINUATION_BIT);
+            remaining >>>= BITS_PER_BYTE;
+        }
+        varIntBytes[length++] = (byte) remaining;
+        return length;
+    }
+}
@@ -0,0 +1,184 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.format;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.loader.UsersTable;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Layout of a table file:
+ *   magic (4 bytes) | version (1 byte) | table kind (1 byte)
+ *   string table: varint count, then varint byte length + UTF-8 bytes per string
+ *   book table (since version 2): varint count, then a record per distinct book
+ *   varint record count, then varint byte length + payload per record
+ * Inside records every string is a varint reference into the string table, shifted by one so 0 means null,
+ * and every book is a varint index into the book table.
+ */
+public class BinaryTableFormat implements TableFormat {
+    static final int MAGIC = 0x42445254;
+    static final byte VERSION = 2;
+    static final byte USERS_TABLE_KIND = 1;
+    static final byte LISTS_TABLE_KIND = 2;
+
+    private final boolean lazyBookshelves;
+
+    public BinaryTableFormat() {
+        this(false);
+    }
+
+    public BinaryTableFormat(boolean lazyBookshelves) {
+        this.lazyBookshelves = lazyBookshelves;
+    }
+
+    @Override
+    public UsersTable readUsers(Path table, BookCatalog catalog) throws IOException {
+        List<User> users = new ArrayList<>();
+        Map<String, User> usersById = new HashMap<>();
+        Map<String, User> usersByUsername = new HashMap<>();
+
+        BinaryDecoder decoder = new BinaryDecoder(map(table), catalog);
+        if (decoder.isEmpty()) {
+            return new UsersTable(users, usersById, usersByUsername);
+        }
+        decoder.readHeader(USERS_TABLE_KIND);
+        decoder.readStringTable();
+        decoder.readBookTable();
+        int count = decoder.readCount();
+        for (int i = 0; i < count; i++) {
+            int recordEnd = decoder.beginRecord();
+            User user = readUser(decoder);
+            decoder.endRecord(recordEnd);
+
+            users.add(user);
+            usersById.put(user.id(), user);
+            usersByUsername.put(user.username(), user);
+        }
+        return new UsersTable(users, usersById, usersByUsername);
+    }
+
+    @Override
+    public Map<String, Map<String, List<Book>>> readBookshelves(Path table, BookCatalog catalog)
+            throws IOException {
+        if (lazyBookshelves) {
+            return new MappedBookshelves(table, catalog);
+        }
+        Map<String, Map<String, List<Book>>> bookshelves = new HashMap<>();
+
+        BinaryDecoder decoder = new BinaryDecoder(map(table), catalog);
+        if (decoder.isEmpty()) {
+            return bookshelves;
+        }
+        decoder.readHeader(LISTS_TABLE_KIND);
+        decoder.readStringTable();
+        decoder.readBookTable();
+        int count = decoder.readCount();
+        for (int i = 0; i < count; i++) {
+            int recordEnd = decoder.beginRecord();
+            String userId = decoder.readString();
+            bookshelves.put(userId, readLists(decoder));
+            decoder.endRecord(recordEnd);
+        }
+        return bookshelves;
+    }
+
+    @Override
+    public void writeUsers(List<User> users, OutputStream out) throws IOException {
+        BinaryEncoder encoder = new BinaryEncoder(out);
+        for (User user : users) {
+            encoder.intern(user.id());
+            encoder.intern(user.username());
+            encoder.intern(user.password());
+            user.friends().forEach(encoder::intern);
+            user.recommendedBooks().forEach(encoder::intern);
+        }
+
+        encoder.writeHeader(USERS_TABLE_KIND);
+        encoder.writeStringTable();
+        encoder.writeBookTable();
+        encoder.writeRecordCount(users.size());
+        for (User user : users) {
+            encoder.writeString(user.id());
+            encoder.writeString(user.username());
+            encoder.writeString(user.password());
+            encoder.writeStrings(user.friends());
+            encoder.writeBooks(user.recommendedBooks());
+            encoder.endRecord();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void writeBookshelves(Map<String, Map<String, List<Book>>> bookshelves, OutputStream out)
+            throws IOException {
+        BinaryEncoder encoder = new BinaryEncoder(out);
+        for (Map.Entry<String, Map<String, List<Book>>> bookshelf : bookshelves.entrySet()) {
+            encoder.intern(bookshelf.getKey());
+            for (Map.Entry<String, List<Book>> list : bookshelf.getValue().entrySet()) {
+                encoder.intern(list.getKey());
+                list.getValue().forEach(encoder::intern);
+            }
+        }
+
+        encoder.writeHeader(LISTS_TABLE_KIND);
+        encoder.writeStringTable();
+        encoder.writeBookTable();
+        encoder.writeRecordCount(bookshelves.size());
+        for (Map.Entry<String, Map<String, List<Book>>> bookshelf : bookshelves.entrySet()) {
+            encoder.writeString(bookshelf.getKey());
+            encoder.writeCount(bookshelf.getValue().size());
+            for (Map.Entry<String, List<Book>> list : bookshelf.getValue().entrySet()) {
+                encoder.writeString(list.getKey());
+                encoder.writeBooks(list.getValue());
+            }
+            encoder.endRecord();
+        }
+        out.flush();
+    }
+
+    @Override
+    public void bookshelvesSaved(Map<String, Map<String, List<Book>>> bookshelves) throws IOException {
+        if (bookshelves instanceof MappedBookshelves mappedBookshelves) {
+            mappedBookshelves.reload();
+        }
+    }
+
+    private User readUser(BinaryDecoder decoder) {
+        String id = decoder.readString();
+        String username = decoder.readString();
+        String password = decoder.readString();
+        List<String> friends = decoder.readStrings();
+        List<Book> recommendedBooks = decoder.readBooks();
+        return new User(id, username, password, friends == null ? new ArrayList<>() : friends, recommendedBooks);
+    }
+
+    static Map<String, List<Book>> readLists(BinaryDecoder decoder) {
+        int listsCount = decoder.readCount();
+        Map<String, List<Book>> lists = new HashMap<>();
+        for (int i = 0; i < listsCount; i++) {
+            String listName = decoder.readString();
+            lists.put(listName, decoder.readBooks());
+        }
+        return lists;
+    }
+
+    static ByteBuffer map(Path table) throws IOException {
+        if (!Files.exists(table)) {
+            return ByteBuffer.allocate(0);
+        }
+        try (FileChannel channel = FileChannel.open(table, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.format;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.loader.TableLoader;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.loader.UsersTable;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+public class JsonTableFormat implements TableFormat {
+    private static final Type USERS_TABLE_TYPE = new TypeToken<List<User>>() { }.getType();
+    private static final Type LISTS_TABLE_TYPE = new TypeToken<Map<String, Map<String, List<Book>>>>() { }.getType();
+
+    private final Gson gson;
+
+    public JsonTableFormat(Gson gson) {
+        this.gson = gson;
+    }
+
+    @Override
+    public UsersTable readUsers(Path table, BookCatalog catalog) throws IOException {
+        try (Reader reader = TableLoader.openTable(table)) {
+            return TableLoader.readUsers(reader, catalog);
+        }
+    }
+
+    @Override
+    public Map<String, Map<String, List<Book>>> readBookshelves(Path table, BookCatalog catalog)
+            throws IOException {
+        try (Reader reader = TableLoader.openTable(table)) {
+            return TableLoader.readBookshelves(reader, catalog);
+        }
+    }
+
+    @Override
+    public void writeUsers(List<User> users, OutputStream out) throws IOException {
+        writeJson(users, USERS_TABLE_TYPE, out);
+    }
+
+    @Override
+    public void writeBookshelves(Map<String, Map<String, List<Book>>> bookshelves, OutputStream out)
+            throws IOException {
+        writeJson(bookshelves, LISTS_TABLE_TYPE, out);
+    }
+
+    private void writeJson(Object table, Type tableType, OutputStream out) throws IOException {
+        JsonWriter writer = new JsonWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        gson.toJson(table, tableType, writer);
+        writer.flush();
+    }
+}
@@ -0,0 +1,175 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.format;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Bookshelves backed by a memory-mapped binary lists table. A user's lists are decoded from the segment only
+ * when first accessed and stay resident until the next save writes them back; after that they are kept
+ * through soft references, so the GC can drop inactive users and they get decoded again on their next access.
+ * Callers mutate the returned lists, so every access has to be made while holding this map's monitor.
+ */
+public class MappedBookshelves extends AbstractMap<String, Map<String, List<Book>>> {
+    private final Path segment;
+    private final BookCatalog catalog;
+    private final Map<String, Integer> recordOffsets;
+    private final Map<String, Map<String, List<Book>>> resident;
+    private final Map<String, SoftReference<Map<String, List<Book>>>> evictable;
+    private BinaryDecoder decoder;
+
+    public MappedBookshelves(Path segment, BookCatalog catalog) throws IOException {
+        this.segment = segment;
+        this.catalog = catalog;
+        this.recordOffsets = new LinkedHashMap<>();
+        this.resident = new HashMap<>();
+        this.evictable = new HashMap<>();
+        mapSegment();
+    }
+
+    // called after the segment file has been rewritten; everything resident is now persisted
+    public synchronized void reload() throws IOException {
+        mapSegment();
+        for (Map.Entry<String, Map<String, List<Book>>> bookshelf : resident.entrySet()) {
+            evictable.put(bookshelf.getKey(), new SoftReference<>(bookshelf.getValue()));
+        }
+        resident.clear();
+    }
+
+    public synchronized int residentCount() {
+        return resident.size();
+    }
+
+    @Override
+    public synchronized Map<String, List<Book>> get(Object userId) {
+        Map<String, List<Book>> bookshelf = resident.get(userId);
+        if (bookshelf != null) {
+            return bookshelf;
+        }
+        bookshelf = cached(userId);
+        if (bookshelf == null) {
+            bookshelf = decode(userId);
+        }
+        if (bookshelf != null) {
+            evictable.remove(userId);
+            resident.put((String) userId, bookshelf);
+        }
+        return bookshelf;
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object userId) {
+        return resident.containsKey(userId) || recordOffsets.containsKey(userId);
+    }
+
+    @Override
+    public synchronized Map<String, List<Book>> put(String userId, Map<String, List<Book>> bookshelf) {
+        evictable.remove(userId);
+        return resident.put(userId, bookshelf);
+    }
+
+    // the user's record stays in the segment until the next save rewrites it without them
+    @Override
+    public synchronized Map<String, List<Book>> remove(Object userId) {
+        Map<String, List<Book>> bookshelf = peek((String) userId);
+        resident.remove(userId);
+        evictable.remove(userId);
+        recordOffsets.remove(userId);
+        return bookshelf;
+    }
+
+    @Override
+    public synchronized int size() {
+        return userIds().size();
+    }
+
+    // iterating doesn't make users resident, cold users are decoded only for the duration of the visit
+    @Override
+    public Set<Entry<String, Map<String, List<Book>>>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, Map<String, List<Book>>>> iterator() {
+                Iterator<String> userIds = userIds().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return userIds.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Map<String, List<Book>>> next() {
+                        String userId = userIds.next();
+                        return new SimpleImmutableEntry<>(userId, peek(userId));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return MappedBookshelves.this.size();
+            }
+        };
+    }
+
+    private synchronized Set<String> userIds() {
+        Set<String> userIds = new LinkedHashSet<>(recordOffsets.keySet());
+        userIds.addAll(resident.keySet());
+        return userIds;
+    }
+
+    private synchronized Map<String, List<Book>> peek(String userId) {
+        Map<String, List<Book>> bookshelf = resident.get(userId);
+        if (bookshelf == null) {
+            bookshelf = cached(userId);
+        }
+        return bookshelf != null ? bookshelf : decode(userId);
+    }
+
+    private Map<String, List<Book>> cached(Object userId) {
+        SoftReference<Map<String, List<Book>>> reference = evictable.get(userId);
+        return reference == null ? null : reference.get();
+    }
+
+    private Map<String, List<Book>> decode(Object userId) {
+        Integer offset = recordOffsets.get(userId);
+        if (offset == null) {
+            return null;
+        }
+        decoder.seek(offset);
+        int recordEnd = decoder.beginRecord();
+        decoder.readString();
+        Map<String, List<Book>> bookshelf = BinaryTableFormat.readLists(decoder);
+        decoder.endRecord(recordEnd);
+        return bookshelf;
+    }
+
+    private void mapSegment() throws IOException {
+        recordOffsets.clear();
+        decoder = new BinaryDecoder(BinaryTableFormat.map(segment), catalog);
+        if (decoder.isEmpty()) {
+            return;
+        }
+        decoder.readHeader(BinaryTableFormat.LISTS_TABLE_KIND);
+        decoder.indexStringTable();
+        decoder.readBookTable();
+        int count = decoder.readCount();
+        for (int i = 0; i < count; i++) {
+            int offset = decoder.position();
+            int recordEnd = decoder.beginRecord();
+            recordOffsets.put(decoder.readString(), offset);
+            decoder.endRecord(recordEnd);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.format;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.FileSystemStorage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater.FileUpdater;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+public class TableConverter {
+    private final TableFormat source;
+    private final TableFormat target;
+
+    public TableConverter(TableFormat source, TableFormat target) {
+        this.source = source;
+        this.target = target;
+    }
+
+    public void convertUsers(Path sourceTable, Path targetTable) throws IOException {
+        List<User> users = source.readUsers(sourceTable, new BookCatalog()).users();
+        new FileUpdater(targetTable.toFile()).update(out -> target.writeUsers(users, out));
+    }
+
+    public void convertBookshelves(Path sourceTable, Path targetTable) throws IOException {
+        Map<String, Map<String, List<Book>>> bookshelves = source.readBookshelves(sourceTable, new BookCatalog());
+        new FileUpdater(targetTable.toFile()).update(out -> target.writeBookshelves(bookshelves, out));
+    }
+
+    // converts the JSON tables of a FileSystemStorage to the binary format, next to the originals
+    public static void main(String[] args) throws IOException {
+        TableConverter converter = new TableConverter(new JsonTableFormat(new Gson()), new BinaryTableFormat());
+        converter.convertUsers(FileSystemStorage.USERS_TABLE.toPath(), FileSystemStorage.USERS_BINARY_TABLE.toPath());
+        converter.convertBookshelves(FileSystemStorage.LISTS_TABLE.toPath(),
+                FileSystemStorage.LISTS_BINARY_TABLE.toPath());
+        System.out.println("Converted tables to " + FileSystemStorage.USERS_BINARY_TABLE.getParent());
+    }
+}
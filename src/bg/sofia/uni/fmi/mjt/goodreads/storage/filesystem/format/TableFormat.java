@@ -0,0 +1,25 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.format;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.loader.UsersTable;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+public interface TableFormat {
+    UsersTable readUsers(Path table, BookCatalog catalog) throws IOException;
+
+    Map<String, Map<String, List<Book>>> readBookshelves(Path table, BookCatalog catalog) throws IOException;
+
+    void writeUsers(List<User> users, OutputStream out) throws IOException;
+
+    void writeBookshelves(Map<String, Map<String, List<Book>>> bookshelves, OutputStream out) throws IOException;
+
+    default void bookshelvesSaved(Map<String, Map<String, List<Book>>> bookshelves) throws IOException {
+    }
+}
@@ -0,0 +1,72 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Reverse index from a book to the users that have it and the names of their lists holding it.
+ * Books are BookCatalog references and users are FriendGraph nodes, so the postings can be intersected
+ * with a friend set directly. Not thread safe, it is only accessed under the storage lock.
+ */
+public class BookPostings {
+    private final List<Map<Integer, List<String>>> postings;
+
+    public BookPostings() {
+        this.postings = new ArrayList<>();
+    }
+
+    public void add(int ref, int user, String listName) {
+        while (postings.size() <= ref) {
+            postings.add(null);
+        }
+        if (postings.get(ref) == null) {
+            postings.set(ref, new HashMap<>());
+        }
+        List<String> lists = postings.get(ref).computeIfAbsent(user, node -> new ArrayList<>());
+        if (!lists.contains(listName)) {
+            lists.add(listName);
+        }
+    }
+
+    public void remove(int ref, int user, String listName) {
+        Map<Integer, List<String>> holders = ref < 0 || ref >= postings.size() ? null : postings.get(ref);
+        if (holders == null || !holders.containsKey(user)) {
+            return;
+        }
+        List<String> lists = holders.get(user);
+        lists.remove(listName);
+        if (lists.isEmpty()) {
+            holders.remove(user);
+        }
+    }
+
+    public Map<Integer, List<String>> holders(int ref) {
+        Map<Integer, List<String>> holders = ref < 0 || ref >= postings.size() ? null : postings.get(ref);
+        return holders == null ? Map.of() : Collections.unmodifiableMap(holders);
+    }
+
+    // walks the smaller of the two sides, so the work is bounded by min(holders, users) instead of all holders
+    public Map<Integer, List<String>> holdersAmong(int ref, Set<Integer> users) {
+        Map<Integer, List<String>> holders = holders(ref);
+        Map<Integer, List<String>> result = new HashMap<>();
+        if (users.size() < holders.size()) {
+            for (int user : users) {
+                List<String> lists = holders.get(user);
+                if (lists != null) {
+                    result.put(user, List.copyOf(lists));
+                }
+            }
+            return result;
+        }
+        for (Map.Entry<Integer, List<String>> holder : holders.entrySet()) {
+            if (users.contains(holder.getKey())) {
+                result.put(holder.getKey(), List.copyOf(holder.getValue()));
+            }
+        }
+        return result;
+    }
+}
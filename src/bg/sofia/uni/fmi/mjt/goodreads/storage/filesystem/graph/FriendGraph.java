@@ -0,0 +1,71 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Friendships between users, keyed by dense internal node ids instead of usernames.
+ * Every edge is kept in both directions: the friends a user follows and the followers that have them as a friend.
+ * Not thread safe, it is only accessed under the storage lock.
+ */
+public class FriendGraph {
+    public static final int NO_NODE = -1;
+
+    private final Map<String, Integer> nodes;
+    private final List<String> userIds;
+    private final List<Set<Integer>> following;
+    private final List<Set<Integer>> followers;
+
+    public FriendGraph() {
+        this.nodes = new HashMap<>();
+        this.userIds = new ArrayList<>();
+        this.following = new ArrayList<>();
+        this.followers = new ArrayList<>();
+    }
+
+    public int addUser(String userId) {
+        Integer existing = nodes.get(userId);
+        if (existing != null) {
+            return existing;
+        }
+        int node = userIds.size();
+        nodes.put(userId, node);
+        userIds.add(userId);
+        following.add(new LinkedHashSet<>());
+        followers.add(new LinkedHashSet<>());
+        return node;
+    }
+
+    public int node(String userId) {
+        return nodes.getOrDefault(userId, NO_NODE);
+    }
+
+    public String userId(int node) {
+        return userIds.get(node);
+    }
+
+    public int size() {
+        return userIds.size();
+    }
+
+    public boolean follow(int user, int friend) {
+        if (!following.get(user).add(friend)) {
+            return false;
+        }
+        followers.get(friend).add(user);
+        return true;
+    }
+
+    public Set<Integer> following(int node) {
+        return Collections.unmodifiableSet(following.get(node));
+    }
+
+    public Set<Integer> followers(int node) {
+        return Collections.unmodifiableSet(followers.get(node));
+    }
+}
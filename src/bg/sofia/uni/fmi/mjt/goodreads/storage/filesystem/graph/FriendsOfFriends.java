@@ -0,0 +1,86 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/*
+ * Ranks second degree connections of a user by the number of friends they have in common.
+ * At most budget friend-of-friend edges are visited, so a user following very connected people
+ * costs the same as anyone else; candidates are collected in a flat int array, sorted and counted run by run.
+ */
+public final class FriendsOfFriends {
+    public record Candidate(int node, int mutualFriends) {
+    }
+
+    private static final Comparator<Candidate> WORST_FIRST = Comparator.comparingInt(Candidate::mutualFriends)
+            .thenComparing(Comparator.comparingInt(Candidate::node).reversed());
+
+    private FriendsOfFriends() {
+    }
+
+    public static List<Candidate> rank(FriendGraph graph, int user, int limit, int budget) {
+        if (limit < 0 || budget < 0) {
+            throw new IllegalArgumentException("Limit and budget must not be negative");
+        }
+        int[] known = sortedFriends(graph, user);
+        int[] reached = new int[reachable(graph, user, budget)];
+        int visited = 0;
+        for (int friend : graph.following(user)) {
+            for (int candidate : graph.following(friend)) {
+                if (visited == reached.length) {
+                    return top(reached, visited, known, limit);
+                }
+                reached[visited++] = candidate;
+            }
+        }
+        return top(reached, visited, known, limit);
+    }
+
+    private static int reachable(FriendGraph graph, int user, int budget) {
+        long edges = 0;
+        for (int friend : graph.following(user)) {
+            edges += graph.following(friend).size();
+            if (edges >= budget) {
+                return budget;
+            }
+        }
+        return (int) edges;
+    }
+
+    private static int[] sortedFriends(FriendGraph graph, int user) {
+        int[] known = new int[graph.following(user).size() + 1];
+        int i = 0;
+        for (int friend : graph.following(user)) {
+            known[i++] = friend;
+        }
+        known[i] = user;
+        Arrays.sort(known);
+        return known;
+    }
+
+    private static List<Candidate> top(int[] reached, int count, int[] known, int limit) {
+        Arrays.sort(reached, 0, count);
+        PriorityQueue<Candidate> best = new PriorityQueue<>(WORST_FIRST);
+        int start = 0;
+        while (start < count && limit > 0) {
+            int node = reached[start];
+            int end = start;
+            while (end < count && reached[end] == node) {
+                end++;
+            }
+            if (Arrays.binarySearch(known, node) < 0) {
+                best.add(new Candidate(node, end - start));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            start = end;
+        }
+        List<Candidate> ranked = new ArrayList<>(best);
+        ranked.sort(WORST_FIRST.reversed());
+        return ranked;
+    }
+}
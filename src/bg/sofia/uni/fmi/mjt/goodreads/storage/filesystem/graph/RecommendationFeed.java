@@ -0,0 +1,95 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Per-user feed of the books their friends recommended, filled in when the recommendation is made (fan-out on write).
+ * Each feed is a bounded ring of the newest entries, every entry gets a globally increasing sequence number
+ * and pages are read newest first, starting right before the sequence given as cursor.
+ * Not thread safe, it is only accessed under the storage lock.
+ */
+public class RecommendationFeed {
+    public static final long FROM_NEWEST = Long.MAX_VALUE;
+
+    public record Entry(long sequence, int author, int bookRef) {
+    }
+
+    private final int capacity;
+    private final Map<Integer, Ring> feeds;
+    private long lastSequence;
+
+    public RecommendationFeed(int capacity) {
+        this.capacity = capacity;
+        this.feeds = new HashMap<>();
+    }
+
+    public void publish(int recipient, int author, int bookRef) {
+        feeds.computeIfAbsent(recipient, node -> new Ring(capacity)).add(++lastSequence, author, bookRef);
+    }
+
+    public List<Entry> page(int recipient, long cursor, int limit) {
+        Ring ring = feeds.get(recipient);
+        if (ring == null) {
+            return List.of();
+        }
+        return ring.before(cursor, limit);
+    }
+
+    public int size(int recipient) {
+        Ring ring = feeds.get(recipient);
+        return ring == null ? 0 : ring.count;
+    }
+
+    private static class Ring {
+        private final long[] sequences;
+        private final int[] authors;
+        private final int[] bookRefs;
+        private int head;
+        private int count;
+
+        Ring(int capacity) {
+            sequences = new long[capacity];
+            authors = new int[capacity];
+            bookRefs = new int[capacity];
+        }
+
+        void add(long sequence, int author, int bookRef) {
+            int slot = (head + count) % sequences.length;
+            if (count == sequences.length) {
+                head = (head + 1) % sequences.length;
+            } else {
+                count++;
+            }
+            sequences[slot] = sequence;
+            authors[slot] = author;
+            bookRefs[slot] = bookRef;
+        }
+
+        List<Entry> before(long cursor, int limit) {
+            List<Entry> page = new ArrayList<>();
+            for (int i = firstAtOrAfter(cursor) - 1; i >= 0 && page.size() < limit; i--) {
+                int slot = (head + i) % sequences.length;
+                page.add(new Entry(sequences[slot], authors[slot], bookRefs[slot]));
+            }
+            return page;
+        }
+
+        // sequences grow from the oldest to the newest entry, so the cursor position is found by binary search
+        private int firstAtOrAfter(long cursor) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (sequences[(head + middle) % sequences.length] < cursor) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.loader;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookList;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TableLoader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final String ID = "id";
+    private static final String USERNAME = "username";
+    private static final String PASSWORD = "password";
+    private static final String FRIENDS = "friends";
+    private static final String RECOMMENDED_BOOKS = "recommendedBooks";
+    private static final String TITLE = "title";
+    private static final String AUTHORS = "authors";
+
+    private TableLoader() {
+    }
+
+    public static Reader openTable(Path table) throws IOException {
+        FileChannel channel = FileChannel.open(table, StandardOpenOption.READ);
+        return new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    public static UsersTable readUsers(Reader reader, BookCatalog catalog) throws IOException {
+        List<User> users = new ArrayList<>();
+        Map<String, User> usersById = new HashMap<>();
+        Map<String, User> usersByUsername = new HashMap<>();
+
+        JsonReader json = new JsonReader(reader);
+        if (isEmptyTable(json)) {
+            return new UsersTable(users, usersById, usersByUsername);
+        }
+        json.beginArray();
+        while (json.hasNext()) {
+            User user = readUser(json, catalog);
+            users.add(user);
+            usersById.put(user.id(), user);
+            usersByUsername.put(user.username(), user);
+        }
+        json.endArray();
+        return new UsersTable(users, usersById, usersByUsername);
+    }
+
+    public static Map<String, Map<String, List<Book>>> readBookshelves(Reader reader, BookCatalog catalog)
+            throws IOException {
+        Map<String, Map<String, List<Book>>> bookshelves = new HashMap<>();
+
+        JsonReader json = new JsonReader(reader);
+        if (isEmptyTable(json)) {
+            return bookshelves;
+        }
+        json.beginObject();
+        while (json.hasNext()) {
+            String userId = json.nextName();
+            Map<String, List<Book>> lists = new HashMap<>();
+            json.beginObject();
+            while (json.hasNext()) {
+                String listName = json.nextName();
+                lists.put(listName, readBooks(json, catalog));
+            }
+            json.endObject();
+            bookshelves.put(userId, lists);
+        }
+        json.endObject();
+        return bookshelves;
+    }
+
+    // a freshly created table file is empty rather than "[]" or "{}"
+    private static boolean isEmptyTable(JsonReader json) throws IOException {
+        try {
+            if (json.peek() == JsonToken.NULL) {
+                json.nextNull();
+                return true;
+            }
+            return false;
+        } catch (EOFException e) {
+            return true;
+        }
+    }
+
+    private static User readUser(JsonReader json, BookCatalog catalog) throws IOException {
+        String id = null;
+        String username = null;
+        String password = null;
+        List<String> friends = new ArrayList<>();
+        List<Book> recommendedBooks = new BookList(catalog);
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case ID -> id = json.nextString();
+                case USERNAME -> username = json.nextString();
+                case PASSWORD -> password = json.nextString();
+                case FRIENDS -> friends = readStrings(json);
+                case RECOMMENDED_BOOKS -> recommendedBooks = readBooks(json, catalog);
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        return new User(id, username, password, friends, recommendedBooks);
+    }
+
+    private static List<Book> readBooks(JsonReader json, BookCatalog catalog) throws IOException {
+        BookList books = new BookList(catalog);
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return books;
+        }
+        json.beginArray();
+        while (json.hasNext()) {
+            books.addRef(catalog.intern(readBook(json)));
+        }
+        json.endArray();
+        return books;
+    }
+
+    private static Book readBook(JsonReader json) throws IOException {
+        String id = null;
+        String title = null;
+        List<String> authors = null;
+
+        json.beginObject();
+        while (json.hasNext()) {
+            switch (json.nextName()) {
+                case ID -> id = json.nextString();
+                case TITLE -> title = json.nextString();
+                case AUTHORS -> authors = json.peek() == JsonToken.NULL ? skipNull(json) : readStrings(json);
+                default -> json.skipValue();
+            }
+        }
+        json.endObject();
+        return new Book(id, title, authors);
+    }
+
+    private static List<String> readStrings(JsonReader json) throws IOException {
+        List<String> strings = new ArrayList<>();
+        if (json.peek() == JsonToken.NULL) {
+            json.nextNull();
+            return strings;
+        }
+        json.beginArray();
+        while (json.hasNext()) {
+            strings.add(json.nextString());
+        }
+        json.endArray();
+        return strings;
+    }
+
+    private static <T> T skipNull(JsonReader json) throws IOException {
+        json.nextNull();
+        return null;
+    }
+}
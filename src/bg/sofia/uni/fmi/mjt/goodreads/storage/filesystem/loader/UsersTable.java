@@ -0,0 +1,9 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.loader;
+
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+
+import java.util.List;
+import java.util.Map;
+
+public record UsersTable(List<User> users, Map<String, User> usersById, Map<String, User> usersByUsername) {
+}
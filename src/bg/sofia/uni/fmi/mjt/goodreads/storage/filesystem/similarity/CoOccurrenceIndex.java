@@ -0,0 +1,220 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.similarity;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ * "Readers also shelved" index: for every pair of books, how many users have both of them on any of their lists.
+ * Rows are sparse primitive counters keyed by BookCatalog references. The full build computes the rows in
+ * parallel with fork/join, after that the storage keeps the index current one shelved or unshelved book at a time.
+ */
+public class CoOccurrenceIndex {
+    private static final int ROWS_PER_TASK = 256;
+
+    private final BookCatalog catalog;
+    // user id -> book reference -> number of the user's lists holding the book
+    private final Map<String, IntCountMap> baskets;
+    private final List<IntCountMap> rows;
+    private final IntCountMap readers;
+
+    private CoOccurrenceIndex(BookCatalog catalog, Map<String, IntCountMap> baskets, List<IntCountMap> rows,
+                              IntCountMap readers) {
+        this.catalog = catalog;
+        this.baskets = baskets;
+        this.rows = rows;
+        this.readers = readers;
+    }
+
+    public static CoOccurrenceIndex build(Map<String, Map<String, List<Book>>> bookshelves, BookCatalog catalog) {
+        Map<String, IntCountMap> baskets = new HashMap<>();
+        for (Map.Entry<String, Map<String, List<Book>>> bookshelf : bookshelves.entrySet()) {
+            IntCountMap basket = new IntCountMap();
+            for (List<Book> list : bookshelf.getValue().values()) {
+                addRefs(basket, list, catalog);
+            }
+            baskets.put(bookshelf.getKey(), basket);
+        }
+
+        int[][] userBaskets = new int[baskets.size()][];
+        int next = 0;
+        for (IntCountMap basket : baskets.values()) {
+            userBaskets[next++] = basket.keys();
+        }
+        int[][] readersOfBook = invert(userBaskets, catalog.size());
+
+        IntCountMap[] rows = new IntCountMap[readersOfBook.length];
+        ForkJoinPool.commonPool().invoke(new RowsTask(rows, readersOfBook, userBaskets, 0, rows.length));
+
+        IntCountMap readers = new IntCountMap();
+        for (int ref = 0; ref < readersOfBook.length; ref++) {
+            readers.increment(ref, readersOfBook[ref].length);
+        }
+        return new CoOccurrenceIndex(catalog, baskets, new ArrayList<>(Arrays.asList(rows)), readers);
+    }
+
+    public synchronized void add(String userId, int ref) {
+        IntCountMap basket = baskets.computeIfAbsent(userId, id -> new IntCountMap());
+        if (basket.increment(ref, 1) > 1) {
+            return;
+        }
+        readers.increment(ref, 1);
+        basket.forEach((other, lists) -> {
+            if (other != ref) {
+                row(ref).increment(other, 1);
+                row(other).increment(ref, 1);
+            }
+        });
+    }
+
+    public synchronized void remove(String userId, int ref) {
+        IntCountMap basket = baskets.get(userId);
+        if (basket == null || ref < 0 || basket.get(ref) == 0 || basket.increment(ref, -1) > 0) {
+            return;
+        }
+        readers.increment(ref, -1);
+        basket.forEach((other, lists) -> {
+            row(ref).increment(other, -1);
+            row(other).increment(ref, -1);
+        });
+    }
+
+    public synchronized int coOccurrences(int ref, int other) {
+        return ref < rows.size() ? row(ref).get(other) : 0;
+    }
+
+    // the raw counts behind similar(), for merging the indexes of several partitions
+    public synchronized Map<Book, Integer> coOccurring(int ref) {
+        Map<Book, Integer> counts = new HashMap<>();
+        if (ref >= 0 && ref < rows.size()) {
+            row(ref).forEach((other, count) -> counts.put(catalog.get(other), count));
+        }
+        return counts;
+    }
+
+    public synchronized int readers(int ref) {
+        return ref < 0 ? 0 : readers.get(ref);
+    }
+
+    // books scored by cosine similarity of their reader sets, best first
+    public synchronized List<Book> similar(int ref, int limit) {
+        if (ref < 0 || ref >= rows.size() || limit <= 0) {
+            return List.of();
+        }
+        double ownReaders = readers.get(ref);
+        PriorityQueue<Candidate> best = new PriorityQueue<>(Candidate.WORST_FIRST);
+        row(ref).forEach((other, count) -> {
+            best.add(new Candidate(other, count / Math.sqrt(ownReaders * readers.get(other))));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        });
+
+        Book[] result = new Book[best.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = catalog.get(best.poll().ref());
+        }
+        return List.of(result);
+    }
+
+    private record Candidate(int ref, double score) {
+        // ties go to the book that was catalogued first
+        static final Comparator<Candidate> WORST_FIRST = Comparator.comparingDouble(Candidate::score)
+                .thenComparing(Comparator.comparingInt(Candidate::ref).reversed());
+    }
+
+    private IntCountMap row(int ref) {
+        while (rows.size() <= ref) {
+            rows.add(new IntCountMap());
+        }
+        return rows.get(ref);
+    }
+
+    private static void addRefs(IntCountMap basket, List<Book> list, BookCatalog catalog) {
+        if (list instanceof BookList bookList) {
+            for (int i = 0; i < bookList.size(); i++) {
+                basket.increment(bookList.getRef(i), 1);
+            }
+            return;
+        }
+        for (Book book : list) {
+            basket.increment(catalog.intern(book), 1);
+        }
+    }
+
+    // book reference -> indices of the users that have it
+    private static int[][] invert(int[][] userBaskets, int bookCount) {
+        int[] counts = new int[bookCount];
+        for (int[] basket : userBaskets) {
+            for (int ref : basket) {
+                counts[ref]++;
+            }
+        }
+        int[][] readersOfBook = new int[bookCount][];
+        for (int ref = 0; ref < bookCount; ref++) {
+            readersOfBook[ref] = new int[counts[ref]];
+            counts[ref] = 0;
+        }
+        for (int user = 0; user < userBaskets.length; user++) {
+            for (int ref : userBaskets[user]) {
+                readersOfBook[ref][counts[ref]++] = user;
+            }
+        }
+        return readersOfBook;
+    }
+
+    // every task owns a range of rows, so the workers never write to the same counter
+    private static class RowsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        // tasks never leave the pool that runs them, so nothing of theirs is serialized
+        private final transient IntCountMap[] rows;
+        private final int[][] readersOfBook;
+        private final int[][] userBaskets;
+        private final int from;
+        private final int to;
+
+        RowsTask(IntCountMap[] rows, int[][] readersOfBook, int[][] userBaskets, int from, int to) {
+            this.rows = rows;
+            this.readersOfBook = readersOfBook;
+            this.userBaskets = userBaskets;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= ROWS_PER_TASK) {
+                for (int ref = from; ref < to; ref++) {
+                    rows[ref] = computeRow(ref);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RowsTask(rows, readersOfBook, userBaskets, from, middle),
+                    new RowsTask(rows, readersOfBook, userBaskets, middle, to));
+        }
+
+        private IntCountMap computeRow(int ref) {
+            IntCountMap row = new IntCountMap();
+            for (int user : readersOfBook[ref]) {
+                for (int other : userBaskets[user]) {
+                    if (other != ref) {
+                        row.increment(other, 1);
+                    }
+                }
+            }
+            return row;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.similarity;
+
+import java.util.Arrays;
+
+/*
+ * Sparse int to int counter map with open addressing, entries whose count drops to zero are removed.
+ */
+class IntCountMap {
+    private static final int EMPTY = -1;
+    private static final int INITIAL_TABLE_SIZE = 4;
+    private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+    @FunctionalInterface
+    interface EntryConsumer {
+        void accept(int key, int count);
+    }
+
+    private int[] keys;
+    private int[] counts;
+    private int size;
+
+    IntCountMap() {
+        allocate(INITIAL_TABLE_SIZE);
+    }
+
+    int get(int key) {
+        int slot = find(key);
+        return keys[slot] == EMPTY ? 0 : counts[slot];
+    }
+
+    // returns the new count
+    int increment(int key, int delta) {
+        int slot = find(key);
+        if (keys[slot] == EMPTY) {
+            if (delta == 0) {
+                return 0;
+            }
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+                slot = find(key);
+            }
+            keys[slot] = key;
+            counts[slot] = delta;
+            size++;
+            return delta;
+        }
+        counts[slot] += delta;
+        int count = counts[slot];
+        if (count == 0) {
+            remove(slot);
+        }
+        return count;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(EntryConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                consumer.accept(keys[i], counts[i]);
+            }
+        }
+    }
+
+    int[] keys() {
+        int[] result = new int[size];
+        int next = 0;
+        for (int key : keys) {
+            if (key != EMPTY) {
+                result[next++] = key;
+            }
+        }
+        return result;
+    }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != EMPTY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    // backward shift deletion keeps probe sequences intact without tombstones
+    private void remove(int hole) {
+        int mask = keys.length - 1;
+        int gap = hole;
+        for (int i = (gap + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            int home = hash(keys[i]) & mask;
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                keys[gap] = keys[i];
+                counts[gap] = counts[i];
+                gap = i;
+            }
+        }
+        keys[gap] = EMPTY;
+        size--;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        counts = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    private static int hash(int key) {
+        int h = key * GOLDEN_RATIO;
+        return h ^ (h >>> (Integer.SIZE / 2));
+    }
+}
@@ -1,10 +1,13 @@
 package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.thread;
 
 import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.format.JsonTableFormat;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.format.TableFormat;
 import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater.Updater;
 import bg.sofia.uni.fmi.mjt.goodreads.user.User;
 import com.google.gson.Gson;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 
@@ -13,15 +16,20 @@ public class SaveToFileThread implements Runnable {
     private  final Updater listTableUpdater;
     private final List<User> users;
     private final Map<String, Map<String, List<Book>>> userBookshelf;
-    private final Gson gson;
+    private final TableFormat tableFormat;
 
     public SaveToFileThread(List<User> users, Map<String, Map<String, List<Book>>> userBookshelf,
                             Updater usersTableUpdater, Updater listTableUpdater, Gson gson) {
+        this(users, userBookshelf, usersTableUpdater, listTableUpdater, new JsonTableFormat(gson));
+    }
+
+    public SaveToFileThread(List<User> users, Map<String, Map<String, List<Book>>> userBookshelf,
+                            Updater usersTableUpdater, Updater listTableUpdater, TableFormat tableFormat) {
         this.users = users;
         this.userBookshelf = userBookshelf;
         this.usersTableUpdater = usersTableUpdater;
         this.listTableUpdater = listTableUpdater;
-        this.gson = gson;
+        this.tableFormat = tableFormat;
     }
 
     @Override
@@ -36,13 +44,14 @@ public class SaveToFileThread implements Runnable {
 
     private void saveUsers() {
         synchronized (users) {
-            usersTableUpdater.update(gson.toJson(users));
+            usersTableUpdater.update(out -> tableFormat.writeUsers(users, out));
         }
     }
 
-    private void saveBookshelves() {
+    private void saveBookshelves() throws IOException {
         synchronized (userBookshelf) {
-            listTableUpdater.update(gson.toJson(userBookshelf));
+            listTableUpdater.update(out -> tableFormat.writeBookshelves(userBookshelf, out));
+            tableFormat.bookshelvesSaved(userBookshelf);
         }
     }
 
@@ -0,0 +1,182 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.tiering;
+
+import bg.sofia.uni.fmi.mjt.goodreads.storage.migration.UserRecord;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * The users FileSystemStorage has moved off heap. Each of them is only a stub in memory, id, username and the
+ * location of their record in the UserSegments; the record holds their row and bookshelf as JSON. The tier also
+ * tracks when every hot user was last active, so the storage knows whom to archive, and times how long it takes
+ * to find a user who is hot (a hit) and to bring back one who is cold (a miss). The activity is saved with the
+ * segments on every sweep; a user with no saved activity counts as active since the tier was created.
+ */
+public class ColdTier {
+    private static final double NANOS_PER_MICRO = TimeUnit.MICROSECONDS.toNanos(1);
+
+    private final UserSegments segments;
+    private final Duration inactivity;
+    private final Clock clock;
+    private final long sinceMillis;
+    private final Gson gson;
+    private final Map<String, UserSegments.Entry> stubsById;
+    private final Map<String, UserSegments.Entry> stubsByUsername;
+    private final Map<String, Long> lastActive;
+    private final LongAdder hits;
+    private final LongAdder hitNanos;
+    private final LongAdder misses;
+    private final LongAdder missNanos;
+
+    public record Stats(int coldUsers, long hits, long misses, double meanHitMicros, double meanMissMicros) {
+    }
+
+    public ColdTier(UserSegments segments, Duration inactivity, Clock clock) {
+        this.segments = segments;
+        this.inactivity = inactivity;
+        this.clock = clock;
+        this.sinceMillis = clock.millis();
+        this.gson = new Gson();
+        this.stubsById = new ConcurrentHashMap<>();
+        this.stubsByUsername = new ConcurrentHashMap<>();
+        this.lastActive = new ConcurrentHashMap<>();
+        this.hits = new LongAdder();
+        this.hitNanos = new LongAdder();
+        this.misses = new LongAdder();
+        this.missNanos = new LongAdder();
+    }
+
+    // keeps every user hot
+    public static ColdTier disabled() {
+        return new ColdTier(null, Duration.ZERO, Clock.systemUTC());
+    }
+
+    public boolean enabled() {
+        return segments != null;
+    }
+
+    // stubs of the archived users that aren't hot in the loaded tables, the tables are newer when a user is in both;
+    // no record is read, the storage reads them one at a time to index them
+    public List<UserSegments.Entry> load(Set<String> hotUserIds) throws IOException {
+        if (!enabled()) {
+            return List.of();
+        }
+        Map<String, UserSegments.Entry> latest = new LinkedHashMap<>();
+        for (UserSegments.Entry entry : segments.scan()) {
+            latest.put(entry.userId(), entry);
+        }
+        for (Map.Entry<String, Long> user : segments.readActivity().entrySet()) {
+            if (hotUserIds.contains(user.getKey())) {
+                lastActive.merge(user.getKey(), user.getValue(), Math::max);
+            }
+        }
+        List<UserSegments.Entry> cold = new ArrayList<>();
+        for (UserSegments.Entry entry : latest.values()) {
+            if (!hotUserIds.contains(entry.userId())) {
+                cold.add(entry);
+                stubsById.put(entry.userId(), entry);
+                stubsByUsername.put(entry.username(), entry);
+            }
+        }
+        return cold;
+    }
+
+    public void touch(String userId) {
+        if (enabled()) {
+            lastActive.put(userId, clock.millis());
+        }
+    }
+
+    public boolean inactive(String userId) {
+        return enabled()
+                && clock.millis() - lastActive.getOrDefault(userId, sinceMillis) >= inactivity.toMillis();
+    }
+
+    // appends the record; the user only becomes cold once the storage calls flush and then forgets them
+    public void archive(UserRecord record) throws IOException {
+        byte[] data = gson.toJson(record).getBytes(StandardCharsets.UTF_8);
+        String userId = record.user().id();
+        String username = record.user().username();
+        long location = segments.append(userId, username, data);
+        UserSegments.Entry stub = new UserSegments.Entry(userId, username, location);
+        stubsById.put(userId, stub);
+        stubsByUsername.put(username, stub);
+        lastActive.remove(userId);
+    }
+
+    public void flush() throws IOException {
+        segments.force();
+    }
+
+    public void saveActivity() throws IOException {
+        if (enabled()) {
+            segments.writeActivity(Map.copyOf(lastActive));
+        }
+    }
+
+    public UserSegments.Entry stubById(String userId) {
+        return userId == null ? null : stubsById.get(userId);
+    }
+
+    public UserSegments.Entry stubByUsername(String username) {
+        return username == null ? null : stubsByUsername.get(username);
+    }
+
+    public Collection<UserSegments.Entry> stubs() {
+        return stubsById.values();
+    }
+
+    public Set<String> usernames() {
+        return stubsByUsername.keySet();
+    }
+
+    public int size() {
+        return stubsById.size();
+    }
+
+    // the archived record, the user stays cold
+    public UserRecord read(UserSegments.Entry stub) throws IOException {
+        return gson.fromJson(new String(segments.read(stub.location()), StandardCharsets.UTF_8), UserRecord.class);
+    }
+
+    // the archived record of a user who is becoming hot again
+    public UserRecord rehydrate(UserSegments.Entry stub) throws IOException {
+        UserRecord record = read(stub);
+        stubsById.remove(stub.userId());
+        stubsByUsername.remove(stub.username());
+        touch(stub.userId());
+        return record;
+    }
+
+    public void recordHit(long nanos) {
+        if (enabled()) {
+            hits.increment();
+            hitNanos.add(nanos);
+        }
+    }
+
+    public void recordMiss(long nanos) {
+        misses.increment();
+        missNanos.add(nanos);
+    }
+
+    public Stats stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        return new Stats(size(), hitCount, missCount,
+                hitCount == 0 ? 0 : hitNanos.sum() / NANOS_PER_MICRO / hitCount,
+                missCount == 0 ? 0 : missNanos.sum() / NANOS_PER_MICRO / missCount);
+    }
+}
@@ -0,0 +1,267 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.tiering;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/*
+ * Append-only segment files for archived users. A record is a fixed header of three ints, the header length,
+ * the raw length and the compressed length, then the user id and username, then the Deflater-compressed data.
+ * A location is the segment number in the high bits and the record's offset in the low bits. Records are never
+ * rewritten, so readers need no lock; the last record of a user wins. A record cut short by a crash is
+ * truncated away when the segments are opened again. Next to the segments an activity file keeps when every hot
+ * user was last active, rewritten whole and swapped in atomically, so the inactivity clock survives a restart.
+ */
+public class UserSegments implements Closeable {
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    private static final String SEGMENT_PREFIX = "cold-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String SEGMENT_NAME_FORMAT = SEGMENT_PREFIX + "%06d" + SEGMENT_SUFFIX;
+    private static final String ACTIVITY_FILE = "activity.bin";
+    private static final String ACTIVITY_TEMP_FILE = "activity.bin.tmp";
+    private static final int FIXED_HEADER_BYTES = 3 * Integer.BYTES;
+    private static final int OFFSET_BITS = 40;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final List<FileChannel> segments;
+
+    public record Entry(String userId, String username, long location) {
+    }
+
+    private record Header(int headerLength, int rawLength, int compressedLength) {
+        int recordLength() {
+            return FIXED_HEADER_BYTES + headerLength + compressedLength;
+        }
+    }
+
+    public UserSegments(Path directory, long segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.segments = new ArrayList<>();
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> existing = files
+                    .filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+            for (Path segment : existing) {
+                segments.add(FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE));
+            }
+        }
+    }
+
+    // every user's last record, after truncating a torn record at the end of a segment
+    public synchronized List<Entry> scan() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        for (int segment = 0; segment < segments.size(); segment++) {
+            FileChannel channel = segments.get(segment);
+            long offset = 0;
+            while (offset + FIXED_HEADER_BYTES <= channel.size()) {
+                Header header = readHeader(channel, offset);
+                if (offset + header.recordLength() > channel.size()) {
+                    break;
+                }
+                ByteBuffer names = readFully(channel, offset + FIXED_HEADER_BYTES, header.headerLength());
+                entries.add(new Entry(readString(names), readString(names), location(segment, offset)));
+                offset += header.recordLength();
+            }
+            if (offset < channel.size()) {
+                channel.truncate(offset);
+            }
+        }
+        return entries;
+    }
+
+    public synchronized long append(String userId, String username, byte[] data) throws IOException {
+        byte[] compressed = deflate(data);
+        ByteArrayOutputStream names = new ByteArrayOutputStream();
+        DataOutputStream namesOut = new DataOutputStream(names);
+        writeString(namesOut, userId);
+        writeString(namesOut, username);
+
+        ByteBuffer record = ByteBuffer.allocate(FIXED_HEADER_BYTES + names.size() + compressed.length);
+        record.putInt(names.size()).putInt(data.length).putInt(compressed.length);
+        record.put(names.toByteArray()).put(compressed).flip();
+
+        FileChannel active = activeSegment(record.remaining());
+        long offset = active.size();
+        while (record.hasRemaining()) {
+            active.write(record, offset + record.position());
+        }
+        return location(segments.size() - 1, offset);
+    }
+
+    public byte[] read(long location) throws IOException {
+        FileChannel channel;
+        synchronized (this) {
+            channel = segments.get((int) (location >>> OFFSET_BITS));
+        }
+        long offset = location & OFFSET_MASK;
+        Header header = readHeader(channel, offset);
+        ByteBuffer compressed = readFully(channel, offset + FIXED_HEADER_BYTES + header.headerLength(),
+                header.compressedLength());
+        return inflate(compressed.array(), header.rawLength());
+    }
+
+    // makes the appended records durable, the storage drops archived users from its tables only after this
+    public synchronized void force() throws IOException {
+        if (!segments.isEmpty()) {
+            segments.getLast().force(false);
+        }
+    }
+
+    public synchronized void writeActivity(Map<String, Long> lastActive) throws IOException {
+        Path temp = directory.resolve(ACTIVITY_TEMP_FILE);
+        // on disk before the rename, so a crash never swaps in a half written file
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(lastActive.size());
+            for (Map.Entry<String, Long> user : lastActive.entrySet()) {
+                writeString(out, user.getKey());
+                out.writeLong(user.getValue());
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(ACTIVITY_FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // empty until the first writeActivity
+    public synchronized Map<String, Long> readActivity() throws IOException {
+        Path file = directory.resolve(ACTIVITY_FILE);
+        Map<String, Long> lastActive = new HashMap<>();
+        if (!Files.exists(file)) {
+            return lastActive;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                byte[] userId = new byte[in.readInt()];
+                in.readFully(userId);
+                lastActive.put(new String(userId, StandardCharsets.UTF_8), in.readLong());
+            }
+        }
+        return lastActive;
+    }
+
+    public synchronized long sizeBytes() throws IOException {
+        long size = 0;
+        for (FileChannel segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (FileChannel segment : segments) {
+            segment.close();
+        }
+    }
+
+    private FileChannel activeSegment(int recordBytes) throws IOException {
+        if (segments.isEmpty() || segments.getLast().size() + recordBytes > segmentBytes
+                && segments.getLast().size() > 0) {
+            if (!segments.isEmpty()) {
+                segments.getLast().force(false);
+            }
+            Path segment = directory.resolve(String.format(SEGMENT_NAME_FORMAT, segments.size()));
+            segments.add(FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE));
+        }
+        return segments.getLast();
+    }
+
+    private static long location(int segment, long offset) {
+        return (long) segment << OFFSET_BITS | offset;
+    }
+
+    private static Header readHeader(FileChannel channel, long offset) throws IOException {
+        ByteBuffer header = readFully(channel, offset, FIXED_HEADER_BYTES);
+        return new Header(header.getInt(), header.getInt(), header.getInt());
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long offset, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new IOException("Cold segment ends inside a record");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 1);
+            byte[] buffer = new byte[Math.max(1, Math.min(data.length, Short.MAX_VALUE))];
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed, int rawLength) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            byte[] data = new byte[rawLength];
+            int inflated = 0;
+            while (inflated < rawLength && !inflater.finished()) {
+                inflated += inflater.inflate(data, inflated, rawLength - inflated);
+                if (inflater.needsInput() && inflated < rawLength) {
+                    throw new IOException("Cold record is truncated");
+                }
+            }
+            return data;
+        } catch (DataFormatException e) {
+            throw new IOException("Cold record is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -1,14 +1,25 @@
 package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.stream.Collectors;
 
 public class FileUpdater implements Updater {
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    private static final int BUFFER_SIZE = 64 * 1024;
     private final File file;
 
     public FileUpdater(File file) {
@@ -17,13 +28,50 @@ public class FileUpdater implements Updater {
 
     @Override
     public void update(String data) {
-        try (FileWriter fw = new FileWriter(file)) {
-            fw.write(data);
+        update(out -> out.write(data.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // the snapshot is written next to the table and renamed over it only after it's fully on disk,
+    // so a crash mid-write never leaves the table itself half written
+    @Override
+    public void update(SnapshotWriter writer) {
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(target.getFileName() + TEMP_FILE_SUFFIX);
+        try {
+            writeTempFile(temp, writer);
+            replace(temp, target);
         } catch (IOException e) {
+            deleteQuietly(temp);
             throw new RuntimeException(e);
         }
     }
 
+    private void writeTempFile(Path temp, SnapshotWriter writer) throws IOException {
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+            writer.write(out);
+            out.flush();
+            channel.force(true);
+        }
+    }
+
+    private void replace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // the next successful update truncates the leftover temp file anyway
+        }
+    }
+
     @Override
     public String getData() {
         try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
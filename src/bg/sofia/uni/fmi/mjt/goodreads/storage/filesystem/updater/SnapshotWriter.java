@@ -0,0 +1,9 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+@FunctionalInterface
+public interface SnapshotWriter {
+    void write(OutputStream out) throws IOException;
+}
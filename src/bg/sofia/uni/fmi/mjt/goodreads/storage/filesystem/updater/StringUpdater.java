@@ -1,5 +1,9 @@
 package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
 public class StringUpdater implements Updater {
     private String data;
     public StringUpdater(String data) {
@@ -11,6 +15,17 @@ public class StringUpdater implements Updater {
         this.data = new String(data);
     }
 
+    @Override
+    public void update(SnapshotWriter writer) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        this.data = out.toString(StandardCharsets.UTF_8);
+    }
+
     @Override
     public String getData() {
         return this.data;
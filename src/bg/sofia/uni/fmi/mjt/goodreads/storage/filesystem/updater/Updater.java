@@ -3,5 +3,7 @@ package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater;
 public interface Updater {
     void update(String data);
 
+    void update(SnapshotWriter writer);
+
     String getData();
 }
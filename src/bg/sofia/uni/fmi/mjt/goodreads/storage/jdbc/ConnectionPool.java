@@ -0,0 +1,49 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.jdbc;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/*
+ * Fixed number of connections opened up front; callers block until one is free.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private final List<PooledConnection> connections;
+    private final BlockingQueue<PooledConnection> idle;
+
+    public ConnectionPool(String url, int size) throws SQLException {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        this.connections = new ArrayList<>(size);
+        this.idle = new ArrayBlockingQueue<>(size);
+        for (int i = 0; i < size; i++) {
+            PooledConnection connection = new PooledConnection(DriverManager.getConnection(url));
+            connections.add(connection);
+            idle.add(connection);
+        }
+    }
+
+    public PooledConnection acquire() {
+        try {
+            return idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void release(PooledConnection connection) {
+        idle.add(connection);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        for (PooledConnection connection : connections) {
+            connection.close();
+        }
+    }
+}
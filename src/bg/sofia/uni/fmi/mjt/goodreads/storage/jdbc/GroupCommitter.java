@@ -0,0 +1,155 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+
+/*
+ * Runs the writes of all sessions on one connection and commits whatever queued up while the previous
+ * transaction was committing as a single transaction. Every write gets its own savepoint, so one that fails
+ * is rolled back alone and its caller gets the exception, while the rest of the group still commits.
+ * Callers block until the transaction holding their write is committed. A write may come with an action that runs
+ * on the writer thread once it is committed, so these actions run in the order the writes were applied.
+ */
+public class GroupCommitter implements AutoCloseable {
+    @FunctionalInterface
+    public interface Write<T, E extends Exception> {
+        T apply(PooledConnection connection) throws E, SQLException;
+    }
+
+    private record PendingWrite<T>(Write<T, ?> write, Consumer<T> committed, CompletableFuture<T> result) {
+        void run(PooledConnection connection, List<Runnable> completions) throws SQLException {
+            Connection jdbc = connection.connection();
+            Savepoint savepoint = jdbc.setSavepoint();
+            try {
+                T value = write.apply(connection);
+                completions.add(() -> complete(value));
+            } catch (Exception e) {
+                jdbc.rollback(savepoint);
+                completions.add(() -> result.completeExceptionally(e));
+            }
+        }
+
+        private void complete(T value) {
+            try {
+                committed.accept(value);
+                result.complete(value);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static final int MAX_GROUP_SIZE = 256;
+    private static final PendingWrite<Void> STOP = new PendingWrite<>(connection -> null, value -> { },
+            new CompletableFuture<>());
+
+    private final PooledConnection connection;
+    private final BlockingQueue<PendingWrite<?>> queue;
+    private final Thread writer;
+    private long groups;
+    private long writes;
+
+    public GroupCommitter(PooledConnection connection) throws SQLException {
+        this.connection = connection;
+        this.queue = new LinkedBlockingQueue<>();
+        connection.connection().setAutoCommit(false);
+        this.writer = Thread.ofPlatform().name("group-committer").daemon().start(this::commitLoop);
+    }
+
+    public <T, E extends Exception> T submit(Write<T, E> write) throws E {
+        return submit(write, value -> { });
+    }
+
+    // committed runs on the writer thread after the commit and before the caller returns
+    @SuppressWarnings("unchecked")
+    public <T, E extends Exception> T submit(Write<T, E> write, Consumer<T> committed) throws E {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        queue.add(new PendingWrite<>(write, committed, result));
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException || !(e.getCause() instanceof Exception)) {
+                throw new RuntimeException(e.getCause());
+            }
+            // the write can only throw E or SQLException
+            throw (E) e.getCause();
+        }
+    }
+
+    public synchronized long groups() {
+        return groups;
+    }
+
+    public synchronized long writes() {
+        return writes;
+    }
+
+    private void commitLoop() {
+        List<PendingWrite<?>> group = new ArrayList<>(MAX_GROUP_SIZE);
+        while (true) {
+            try {
+                group.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(group, MAX_GROUP_SIZE - 1);
+            boolean stopping = group.remove(STOP);
+            commit(group);
+            group.clear();
+            if (stopping) {
+                return;
+            }
+        }
+    }
+
+    private void commit(List<PendingWrite<?>> group) {
+        List<Runnable> completions = new ArrayList<>(group.size());
+        try {
+            for (PendingWrite<?> pending : group) {
+                pending.run(connection, completions);
+            }
+            connection.connection().commit();
+        } catch (SQLException e) {
+            rollback();
+            for (PendingWrite<?> pending : group) {
+                pending.result().completeExceptionally(e);
+            }
+            return;
+        }
+        synchronized (this) {
+            groups++;
+            writes += group.size();
+        }
+        completions.forEach(Runnable::run);
+    }
+
+    private void rollback() {
+        try {
+            connection.connection().rollback();
+        } catch (SQLException ignored) {
+            // the connection is broken, the callers already get the original failure
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        queue.add(STOP);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        connection.close();
+    }
+}
@@ -0,0 +1,608 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.jdbc;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.BookNotInListException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.InvalidCredentials;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameDoesntExistException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.UserDoesntExistException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.UsernameAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.FriendsCursor;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Page;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Storage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph.FriendGraph;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph.FriendsOfFriends;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph.RecommendationFeed;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.loader.TableLoader;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.similarity.CoOccurrenceIndex;
+import bg.sofia.uni.fmi.mjt.goodreads.user.FriendSuggestion;
+import bg.sofia.uni.fmi.mjt.goodreads.user.Recommendation;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Storage over JDBC with normalized tables for users, friendships, lists, list entries and recommendations.
+ * Reads run on pooled connections in parallel, writes go through the group committer one after another,
+ * so a write sees everything committed before it and is durable once the call returns.
+ * The friend graph, the feed and the similar books index are kept in memory and rebuilt from the tables on open.
+ */
+public class JdbcStorage implements Storage, AutoCloseable {
+    public static final int DEFAULT_POOL_SIZE = 4;
+
+    private static final int FEED_CAPACITY = 1000;
+    private static final int SUGGESTION_BUDGET = 10_000;
+    private static final Type AUTHORS_TYPE = new TypeToken<List<String>>() { }.getType();
+
+    private static final String SELECT_USER = "SELECT id, username, password FROM users WHERE id = ?";
+    private static final String SELECT_USER_BY_USERNAME =
+            "SELECT id, username, password FROM users WHERE username = ?";
+    private static final String SELECT_USERS = "SELECT id, username FROM users ORDER BY seq";
+    private static final String INSERT_USER = "INSERT INTO users (id, username, password) VALUES (?, ?, ?)";
+    private static final String SELECT_BOOK = "SELECT 1 FROM books WHERE id = ?";
+    private static final String INSERT_BOOK = "INSERT INTO books (id, title, authors) VALUES (?, ?, ?)";
+    private static final String SELECT_LIST = "SELECT id FROM lists WHERE user_id = ? AND name = ?";
+    private static final String INSERT_LIST = "INSERT INTO lists (user_id, name) VALUES (?, ?)";
+    private static final String DELETE_LIST = "DELETE FROM lists WHERE id = ?";
+    private static final String SELECT_LIST_BOOKS = "SELECT b.id, b.title, b.authors FROM list_entries e " +
+            "JOIN books b ON b.id = e.book_id WHERE e.list_id = ? ORDER BY e.seq";
+    private static final String SELECT_ENTRY = "SELECT 1 FROM list_entries WHERE list_id = ? AND book_id = ?";
+    private static final String INSERT_ENTRY = "INSERT INTO list_entries (list_id, book_id) VALUES (?, ?)";
+    private static final String DELETE_ENTRY = "DELETE FROM list_entries WHERE list_id = ? AND book_id = ?";
+    private static final String SELECT_ALL_ENTRIES = "SELECT l.user_id, l.name, b.id, b.title, b.authors " +
+            "FROM lists l JOIN list_entries e ON e.list_id = l.id JOIN books b ON b.id = e.book_id ORDER BY e.seq";
+    private static final String SELECT_FRIENDSHIP = "SELECT 1 FROM friendships WHERE user_id = ? AND friend_id = ?";
+    private static final String INSERT_FRIENDSHIP = "INSERT INTO friendships (user_id, friend_id) VALUES (?, ?)";
+    private static final String SELECT_FRIENDS = "SELECT u.username FROM friendships f " +
+            "JOIN users u ON u.id = f.friend_id WHERE f.user_id = ? ORDER BY f.seq";
+    private static final String SELECT_ALL_FRIENDSHIPS = "SELECT user_id, friend_id FROM friendships ORDER BY seq";
+    private static final String SELECT_FRIENDS_WITH_BOOK = "SELECT u.username, l.name FROM friendships f " +
+            "JOIN users u ON u.id = f.friend_id JOIN lists l ON l.user_id = f.friend_id " +
+            "JOIN list_entries e ON e.list_id = l.id WHERE f.user_id = ? AND e.book_id = ? ORDER BY e.seq";
+    private static final String SELECT_RECOMMENDATION =
+            "SELECT 1 FROM recommendations WHERE user_id = ? AND book_id = ?";
+    private static final String INSERT_RECOMMENDATION =
+            "INSERT INTO recommendations (user_id, book_id) VALUES (?, ?)";
+    private static final String SELECT_RECOMMENDATIONS = "SELECT b.id, b.title, b.authors FROM recommendations r " +
+            "JOIN books b ON b.id = r.book_id WHERE r.user_id = ? ORDER BY r.seq";
+    private static final String SELECT_ALL_RECOMMENDATIONS = "SELECT r.user_id, b.id, b.title, b.authors " +
+            "FROM recommendations r JOIN books b ON b.id = r.book_id ORDER BY r.seq";
+
+    private record UserRow(String id, String username, String password) {
+    }
+
+    private record NewFriendship(String friendId, List<Book> recommendations) {
+    }
+
+    @FunctionalInterface
+    private interface Read<T, E extends Exception> {
+        T apply(PooledConnection connection) throws E, SQLException;
+    }
+
+    private final ConnectionPool readers;
+    private final GroupCommitter writer;
+    private final Gson gson;
+    private final BookCatalog bookCatalog;
+    private final FriendGraph friendGraph;
+    private final RecommendationFeed recommendationFeed;
+    // usernames never change, so feed and suggestion authors are named without a query each
+    private final Map<String, String> usernames;
+    private CoOccurrenceIndex coOccurrences;
+
+    public JdbcStorage(String url) throws SQLException {
+        this(url, DEFAULT_POOL_SIZE);
+    }
+
+    public JdbcStorage(String url, int poolSize) throws SQLException {
+        this.readers = new ConnectionPool(url, poolSize);
+        this.writer = new GroupCommitter(new PooledConnection(DriverManager.getConnection(url)));
+        this.gson = new Gson();
+        this.bookCatalog = new BookCatalog();
+        this.friendGraph = new FriendGraph();
+        this.recommendationFeed = new RecommendationFeed(FEED_CAPACITY);
+        this.usernames = new ConcurrentHashMap<>();
+        writer.submit(connection -> {
+            Schema.create(connection);
+            return null;
+        });
+        rebuildIndexes();
+    }
+
+    // copies the JSON tables into the database before opening it
+    public JdbcStorage(String url, Reader usersTableReader, Reader bookshelfTableReader)
+            throws SQLException, IOException {
+        this(importTables(url, usersTableReader, bookshelfTableReader));
+    }
+
+    private static String importTables(String url, Reader usersTableReader, Reader bookshelfTableReader)
+            throws SQLException, IOException {
+        BookCatalog catalog = new BookCatalog();
+        List<User> users = TableLoader.readUsers(usersTableReader, catalog).users();
+        Map<String, Map<String, List<Book>>> bookshelves = TableLoader.readBookshelves(bookshelfTableReader, catalog);
+        try (PooledConnection connection = new PooledConnection(DriverManager.getConnection(url))) {
+            connection.connection().setAutoCommit(false);
+            Schema.create(connection);
+            TableImport.run(connection, users, bookshelves);
+            connection.connection().commit();
+        }
+        return url;
+    }
+
+    private void rebuildIndexes() throws SQLException {
+        read(connection -> {
+            try (ResultSet rows = connection.prepare(SELECT_USERS).executeQuery()) {
+                while (rows.next()) {
+                    friendGraph.addUser(rows.getString(1));
+                    usernames.put(rows.getString(1), rows.getString(2));
+                }
+            }
+            Map<String, List<Book>> recommendations = new HashMap<>();
+            try (ResultSet rows = connection.prepare(SELECT_ALL_RECOMMENDATIONS).executeQuery()) {
+                while (rows.next()) {
+                    recommendations.computeIfAbsent(rows.getString(1), id -> new ArrayList<>()).add(book(rows, 2));
+                }
+            }
+            try (ResultSet rows = connection.prepare(SELECT_ALL_FRIENDSHIPS).executeQuery()) {
+                while (rows.next()) {
+                    follow(rows.getString(1), rows.getString(2),
+                            recommendations.getOrDefault(rows.getString(2), List.of()));
+                }
+            }
+            Map<String, Map<String, List<Book>>> bookshelves = new HashMap<>();
+            try (ResultSet rows = connection.prepare(SELECT_ALL_ENTRIES).executeQuery()) {
+                while (rows.next()) {
+                    friendGraph.addUser(rows.getString(1));
+                    bookshelves.computeIfAbsent(rows.getString(1), id -> new HashMap<>())
+                            .computeIfAbsent(rows.getString(2), name -> new ArrayList<>())
+                            .add(book(rows, 3));
+                }
+            }
+            coOccurrences = CoOccurrenceIndex.build(bookshelves, bookCatalog);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean exists(String userId) {
+        return userId != null && read(connection -> findUser(connection, userId) != null);
+    }
+
+    @Override
+    public String register(String username, String password)
+            throws UsernameAlreadyExistsException, ListNameAlreadyExistsException {
+        String newUserId = writer.submit(connection -> {
+            if (findUserByUsername(connection, username) != null) {
+                throw new UsernameAlreadyExistsException("This username is already in use");
+            }
+            String userId = UUID.randomUUID().toString();
+            update(connection, INSERT_USER, userId, username, password);
+            update(connection, INSERT_LIST, userId, User.WANT_TO_READ_LIST_NAME);
+            update(connection, INSERT_LIST, userId, User.READ_LIST_NAME);
+            return userId;
+        }, userId -> {
+            usernames.put(userId, username);
+            synchronized (this) {
+                friendGraph.addUser(userId);
+            }
+        });
+        return newUserId;
+    }
+
+    @Override
+    public String login(String username, String password) throws InvalidCredentials {
+        UserRow user = read(connection -> findUserByUsername(connection, username));
+        if (user == null) {
+            throw new InvalidCredentials("Invalid username");
+        }
+        if (!user.password().equals(password)) {
+            throw new InvalidCredentials("Invalid password");
+        }
+        return user.id();
+    }
+
+    @Override
+    public List<Book> getList(String userId, String listName) throws ListNameDoesntExistException {
+        return read(connection -> books(connection, SELECT_LIST_BOOKS,
+                listId(connection, requireUser(connection, userId).id(), listName)));
+    }
+
+    @Override
+    public Page<Book> getList(String userId, String listName, int offset, int limit)
+            throws ListNameDoesntExistException {
+        return Page.slice(getList(userId, listName), offset, limit);
+    }
+
+    @Override
+    public void createList(String userId, String listName) throws ListNameAlreadyExistsException {
+        writer.submit(connection -> {
+            UserRow user = requireUser(connection, userId);
+            if (hasRow(connection, SELECT_LIST, user.id(), listName)) {
+                throw new ListNameAlreadyExistsException("List name already exists");
+            }
+            update(connection, INSERT_LIST, user.id(), listName);
+            return null;
+        });
+    }
+
+    @Override
+    public void removeList(String userId, String listName) throws ListNameDoesntExistException {
+        writer.submit(connection -> {
+            long listId = listId(connection, requireUser(connection, userId).id(), listName);
+            List<Book> books = books(connection, SELECT_LIST_BOOKS, listId);
+            update(connection, DELETE_LIST, listId);
+            return books;
+        }, removed -> {
+            for (Book book : removed) {
+                unshelved(userId, book);
+            }
+        });
+    }
+
+    @Override
+    public void addToList(String userId, String listName, Book book) throws ListNameDoesntExistException {
+        writer.submit(connection -> {
+            long listId = listId(connection, requireUser(connection, userId).id(), listName);
+            if (hasRow(connection, SELECT_ENTRY, listId, book.id())) {
+                return false;
+            }
+            insertBook(connection, book);
+            update(connection, INSERT_ENTRY, listId, book.id());
+            return true;
+        }, added -> {
+            if (added) {
+                shelved(userId, book);
+            }
+        });
+    }
+
+    @Override
+    public void removeFromList(String userId, String listName, int index)
+            throws ListNameDoesntExistException, BookNotInListException {
+        try {
+            writer.submit(connection -> {
+                long listId = listId(connection, requireUser(connection, userId).id(), listName);
+                List<Book> books = books(connection, SELECT_LIST_BOOKS, listId);
+                if (index < 0 || index >= books.size()) {
+                    throw new BookNotInListException("Index out of range");
+                }
+                update(connection, DELETE_ENTRY, listId, books.get(index).id());
+                return books.get(index);
+            }, removed -> unshelved(userId, removed));
+        } catch (ListNameDoesntExistException | BookNotInListException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean containsBook(String userId, String listName, String bookId) throws ListNameDoesntExistException {
+        return read(connection -> hasRow(connection, SELECT_ENTRY,
+                listId(connection, requireUser(connection, userId).id(), listName), bookId));
+    }
+
+    @Override
+    public void removeBookFromList(String userId, String listName, String bookId)
+            throws ListNameDoesntExistException, BookNotInListException {
+        try {
+            writer.submit(connection -> {
+                long listId = listId(connection, requireUser(connection, userId).id(), listName);
+                Book book = books(connection, SELECT_LIST_BOOKS, listId).stream()
+                        .filter(listed -> listed.id().equals(bookId))
+                        .findFirst()
+                        .orElseThrow(() -> new BookNotInListException("No book with that id in the list"));
+                update(connection, DELETE_ENTRY, listId, bookId);
+                return book;
+            }, removed -> unshelved(userId, removed));
+        } catch (ListNameDoesntExistException | BookNotInListException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Map<String, List<String>> getFriendsWithBook(String userId, String bookId) {
+        return read(connection -> {
+            PreparedStatement statement = connection.prepare(SELECT_FRIENDS_WITH_BOOK);
+            statement.setString(1, requireUser(connection, userId).id());
+            statement.setString(2, bookId);
+            Map<String, List<String>> friendsWithBook = new LinkedHashMap<>();
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    friendsWithBook.computeIfAbsent(rows.getString(1), friend -> new ArrayList<>())
+                            .add(rows.getString(2));
+                }
+            }
+            return friendsWithBook;
+        });
+    }
+
+    @Override
+    public List<Book> getSimilarBooks(String bookId, int limit) {
+        return coOccurrences.similar(bookCatalog.find(bookId), limit);
+    }
+
+    // the friend's recommendations are read in the same write and followed after its commit on the writer thread,
+    // in write order with the publishing in recommendBook, so every recommendation reaches the feed exactly once
+    @Override
+    public void addFriend(String userId, String friendUsername) throws UserDoesntExistException {
+        writer.submit(connection -> {
+            UserRow user = requireUser(connection, userId);
+            UserRow found = findUserByUsername(connection, friendUsername);
+            if (found == null) {
+                throw new UserDoesntExistException("Username doesn't exist");
+            }
+            if (hasRow(connection, SELECT_FRIENDSHIP, user.id(), found.id())) {
+                return null;
+            }
+            update(connection, INSERT_FRIENDSHIP, user.id(), found.id());
+            return new NewFriendship(found.id(), recommendations(connection, found.id()));
+        }, friendship -> {
+            if (friendship != null) {
+                synchronized (this) {
+                    follow(userId, friendship.friendId(), friendship.recommendations());
+                }
+            }
+        });
+    }
+
+    @Override
+    public List<String> getUserFriends(String userId) {
+        return read(connection -> usernames(connection, SELECT_FRIENDS, requireUser(connection, userId).id()));
+    }
+
+    @Override
+    public List<FriendSuggestion> suggestFriends(String userId, int limit) {
+        List<FriendsOfFriends.Candidate> candidates;
+        synchronized (this) {
+            int node = friendGraph.node(read(connection -> requireUser(connection, userId)).id());
+            candidates = FriendsOfFriends.rank(friendGraph, node, limit, SUGGESTION_BUDGET);
+        }
+        List<FriendSuggestion> suggestions = new ArrayList<>(candidates.size());
+        for (FriendsOfFriends.Candidate candidate : candidates) {
+            suggestions.add(new FriendSuggestion(usernameOfNode(candidate.node()), candidate.mutualFriends()));
+        }
+        return suggestions;
+    }
+
+    @Override
+    public void recommendBook(String userId, Book book) {
+        writer.submit(connection -> {
+            UserRow user = requireUser(connection, userId);
+            if (hasRow(connection, SELECT_RECOMMENDATION, user.id(), book.id())) {
+                return false;
+            }
+            insertBook(connection, book);
+            update(connection, INSERT_RECOMMENDATION, user.id(), book.id());
+            return true;
+        }, added -> {
+            if (added) {
+                synchronized (this) {
+                    int author = friendGraph.node(userId);
+                    int bookRef = bookCatalog.intern(book);
+                    for (int follower : friendGraph.followers(author)) {
+                        recommendationFeed.publish(follower, author, bookRef);
+                    }
+                }
+            }
+        });
+    }
+
+    @Override
+    public Map<String, List<Book>> getFriendsRecommendations(String userId) {
+        return read(connection -> {
+            Map<String, List<Book>> recommendations = new HashMap<>();
+            for (String friend : usernames(connection, SELECT_FRIENDS, requireUser(connection, userId).id())) {
+                recommendations.put(friend, friendRecommendations(connection, friend));
+            }
+            return recommendations;
+        });
+    }
+
+    @Override
+    public Page<Recommendation> getFriendsRecommendations(String userId, String cursor, int limit) {
+        return read(connection -> FriendsCursor.page(
+                usernames(connection, SELECT_FRIENDS, requireUser(connection, userId).id()), cursor, limit,
+                friendUsername -> friendRecommendations(connection, friendUsername)));
+    }
+
+    @Override
+    public Page<Recommendation> getRecommendationFeed(String userId, String cursor, int limit) {
+        String id = read(connection -> requireUser(connection, userId)).id();
+        long before = cursor == null || cursor.isEmpty() ? RecommendationFeed.FROM_NEWEST : Long.parseLong(cursor);
+        List<RecommendationFeed.Entry> entries;
+        synchronized (this) {
+            entries = recommendationFeed.page(friendGraph.node(id), before, limit + 1);
+        }
+        boolean hasNext = entries.size() > limit;
+        if (hasNext) {
+            entries = entries.subList(0, limit);
+        }
+
+        List<Recommendation> recommendations = new ArrayList<>(entries.size());
+        for (RecommendationFeed.Entry entry : entries) {
+            recommendations.add(new Recommendation(usernameOfNode(entry.author()), bookCatalog.get(entry.bookRef())));
+        }
+        String nextCursor = hasNext ? String.valueOf(entries.getLast().sequence()) : null;
+        return new Page<>(recommendations, nextCursor);
+    }
+
+    @Override
+    public List<Book> getUserRecommendations(String userId) {
+        return read(connection -> recommendations(connection, requireUser(connection, userId).id()));
+    }
+
+    @Override
+    public Page<Book> getUserRecommendations(String userId, int offset, int limit) {
+        return Page.slice(getUserRecommendations(userId), offset, limit);
+    }
+
+    public long committedGroups() {
+        return writer.groups();
+    }
+
+    public long committedWrites() {
+        return writer.writes();
+    }
+
+    @Override
+    public void close() throws SQLException {
+        writer.close();
+        readers.close();
+    }
+
+    private void follow(String userId, String friendId, List<Book> friendRecommendations) {
+        int userNode = friendGraph.node(userId);
+        int friendNode = friendGraph.node(friendId);
+        if (!friendGraph.follow(userNode, friendNode)) {
+            return;
+        }
+        for (Book book : friendRecommendations) {
+            recommendationFeed.publish(userNode, friendNode, bookCatalog.intern(book));
+        }
+    }
+
+    // both run after the commit on the writer thread, so the index follows the lists in commit order
+    private synchronized void shelved(String userId, Book book) {
+        coOccurrences.add(userId, bookCatalog.intern(book));
+    }
+
+    private synchronized void unshelved(String userId, Book book) {
+        coOccurrences.remove(userId, bookCatalog.find(book.id()));
+    }
+
+    private <T, E extends Exception> T read(Read<T, E> read) throws E {
+        PooledConnection connection = readers.acquire();
+        try {
+            return read.apply(connection);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        } finally {
+            readers.release(connection);
+        }
+    }
+
+    private String usernameOfNode(int node) {
+        String userId;
+        synchronized (this) {
+            userId = friendGraph.userId(node);
+        }
+        return usernames.get(userId);
+    }
+
+    private UserRow requireUser(PooledConnection connection, String userId) throws SQLException {
+        UserRow user = userId == null ? null : findUser(connection, userId);
+        if (user == null) {
+            throw new RuntimeException("Invalid user ID");
+        }
+        return user;
+    }
+
+    private static UserRow findUser(PooledConnection connection, String userId) throws SQLException {
+        return userRow(connection, SELECT_USER, userId);
+    }
+
+    private static UserRow findUserByUsername(PooledConnection connection, String username) throws SQLException {
+        return username == null ? null : userRow(connection, SELECT_USER_BY_USERNAME, username);
+    }
+
+    private static UserRow userRow(PooledConnection connection, String sql, String key) throws SQLException {
+        PreparedStatement statement = connection.prepare(sql);
+        statement.setString(1, key);
+        try (ResultSet rows = statement.executeQuery()) {
+            return rows.next() ? new UserRow(rows.getString(1), rows.getString(2), rows.getString(3)) : null;
+        }
+    }
+
+    private static long listId(PooledConnection connection, String userId, String listName)
+            throws SQLException, ListNameDoesntExistException {
+        PreparedStatement statement = connection.prepare(SELECT_LIST);
+        statement.setString(1, userId);
+        statement.setString(2, listName);
+        try (ResultSet rows = statement.executeQuery()) {
+            if (!rows.next()) {
+                throw new ListNameDoesntExistException("This user doesn't have such list name");
+            }
+            return rows.getLong(1);
+        }
+    }
+
+    private List<Book> recommendations(PooledConnection connection, String userId) throws SQLException {
+        return books(connection, SELECT_RECOMMENDATIONS, userId);
+    }
+
+    private List<Book> friendRecommendations(PooledConnection connection, String friendUsername) throws SQLException {
+        UserRow friend = findUserByUsername(connection, friendUsername);
+        return friend == null ? List.of() : recommendations(connection, friend.id());
+    }
+
+    private List<Book> books(PooledConnection connection, String sql, Object key) throws SQLException {
+        PreparedStatement statement = connection.prepare(sql);
+        statement.setObject(1, key);
+        List<Book> books = new ArrayList<>();
+        try (ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                books.add(book(rows, 1));
+            }
+        }
+        return List.copyOf(books);
+    }
+
+    private Book book(ResultSet rows, int firstColumn) throws SQLException {
+        return new Book(rows.getString(firstColumn), rows.getString(firstColumn + 1),
+                gson.fromJson(rows.getString(firstColumn + 2), AUTHORS_TYPE));
+    }
+
+    private void insertBook(PooledConnection connection, Book book) throws SQLException {
+        if (!hasRow(connection, SELECT_BOOK, book.id())) {
+            update(connection, INSERT_BOOK, book.id(), book.title(), gson.toJson(book.authors()));
+        }
+    }
+
+    private static List<String> usernames(PooledConnection connection, String sql, String key) throws SQLException {
+        PreparedStatement statement = connection.prepare(sql);
+        statement.setString(1, key);
+        List<String> usernames = new ArrayList<>();
+        try (ResultSet rows = statement.executeQuery()) {
+            while (rows.next()) {
+                usernames.add(rows.getString(1));
+            }
+        }
+        return List.copyOf(usernames);
+    }
+
+    private static boolean hasRow(PooledConnection connection, String sql, Object... parameters) throws SQLException {
+        PreparedStatement statement = connection.prepare(sql);
+        for (int i = 0; i < parameters.length; i++) {
+            statement.setObject(i + 1, parameters[i]);
+        }
+        try (ResultSet rows = statement.executeQuery()) {
+            return rows.next();
+        }
+    }
+
+    private static void update(PooledConnection connection, String sql, Object... parameters) throws SQLException {
+        PreparedStatement statement = connection.prepare(sql);
+        for (int i = 0; i < parameters.length; i++) {
+            statement.setObject(i + 1, parameters[i]);
+        }
+        statement.executeUpdate();
+    }
+}
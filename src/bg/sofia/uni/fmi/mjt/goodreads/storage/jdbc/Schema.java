@@ -0,0 +1,54 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.jdbc;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+// normalized tables; the seq columns keep the order in which friends, books and recommendations were added
+final class Schema {
+    private static final List<String> TABLES = List.of(
+            "CREATE TABLE IF NOT EXISTS users (" +
+                    "id VARCHAR(64) PRIMARY KEY, " +
+                    "username VARCHAR(255) NOT NULL UNIQUE, " +
+                    "password VARCHAR(255) NOT NULL, " +
+                    "seq BIGINT GENERATED ALWAYS AS IDENTITY)",
+            "CREATE TABLE IF NOT EXISTS books (" +
+                    "id VARCHAR(255) PRIMARY KEY, " +
+                    "title VARCHAR(1024), " +
+                    "authors VARCHAR(4096))",
+            "CREATE TABLE IF NOT EXISTS friendships (" +
+                    "user_id VARCHAR(64) NOT NULL REFERENCES users(id), " +
+                    "friend_id VARCHAR(64) NOT NULL REFERENCES users(id), " +
+                    "seq BIGINT GENERATED ALWAYS AS IDENTITY, " +
+                    "PRIMARY KEY (user_id, friend_id))",
+            "CREATE INDEX IF NOT EXISTS friendships_friend ON friendships(friend_id)",
+            // bookshelves may belong to ids that aren't in the users table, so there is no foreign key here
+            "CREATE TABLE IF NOT EXISTS lists (" +
+                    "id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY, " +
+                    "user_id VARCHAR(64) NOT NULL, " +
+                    "name VARCHAR(255) NOT NULL, " +
+                    "UNIQUE (user_id, name))",
+            "CREATE TABLE IF NOT EXISTS list_entries (" +
+                    "list_id BIGINT NOT NULL REFERENCES lists(id) ON DELETE CASCADE, " +
+                    "book_id VARCHAR(255) NOT NULL REFERENCES books(id), " +
+                    "seq BIGINT GENERATED ALWAYS AS IDENTITY, " +
+                    "PRIMARY KEY (list_id, book_id))",
+            "CREATE INDEX IF NOT EXISTS list_entries_book ON list_entries(book_id)",
+            "CREATE TABLE IF NOT EXISTS recommendations (" +
+                    "user_id VARCHAR(64) NOT NULL REFERENCES users(id), " +
+                    "book_id VARCHAR(255) NOT NULL REFERENCES books(id), " +
+                    "seq BIGINT GENERATED ALWAYS AS IDENTITY, " +
+                    "PRIMARY KEY (user_id, book_id))"
+    );
+
+    private Schema() {
+    }
+
+    static void create(PooledConnection connection) throws SQLException {
+        try (Statement statement = connection.connection().createStatement()) {
+            for (String table : TABLES) {
+                statement.execute(table);
+            }
+        }
+    }
+}
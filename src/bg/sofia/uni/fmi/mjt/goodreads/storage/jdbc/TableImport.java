@@ -0,0 +1,116 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.jdbc;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+import com.google.gson.Gson;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// loads the JSON tables into the database with batched inserts, friends that don't exist are skipped
+final class TableImport {
+    private static final String INSERT_USER = "INSERT INTO users (id, username, password) VALUES (?, ?, ?)";
+    private static final String INSERT_BOOK = "INSERT INTO books (id, title, authors) VALUES (?, ?, ?)";
+    private static final String INSERT_FRIENDSHIP = "INSERT INTO friendships (user_id, friend_id) VALUES (?, ?)";
+    private static final String INSERT_RECOMMENDATION =
+            "INSERT INTO recommendations (user_id, book_id) VALUES (?, ?)";
+    private static final String INSERT_LIST = "INSERT INTO lists (user_id, name) VALUES (?, ?)";
+    private static final String SELECT_LISTS = "SELECT id, user_id, name FROM lists";
+    private static final String INSERT_ENTRY = "INSERT INTO list_entries (list_id, book_id) VALUES (?, ?)";
+    private static final String LIST_KEY_SEPARATOR = "/";
+
+    private TableImport() {
+    }
+
+    static void run(PooledConnection connection, List<User> users,
+                    Map<String, Map<String, List<Book>>> bookshelves) throws SQLException {
+        Map<String, String> idsByUsername = new HashMap<>();
+        Map<String, Book> books = new LinkedHashMap<>();
+        for (User user : users) {
+            idsByUsername.put(user.username(), user.id());
+            user.recommendedBooks().forEach(book -> books.putIfAbsent(book.id(), book));
+        }
+        bookshelves.values().forEach(lists -> lists.values()
+                .forEach(list -> list.forEach(book -> books.putIfAbsent(book.id(), book))));
+
+        PreparedStatement userInsert = connection.prepare(INSERT_USER);
+        for (User user : users) {
+            batch(userInsert, user.id(), user.username(), user.password());
+        }
+        userInsert.executeBatch();
+
+        Gson gson = new Gson();
+        PreparedStatement bookInsert = connection.prepare(INSERT_BOOK);
+        for (Book book : books.values()) {
+            batch(bookInsert, book.id(), book.title(), gson.toJson(book.authors()));
+        }
+        bookInsert.executeBatch();
+
+        PreparedStatement friendshipInsert = connection.prepare(INSERT_FRIENDSHIP);
+        PreparedStatement recommendationInsert = connection.prepare(INSERT_RECOMMENDATION);
+        for (User user : users) {
+            Set<String> friends = new HashSet<>();
+            for (String friendUsername : user.friends()) {
+                String friendId = idsByUsername.get(friendUsername);
+                if (friendId != null && friends.add(friendId)) {
+                    batch(friendshipInsert, user.id(), friendId);
+                }
+            }
+            Set<String> recommended = new HashSet<>();
+            for (Book book : user.recommendedBooks()) {
+                if (recommended.add(book.id())) {
+                    batch(recommendationInsert, user.id(), book.id());
+                }
+            }
+        }
+        friendshipInsert.executeBatch();
+        recommendationInsert.executeBatch();
+
+        importLists(connection, bookshelves);
+    }
+
+    private static void importLists(PooledConnection connection, Map<String, Map<String, List<Book>>> bookshelves)
+            throws SQLException {
+        PreparedStatement listInsert = connection.prepare(INSERT_LIST);
+        for (Map.Entry<String, Map<String, List<Book>>> bookshelf : bookshelves.entrySet()) {
+            for (String listName : bookshelf.getValue().keySet()) {
+                batch(listInsert, bookshelf.getKey(), listName);
+            }
+        }
+        listInsert.executeBatch();
+
+        Map<String, Long> listIds = new HashMap<>();
+        try (ResultSet rows = connection.prepare(SELECT_LISTS).executeQuery()) {
+            while (rows.next()) {
+                listIds.put(rows.getString(2) + LIST_KEY_SEPARATOR + rows.getString(3), rows.getLong(1));
+            }
+        }
+        PreparedStatement entryInsert = connection.prepare(INSERT_ENTRY);
+        for (Map.Entry<String, Map<String, List<Book>>> bookshelf : bookshelves.entrySet()) {
+            for (Map.Entry<String, List<Book>> list : bookshelf.getValue().entrySet()) {
+                long listId = listIds.get(bookshelf.getKey() + LIST_KEY_SEPARATOR + list.getKey());
+                Set<String> listed = new HashSet<>();
+                for (Book book : list.getValue()) {
+                    if (listed.add(book.id())) {
+                        batch(entryInsert, listId, book.id());
+                    }
+                }
+            }
+        }
+        entryInsert.executeBatch();
+    }
+
+    private static void batch(PreparedStatement statement, Object... parameters) throws SQLException {
+        for (int i = 0; i < parameters.length; i++) {
+            statement.setObject(i + 1, parameters[i]);
+        }
+        statement.addBatch();
+    }
+}
@@ -0,0 +1,600 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.kv;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.BookNotInListException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.InvalidCredentials;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameDoesntExistException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.UserDoesntExistException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.UsernameAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.FriendsCursor;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Page;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Storage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph.BookPostings;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph.FriendGraph;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph.FriendsOfFriends;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph.RecommendationFeed;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.loader.TableLoader;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.similarity.CoOccurrenceIndex;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.kv.engine.KeyValueStore;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.migration.UserImport;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.migration.UserRecord;
+import bg.sofia.uni.fmi.mjt.goodreads.user.FriendSuggestion;
+import bg.sofia.uni.fmi.mjt.goodreads.user.Recommendation;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+import com.google.gson.Gson;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/*
+ * Storage on top of the embedded key-value store. Users and usernames are kept under user/<id> and username/<name>.
+ * A list is a header under list/<userId>/<listName> naming its list id and next sequence number, one key per book
+ * under entry/<listId>/<sequence> in list order and one under member/<listId>/<bookId> for lookups by book; every
+ * listed book is stored once under book/<id>. The friend graph, the recommendation feed and the book indexes are
+ * derived data rebuilt from them on open, the same way FileSystemStorage does it.
+ * Dirty pages are flushed into the mapped file after every write and forced to disk on close. Writes are serialized
+ * on the storage; reads that only touch the store rely on its own locking.
+ */
+public class KeyValueStorage implements Storage, UserImport, Closeable {
+    private static final String USER_PREFIX = "user/";
+    private static final String USERNAME_PREFIX = "username/";
+    private static final String LIST_PREFIX = "list/";
+    private static final String ENTRY_PREFIX = "entry/";
+    private static final String MEMBER_PREFIX = "member/";
+    private static final String BOOK_PREFIX = "book/";
+    private static final String KEY_SEPARATOR = "/";
+    private static final int FEED_CAPACITY = 1000;
+    private static final int SUGGESTION_BUDGET = 10_000;
+    // fixed width, so the entries of a list sort by sequence
+    private static final String SEQUENCE_FORMAT = "%019d";
+
+    private final KeyValueStore store;
+    private final Gson gson;
+    private final BookCatalog bookCatalog;
+    private final FriendGraph friendGraph;
+    private final RecommendationFeed recommendationFeed;
+    private final BookPostings bookPostings;
+    // username -> ids of imported users that have them as a friend before they were imported themselves
+    private final Map<String, List<String>> pendingFollowers;
+    private CoOccurrenceIndex coOccurrences;
+
+    public KeyValueStorage(Path file) throws IOException {
+        this(new KeyValueStore(file));
+    }
+
+    // copies the JSON tables into a new store before opening it
+    public KeyValueStorage(Path file, Reader usersTableReader, Reader bookshelfTableReader) throws IOException {
+        this(importTables(new KeyValueStore(file), usersTableReader, bookshelfTableReader));
+    }
+
+    public KeyValueStorage(KeyValueStore store) {
+        this.store = store;
+        this.gson = new Gson();
+        this.bookCatalog = new BookCatalog();
+        this.friendGraph = new FriendGraph();
+        this.recommendationFeed = new RecommendationFeed(FEED_CAPACITY);
+        this.bookPostings = new BookPostings();
+        this.pendingFollowers = new HashMap<>();
+        rebuildIndexes();
+    }
+
+    private static KeyValueStore importTables(KeyValueStore store, Reader usersTableReader,
+                                              Reader bookshelfTableReader) throws IOException {
+        Gson gson = new Gson();
+        BookCatalog catalog = new BookCatalog();
+        for (User user : TableLoader.readUsers(usersTableReader, catalog).users()) {
+            store.putString(USER_PREFIX + user.id(), gson.toJson(new User(user.id(), user.username(),
+                    user.password(), new ArrayList<>(user.friends()), new ArrayList<>(user.recommendedBooks()))));
+            store.putString(USERNAME_PREFIX + user.username(), user.id());
+        }
+        Map<String, Map<String, List<Book>>> bookshelves = TableLoader.readBookshelves(bookshelfTableReader, catalog);
+        for (Map.Entry<String, Map<String, List<Book>>> bookshelf : bookshelves.entrySet()) {
+            for (Map.Entry<String, List<Book>> list : bookshelf.getValue().entrySet()) {
+                writeList(store, gson, bookshelf.getKey(), list.getKey(), list.getValue());
+            }
+        }
+        store.checkpoint();
+        return store;
+    }
+
+    private void rebuildIndexes() {
+        for (byte[] value : store.scan(BOOK_PREFIX).values()) {
+            bookCatalog.intern(gson.fromJson(new String(value, StandardCharsets.UTF_8), Book.class));
+        }
+        Map<String, User> usersByUsername = new HashMap<>();
+        List<User> users = new ArrayList<>();
+        for (byte[] value : store.scan(USER_PREFIX).values()) {
+            User user = gson.fromJson(new String(value, StandardCharsets.UTF_8), User.class);
+            users.add(user);
+            usersByUsername.put(user.username(), user);
+            friendGraph.addUser(user.id());
+        }
+        for (User user : users) {
+            for (String friendUsername : user.friends()) {
+                User friend = usersByUsername.get(friendUsername);
+                if (friend != null) {
+                    follow(user, friend);
+                }
+            }
+        }
+
+        Map<String, Map<String, List<Book>>> bookshelves = new HashMap<>();
+        for (Map.Entry<String, byte[]> list : store.scan(LIST_PREFIX).entrySet()) {
+            String key = list.getKey().substring(LIST_PREFIX.length());
+            int separator = key.indexOf(KEY_SEPARATOR);
+            String userId = key.substring(0, separator);
+            String listName = key.substring(separator + 1);
+            List<Book> books = readBooks(ListHeader.decode(list.getValue()));
+            bookshelves.computeIfAbsent(userId, id -> new HashMap<>()).put(listName, books);
+            int user = friendGraph.addUser(userId);
+            for (Book book : books) {
+                bookPostings.add(bookCatalog.find(book.id()), user, listName);
+            }
+        }
+        coOccurrences = CoOccurrenceIndex.build(bookshelves, bookCatalog);
+    }
+
+    private void follow(User user, User friend) {
+        int userNode = friendGraph.node(user.id());
+        int friendNode = friendGraph.node(friend.id());
+        if (!friendGraph.follow(userNode, friendNode)) {
+            return;
+        }
+        for (Book book : friend.recommendedBooks()) {
+            recommendationFeed.publish(userNode, friendNode, bookCatalog.intern(book));
+        }
+    }
+
+    @Override
+    public boolean exists(String userId) {
+        return userId != null && store.get(USER_PREFIX + userId) != null;
+    }
+
+    @Override
+    public synchronized String register(String username, String password)
+            throws UsernameAlreadyExistsException, ListNameAlreadyExistsException {
+        if (store.get(USERNAME_PREFIX + username) != null) {
+            throw new UsernameAlreadyExistsException("This username is already in use");
+        }
+
+        String newUserId = UUID.randomUUID().toString();
+        putUser(new User(newUserId, username, password, new ArrayList<>(), new ArrayList<>()));
+        store.putString(USERNAME_PREFIX + username, newUserId);
+        friendGraph.addUser(newUserId);
+
+        createList(newUserId, User.WANT_TO_READ_LIST_NAME);
+        createList(newUserId, User.READ_LIST_NAME);
+
+        return newUserId;
+    }
+
+    @Override
+    public String login(String username, String password) throws InvalidCredentials {
+        User sameUsernameUser = findUserByUsername(username);
+        if (sameUsernameUser == null) {
+            throw new InvalidCredentials("Invalid username");
+        }
+        if (!sameUsernameUser.password().equals(password)) {
+            throw new InvalidCredentials("Invalid password");
+        }
+        return sameUsernameUser.id();
+    }
+
+    @Override
+    public List<Book> getList(String userId, String listName) throws ListNameDoesntExistException {
+        return List.copyOf(readBooks(readHeader(requireUser(userId), listName)));
+    }
+
+    @Override
+    public Page<Book> getList(String userId, String listName, int offset, int limit)
+            throws ListNameDoesntExistException {
+        return Page.slice(getList(userId, listName), offset, limit);
+    }
+
+    @Override
+    public synchronized void createList(String userId, String listName) throws ListNameAlreadyExistsException {
+        String user = requireUser(userId);
+        if (store.get(listKey(user, listName)) != null) {
+            throw new ListNameAlreadyExistsException("List name already exists");
+        }
+        writeList(store, gson, user, listName, List.of());
+        store.flush();
+    }
+
+    @Override
+    public synchronized void removeList(String userId, String listName) throws ListNameDoesntExistException {
+        String user = requireUser(userId);
+        deleteList(user, listName, readHeader(user, listName));
+        store.flush();
+    }
+
+    @Override
+    public synchronized void addToList(String userId, String listName, Book book) throws ListNameDoesntExistException {
+        String user = requireUser(userId);
+        ListHeader header = readHeader(user, listName);
+        if (store.get(memberKey(header.listId(), book.id())) != null) {
+            return;
+        }
+        // interned before the entry is written, so a reader never finds an entry the catalog doesn't know
+        int ref = bookCatalog.intern(book);
+        putEntry(store, gson, header.listId(), header.next(), book);
+        store.putString(listKey(user, listName), new ListHeader(header.listId(), header.next() + 1).encode());
+        store.flush();
+        coOccurrences.add(user, ref);
+        bookPostings.add(ref, friendGraph.node(user), listName);
+    }
+
+    @Override
+    public synchronized void removeFromList(String userId, String listName, int index)
+            throws ListNameDoesntExistException, BookNotInListException {
+        String user = requireUser(userId);
+        ListHeader header = readHeader(user, listName);
+        if (index < 0) {
+            throw new BookNotInListException("Index out of range");
+        }
+        String removed = null;
+        int position = 0;
+        for (byte[] bookId : store.scanValues(ENTRY_PREFIX + header.listId() + KEY_SEPARATOR)) {
+            if (position++ == index) {
+                removed = new String(bookId, StandardCharsets.UTF_8);
+                break;
+            }
+        }
+        if (removed == null) {
+            throw new BookNotInListException("Index out of range");
+        }
+        removeEntry(header.listId(), removed);
+        store.flush();
+        unshelved(user, listName, bookCatalog.find(removed));
+    }
+
+    @Override
+    public boolean containsBook(String userId, String listName, String bookId)
+            throws ListNameDoesntExistException {
+        ListHeader header = readHeader(requireUser(userId), listName);
+        return store.get(memberKey(header.listId(), bookId)) != null;
+    }
+
+    @Override
+    public synchronized void removeBookFromList(String userId, String listName, String bookId)
+            throws ListNameDoesntExistException, BookNotInListException {
+        String user = requireUser(userId);
+        if (!removeEntry(readHeader(user, listName).listId(), bookId)) {
+            throw new BookNotInListException("No book with that id in the list");
+        }
+        store.flush();
+        unshelved(user, listName, bookCatalog.find(bookId));
+    }
+
+    private void unshelved(String userId, String listName, int ref) {
+        coOccurrences.remove(userId, ref);
+        bookPostings.remove(ref, friendGraph.node(userId), listName);
+    }
+
+    @Override
+    public synchronized Map<String, List<String>> getFriendsWithBook(String userId, String bookId) {
+        User user = getUserById(userId);
+        Map<Integer, List<String>> holders = bookPostings.holdersAmong(bookCatalog.find(bookId),
+                friendGraph.following(friendGraph.node(user.id())));
+        Map<String, List<String>> friendsWithBook = new HashMap<>();
+        for (Map.Entry<Integer, List<String>> holder : holders.entrySet()) {
+            friendsWithBook.put(userOfNode(holder.getKey()).username(), holder.getValue());
+        }
+        return friendsWithBook;
+    }
+
+    @Override
+    public List<Book> getSimilarBooks(String bookId, int limit) {
+        return coOccurrences.similar(bookCatalog.find(bookId), limit);
+    }
+
+    @Override
+    public synchronized void addFriend(String userId, String friendUsername) throws UserDoesntExistException {
+        User user = getUserById(userId);
+        User friend = findUserByUsername(friendUsername);
+        if (friend == null) {
+            throw new UserDoesntExistException("Username doesn't exist");
+        }
+        if (user.friends().contains(friendUsername)) {
+            return;
+        }
+        user.friends().add(friend.username());
+        putUser(user);
+        follow(user, friend);
+    }
+
+    @Override
+    public List<String> getUserFriends(String userId) {
+        return List.copyOf(getUserById(userId).friends());
+    }
+
+    @Override
+    public synchronized List<FriendSuggestion> suggestFriends(String userId, int limit) {
+        User user = getUserById(userId);
+        List<FriendSuggestion> suggestions = new ArrayList<>();
+        for (FriendsOfFriends.Candidate candidate :
+                FriendsOfFriends.rank(friendGraph, friendGraph.node(user.id()), limit, SUGGESTION_BUDGET)) {
+            suggestions.add(new FriendSuggestion(userOfNode(candidate.node()).username(), candidate.mutualFriends()));
+        }
+        return suggestions;
+    }
+
+    @Override
+    public synchronized void recommendBook(String userId, Book book) {
+        User user = getUserById(userId);
+        if (indexOf(user.recommendedBooks(), book.id()) >= 0) {
+            return;
+        }
+        user.recommendedBooks().add(book);
+        putUser(user);
+        int author = friendGraph.node(user.id());
+        int bookRef = bookCatalog.intern(book);
+        for (int follower : friendGraph.followers(author)) {
+            recommendationFeed.publish(follower, author, bookRef);
+        }
+    }
+
+    @Override
+    public synchronized Map<String, List<Book>> getFriendsRecommendations(String userId) {
+        User user = getUserById(userId);
+        Map<String, List<Book>> recommendations = new HashMap<>();
+        for (int friendNode : friendGraph.following(friendGraph.node(user.id()))) {
+            User friend = userOfNode(friendNode);
+            recommendations.put(friend.username(), List.copyOf(friend.recommendedBooks()));
+        }
+        return recommendations;
+    }
+
+    @Override
+    public Page<Recommendation> getFriendsRecommendations(String userId, String cursor, int limit) {
+        return FriendsCursor.page(getUserById(userId).friends(), cursor, limit, this::friendRecommendations);
+    }
+
+    private List<Book> friendRecommendations(String friendUsername) {
+        User friend = findUserByUsername(friendUsername);
+        return friend == null ? List.of() : friend.recommendedBooks();
+    }
+
+    @Override
+    public synchronized Page<Recommendation> getRecommendationFeed(String userId, String cursor, int limit) {
+        User user = getUserById(userId);
+        long before = cursor == null || cursor.isEmpty() ? RecommendationFeed.FROM_NEWEST : Long.parseLong(cursor);
+        List<RecommendationFeed.Entry> entries =
+                recommendationFeed.page(friendGraph.node(user.id()), before, limit + 1);
+        boolean hasNext = entries.size() > limit;
+        if (hasNext) {
+            entries = entries.subList(0, limit);
+        }
+
+        List<Recommendation> recommendations = new ArrayList<>(entries.size());
+        for (RecommendationFeed.Entry entry : entries) {
+            recommendations.add(new Recommendation(userOfNode(entry.author()).username(),
+                    bookCatalog.get(entry.bookRef())));
+        }
+        String nextCursor = hasNext ? String.valueOf(entries.getLast().sequence()) : null;
+        return new Page<>(recommendations, nextCursor);
+    }
+
+    @Override
+    public List<Book> getUserRecommendations(String userId) {
+        return List.copyOf(getUserById(userId).recommendedBooks());
+    }
+
+    @Override
+    public Page<Book> getUserRecommendations(String userId, int offset, int limit) {
+        return Page.slice(getUserRecommendations(userId), offset, limit);
+    }
+
+    @Override
+    public List<String> userIds() {
+        List<String> userIds = new ArrayList<>();
+        for (String key : store.scan(USER_PREFIX).keySet()) {
+            userIds.add(key.substring(USER_PREFIX.length()));
+        }
+        return userIds;
+    }
+
+    @Override
+    public synchronized UserRecord exportUser(String userId) {
+        User user = userId == null ? null : findUser(userId);
+        if (user == null) {
+            return null;
+        }
+        Map<String, List<Book>> bookshelf = new HashMap<>();
+        String prefix = LIST_PREFIX + userId + KEY_SEPARATOR;
+        for (Map.Entry<String, byte[]> list : store.scan(prefix).entrySet()) {
+            bookshelf.put(list.getKey().substring(prefix.length()), readBooks(ListHeader.decode(list.getValue())));
+        }
+        return new UserRecord(user, bookshelf);
+    }
+
+    // friends and recommendations only ever grow, so a user imported again keeps the edges and feed entries
+    // they had; their lists are replaced and reindexed
+    @Override
+    public synchronized void importUser(UserRecord record) {
+        User user = record.user();
+        User previous = findUser(user.id());
+        String prefix = LIST_PREFIX + user.id() + KEY_SEPARATOR;
+        for (Map.Entry<String, byte[]> list : store.scan(prefix).entrySet()) {
+            deleteList(user.id(), list.getKey().substring(prefix.length()), ListHeader.decode(list.getValue()));
+        }
+
+        putUser(new User(user.id(), user.username(), user.password(), new ArrayList<>(user.friends()),
+                new ArrayList<>(user.recommendedBooks())));
+        store.putString(USERNAME_PREFIX + user.username(), user.id());
+        int node = friendGraph.addUser(user.id());
+        for (Map.Entry<String, List<Book>> list : record.bookshelf().entrySet()) {
+            for (Book book : list.getValue()) {
+                bookCatalog.intern(book);
+            }
+            writeList(store, gson, user.id(), list.getKey(), list.getValue());
+            for (Book book : list.getValue()) {
+                int ref = bookCatalog.find(book.id());
+                coOccurrences.add(user.id(), ref);
+                bookPostings.add(ref, node, list.getKey());
+            }
+        }
+
+        for (Book book : user.recommendedBooks()) {
+            if (previous == null || indexOf(previous.recommendedBooks(), book.id()) < 0) {
+                int bookRef = bookCatalog.intern(book);
+                for (int follower : friendGraph.followers(node)) {
+                    recommendationFeed.publish(follower, node, bookRef);
+                }
+            }
+        }
+        for (String friendUsername : user.friends()) {
+            User friend = findUserByUsername(friendUsername);
+            if (friend != null) {
+                follow(user, friend);
+            } else {
+                pendingFollowers.computeIfAbsent(friendUsername, username -> new ArrayList<>()).add(user.id());
+            }
+        }
+        for (String followerId : pendingFollowers.getOrDefault(user.username(), List.of())) {
+            follow(findUser(followerId), user);
+        }
+        pendingFollowers.remove(user.username());
+        store.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        store.close();
+    }
+
+    // the id of an existing user, without decoding them
+    private String requireUser(String userId) {
+        if (!exists(userId)) {
+            throw new RuntimeException("Invalid user ID");
+        }
+        return userId;
+    }
+
+    private User getUserById(String userId) {
+        User user = userId == null ? null : findUser(userId);
+        if (user == null) {
+            throw new RuntimeException("Invalid user ID");
+        }
+        return user;
+    }
+
+    private User findUser(String userId) {
+        String json = store.getString(USER_PREFIX + userId);
+        return json == null ? null : gson.fromJson(json, User.class);
+    }
+
+    private User findUserByUsername(String username) {
+        String userId = username == null ? null : store.getString(USERNAME_PREFIX + username);
+        return userId == null ? null : findUser(userId);
+    }
+
+    private User userOfNode(int node) {
+        return findUser(friendGraph.userId(node));
+    }
+
+    private void putUser(User user) {
+        store.putString(USER_PREFIX + user.id(), gson.toJson(user));
+        store.flush();
+    }
+
+    private ListHeader readHeader(String userId, String listName) throws ListNameDoesntExistException {
+        byte[] header = store.get(listKey(userId, listName));
+        if (header == null) {
+            throw new ListNameDoesntExistException("This user doesn't have such list name");
+        }
+        return ListHeader.decode(header);
+    }
+
+    private List<Book> readBooks(ListHeader header) {
+        List<Book> books = new ArrayList<>();
+        for (byte[] bookId : store.scanValues(ENTRY_PREFIX + header.listId() + KEY_SEPARATOR)) {
+            books.add(bookCatalog.get(bookCatalog.find(new String(bookId, StandardCharsets.UTF_8))));
+        }
+        return books;
+    }
+
+    // a list written again gets a new list id, so nothing of the list it replaces is read back
+    private static void writeList(KeyValueStore store, Gson gson, String userId, String listName, List<Book> books) {
+        String listId = UUID.randomUUID().toString();
+        long next = 0;
+        for (Book book : books) {
+            if (store.get(memberKey(listId, book.id())) == null) {
+                putEntry(store, gson, listId, next++, book);
+            }
+        }
+        store.putString(listKey(userId, listName), new ListHeader(listId, next).encode());
+    }
+
+    private static void putEntry(KeyValueStore store, Gson gson, String listId, long sequence, Book book) {
+        if (store.get(BOOK_PREFIX + book.id()) == null) {
+            store.putString(BOOK_PREFIX + book.id(), gson.toJson(book));
+        }
+        store.putString(entryKey(listId, sequence), book.id());
+        store.putString(memberKey(listId, book.id()), String.valueOf(sequence));
+    }
+
+    // false when the book isn't in the list
+    private boolean removeEntry(String listId, String bookId) {
+        String sequence = store.getString(memberKey(listId, bookId));
+        if (sequence == null) {
+            return false;
+        }
+        store.delete(entryKey(listId, Long.parseLong(sequence)));
+        store.delete(memberKey(listId, bookId));
+        return true;
+    }
+
+    private void deleteList(String userId, String listName, ListHeader header) {
+        for (Map.Entry<String, byte[]> entry : store.scan(ENTRY_PREFIX + header.listId() + KEY_SEPARATOR).entrySet()) {
+            String bookId = new String(entry.getValue(), StandardCharsets.UTF_8);
+            store.delete(entry.getKey());
+            store.delete(memberKey(header.listId(), bookId));
+            unshelved(userId, listName, bookCatalog.find(bookId));
+        }
+        store.delete(listKey(userId, listName));
+    }
+
+    private static int indexOf(List<Book> books, String bookId) {
+        for (int i = 0; i < books.size(); i++) {
+            if (books.get(i).id().equals(bookId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String listKey(String userId, String listName) {
+        return LIST_PREFIX + userId + KEY_SEPARATOR + listName;
+    }
+
+    private static String entryKey(String listId, long sequence) {
+        return ENTRY_PREFIX + listId + KEY_SEPARATOR + SEQUENCE_FORMAT.formatted(sequence);
+    }
+
+    private static String memberKey(String listId, String bookId) {
+        return MEMBER_PREFIX + listId + KEY_SEPARATOR + bookId;
+    }
+
+    private record ListHeader(String listId, long next) {
+        private static ListHeader decode(byte[] value) {
+            String header = new String(value, StandardCharsets.UTF_8);
+            int separator = header.lastIndexOf(KEY_SEPARATOR);
+            return new ListHeader(header.substring(0, separator), Long.parseLong(header.substring(separator + 1)));
+        }
+
+        private String encode() {
+            return listId + KEY_SEPARATOR + next;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.kv.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * B+-tree over unsigned byte order of the keys, with pages going through the buffer pool.
+ * Values larger than MAX_INLINE_VALUE live in chains of overflow pages, so every entry fits a quarter of a page
+ * and a split always leaves both halves within a page.
+ * Deletes don't merge underfull pages, empty leaves stay in the sibling chain and are skipped by scans.
+ */
+class BPlusTree {
+    static final int MAX_KEY_SIZE = 512;
+    static final int MAX_INLINE_VALUE = 512;
+
+    private static final int OVERFLOW_HEADER = 2 * Integer.BYTES;
+    private static final int OVERFLOW_CAPACITY = PageFile.PAGE_SIZE - OVERFLOW_HEADER;
+
+    private record Split(byte[] separator, int rightPage) {
+    }
+
+    private final PageFile file;
+    private final BufferPool pool;
+
+    BPlusTree(PageFile file, BufferPool pool) throws IOException {
+        this.file = file;
+        this.pool = pool;
+        if (file.root() == PageFile.NO_PAGE) {
+            Node root = pool.allocate(true);
+            file.setRoot(root.pageId());
+            pool.unpin(root, true);
+        }
+    }
+
+    byte[] get(byte[] key) {
+        Node leaf = findLeaf(key);
+        try {
+            int index = leaf.search(key);
+            return index >= 0 ? readValue(leaf.cells().get(index)) : null;
+        } finally {
+            pool.unpin(leaf, false);
+        }
+    }
+
+    void put(byte[] key, byte[] value) throws IOException {
+        if (key.length > MAX_KEY_SIZE) {
+            throw new IllegalArgumentException("Keys can't be longer than " + MAX_KEY_SIZE + " bytes");
+        }
+        Split split = insert(file.root(), key, writeValue(value));
+        if (split != null) {
+            Node root = pool.allocate(false);
+            root.children().add(file.root());
+            root.keys().add(split.separator());
+            root.children().add(split.rightPage());
+            file.setRoot(root.pageId());
+            pool.unpin(root, true);
+        }
+    }
+
+    boolean delete(byte[] key) {
+        Node leaf = findLeaf(key);
+        int index = leaf.search(key);
+        if (index < 0) {
+            pool.unpin(leaf, false);
+            return false;
+        }
+        leaf.keys().remove(index);
+        freeValue(leaf.cells().remove(index));
+        pool.unpin(leaf, true);
+        return true;
+    }
+
+    // entries whose key starts with the prefix, in key order
+    List<Map.Entry<byte[], byte[]>> scan(byte[] prefix) {
+        List<Map.Entry<byte[], byte[]>> entries = new ArrayList<>();
+        Node leaf = findLeaf(prefix);
+        int index = leaf.search(prefix);
+        index = index >= 0 ? index : -index - 1;
+        while (true) {
+            for (; index < leaf.keys().size(); index++) {
+                byte[] key = leaf.keys().get(index);
+                if (!startsWith(key, prefix)) {
+                    pool.unpin(leaf, false);
+                    return entries;
+                }
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(key, readValue(leaf.cells().get(index))));
+            }
+            int next = leaf.next();
+            pool.unpin(leaf, false);
+            if (next == PageFile.NO_PAGE) {
+                return entries;
+            }
+            leaf = pool.fetch(next);
+            index = 0;
+        }
+    }
+
+    private Node findLeaf(byte[] key) {
+        Node node = pool.fetch(file.root());
+        while (!node.isLeaf()) {
+            int child = node.children().get(node.childIndex(key));
+            pool.unpin(node, false);
+            node = pool.fetch(child);
+        }
+        return node;
+    }
+
+    private Split insert(int pageId, byte[] key, Node.Cell cell) throws IOException {
+        Node node = pool.fetch(pageId);
+        try {
+            if (node.isLeaf()) {
+                insertIntoLeaf(node, key, cell);
+            } else {
+                int childIndex = node.childIndex(key);
+                Split childSplit = insert(node.children().get(childIndex), key, cell);
+                if (childSplit == null) {
+                    pool.unpin(node, false);
+                    return null;
+                }
+                node.keys().add(childIndex, childSplit.separator());
+                node.children().add(childIndex + 1, childSplit.rightPage());
+            }
+            Split split = node.encodedSize() > PageFile.PAGE_SIZE ? split(node) : null;
+            pool.unpin(node, true);
+            return split;
+        } catch (IOException | RuntimeException e) {
+            pool.unpin(node, true);
+            throw e;
+        }
+    }
+
+    private void insertIntoLeaf(Node leaf, byte[] key, Node.Cell cell) {
+        int index = leaf.search(key);
+        if (index >= 0) {
+            freeValue(leaf.cells().set(index, cell));
+        } else {
+            leaf.keys().add(-index - 1, key);
+            leaf.cells().add(-index - 1, cell);
+        }
+    }
+
+    // moves the upper half of the entries by size to a new right sibling
+    private Split split(Node node) throws IOException {
+        int middle = splitPoint(node);
+        Node right = pool.allocate(node.isLeaf());
+        List<byte[]> movedKeys = node.keys().subList(middle, node.keys().size());
+        byte[] separator = movedKeys.getFirst();
+        if (node.isLeaf()) {
+            right.keys().addAll(movedKeys);
+            List<Node.Cell> movedCells = node.cells().subList(middle, node.cells().size());
+            right.cells().addAll(movedCells);
+            movedCells.clear();
+            right.setNext(node.next());
+            node.setNext(right.pageId());
+        } else {
+            // the separator moves up to the parent instead of staying in either half
+            right.keys().addAll(movedKeys.subList(1, movedKeys.size()));
+            List<Integer> movedChildren = node.children().subList(middle + 1, node.children().size());
+            right.children().addAll(movedChildren);
+            movedChildren.clear();
+        }
+        movedKeys.clear();
+        pool.unpin(right, true);
+        return new Split(separator, right.pageId());
+    }
+
+    private static int splitPoint(Node node) {
+        int half = node.encodedSize() / 2;
+        int size = Node.HEADER_SIZE;
+        int count = node.keys().size();
+        for (int i = 0; i < count - 1; i++) {
+            size += node.entrySize(i);
+            if (size >= half) {
+                return Math.max(1, i + 1);
+            }
+        }
+        return count - 1;
+    }
+
+    private Node.Cell writeValue(byte[] value) throws IOException {
+        if (value.length <= MAX_INLINE_VALUE) {
+            return Node.Cell.inline(value);
+        }
+        int first = file.allocate();
+        int pageId = first;
+        for (int offset = 0; offset < value.length; offset += OVERFLOW_CAPACITY) {
+            int length = Math.min(OVERFLOW_CAPACITY, value.length - offset);
+            int next = offset + length < value.length ? file.allocate() : PageFile.NO_PAGE;
+            file.page(pageId).putInt(0, next).putInt(Integer.BYTES, length).put(OVERFLOW_HEADER, value, offset, length);
+            pageId = next;
+        }
+        return Node.Cell.overflow(first, value.length);
+    }
+
+    private byte[] readValue(Node.Cell cell) {
+        if (cell.isInline()) {
+            return cell.inline();
+        }
+        byte[] value = new byte[cell.length()];
+        int offset = 0;
+        for (int pageId = cell.overflowPage(); pageId != PageFile.NO_PAGE; ) {
+            ByteBuffer page = file.page(pageId);
+            int length = page.getInt(Integer.BYTES);
+            page.get(OVERFLOW_HEADER, value, offset, length);
+            offset += length;
+            pageId = page.getInt(0);
+        }
+        return value;
+    }
+
+    private void freeValue(Node.Cell cell) {
+        for (int pageId = cell.overflowPage(); pageId != PageFile.NO_PAGE; ) {
+            int next = file.page(pageId).getInt(0);
+            file.free(pageId);
+            pageId = next;
+        }
+    }
+
+    private static boolean startsWith(byte[] key, byte[] prefix) {
+        return key.length >= prefix.length && Arrays.equals(key, 0, prefix.length, prefix, 0, prefix.length);
+    }
+}
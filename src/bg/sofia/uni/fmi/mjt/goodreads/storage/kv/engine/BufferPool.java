@@ -0,0 +1,119 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.kv.engine;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Keeps a bounded number of decoded tree pages in memory and picks victims with the clock algorithm:
+ * the hand clears reference bits as it sweeps and evicts the first unpinned frame that wasn't used since.
+ * Dirty pages are encoded back into the mapped file when they are evicted or flushed.
+ * Not thread safe, the store serializes access to it.
+ */
+class BufferPool {
+    static final int MIN_FRAMES = 16;
+
+    private final PageFile file;
+    private final Node[] frames;
+    private final boolean[] referenced;
+    private final boolean[] dirty;
+    private final int[] pins;
+    private final Map<Integer, Integer> frameOfPage;
+    private int hand;
+    private long hits;
+    private long misses;
+
+    BufferPool(PageFile file, int capacity) {
+        if (capacity < MIN_FRAMES) {
+            throw new IllegalArgumentException("Buffer pool needs at least " + MIN_FRAMES + " frames");
+        }
+        this.file = file;
+        this.frames = new Node[capacity];
+        this.referenced = new boolean[capacity];
+        this.dirty = new boolean[capacity];
+        this.pins = new int[capacity];
+        this.frameOfPage = new HashMap<>();
+    }
+
+    // the node stays in memory until it is unpinned as many times as it was fetched
+    Node fetch(int pageId) {
+        Integer frame = frameOfPage.get(pageId);
+        if (frame != null) {
+            hits++;
+        } else {
+            misses++;
+            frame = place(Node.read(pageId, file.page(pageId)));
+        }
+        referenced[frame] = true;
+        pins[frame]++;
+        return frames[frame];
+    }
+
+    Node allocate(boolean leaf) throws IOException {
+        int frame = place(new Node(file.allocate(), leaf));
+        referenced[frame] = true;
+        dirty[frame] = true;
+        pins[frame]++;
+        return frames[frame];
+    }
+
+    void unpin(Node node, boolean modified) {
+        int frame = frameOfPage.get(node.pageId());
+        if (pins[frame] == 0) {
+            throw new IllegalStateException("Page " + node.pageId() + " isn't pinned");
+        }
+        pins[frame]--;
+        dirty[frame] |= modified;
+    }
+
+    void flush() {
+        for (int frame = 0; frame < frames.length; frame++) {
+            if (dirty[frame]) {
+                frames[frame].write(file.page(frames[frame].pageId()));
+                dirty[frame] = false;
+            }
+        }
+    }
+
+    long hits() {
+        return hits;
+    }
+
+    long misses() {
+        return misses;
+    }
+
+    private int place(Node node) {
+        int frame = victim();
+        if (frames[frame] != null) {
+            if (dirty[frame]) {
+                frames[frame].write(file.page(frames[frame].pageId()));
+                dirty[frame] = false;
+            }
+            frameOfPage.remove(frames[frame].pageId());
+        }
+        frames[frame] = node;
+        frameOfPage.put(node.pageId(), frame);
+        return frame;
+    }
+
+    // two full sweeps clear every reference bit, so after them only pinned frames are left
+    private int victim() {
+        for (int step = 0; step < 2 * frames.length; step++) {
+            int frame = hand;
+            hand = (hand + 1) % frames.length;
+            if (frames[frame] == null) {
+                return frame;
+            }
+            if (pins[frame] > 0) {
+                continue;
+            }
+            if (referenced[frame]) {
+                referenced[frame] = false;
+            } else {
+                return frame;
+            }
+        }
+        throw new IllegalStateException("All buffer pool frames are pinned");
+    }
+}
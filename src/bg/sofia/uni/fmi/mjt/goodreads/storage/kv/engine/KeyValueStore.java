@@ -0,0 +1,105 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.kv.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Embedded ordered key-value store: a B+-tree in a memory-mapped page file with a clock buffer pool in front.
+ * Keys are strings compared by their UTF-8 bytes, so keys sharing a prefix are next to each other.
+ * One writer at a time; flush() writes the dirty pages into the mapping and checkpoint() forces it to disk.
+ */
+public class KeyValueStore implements Closeable {
+    public static final int DEFAULT_POOL_PAGES = 1024;
+
+    private final PageFile file;
+    private final BufferPool pool;
+    private final BPlusTree tree;
+
+    public KeyValueStore(Path path) throws IOException {
+        this(path, DEFAULT_POOL_PAGES);
+    }
+
+    public KeyValueStore(Path path, int poolPages) throws IOException {
+        this.file = new PageFile(path);
+        this.pool = new BufferPool(file, poolPages);
+        this.tree = new BPlusTree(file, pool);
+    }
+
+    public synchronized byte[] get(String key) {
+        return tree.get(bytes(key));
+    }
+
+    public synchronized String getString(String key) {
+        byte[] value = get(key);
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+    public synchronized void put(String key, byte[] value) {
+        try {
+            tree.put(bytes(key), value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public synchronized void putString(String key, String value) {
+        put(key, bytes(value));
+    }
+
+    public synchronized boolean delete(String key) {
+        return tree.delete(bytes(key));
+    }
+
+    // every entry with the given key prefix, in key order
+    public synchronized Map<String, byte[]> scan(String prefix) {
+        Map<String, byte[]> entries = new LinkedHashMap<>();
+        for (Map.Entry<byte[], byte[]> entry : tree.scan(bytes(prefix))) {
+            entries.put(new String(entry.getKey(), StandardCharsets.UTF_8), entry.getValue());
+        }
+        return entries;
+    }
+
+    // the values of scan(prefix) in key order, for readers that don't need the keys
+    public synchronized List<byte[]> scanValues(String prefix) {
+        List<byte[]> values = new ArrayList<>();
+        for (Map.Entry<byte[], byte[]> entry : tree.scan(bytes(prefix))) {
+            values.add(entry.getValue());
+        }
+        return values;
+    }
+
+    public synchronized void flush() {
+        pool.flush();
+    }
+
+    public synchronized void checkpoint() {
+        pool.flush();
+        file.force();
+    }
+
+    public synchronized int pageCount() {
+        return file.pageCount();
+    }
+
+    public synchronized double hitRate() {
+        long accesses = pool.hits() + pool.misses();
+        return accesses == 0 ? 0 : (double) pool.hits() / accesses;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        pool.flush();
+        file.close();
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+}
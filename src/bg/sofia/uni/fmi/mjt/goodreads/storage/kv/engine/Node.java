@@ -0,0 +1,173 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.kv.engine;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * A decoded B+-tree page. Leaves hold the cells of their keys and link to their right sibling,
+ * inner nodes hold separator keys and one more child than keys.
+ * Page layout: type byte, entry count, sibling page, then the entries one after another.
+ */
+final class Node {
+    // a value either stored in the leaf or in a chain of overflow pages starting at overflowPage
+    record Cell(byte[] inline, int overflowPage, int length) {
+        static Cell inline(byte[] value) {
+            return new Cell(value, PageFile.NO_PAGE, value.length);
+        }
+
+        static Cell overflow(int firstPage, int length) {
+            return new Cell(null, firstPage, length);
+        }
+
+        boolean isInline() {
+            return inline != null;
+        }
+
+        int encodedSize() {
+            return Byte.BYTES + Integer.BYTES + (isInline() ? inline.length : Integer.BYTES);
+        }
+    }
+
+    static final int HEADER_SIZE = Byte.BYTES + Short.BYTES + Integer.BYTES;
+
+    private static final byte LEAF = 1;
+    private static final byte INNER = 2;
+    private static final byte INLINE = 0;
+    private static final byte OVERFLOW = 1;
+
+    private final int pageId;
+    private final boolean leaf;
+    private final List<byte[]> keys;
+    private final List<Cell> cells;
+    private final List<Integer> children;
+    private int next;
+
+    Node(int pageId, boolean leaf) {
+        this.pageId = pageId;
+        this.leaf = leaf;
+        this.keys = new ArrayList<>();
+        this.cells = new ArrayList<>();
+        this.children = new ArrayList<>();
+        this.next = PageFile.NO_PAGE;
+    }
+
+    static Node read(int pageId, ByteBuffer page) {
+        ByteBuffer in = page.duplicate();
+        Node node = new Node(pageId, in.get() == LEAF);
+        int count = in.getShort();
+        node.next = in.getInt();
+        if (!node.leaf) {
+            node.children.add(in.getInt());
+        }
+        for (int i = 0; i < count; i++) {
+            byte[] key = new byte[in.getShort()];
+            in.get(key);
+            node.keys.add(key);
+            if (node.leaf) {
+                node.cells.add(readCell(in));
+            } else {
+                node.children.add(in.getInt());
+            }
+        }
+        return node;
+    }
+
+    private static Cell readCell(ByteBuffer in) {
+        byte kind = in.get();
+        int length = in.getInt();
+        if (kind == OVERFLOW) {
+            return Cell.overflow(in.getInt(), length);
+        }
+        byte[] value = new byte[length];
+        in.get(value);
+        return Cell.inline(value);
+    }
+
+    void write(ByteBuffer page) {
+        ByteBuffer out = page.duplicate();
+        out.put(leaf ? LEAF : INNER).putShort((short) keys.size()).putInt(next);
+        if (!leaf) {
+            out.putInt(children.getFirst());
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            out.putShort((short) keys.get(i).length).put(keys.get(i));
+            if (leaf) {
+                Cell cell = cells.get(i);
+                out.put(cell.isInline() ? INLINE : OVERFLOW).putInt(cell.length());
+                if (cell.isInline()) {
+                    out.put(cell.inline());
+                } else {
+                    out.putInt(cell.overflowPage());
+                }
+            } else {
+                out.putInt(children.get(i + 1));
+            }
+        }
+    }
+
+    int encodedSize() {
+        int size = HEADER_SIZE + (leaf ? 0 : Integer.BYTES);
+        for (int i = 0; i < keys.size(); i++) {
+            size += entrySize(i);
+        }
+        return size;
+    }
+
+    int entrySize(int i) {
+        return Short.BYTES + keys.get(i).length + (leaf ? cells.get(i).encodedSize() : Integer.BYTES);
+    }
+
+    // index of the key, or -(insertion point) - 1 when it's missing
+    int search(byte[] key) {
+        int low = 0;
+        int high = keys.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Arrays.compareUnsigned(keys.get(mid), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    // child that covers the key: separators equal to the key lead right
+    int childIndex(byte[] key) {
+        int index = search(key);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    int pageId() {
+        return pageId;
+    }
+
+    boolean isLeaf() {
+        return leaf;
+    }
+
+    List<byte[]> keys() {
+        return keys;
+    }
+
+    List<Cell> cells() {
+        return cells;
+    }
+
+    List<Integer> children() {
+        return children;
+    }
+
+    int next() {
+        return next;
+    }
+
+    void setNext(int next) {
+        this.next = next;
+    }
+}
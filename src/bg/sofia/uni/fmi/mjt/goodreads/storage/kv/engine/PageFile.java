@@ -0,0 +1,106 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.kv.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Fixed size pages in a memory-mapped file. The file is mapped in regions that are added as it grows.
+ * Page 0 is the header with the page count, the root of the tree and the head of the list of free pages.
+ */
+public final class PageFile implements Closeable {
+    public static final int PAGE_SIZE = 4096;
+    public static final int NO_PAGE = -1;
+
+    private static final int PAGES_PER_REGION = 1024;
+    private static final int MAGIC = 0x6b76_6462;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int PAGE_COUNT_OFFSET = 4;
+    private static final int ROOT_OFFSET = 8;
+    private static final int FREE_LIST_OFFSET = 12;
+
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> regions;
+    private final ByteBuffer header;
+
+    public PageFile(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.regions = new ArrayList<>();
+        boolean created = channel.size() == 0;
+        mapRegion();
+        this.header = page(0);
+        if (created) {
+            header.putInt(MAGIC_OFFSET, MAGIC);
+            header.putInt(PAGE_COUNT_OFFSET, 1);
+            header.putInt(ROOT_OFFSET, NO_PAGE);
+            header.putInt(FREE_LIST_OFFSET, NO_PAGE);
+        } else if (header.getInt(MAGIC_OFFSET) != MAGIC) {
+            throw new IOException("Not a key-value store file: " + file);
+        }
+        while (regions.size() * PAGES_PER_REGION < pageCount()) {
+            mapRegion();
+        }
+    }
+
+    public ByteBuffer page(int pageId) {
+        int offset = (pageId % PAGES_PER_REGION) * PAGE_SIZE;
+        return regions.get(pageId / PAGES_PER_REGION).slice(offset, PAGE_SIZE);
+    }
+
+    // reuses a freed page when there is one, otherwise grows the file
+    public int allocate() throws IOException {
+        int free = header.getInt(FREE_LIST_OFFSET);
+        if (free != NO_PAGE) {
+            header.putInt(FREE_LIST_OFFSET, page(free).getInt(0));
+            return free;
+        }
+        int pageId = pageCount();
+        if (pageId == regions.size() * PAGES_PER_REGION) {
+            mapRegion();
+        }
+        header.putInt(PAGE_COUNT_OFFSET, pageId + 1);
+        return pageId;
+    }
+
+    public void free(int pageId) {
+        page(pageId).putInt(0, header.getInt(FREE_LIST_OFFSET));
+        header.putInt(FREE_LIST_OFFSET, pageId);
+    }
+
+    public int pageCount() {
+        return header.getInt(PAGE_COUNT_OFFSET);
+    }
+
+    public int root() {
+        return header.getInt(ROOT_OFFSET);
+    }
+
+    public void setRoot(int pageId) {
+        header.putInt(ROOT_OFFSET, pageId);
+    }
+
+    public void force() {
+        for (MappedByteBuffer region : regions) {
+            region.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    // mapping past the end of the file extends it
+    private void mapRegion() throws IOException {
+        long position = (long) regions.size() * PAGES_PER_REGION * PAGE_SIZE;
+        regions.add(channel.map(FileChannel.MapMode.READ_WRITE, position, (long) PAGES_PER_REGION * PAGE_SIZE));
+    }
+}
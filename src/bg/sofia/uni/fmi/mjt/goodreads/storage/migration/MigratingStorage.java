@@ -0,0 +1,326 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.migration;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.BookNotInListException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.InvalidCredentials;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameDoesntExistException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.UserDoesntExistException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.UsernameAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Page;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Storage;
+import bg.sofia.uni.fmi.mjt.goodreads.user.FriendSuggestion;
+import bg.sofia.uni.fmi.mjt.goodreads.user.Recommendation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/*
+ * Moves the data of a live server from one backend to another. Until the cut-over the source stays the backend
+ * of record: reads go to it and every write goes to it first and then to the target. Meanwhile migrate() copies
+ * the users in parallel batches, then compares every user's checksum on both sides and copies again the ones
+ * that differ, then cuts over: from then on everything goes to the target only.
+ * A write to a user and the copy of that user hold the same striped lock, so a copy never overwrites a newer
+ * dual write. A dual write the target can't take yet, like a friend that isn't copied, leaves the user to be
+ * copied again at the cut-over, which holds every stripe so no write slips in between.
+ */
+public class MigratingStorage<S extends Storage & UserExport, T extends Storage & UserImport> implements Storage {
+    private static final int LOCK_STRIPES = 64;
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    public enum Phase {
+        COPYING, VERIFYING, CUT_OVER
+    }
+
+    public record Progress(Phase phase, int totalUsers, int copiedUsers, int verifiedUsers, int recopiedUsers,
+                           double usersPerSecond) {
+    }
+
+    @FunctionalInterface
+    private interface Write<E1 extends Exception, E2 extends Exception> {
+        void apply(Storage storage) throws E1, E2;
+    }
+
+    private final S source;
+    private final T target;
+    private final int threads;
+    private final int batchSize;
+    private final Object[] stripes;
+    private final Set<String> dirtyUsers;
+    private final AtomicInteger copiedUsers;
+    private final AtomicInteger verifiedUsers;
+    private final AtomicInteger recopiedUsers;
+    private volatile Phase phase;
+    private volatile int totalUsers;
+    private volatile long phaseStartNanos;
+
+    public MigratingStorage(S source, T target, int threads, int batchSize) {
+        this.source = source;
+        this.target = target;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.stripes = new Object[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+        this.dirtyUsers = ConcurrentHashMap.newKeySet();
+        this.copiedUsers = new AtomicInteger();
+        this.verifiedUsers = new AtomicInteger();
+        this.recopiedUsers = new AtomicInteger();
+        this.phase = Phase.COPYING;
+        this.phaseStartNanos = System.nanoTime();
+    }
+
+    public Phase phase() {
+        return phase;
+    }
+
+    public Progress progress() {
+        Phase current = phase;
+        int done = current == Phase.COPYING ? copiedUsers.get() : verifiedUsers.get();
+        double seconds = (System.nanoTime() - phaseStartNanos) / NANOS_PER_SECOND;
+        return new Progress(current, totalUsers, copiedUsers.get(), verifiedUsers.get(), recopiedUsers.get(),
+                seconds > 0 ? done / seconds : 0);
+    }
+
+    // copies, verifies and cuts over, reporting the progress after every batch; blocks until the cut-over
+    public void migrate(Consumer<Progress> progressListener) {
+        List<String> userIds = source.userIds();
+        totalUsers = userIds.size();
+        inBatches(userIds, userId -> {
+            synchronized (stripe(userId)) {
+                copy(userId);
+            }
+            copiedUsers.incrementAndGet();
+        }, progressListener);
+
+        startPhase(Phase.VERIFYING);
+        inBatches(userIds, userId -> {
+            synchronized (stripe(userId)) {
+                if (!matches(userId)) {
+                    copy(userId);
+                    recopiedUsers.incrementAndGet();
+                }
+            }
+            verifiedUsers.incrementAndGet();
+        }, progressListener);
+
+        withAllStripes(0, () -> {
+            for (String userId : dirtyUsers) {
+                copy(userId);
+                recopiedUsers.incrementAndGet();
+            }
+            dirtyUsers.clear();
+            startPhase(Phase.CUT_OVER);
+        });
+        progressListener.accept(progress());
+    }
+
+    private void startPhase(Phase next) {
+        phaseStartNanos = System.nanoTime();
+        phase = next;
+    }
+
+    private void inBatches(List<String> userIds, Consumer<String> action, Consumer<Progress> progressListener) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> batches = new ArrayList<>();
+            for (int from = 0; from < userIds.size(); from += batchSize) {
+                List<String> batch = userIds.subList(from, Math.min(userIds.size(), from + batchSize));
+                batches.add(executor.submit(() -> batch.forEach(action)));
+            }
+            for (Future<?> batch : batches) {
+                batch.get();
+                progressListener.accept(progress());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void withAllStripes(int stripe, Runnable action) {
+        if (stripe == stripes.length) {
+            action.run();
+            return;
+        }
+        synchronized (stripes[stripe]) {
+            withAllStripes(stripe + 1, action);
+        }
+    }
+
+    private Object stripe(String userId) {
+        return stripes[Math.floorMod(String.valueOf(userId).hashCode(), stripes.length)];
+    }
+
+    private void copy(String userId) {
+        UserRecord record = source.exportUser(userId);
+        if (record != null) {
+            target.importUser(record);
+        }
+    }
+
+    private boolean matches(String userId) {
+        UserRecord expected = source.exportUser(userId);
+        UserRecord actual = target.exportUser(userId);
+        return expected == null || (actual != null && expected.checksum() == actual.checksum());
+    }
+
+    private Storage reads() {
+        return phase == Phase.CUT_OVER ? target : source;
+    }
+
+    private <E1 extends Exception, E2 extends Exception> void write(String userId, Write<E1, E2> write)
+            throws E1, E2 {
+        synchronized (stripe(userId)) {
+            if (phase == Phase.CUT_OVER) {
+                write.apply(target);
+                return;
+            }
+            write.apply(source);
+            try {
+                write.apply(target);
+            } catch (Exception e) {
+                dirtyUsers.add(userId);
+            }
+        }
+    }
+
+    @Override
+    public boolean exists(String userId) {
+        return reads().exists(userId);
+    }
+
+    // the target has to take the user under the id the source gave them, so the new user is copied over
+    @Override
+    public String register(String username, String password)
+            throws UsernameAlreadyExistsException, ListNameAlreadyExistsException {
+        if (phase == Phase.CUT_OVER) {
+            return target.register(username, password);
+        }
+        String userId = source.register(username, password);
+        synchronized (stripe(userId)) {
+            copy(userId);
+        }
+        return userId;
+    }
+
+    @Override
+    public String login(String username, String password) throws InvalidCredentials {
+        return reads().login(username, password);
+    }
+
+    @Override
+    public List<Book> getList(String userId, String listName) throws ListNameDoesntExistException {
+        return reads().getList(userId, listName);
+    }
+
+    @Override
+    public Page<Book> getList(String userId, String listName, int offset, int limit)
+            throws ListNameDoesntExistException {
+        return reads().getList(userId, listName, offset, limit);
+    }
+
+    @Override
+    public void createList(String userId, String listName) throws ListNameAlreadyExistsException {
+        write(userId, storage -> storage.createList(userId, listName));
+    }
+
+    @Override
+    public void removeList(String userId, String listName) throws ListNameDoesntExistException {
+        write(userId, storage -> storage.removeList(userId, listName));
+    }
+
+    @Override
+    public void addToList(String userId, String listName, Book book) throws ListNameDoesntExistException {
+        write(userId, storage -> storage.addToList(userId, listName, book));
+    }
+
+    @Override
+    public void removeFromList(String userId, String listName, int index)
+            throws ListNameDoesntExistException, BookNotInListException {
+        this.<ListNameDoesntExistException, BookNotInListException>write(userId,
+                storage -> storage.removeFromList(userId, listName, index));
+    }
+
+    @Override
+    public boolean containsBook(String userId, String listName, String bookId) throws ListNameDoesntExistException {
+        return reads().containsBook(userId, listName, bookId);
+    }
+
+    @Override
+    public void removeBookFromList(String userId, String listName, String bookId)
+            throws ListNameDoesntExistException, BookNotInListException {
+        this.<ListNameDoesntExistException, BookNotInListException>write(userId,
+                storage -> storage.removeBookFromList(userId, listName, bookId));
+    }
+
+    @Override
+    public Map<String, List<String>> getFriendsWithBook(String userId, String bookId) {
+        return reads().getFriendsWithBook(userId, bookId);
+    }
+
+    @Override
+    public List<Book> getSimilarBooks(String bookId, int limit) {
+        return reads().getSimilarBooks(bookId, limit);
+    }
+
+    @Override
+    public void addFriend(String userId, String friendUsername) throws UserDoesntExistException {
+        write(userId, storage -> storage.addFriend(userId, friendUsername));
+    }
+
+    @Override
+    public List<String> getUserFriends(String userId) {
+        return reads().getUserFriends(userId);
+    }
+
+    @Override
+    public List<FriendSuggestion> suggestFriends(String userId, int limit) {
+        return reads().suggestFriends(userId, limit);
+    }
+
+    @Override
+    public void recommendBook(String userId, Book book) {
+        write(userId, storage -> storage.recommendBook(userId, book));
+    }
+
+    @Override
+    public Map<String, List<Book>> getFriendsRecommendations(String userId) {
+        return reads().getFriendsRecommendations(userId);
+    }
+
+    @Override
+    public Page<Recommendation> getFriendsRecommendations(String userId, String cursor, int limit) {
+        return reads().getFriendsRecommendations(userId, cursor, limit);
+    }
+
+    @Override
+    public Page<Recommendation> getRecommendationFeed(String userId, String cursor, int limit) {
+        return reads().getRecommendationFeed(userId, cursor, limit);
+    }
+
+    @Override
+    public List<Book> getUserRecommendations(String userId) {
+        return reads().getUserRecommendations(userId);
+    }
+
+    @Override
+    public Page<Book> getUserRecommendations(String userId, int offset, int limit) {
+        return reads().getUserRecommendations(userId, offset, limit);
+    }
+}
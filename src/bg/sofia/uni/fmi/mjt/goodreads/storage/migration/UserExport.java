@@ -0,0 +1,11 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.migration;
+
+import java.util.List;
+
+// a backend users can be copied out of, ids included
+public interface UserExport {
+    List<String> userIds();
+
+    // a consistent copy of the user, null if there is no such user
+    UserRecord exportUser(String userId);
+}
@@ -0,0 +1,7 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.migration;
+
+// a backend users can be copied into, under the ids they had in the other backend
+public interface UserImport extends UserExport {
+    // stores the user as given, replacing whatever the backend held for them; friends may be copied later
+    void importUser(UserRecord record);
+}
@@ -0,0 +1,52 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.migration;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+// everything one user owns, as it moves between backends
+public record UserRecord(User user, Map<String, List<Book>> bookshelf) {
+    // equal on both backends exactly when they hold the same data, lists are compared in name order
+    public long checksum() {
+        CRC32C crc = new CRC32C();
+        update(crc, user.id());
+        update(crc, user.username());
+        update(crc, user.password());
+        update(crc, user.friends().size());
+        user.friends().forEach(friend -> update(crc, friend));
+        update(crc, user.recommendedBooks());
+        for (Map.Entry<String, List<Book>> list : new TreeMap<>(bookshelf).entrySet()) {
+            update(crc, list.getKey());
+            update(crc, list.getValue());
+        }
+        return crc.getValue();
+    }
+
+    private static void update(CRC32C crc, List<Book> books) {
+        update(crc, books.size());
+        for (Book book : books) {
+            update(crc, book.id());
+            update(crc, book.title());
+            if (book.authors() != null) {
+                book.authors().forEach(author -> update(crc, author));
+            }
+        }
+    }
+
+    // length-prefixed, so neighbouring fields can't run into each other
+    private static void update(CRC32C crc, String value) {
+        byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        update(crc, bytes.length);
+        crc.update(bytes);
+    }
+
+    private static void update(CRC32C crc, int count) {
+        crc.update(ByteBuffer.allocate(Integer.BYTES).putInt(0, count));
+    }
+}
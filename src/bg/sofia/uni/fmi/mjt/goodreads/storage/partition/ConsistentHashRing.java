@@ -0,0 +1,59 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.partition;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/*
+ * Maps keys to nodes with consistent hashing. Every node owns several points on a 64-bit ring and a key belongs
+ * to the first point at or after its hash, so adding or removing a node only moves the keys of its own points.
+ */
+public class ConsistentHashRing {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long MIX_MULTIPLIER_1 = 0xff51afd7ed558ccdL;
+    private static final long MIX_MULTIPLIER_2 = 0xc4ceb9fe1a85ec53L;
+    private static final int MIX_SHIFT = 33;
+    private static final String POINT_SEPARATOR = "#";
+
+    private final int pointsPerNode;
+    private final NavigableMap<Long, Integer> points;
+
+    public ConsistentHashRing(int pointsPerNode) {
+        if (pointsPerNode <= 0) {
+            throw new IllegalArgumentException("Every node needs at least one point on the ring");
+        }
+        this.pointsPerNode = pointsPerNode;
+        this.points = new TreeMap<>();
+    }
+
+    public void addNode(int node) {
+        for (int point = 0; point < pointsPerNode; point++) {
+            points.put(hash(node + POINT_SEPARATOR + point), node);
+        }
+    }
+
+    public void removeNode(int node) {
+        points.values().removeIf(owner -> owner == node);
+    }
+
+    public int nodeFor(String key) {
+        if (points.isEmpty()) {
+            throw new IllegalStateException("The ring has no nodes");
+        }
+        Map.Entry<Long, Integer> owner = points.ceilingEntry(hash(key));
+        return owner == null ? points.firstEntry().getValue() : owner.getValue();
+    }
+
+    // FNV-1a spreads the bytes, the murmur finalizer spreads the similar hashes of similar keys over the ring
+    static long hash(String key) {
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+        hash = (hash ^ (hash >>> MIX_SHIFT)) * MIX_MULTIPLIER_1;
+        hash = (hash ^ (hash >>> MIX_SHIFT)) * MIX_MULTIPLIER_2;
+        return hash ^ (hash >>> MIX_SHIFT);
+    }
+}
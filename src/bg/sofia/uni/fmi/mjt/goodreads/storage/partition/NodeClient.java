@@ -0,0 +1,77 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.partition;
+
+import bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc.MessageReader;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc.MessageWriter;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc.Operation;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+// blocking connection to one storage node, calls are serialized and answered in order
+public class NodeClient implements Closeable {
+    private final InetSocketAddress address;
+    private final ByteBuffer lengthBuffer;
+    private SocketChannel channel;
+
+    public NodeClient(InetSocketAddress address) {
+        this.address = address;
+        this.lengthBuffer = ByteBuffer.allocate(Integer.BYTES);
+    }
+
+    public static MessageWriter request(Operation operation) {
+        return new MessageWriter().putByte(operation.ordinal());
+    }
+
+    // sends the request and waits for the answer, a failed call reconnects on the next one
+    public synchronized MessageReader call(MessageWriter request) {
+        try {
+            if (channel == null) {
+                channel = SocketChannel.open(address);
+            }
+            ByteBuffer frame = request.toFrame();
+            while (frame.hasRemaining()) {
+                channel.write(frame);
+            }
+            lengthBuffer.clear();
+            readFully(lengthBuffer);
+            ByteBuffer body = ByteBuffer.allocate(lengthBuffer.getInt(0));
+            readFully(body);
+            MessageReader response = new MessageReader(body.flip());
+            if (response.getByte() != StorageNode.STATUS_OK) {
+                throw new RuntimeException("Storage node " + address + " failed: " + response.getString());
+            }
+            return response;
+        } catch (IOException e) {
+            closeQuietly();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Storage node " + address + " closed the connection");
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            channel = null;
+        }
+    }
+}
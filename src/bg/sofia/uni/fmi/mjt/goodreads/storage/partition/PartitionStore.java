@@ -0,0 +1,388 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.partition;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph.RecommendationFeed;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.similarity.CoOccurrenceIndex;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.kv.engine.KeyValueStore;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc.MessageReader;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc.MessageWriter;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc.Operation;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc.Result;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * The users of one partition, kept in the embedded key-value store with the same keys as KeyValueStorage.
+ * A node only knows its own users, so it answers primitive requests and leaves everything that crosses
+ * partitions (unique usernames, friends on other nodes, feed fan-out) to PartitionedStorage.
+ * Usernames, followers and co-occurrences of the local users are indexed in memory and rebuilt on open;
+ * the recommendation feeds live only in memory and start empty after a restart.
+ */
+public class PartitionStore implements RequestHandler {
+    private static final String USER_PREFIX = "user/";
+    private static final String LIST_PREFIX = "list/";
+    private static final String KEY_SEPARATOR = "/";
+    private static final int FEED_CAPACITY = 1000;
+    private static final Type BOOKS_TYPE = new TypeToken<List<Book>>() { }.getType();
+
+    private final KeyValueStore store;
+    private final Gson gson;
+    private final Map<String, String> idsByUsername;
+    // friend username -> ids of the local users following them
+    private final Map<String, Set<String>> followers;
+    private final BookCatalog bookCatalog;
+    private final CoOccurrenceIndex coOccurrences;
+    private final RecommendationFeed recommendationFeed;
+    private final Map<String, Integer> feedNodes;
+    private final List<String> feedNames;
+
+    public PartitionStore(Path file) throws IOException {
+        this(new KeyValueStore(file));
+    }
+
+    public PartitionStore(KeyValueStore store) {
+        this.store = store;
+        this.gson = new Gson();
+        this.idsByUsername = new HashMap<>();
+        this.followers = new HashMap<>();
+        this.bookCatalog = new BookCatalog();
+        this.recommendationFeed = new RecommendationFeed(FEED_CAPACITY);
+        this.feedNodes = new HashMap<>();
+        this.feedNames = new ArrayList<>();
+
+        for (byte[] value : store.scan(USER_PREFIX).values()) {
+            User user = gson.fromJson(new String(value, StandardCharsets.UTF_8), User.class);
+            idsByUsername.put(user.username(), user.id());
+            user.friends().forEach(friend -> follow(user.id(), friend));
+        }
+        Map<String, Map<String, List<Book>>> bookshelves = new HashMap<>();
+        for (Map.Entry<String, byte[]> list : store.scan(LIST_PREFIX).entrySet()) {
+            String key = list.getKey().substring(LIST_PREFIX.length());
+            int separator = key.indexOf(KEY_SEPARATOR);
+            bookshelves.computeIfAbsent(key.substring(0, separator), id -> new HashMap<>())
+                    .put(key.substring(separator + 1), decodeBooks(list.getValue()));
+        }
+        this.coOccurrences = CoOccurrenceIndex.build(bookshelves, bookCatalog);
+    }
+
+    // answers the request into the response, which already holds the status of the call
+    @Override
+    public synchronized void handle(MessageReader request, MessageWriter response) {
+        switch (Operation.of(request.getByte())) {
+            case CREATE_USER -> createUser(request, response);
+            case FIND_USERS -> findUsers(request, response);
+            case GET_USER -> getUser(request, response);
+            case ADD_FRIEND -> addFriend(request, response);
+            case ADD_RECOMMENDATION -> addRecommendation(request, response);
+            case CREATE_LIST -> createList(request, response);
+            case REMOVE_LIST -> removeList(request, response);
+            case GET_LIST -> getList(request, response);
+            case ADD_TO_LIST -> addToList(request, response);
+            case REMOVE_FROM_LIST -> removeFromList(request, response);
+            case REMOVE_BOOK_FROM_LIST -> removeBookFromList(request, response);
+            case LISTS_WITH_BOOK -> listsWithBook(request, response);
+            case FOLLOWERS_OF -> followersOf(request, response);
+            case CO_OCCURRENCES -> coOccurrences(request, response);
+            case READERS -> readers(request, response);
+            case PUBLISH_TO_FEED -> publishToFeed(request, response);
+            case FEED_PAGE -> feedPage(request, response);
+        }
+    }
+
+    private void createUser(MessageReader request, MessageWriter response) {
+        String userId = request.getString();
+        String username = request.getString();
+        String password = request.getString();
+        if (idsByUsername.containsKey(username) || findUser(userId) != null) {
+            response.putByte(Result.DUPLICATE.ordinal());
+            return;
+        }
+        putUser(new User(userId, username, password, new ArrayList<>(), new ArrayList<>()));
+        idsByUsername.put(username, userId);
+        response.putByte(Result.OK.ordinal());
+    }
+
+    // the local users among the given usernames
+    private void findUsers(MessageReader request, MessageWriter response) {
+        List<User> found = new ArrayList<>();
+        for (String username : request.getStrings()) {
+            String userId = idsByUsername.get(username);
+            if (userId != null) {
+                found.add(findUser(userId));
+            }
+        }
+        response.putInt(found.size());
+        found.forEach(response::putUser);
+    }
+
+    private void getUser(MessageReader request, MessageWriter response) {
+        User user = findUser(request.getString());
+        if (user == null) {
+            response.putByte(Result.NO_USER.ordinal());
+            return;
+        }
+        response.putByte(Result.OK.ordinal()).putUser(user);
+    }
+
+    private void addFriend(MessageReader request, MessageWriter response) {
+        User user = findUser(request.getString());
+        String friendUsername = request.getString();
+        if (user == null) {
+            response.putByte(Result.NO_USER.ordinal());
+            return;
+        }
+        if (user.friends().contains(friendUsername)) {
+            response.putByte(Result.DUPLICATE.ordinal());
+            return;
+        }
+        user.friends().add(friendUsername);
+        putUser(user);
+        follow(user.id(), friendUsername);
+        response.putByte(Result.OK.ordinal());
+    }
+
+    // answers with the author's username, so the router can find their followers
+    private void addRecommendation(MessageReader request, MessageWriter response) {
+        User user = findUser(request.getString());
+        Book book = request.getBook();
+        if (user == null) {
+            response.putByte(Result.NO_USER.ordinal());
+            return;
+        }
+        if (indexOf(user.recommendedBooks(), book.id()) >= 0) {
+            response.putByte(Result.DUPLICATE.ordinal());
+            return;
+        }
+        user.recommendedBooks().add(book);
+        putUser(user);
+        response.putByte(Result.OK.ordinal()).putString(user.username());
+    }
+
+    private void createList(MessageReader request, MessageWriter response) {
+        String userId = request.getString();
+        String listName = request.getString();
+        if (findUser(userId) == null) {
+            response.putByte(Result.NO_USER.ordinal());
+        } else if (store.get(listKey(userId, listName)) != null) {
+            response.putByte(Result.DUPLICATE.ordinal());
+        } else {
+            writeList(userId, listName, List.of());
+            response.putByte(Result.OK.ordinal());
+        }
+    }
+
+    private void removeList(MessageReader request, MessageWriter response) {
+        String userId = request.getString();
+        String listName = request.getString();
+        List<Book> books = readList(userId, listName, response);
+        if (books == null) {
+            return;
+        }
+        store.delete(listKey(userId, listName));
+        store.flush();
+        books.forEach(book -> coOccurrences.remove(userId, bookCatalog.find(book.id())));
+        response.putByte(Result.OK.ordinal());
+    }
+
+    private void getList(MessageReader request, MessageWriter response) {
+        List<Book> books = readList(request.getString(), request.getString(), response);
+        if (books != null) {
+            response.putByte(Result.OK.ordinal()).putBooks(books);
+        }
+    }
+
+    private void addToList(MessageReader request, MessageWriter response) {
+        String userId = request.getString();
+        String listName = request.getString();
+        Book book = request.getBook();
+        List<Book> books = readList(userId, listName, response);
+        if (books == null) {
+            return;
+        }
+        if (indexOf(books, book.id()) >= 0) {
+            response.putByte(Result.DUPLICATE.ordinal());
+            return;
+        }
+        books.add(book);
+        writeList(userId, listName, books);
+        coOccurrences.add(userId, bookCatalog.intern(book));
+        response.putByte(Result.OK.ordinal());
+    }
+
+    private void removeFromList(MessageReader request, MessageWriter response) {
+        String userId = request.getString();
+        String listName = request.getString();
+        int index = request.getInt();
+        List<Book> books = readList(userId, listName, response);
+        if (books == null) {
+            return;
+        }
+        if (index < 0 || index >= books.size()) {
+            response.putByte(Result.OUT_OF_RANGE.ordinal());
+            return;
+        }
+        removeAt(userId, listName, books, index);
+        response.putByte(Result.OK.ordinal());
+    }
+
+    private void removeBookFromList(MessageReader request, MessageWriter response) {
+        String userId = request.getString();
+        String listName = request.getString();
+        String bookId = request.getString();
+        List<Book> books = readList(userId, listName, response);
+        if (books == null) {
+            return;
+        }
+        int index = indexOf(books, bookId);
+        if (index < 0) {
+            response.putByte(Result.NOT_IN_LIST.ordinal());
+            return;
+        }
+        removeAt(userId, listName, books, index);
+        response.putByte(Result.OK.ordinal());
+    }
+
+    private void removeAt(String userId, String listName, List<Book> books, int index) {
+        Book removed = books.remove(index);
+        writeList(userId, listName, books);
+        coOccurrences.remove(userId, bookCatalog.find(removed.id()));
+    }
+
+    // username -> names of their lists holding the book, for the local users among the given usernames
+    private void listsWithBook(MessageReader request, MessageWriter response) {
+        List<String> usernames = request.getStrings();
+        String bookId = request.getString();
+        Map<String, List<String>> holders = new HashMap<>();
+        for (String username : usernames) {
+            String userId = idsByUsername.get(username);
+            if (userId == null) {
+                continue;
+            }
+            List<String> listNames = new ArrayList<>();
+            String prefix = LIST_PREFIX + userId + KEY_SEPARATOR;
+            for (Map.Entry<String, byte[]> list : store.scan(prefix).entrySet()) {
+                if (indexOf(decodeBooks(list.getValue()), bookId) >= 0) {
+                    listNames.add(list.getKey().substring(prefix.length()));
+                }
+            }
+            if (!listNames.isEmpty()) {
+                holders.put(username, listNames);
+            }
+        }
+        response.putInt(holders.size());
+        holders.forEach((username, listNames) -> response.putString(username).putStrings(listNames));
+    }
+
+    private void followersOf(MessageReader request, MessageWriter response) {
+        response.putStrings(followers.getOrDefault(request.getString(), Set.of()));
+    }
+
+    // readers of the book among the local users, then the books shelved together with it and how often
+    private void coOccurrences(MessageReader request, MessageWriter response) {
+        int ref = bookCatalog.find(request.getString());
+        Map<Book, Integer> counts = coOccurrences.coOccurring(ref);
+        response.putInt(coOccurrences.readers(ref)).putInt(counts.size());
+        counts.forEach((book, count) -> response.putBook(book).putInt(count));
+    }
+
+    private void readers(MessageReader request, MessageWriter response) {
+        List<String> bookIds = request.getStrings();
+        response.putInt(bookIds.size());
+        bookIds.forEach(bookId -> response.putInt(coOccurrences.readers(bookCatalog.find(bookId))));
+    }
+
+    private void publishToFeed(MessageReader request, MessageWriter response) {
+        String recipientId = request.getString();
+        String author = request.getString();
+        Book book = request.getBook();
+        recommendationFeed.publish(feedNode(recipientId), feedNode(author), bookCatalog.intern(book));
+    }
+
+    private void feedPage(MessageReader request, MessageWriter response) {
+        String userId = request.getString();
+        long before = request.getLong();
+        int limit = request.getInt();
+        if (findUser(userId) == null) {
+            response.putByte(Result.NO_USER.ordinal());
+            return;
+        }
+        List<RecommendationFeed.Entry> entries = recommendationFeed.page(feedNode(userId), before, limit);
+        response.putByte(Result.OK.ordinal()).putInt(entries.size());
+        for (RecommendationFeed.Entry entry : entries) {
+            response.putLong(entry.sequence()).putString(feedNames.get(entry.author()))
+                    .putBook(bookCatalog.get(entry.bookRef()));
+        }
+    }
+
+    // recipients are local user ids and authors are usernames, both share one numbering in the feed
+    private int feedNode(String name) {
+        return feedNodes.computeIfAbsent(name, key -> {
+            feedNames.add(key);
+            return feedNames.size() - 1;
+        });
+    }
+
+    private void follow(String userId, String friendUsername) {
+        followers.computeIfAbsent(friendUsername, username -> new LinkedHashSet<>()).add(userId);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        store.close();
+    }
+
+    private User findUser(String userId) {
+        String json = userId == null ? null : store.getString(USER_PREFIX + userId);
+        return json == null ? null : gson.fromJson(json, User.class);
+    }
+
+    private void putUser(User user) {
+        store.putString(USER_PREFIX + user.id(), gson.toJson(user));
+        store.flush();
+    }
+
+    // null after answering NO_USER or NO_LIST
+    private List<Book> readList(String userId, String listName, MessageWriter response) {
+        String json = userId == null ? null : store.getString(listKey(userId, listName));
+        if (json != null) {
+            return gson.fromJson(json, BOOKS_TYPE);
+        }
+        response.putByte((findUser(userId) == null ? Result.NO_USER : Result.NO_LIST).ordinal());
+        return null;
+    }
+
+    private void writeList(String userId, String listName, List<Book> books) {
+        store.putString(listKey(userId, listName), gson.toJson(books, BOOKS_TYPE));
+        store.flush();
+    }
+
+    private List<Book> decodeBooks(byte[] json) {
+        return gson.fromJson(new String(json, StandardCharsets.UTF_8), BOOKS_TYPE);
+    }
+
+    private static int indexOf(List<Book> books, String bookId) {
+        for (int i = 0; i < books.size(); i++) {
+            if (books.get(i).id().equals(bookId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String listKey(String userId, String listName) {
+        return LIST_PREFIX + userId + KEY_SEPARATOR + listName;
+    }
+}
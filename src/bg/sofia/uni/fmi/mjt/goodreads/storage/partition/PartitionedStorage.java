@@ -0,0 +1,478 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.partition;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.BookNotInListException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.InvalidCredentials;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameDoesntExistException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.UserDoesntExistException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.UsernameAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.FriendsCursor;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Page;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Storage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph.RecommendationFeed;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.loader.TableLoader;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc.MessageReader;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc.MessageWriter;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc.Operation;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc.Result;
+import bg.sofia.uni.fmi.mjt.goodreads.user.FriendSuggestion;
+import bg.sofia.uni.fmi.mjt.goodreads.user.Recommendation;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Storage spread over several storage nodes. Every user lives on the node that consistent hashing of their id
+ * picks, together with their lists, recommendations and feed, so a request about one user is a single call.
+ * Requests that span users (usernames, friends-of-friends, similar books, feed fan-out) are scattered
+ * to all nodes in parallel and the answers are merged here.
+ * Usernames are checked for uniqueness under this router's lock, so all registrations must go through one router.
+ */
+public class PartitionedStorage implements Storage, Closeable {
+    private static final int POINTS_PER_NODE = 64;
+    private static final int SUGGESTION_BUDGET = 10_000;
+
+    private final List<NodeClient> nodes;
+    private final ConsistentHashRing ring;
+    private final ExecutorService scatterPool;
+
+    public PartitionedStorage(List<InetSocketAddress> nodeAddresses) {
+        if (nodeAddresses.isEmpty()) {
+            throw new IllegalArgumentException("At least one storage node is needed");
+        }
+        this.nodes = new ArrayList<>(nodeAddresses.size());
+        this.ring = new ConsistentHashRing(POINTS_PER_NODE);
+        for (int node = 0; node < nodeAddresses.size(); node++) {
+            nodes.add(new NodeClient(nodeAddresses.get(node)));
+            ring.addNode(node);
+        }
+        this.scatterPool = Executors.newFixedThreadPool(nodeAddresses.size(), runnable -> {
+            Thread thread = new Thread(runnable, "partition-scatter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // distributes the JSON tables over the nodes, which are expected to be empty
+    public synchronized void importTables(Reader usersTableReader, Reader bookshelfTableReader) throws IOException {
+        BookCatalog catalog = new BookCatalog();
+        List<User> users = TableLoader.readUsers(usersTableReader, catalog).users();
+        Map<String, User> usersByUsername = new HashMap<>();
+        for (User user : users) {
+            expect(owner(user.id()).call(NodeClient.request(Operation.CREATE_USER)
+                    .putString(user.id()).putString(user.username()).putString(user.password())));
+            for (Book book : user.recommendedBooks()) {
+                expect(call(user.id(), NodeClient.request(Operation.ADD_RECOMMENDATION).putString(user.id())
+                        .putBook(book)));
+            }
+            usersByUsername.put(user.username(), user);
+        }
+        for (User user : users) {
+            for (String friendUsername : user.friends()) {
+                User friend = usersByUsername.get(friendUsername);
+                if (friend != null) {
+                    befriend(user.id(), friend);
+                }
+            }
+        }
+
+        Map<String, Map<String, List<Book>>> bookshelves = TableLoader.readBookshelves(bookshelfTableReader, catalog);
+        for (Map.Entry<String, Map<String, List<Book>>> bookshelf : bookshelves.entrySet()) {
+            String userId = bookshelf.getKey();
+            for (Map.Entry<String, List<Book>> list : bookshelf.getValue().entrySet()) {
+                expect(call(userId, NodeClient.request(Operation.CREATE_LIST).putString(userId)
+                        .putString(list.getKey())));
+                for (Book book : list.getValue()) {
+                    call(userId, NodeClient.request(Operation.ADD_TO_LIST).putString(userId).putString(list.getKey())
+                            .putBook(book));
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean exists(String userId) {
+        return userId != null && findUser(userId) != null;
+    }
+
+    @Override
+    public synchronized String register(String username, String password)
+            throws UsernameAlreadyExistsException, ListNameAlreadyExistsException {
+        if (findUserByUsername(username) != null) {
+            throw new UsernameAlreadyExistsException("This username is already in use");
+        }
+
+        String newUserId = UUID.randomUUID().toString();
+        expect(owner(newUserId).call(NodeClient.request(Operation.CREATE_USER)
+                .putString(newUserId).putString(username).putString(password)));
+
+        createList(newUserId, User.WANT_TO_READ_LIST_NAME);
+        createList(newUserId, User.READ_LIST_NAME);
+
+        return newUserId;
+    }
+
+    @Override
+    public String login(String username, String password) throws InvalidCredentials {
+        User sameUsernameUser = findUserByUsername(username);
+        if (sameUsernameUser == null) {
+            throw new InvalidCredentials("Invalid username");
+        }
+        if (!sameUsernameUser.password().equals(password)) {
+            throw new InvalidCredentials("Invalid password");
+        }
+        return sameUsernameUser.id();
+    }
+
+    @Override
+    public List<Book> getList(String userId, String listName) throws ListNameDoesntExistException {
+        MessageReader response = call(userId, NodeClient.request(Operation.GET_LIST).putString(userId)
+                .putString(listName));
+        checkList(response);
+        return List.copyOf(response.getBooks());
+    }
+
+    @Override
+    public Page<Book> getList(String userId, String listName, int offset, int limit)
+            throws ListNameDoesntExistException {
+        return Page.slice(getList(userId, listName), offset, limit);
+    }
+
+    @Override
+    public void createList(String userId, String listName) throws ListNameAlreadyExistsException {
+        Result result = result(call(userId, NodeClient.request(Operation.CREATE_LIST).putString(userId)
+                .putString(listName)));
+        expectUser(result);
+        if (result == Result.DUPLICATE) {
+            throw new ListNameAlreadyExistsException("List name already exists");
+        }
+    }
+
+    @Override
+    public void removeList(String userId, String listName) throws ListNameDoesntExistException {
+        checkList(call(userId, NodeClient.request(Operation.REMOVE_LIST).putString(userId).putString(listName)));
+    }
+
+    @Override
+    public void addToList(String userId, String listName, Book book) throws ListNameDoesntExistException {
+        checkList(call(userId, NodeClient.request(Operation.ADD_TO_LIST).putString(userId).putString(listName)
+                .putBook(book)));
+    }
+
+    @Override
+    public void removeFromList(String userId, String listName, int index)
+            throws ListNameDoesntExistException, BookNotInListException {
+        Result result = checkList(call(userId, NodeClient.request(Operation.REMOVE_FROM_LIST).putString(userId)
+                .putString(listName).putInt(index)));
+        if (result == Result.OUT_OF_RANGE) {
+            throw new BookNotInListException("Index out of range");
+        }
+    }
+
+    @Override
+    public boolean containsBook(String userId, String listName, String bookId) throws ListNameDoesntExistException {
+        for (Book book : getList(userId, listName)) {
+            if (book.id().equals(bookId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void removeBookFromList(String userId, String listName, String bookId)
+            throws ListNameDoesntExistException, BookNotInListException {
+        Result result = checkList(call(userId, NodeClient.request(Operation.REMOVE_BOOK_FROM_LIST).putString(userId)
+                .putString(listName).putString(bookId)));
+        if (result == Result.NOT_IN_LIST) {
+            throw new BookNotInListException("No book with that id in the list");
+        }
+    }
+
+    @Override
+    public Map<String, List<String>> getFriendsWithBook(String userId, String bookId) {
+        List<String> friends = getUserById(userId).friends();
+        Map<String, List<String>> friendsWithBook = new HashMap<>();
+        if (friends.isEmpty()) {
+            return friendsWithBook;
+        }
+        for (MessageReader response : scatter(NodeClient.request(Operation.LISTS_WITH_BOOK)
+                .putStrings(friends).putString(bookId))) {
+            int holders = response.getInt();
+            for (int i = 0; i < holders; i++) {
+                friendsWithBook.put(response.getString(), response.getStrings());
+            }
+        }
+        return friendsWithBook;
+    }
+
+    // sums the co-occurrence and reader counts of all partitions, then scores like CoOccurrenceIndex
+    @Override
+    public List<Book> getSimilarBooks(String bookId, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        int ownReaders = 0;
+        Map<String, Book> books = new HashMap<>();
+        Map<String, Integer> counts = new HashMap<>();
+        for (MessageReader response : scatter(NodeClient.request(Operation.CO_OCCURRENCES)
+                .putString(bookId))) {
+            ownReaders += response.getInt();
+            int rowSize = response.getInt();
+            for (int i = 0; i < rowSize; i++) {
+                Book book = response.getBook();
+                books.putIfAbsent(book.id(), book);
+                counts.merge(book.id(), response.getInt(), Integer::sum);
+            }
+        }
+        if (counts.isEmpty()) {
+            return List.of();
+        }
+
+        List<String> candidates = new ArrayList<>(counts.keySet());
+        int[] readers = new int[candidates.size()];
+        for (MessageReader response : scatter(NodeClient.request(Operation.READERS)
+                .putStrings(candidates))) {
+            int size = response.getInt();
+            for (int i = 0; i < size; i++) {
+                readers[i] += response.getInt();
+            }
+        }
+        Map<String, Double> scores = new HashMap<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            String candidate = candidates.get(i);
+            scores.put(candidate, counts.get(candidate) / Math.sqrt((double) ownReaders * readers[i]));
+        }
+        return candidates.stream()
+                .sorted(Comparator.comparing((String candidate) -> scores.get(candidate)).reversed()
+                        .thenComparing(Comparator.naturalOrder()))
+                .limit(limit)
+                .map(books::get)
+                .toList();
+    }
+
+    @Override
+    public synchronized void addFriend(String userId, String friendUsername) throws UserDoesntExistException {
+        getUserById(userId);
+        User friend = findUserByUsername(friendUsername);
+        if (friend == null) {
+            throw new UserDoesntExistException("Username doesn't exist");
+        }
+        befriend(userId, friend);
+    }
+
+    private void befriend(String userId, User friend) {
+        Result result = result(call(userId, NodeClient.request(Operation.ADD_FRIEND).putString(userId)
+                .putString(friend.username())));
+        if (result != Result.OK) {
+            return;
+        }
+        for (Book book : friend.recommendedBooks()) {
+            call(userId, NodeClient.request(Operation.PUBLISH_TO_FEED).putString(userId)
+                    .putString(friend.username()).putBook(book));
+        }
+    }
+
+    @Override
+    public List<String> getUserFriends(String userId) {
+        return List.copyOf(getUserById(userId).friends());
+    }
+
+    // friends of friends are counted here, ties go to the alphabetically first username
+    @Override
+    public List<FriendSuggestion> suggestFriends(String userId, int limit) {
+        User user = getUserById(userId);
+        Set<String> excluded = new HashSet<>(user.friends());
+        excluded.add(user.username());
+        Map<String, Integer> mutualFriends = new HashMap<>();
+        int budget = SUGGESTION_BUDGET;
+        for (User friend : findUsersByUsername(user.friends()).values()) {
+            for (String candidate : friend.friends()) {
+                if (budget-- <= 0) {
+                    break;
+                }
+                if (!excluded.contains(candidate)) {
+                    mutualFriends.merge(candidate, 1, Integer::sum);
+                }
+            }
+        }
+        return mutualFriends.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(Math.max(limit, 0))
+                .map(candidate -> new FriendSuggestion(candidate.getKey(), candidate.getValue()))
+                .toList();
+    }
+
+    @Override
+    public synchronized void recommendBook(String userId, Book book) {
+        MessageReader response = call(userId, NodeClient.request(Operation.ADD_RECOMMENDATION).putString(userId)
+                .putBook(book));
+        Result result = result(response);
+        expectUser(result);
+        if (result != Result.OK) {
+            return;
+        }
+        String author = response.getString();
+        List<MessageReader> followers = scatter(NodeClient.request(Operation.FOLLOWERS_OF).putString(author));
+        for (int node = 0; node < nodes.size(); node++) {
+            for (String follower : followers.get(node).getStrings()) {
+                nodes.get(node).call(NodeClient.request(Operation.PUBLISH_TO_FEED).putString(follower)
+                        .putString(author).putBook(book));
+            }
+        }
+    }
+
+    @Override
+    public Map<String, List<Book>> getFriendsRecommendations(String userId) {
+        Map<String, List<Book>> recommendations = new HashMap<>();
+        for (User friend : findUsersByUsername(getUserById(userId).friends()).values()) {
+            recommendations.put(friend.username(), List.copyOf(friend.recommendedBooks()));
+        }
+        return recommendations;
+    }
+
+    @Override
+    public Page<Recommendation> getFriendsRecommendations(String userId, String cursor, int limit) {
+        List<String> friends = getUserById(userId).friends();
+        Map<String, User> friendUsers = findUsersByUsername(FriendsCursor.friendsOfPage(friends, cursor));
+        return FriendsCursor.page(friends, cursor, limit,
+                friendUsername -> recommendationsOf(friendUsers.get(friendUsername)));
+    }
+
+    private static List<Book> recommendationsOf(User friend) {
+        return friend == null ? List.of() : friend.recommendedBooks();
+    }
+
+    @Override
+    public Page<Recommendation> getRecommendationFeed(String userId, String cursor, int limit) {
+        long before = cursor == null || cursor.isEmpty() ? RecommendationFeed.FROM_NEWEST : Long.parseLong(cursor);
+        MessageReader response = call(userId, NodeClient.request(Operation.FEED_PAGE).putString(userId)
+                .putLong(before).putInt(limit + 1));
+        expectUser(result(response));
+        int size = response.getInt();
+        List<Recommendation> recommendations = new ArrayList<>(size);
+        long lastSequence = 0;
+        for (int i = 0; i < size && i < limit; i++) {
+            lastSequence = response.getLong();
+            recommendations.add(new Recommendation(response.getString(), response.getBook()));
+        }
+        String nextCursor = size > limit ? String.valueOf(lastSequence) : null;
+        return new Page<>(recommendations, nextCursor);
+    }
+
+    @Override
+    public List<Book> getUserRecommendations(String userId) {
+        return List.copyOf(getUserById(userId).recommendedBooks());
+    }
+
+    @Override
+    public Page<Book> getUserRecommendations(String userId, int offset, int limit) {
+        return Page.slice(getUserRecommendations(userId), offset, limit);
+    }
+
+    @Override
+    public void close() throws IOException {
+        scatterPool.shutdownNow();
+        for (NodeClient node : nodes) {
+            node.close();
+        }
+    }
+
+    private NodeClient owner(String userId) {
+        return nodes.get(ring.nodeFor(userId));
+    }
+
+    private MessageReader call(String userId, MessageWriter request) {
+        if (userId == null) {
+            throw new RuntimeException("Invalid user ID");
+        }
+        return owner(userId).call(request);
+    }
+
+    // the same request to every node in parallel, answers in node order
+    private List<MessageReader> scatter(MessageWriter request) {
+        List<CompletableFuture<MessageReader>> calls = new ArrayList<>(nodes.size());
+        for (NodeClient node : nodes) {
+            calls.add(CompletableFuture.supplyAsync(() -> node.call(request), scatterPool));
+        }
+        return calls.stream().map(CompletableFuture::join).toList();
+    }
+
+    private User getUserById(String userId) {
+        User user = userId == null ? null : findUser(userId);
+        if (user == null) {
+            throw new RuntimeException("Invalid user ID");
+        }
+        return user;
+    }
+
+    private User findUser(String userId) {
+        MessageReader response = owner(userId).call(NodeClient.request(Operation.GET_USER).putString(userId));
+        return result(response) == Result.OK ? response.getUser() : null;
+    }
+
+    private User findUserByUsername(String username) {
+        return username == null ? null : findUsersByUsername(List.of(username)).get(username);
+    }
+
+    private Map<String, User> findUsersByUsername(List<String> usernames) {
+        Map<String, User> users = new LinkedHashMap<>();
+        if (usernames.isEmpty()) {
+            return users;
+        }
+        for (MessageReader response : scatter(NodeClient.request(Operation.FIND_USERS)
+                .putStrings(usernames))) {
+            int found = response.getInt();
+            for (int i = 0; i < found; i++) {
+                User user = response.getUser();
+                users.put(user.username(), user);
+            }
+        }
+        return users;
+    }
+
+    private static Result result(MessageReader response) {
+        return Result.of(response.getByte());
+    }
+
+    private static void expect(MessageReader response) {
+        Result result = result(response);
+        if (result != Result.OK) {
+            throw new RuntimeException("Storage node answered " + result);
+        }
+    }
+
+    private static void expectUser(Result result) {
+        if (result == Result.NO_USER) {
+            throw new RuntimeException("Invalid user ID");
+        }
+    }
+
+    // returns the result of a list request that found both the user and the list
+    private static Result checkList(MessageReader response) throws ListNameDoesntExistException {
+        Result result = result(response);
+        expectUser(result);
+        if (result == Result.NO_LIST) {
+            throw new ListNameDoesntExistException("This user doesn't have such list name");
+        }
+        return result;
+    }
+}
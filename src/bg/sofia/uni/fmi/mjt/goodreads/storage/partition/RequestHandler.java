@@ -0,0 +1,12 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.partition;
+
+import bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc.MessageReader;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc.MessageWriter;
+
+import java.io.Closeable;
+
+// what a StorageNode serves: answers one request at a time on the node's selector thread, closed with the node
+public interface RequestHandler extends Closeable {
+    // a RuntimeException is sent back as a failed response
+    void handle(MessageReader request, MessageWriter response);
+}
@@ -0,0 +1,168 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.partition;
+
+import bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc.MessageReader;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc.MessageWriter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+
+/*
+ * Serves one partition over a binary protocol: every request and response is a frame of an int length followed
+ * by the body. A request body is an operation code and its arguments, a response body is a status byte and
+ * either the answer or the error message. A single selector thread answers all connections in arrival order.
+ */
+public class StorageNode implements Closeable {
+    public static final int STATUS_OK = 0;
+    public static final int STATUS_FAILED = 1;
+
+    private static final String HOST = "localhost";
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    private final RequestHandler handler;
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    // port 0 binds an ephemeral port, see port()
+    public StorageNode(int port, RequestHandler handler) throws IOException {
+        this.handler = handler;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(HOST, port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int port() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public void start() {
+        running = true;
+        selectorThread = new Thread(this::serve, "storage-node-" + port());
+        selectorThread.start();
+    }
+
+    // stops serving and closes the handler
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            if (selectorThread != null) {
+                selectorThread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+        handler.close();
+    }
+
+    private void serve() {
+        while (running) {
+            try {
+                selector.select();
+                Iterator<SelectionKey> keyIterator = selector.selectedKeys().iterator();
+                while (keyIterator.hasNext()) {
+                    SelectionKey key = keyIterator.next();
+                    keyIterator.remove();
+                    handleKey(key);
+                }
+            } catch (IOException e) {
+                System.out.println("Error occurred while serving a partition request: " + e.getMessage());
+            }
+        }
+    }
+
+    private void handleKey(SelectionKey key) throws IOException {
+        if (key.isAcceptable()) {
+            SocketChannel channel = serverChannel.accept();
+            if (channel != null) {
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ, new Connection());
+            }
+            return;
+        }
+        SocketChannel channel = (SocketChannel) key.channel();
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (key.isReadable()) {
+                read(channel, connection);
+            }
+            if (key.isValid() && key.isWritable()) {
+                write(channel, connection);
+            }
+            if (key.isValid()) {
+                key.interestOps(connection.pending.isEmpty()
+                        ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            }
+        } catch (IOException e) {
+            key.cancel();
+            channel.close();
+        }
+    }
+
+    private void read(SocketChannel channel, Connection connection) throws IOException {
+        if (channel.read(connection.input) < 0) {
+            throw new IOException("Connection closed");
+        }
+        connection.input.flip();
+        while (connection.input.remaining() >= Integer.BYTES) {
+            int length = connection.input.getInt(connection.input.position());
+            if (connection.input.remaining() < Integer.BYTES + length) {
+                break;
+            }
+            connection.input.position(connection.input.position() + Integer.BYTES);
+            ByteBuffer body = ByteBuffer.allocate(length);
+            body.put(body.position(), connection.input, connection.input.position(), length);
+            connection.input.position(connection.input.position() + length);
+            connection.pending.add(answer(new MessageReader(body)));
+        }
+        connection.input.compact();
+        if (!connection.input.hasRemaining()) {
+            ByteBuffer grown = ByteBuffer.allocate(2 * connection.input.capacity());
+            connection.input = grown.put(connection.input.flip());
+        }
+        write(channel, connection);
+    }
+
+    private ByteBuffer answer(MessageReader request) {
+        MessageWriter response = new MessageWriter().putByte(STATUS_OK);
+        try {
+            handler.handle(request, response);
+        } catch (RuntimeException e) {
+            response = new MessageWriter().putByte(STATUS_FAILED).putString(String.valueOf(e.getMessage()));
+        }
+        return response.toFrame();
+    }
+
+    private void write(SocketChannel channel, Connection connection) throws IOException {
+        while (!connection.pending.isEmpty()) {
+            ByteBuffer frame = connection.pending.peek();
+            channel.write(frame);
+            if (frame.hasRemaining()) {
+                return;
+            }
+            connection.pending.poll();
+        }
+    }
+
+    private static class Connection {
+        private ByteBuffer input = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private final Queue<ByteBuffer> pending = new ArrayDeque<>();
+    }
+}
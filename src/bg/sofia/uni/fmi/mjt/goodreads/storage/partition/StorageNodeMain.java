@@ -0,0 +1,26 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.partition;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+// runs one partition as its own process: StorageNodeMain <port> <data file>, port 0 picks a free one
+public class StorageNodeMain {
+    public static final String READY_MESSAGE = "Storage node listening on port ";
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: StorageNodeMain <port> <data file>");
+            return;
+        }
+        StorageNode node = new StorageNode(Integer.parseInt(args[0]), new PartitionStore(Path.of(args[1])));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                node.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }));
+        node.start();
+        System.out.println(READY_MESSAGE + node.port());
+    }
+}
@@ -0,0 +1,81 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// decodes what MessageWriter encoded, in the same order
+public class MessageReader {
+    private final ByteBuffer buffer;
+
+    public MessageReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public int getByte() {
+        return buffer.get();
+    }
+
+    public boolean getBoolean() {
+        return buffer.get() != 0;
+    }
+
+    public int getInt() {
+        return buffer.getInt();
+    }
+
+    public long getLong() {
+        return buffer.getLong();
+    }
+
+    public String getString() {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length,
+                StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    public List<String> getStrings() {
+        int count = buffer.getInt();
+        List<String> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(getString());
+        }
+        return values;
+    }
+
+    public Book getBook() {
+        String id = getString();
+        String title = getString();
+        int authorCount = buffer.getInt();
+        if (authorCount < 0) {
+            return new Book(id, title, null);
+        }
+        List<String> authors = new ArrayList<>(authorCount);
+        for (int i = 0; i < authorCount; i++) {
+            authors.add(getString());
+        }
+        return new Book(id, title, authors);
+    }
+
+    public User getUser() {
+        return new User(getString(), getString(), getString(), getStrings(), getBooks());
+    }
+
+    public List<Book> getBooks() {
+        int count = buffer.getInt();
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            books.add(getBook());
+        }
+        return books;
+    }
+}
@@ -0,0 +1,93 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/*
+ * Encodes the body of a request or response into a growing buffer. Strings are a length and UTF-8 bytes,
+ * with -1 as the length of null; collections are a count followed by the elements.
+ */
+public class MessageWriter {
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int NULL_LENGTH = -1;
+
+    private ByteBuffer buffer;
+
+    public MessageWriter() {
+        this.buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+    }
+
+    public MessageWriter putByte(int value) {
+        ensure(Byte.BYTES).put((byte) value);
+        return this;
+    }
+
+    public MessageWriter putBoolean(boolean value) {
+        return putByte(value ? 1 : 0);
+    }
+
+    public MessageWriter putInt(int value) {
+        ensure(Integer.BYTES).putInt(value);
+        return this;
+    }
+
+    public MessageWriter putLong(long value) {
+        ensure(Long.BYTES).putLong(value);
+        return this;
+    }
+
+    public MessageWriter putString(String value) {
+        if (value == null) {
+            return putInt(NULL_LENGTH);
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putInt(bytes.length);
+        ensure(bytes.length).put(bytes);
+        return this;
+    }
+
+    public MessageWriter putStrings(Collection<String> values) {
+        putInt(values.size());
+        values.forEach(this::putString);
+        return this;
+    }
+
+    public MessageWriter putBook(Book book) {
+        putString(book.id()).putString(book.title());
+        if (book.authors() == null) {
+            return putInt(NULL_LENGTH);
+        }
+        return putStrings(book.authors());
+    }
+
+    public MessageWriter putBooks(Collection<Book> books) {
+        putInt(books.size());
+        books.forEach(this::putBook);
+        return this;
+    }
+
+    public MessageWriter putUser(User user) {
+        return putString(user.id()).putString(user.username()).putString(user.password())
+                .putStrings(user.friends()).putBooks(user.recommendedBooks());
+    }
+
+    // the message framed by its length, ready to be written to a channel
+    public ByteBuffer toFrame() {
+        ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + buffer.position());
+        frame.putInt(buffer.position()).put(buffer.array(), 0, buffer.position()).flip();
+        return frame;
+    }
+
+    private ByteBuffer ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(2 * buffer.capacity(), buffer.position() + bytes));
+            grown.put(buffer.array(), 0, buffer.position());
+            buffer = grown;
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,31 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc;
+
+// the requests a storage node answers; the code is the first byte of every request
+public enum Operation {
+    CREATE_USER,
+    FIND_USERS,
+    GET_USER,
+    ADD_FRIEND,
+    ADD_RECOMMENDATION,
+    CREATE_LIST,
+    REMOVE_LIST,
+    GET_LIST,
+    ADD_TO_LIST,
+    REMOVE_FROM_LIST,
+    REMOVE_BOOK_FROM_LIST,
+    LISTS_WITH_BOOK,
+    FOLLOWERS_OF,
+    CO_OCCURRENCES,
+    READERS,
+    PUBLISH_TO_FEED,
+    FEED_PAGE;
+
+    private static final Operation[] VALUES = values();
+
+    public static Operation of(int code) {
+        if (code < 0 || code >= VALUES.length) {
+            throw new IllegalArgumentException("Unknown operation " + code);
+        }
+        return VALUES[code];
+    }
+}
@@ -0,0 +1,17 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc;
+
+// outcome of a request that changes or reads the data of a single user, sent before the payload
+public enum Result {
+    OK,
+    NO_USER,
+    NO_LIST,
+    DUPLICATE,
+    OUT_OF_RANGE,
+    NOT_IN_LIST;
+
+    private static final Result[] VALUES = values();
+
+    public static Result of(int code) {
+        return VALUES[code];
+    }
+}
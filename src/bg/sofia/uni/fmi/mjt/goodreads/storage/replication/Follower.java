@@ -0,0 +1,197 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.replication;
+
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Storage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.FileSystemStorage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.loader.TableLoader;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater.FileUpdater;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/*
+ * A read-only copy of the primary. It bootstraps from a snapshot written into its own directory, loads it into
+ * a FileSystemStorage that saves back to those files, and applies the primary's log as it streams in.
+ * After a lost connection it reconnects and resumes from the last applied sequence.
+ */
+public class Follower implements Closeable {
+    private static final String USERS_TABLE = "users_table.json";
+    private static final String LISTS_TABLE = "lists_table.json";
+    private static final String PARTIAL_SUFFIX = ".part";
+    private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+    private final InetSocketAddress primaryAddress;
+    private final Path directory;
+    private final Thread replicationThread;
+    private final ReadOnlyStorage storage;
+    private volatile FileSystemStorage replica;
+    private volatile ScheduledExecutorService saveExecutor;
+    private volatile SocketChannel channel;
+    private volatile boolean running;
+    private volatile long appliedSequence;
+    private volatile long primarySequence;
+    private volatile long lastApplyDelayMillis;
+
+    public Follower(InetSocketAddress primaryAddress, Path directory) {
+        this.primaryAddress = primaryAddress;
+        this.directory = directory;
+        this.replicationThread = new Thread(this::replicate, "replication-follower");
+        this.storage = new ReadOnlyStorage(() -> replica);
+        this.appliedSequence = ReplicationServer.NEW_FOLLOWER;
+    }
+
+    public void start() {
+        running = true;
+        replicationThread.start();
+    }
+
+    // serves reads only, it throws until the first snapshot is loaded
+    public Storage storage() {
+        return storage;
+    }
+
+    public long appliedSequence() {
+        return appliedSequence;
+    }
+
+    // how many of the primary's writes this follower hasn't applied yet
+    public long sequenceLag() {
+        return Math.max(0, primarySequence - appliedSequence);
+    }
+
+    // time from the primary logging the last applied write to this follower applying it
+    public long lastApplyDelayMillis() {
+        return lastApplyDelayMillis;
+    }
+
+    public boolean awaitSequence(long sequence, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (appliedSequence < sequence) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    private void replicate() {
+        while (running) {
+            try (SocketChannel connection = SocketChannel.open(primaryAddress)) {
+                channel = connection;
+                long position = appliedSequence;
+                Frames.write(connection, out -> out.writeLong(position));
+                bootstrap(connection);
+                applyLog(connection);
+            } catch (IOException e) {
+                if (running) {
+                    System.out.println("Replication connection lost: " + e.getMessage());
+                    sleepBeforeReconnect();
+                }
+            }
+        }
+    }
+
+    private void bootstrap(SocketChannel connection) throws IOException {
+        DataInputStream header = Frames.read(connection);
+        if (header.readByte() != Frames.BOOTSTRAP_SNAPSHOT) {
+            return;
+        }
+        long sequence = header.readLong();
+        long usersSize = header.readLong();
+        long listsSize = header.readLong();
+        Files.createDirectories(directory);
+        // the old replica keeps serving and saving while the snapshot streams in next to its files
+        Path users = directory.resolve(USERS_TABLE);
+        Path lists = directory.resolve(LISTS_TABLE);
+        Path partialUsers = directory.resolve(USERS_TABLE + PARTIAL_SUFFIX);
+        Path partialLists = directory.resolve(LISTS_TABLE + PARTIAL_SUFFIX);
+        receive(connection, partialUsers, usersSize);
+        receive(connection, partialLists, listsSize);
+        stopSaving();
+        Files.move(partialUsers, users, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(partialLists, lists, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        load();
+        appliedSequence = sequence;
+        primarySequence = Math.max(primarySequence, sequence);
+    }
+
+    private void receive(SocketChannel connection, Path table, long size) throws IOException {
+        try (FileChannel file = FileChannel.open(table, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            Frames.receiveFile(connection, file, size);
+        }
+    }
+
+    // waits for a save already running, so nothing of the old replica is written over the new snapshot
+    private void stopSaving() {
+        if (saveExecutor != null) {
+            saveExecutor.shutdownNow();
+            saveExecutor.close();
+        }
+    }
+
+    // a new snapshot replaces the whole replica, the old one has stopped saving over the files by now
+    private void load() throws IOException {
+        Path users = directory.resolve(USERS_TABLE);
+        Path lists = directory.resolve(LISTS_TABLE);
+        ScheduledExecutorService executor = new ScheduledThreadPoolExecutor(1);
+        try (Reader usersReader = TableLoader.openTable(users); Reader listsReader = TableLoader.openTable(lists)) {
+            replica = new FileSystemStorage(usersReader, listsReader, new FileUpdater(users.toFile()),
+                    new FileUpdater(lists.toFile()), executor);
+        }
+        saveExecutor = executor;
+    }
+
+    private void applyLog(SocketChannel connection) throws IOException {
+        while (running) {
+            DataInputStream frame = Frames.read(connection);
+            int kind = frame.readByte();
+            primarySequence = Math.max(primarySequence, frame.readLong());
+            if (kind == Frames.ENTRY) {
+                long sequence = frame.readLong();
+                long timestamp = frame.readLong();
+                Mutation.readFrom(frame).applyTo(replica);
+                appliedSequence = sequence;
+                lastApplyDelayMillis = Math.max(0, System.currentTimeMillis() - timestamp);
+            }
+        }
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            Thread.sleep(RECONNECT_DELAY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        SocketChannel connection = channel;
+        if (connection != null) {
+            connection.close();
+        }
+        replicationThread.interrupt();
+        try {
+            replicationThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (saveExecutor != null) {
+            saveExecutor.close();
+        }
+    }
+}
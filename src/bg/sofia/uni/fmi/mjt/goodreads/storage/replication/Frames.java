@@ -0,0 +1,77 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.replication;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+
+/*
+ * The replication stream: frames of an int length and a body. Frames are read exactly, never ahead, so raw
+ * snapshot bytes can follow a frame on the same channel.
+ */
+final class Frames {
+    static final int BOOTSTRAP_SNAPSHOT = 0;
+    static final int BOOTSTRAP_TAIL = 1;
+    static final int ENTRY = 0;
+    static final int HEARTBEAT = 1;
+
+    private Frames() {
+    }
+
+    @FunctionalInterface
+    interface Body {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    static void write(SocketChannel channel, Body body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        body.write(out);
+        out.flush();
+        ByteBuffer frame = ByteBuffer.wrap(bytes.toByteArray());
+        frame.putInt(0, frame.capacity() - Integer.BYTES);
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+    }
+
+    static DataInputStream read(SocketChannel channel) throws IOException {
+        ByteBuffer length = readFully(channel, ByteBuffer.allocate(Integer.BYTES));
+        ByteBuffer body = readFully(channel, ByteBuffer.allocate(length.getInt(0)));
+        return new DataInputStream(new ByteArrayInputStream(body.array()));
+    }
+
+    // sends the whole file without copying it through the heap
+    static void sendFile(FileChannel file, SocketChannel channel) throws IOException {
+        long size = file.size();
+        for (long sent = 0; sent < size; ) {
+            sent += file.transferTo(sent, size - sent, channel);
+        }
+    }
+
+    // a blocking channel only transfers nothing at its end
+    static void receiveFile(SocketChannel channel, FileChannel file, long size) throws IOException {
+        for (long received = 0; received < size; ) {
+            long transferred = file.transferFrom(channel, received, size - received);
+            if (transferred == 0) {
+                throw new EOFException("Primary closed the connection during the snapshot");
+            }
+            received += transferred;
+        }
+    }
+
+    private static ByteBuffer readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Replication peer closed the connection");
+            }
+        }
+        return buffer;
+    }
+}
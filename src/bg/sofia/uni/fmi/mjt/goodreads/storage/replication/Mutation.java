@@ -0,0 +1,135 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.replication;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.BookNotInListException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameDoesntExistException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.UserDoesntExistException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.UsernameAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.FileSystemStorage;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * One successful write to the storage, with everything needed to repeat it on a replica.
+ * name and value hold the string arguments of the write: the username and password of a registration,
+ * the list name, the friend's username or the id of the removed book.
+ */
+public record Mutation(Type type, String userId, String name, String value, Book book, int index) {
+    public enum Type {
+        REGISTER,
+        CREATE_LIST,
+        REMOVE_LIST,
+        ADD_TO_LIST,
+        REMOVE_FROM_LIST,
+        REMOVE_BOOK_FROM_LIST,
+        ADD_FRIEND,
+        RECOMMEND_BOOK
+    }
+
+    private static final Type[] TYPES = Type.values();
+
+    public static Mutation register(String userId, String username, String password) {
+        return new Mutation(Type.REGISTER, userId, username, password, null, 0);
+    }
+
+    public static Mutation createList(String userId, String listName) {
+        return new Mutation(Type.CREATE_LIST, userId, listName, null, null, 0);
+    }
+
+    public static Mutation removeList(String userId, String listName) {
+        return new Mutation(Type.REMOVE_LIST, userId, listName, null, null, 0);
+    }
+
+    public static Mutation addToList(String userId, String listName, Book book) {
+        return new Mutation(Type.ADD_TO_LIST, userId, listName, null, book, 0);
+    }
+
+    public static Mutation removeFromList(String userId, String listName, int index) {
+        return new Mutation(Type.REMOVE_FROM_LIST, userId, listName, null, null, index);
+    }
+
+    public static Mutation removeBookFromList(String userId, String listName, String bookId) {
+        return new Mutation(Type.REMOVE_BOOK_FROM_LIST, userId, listName, bookId, null, 0);
+    }
+
+    public static Mutation addFriend(String userId, String friendUsername) {
+        return new Mutation(Type.ADD_FRIEND, userId, friendUsername, null, null, 0);
+    }
+
+    public static Mutation recommendBook(String userId, Book book) {
+        return new Mutation(Type.RECOMMEND_BOOK, userId, null, null, book, 0);
+    }
+
+    // repeats the write; the replica held the same data as the primary before it, so it can't fail
+    public void applyTo(FileSystemStorage storage) {
+        try {
+            switch (type) {
+                case REGISTER -> storage.register(userId, name, value);
+                case CREATE_LIST -> storage.createList(userId, name);
+                case REMOVE_LIST -> storage.removeList(userId, name);
+                case ADD_TO_LIST -> storage.addToList(userId, name, book);
+                case REMOVE_FROM_LIST -> storage.removeFromList(userId, name, index);
+                case REMOVE_BOOK_FROM_LIST -> storage.removeBookFromList(userId, name, value);
+                case ADD_FRIEND -> storage.addFriend(userId, name);
+                case RECOMMEND_BOOK -> storage.recommendBook(userId, book);
+            }
+        } catch (UsernameAlreadyExistsException | ListNameAlreadyExistsException | ListNameDoesntExistException
+                 | BookNotInListException | UserDoesntExistException e) {
+            throw new RuntimeException("Replica diverged from the primary on " + this, e);
+        }
+    }
+
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(type.ordinal());
+        writeString(out, userId);
+        writeString(out, name);
+        writeString(out, value);
+        out.writeBoolean(book != null);
+        if (book != null) {
+            writeString(out, book.id());
+            writeString(out, book.title());
+            out.writeInt(book.authors() == null ? -1 : book.authors().size());
+            if (book.authors() != null) {
+                for (String author : book.authors()) {
+                    writeString(out, author);
+                }
+            }
+        }
+        out.writeInt(index);
+    }
+
+    public static Mutation readFrom(DataInput in) throws IOException {
+        Type type = TYPES[in.readByte()];
+        String userId = readString(in);
+        String name = readString(in);
+        String value = readString(in);
+        Book book = null;
+        if (in.readBoolean()) {
+            String id = readString(in);
+            String title = readString(in);
+            int authorCount = in.readInt();
+            List<String> authors = authorCount < 0 ? null : new ArrayList<>(authorCount);
+            for (int i = 0; i < authorCount; i++) {
+                authors.add(readString(in));
+            }
+            book = new Book(id, title, authors);
+        }
+        return new Mutation(type, userId, name, value, book, in.readInt());
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -0,0 +1,54 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.replication;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * The ordered writes of the primary, numbered from 1. Only the newest entries are kept, in a ring indexed by
+ * sequence; a follower that falls further behind than that is bootstrapped from a fresh snapshot instead.
+ */
+public class MutationLog {
+    public record Entry(long sequence, long timestampMillis, Mutation mutation) {
+    }
+
+    private final Entry[] ring;
+    private long lastSequence;
+    private int count;
+
+    public MutationLog(int capacity) {
+        this.ring = new Entry[capacity];
+    }
+
+    public synchronized long append(Mutation mutation) {
+        lastSequence++;
+        ring[(int) (lastSequence % ring.length)] = new Entry(lastSequence, System.currentTimeMillis(), mutation);
+        count = Math.min(count + 1, ring.length);
+        notifyAll();
+        return lastSequence;
+    }
+
+    public synchronized long lastSequence() {
+        return lastSequence;
+    }
+
+    // whether every entry after the given sequence is still in the log
+    public synchronized boolean retains(long sequence) {
+        return sequence >= lastSequence - count;
+    }
+
+    // up to limit entries after the given sequence, waiting for new ones at most timeoutMillis;
+    // null when some of them were already dropped
+    public synchronized List<Entry> after(long sequence, int limit, long timeoutMillis) throws InterruptedException {
+        if (sequence >= lastSequence && timeoutMillis > 0) {
+            wait(timeoutMillis);
+        }
+        if (!retains(sequence)) {
+            return null;
+        }
+        List<Entry> batch = new ArrayList<>();
+        for (long next = sequence + 1; next <= lastSequence && batch.size() < limit; next++) {
+            batch.add(ring[(int) (next % ring.length)]);
+        }
+        return batch;
+    }
+}
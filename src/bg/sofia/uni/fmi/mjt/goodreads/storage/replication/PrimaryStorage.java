@@ -0,0 +1,187 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.replication;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.BookNotInListException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.InvalidCredentials;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameDoesntExistException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.UserDoesntExistException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.UsernameAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Page;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Storage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.FileSystemStorage;
+import bg.sofia.uni.fmi.mjt.goodreads.user.FriendSuggestion;
+import bg.sofia.uni.fmi.mjt.goodreads.user.Recommendation;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * The primary's storage: every write that succeeds is appended to the mutation log in the order it was applied,
+ * so followers replaying the log end up with the same data. Writes are serialized by the log lock;
+ * reads go straight to the storage.
+ */
+public class PrimaryStorage implements Storage {
+    private final FileSystemStorage storage;
+    private final MutationLog log;
+    private final Object writeLock;
+
+    public PrimaryStorage(FileSystemStorage storage, MutationLog log) {
+        this.storage = storage;
+        this.log = log;
+        this.writeLock = new Object();
+    }
+
+    public MutationLog log() {
+        return log;
+    }
+
+    // writes both tables as they are after the returned sequence, no write can slip in between
+    public long snapshot(OutputStream usersOut, OutputStream bookshelvesOut) throws IOException {
+        synchronized (writeLock) {
+            storage.writeTables(usersOut, bookshelvesOut);
+            return log.lastSequence();
+        }
+    }
+
+    @Override
+    public boolean exists(String userId) {
+        return storage.exists(userId);
+    }
+
+    @Override
+    public String register(String username, String password)
+            throws UsernameAlreadyExistsException, ListNameAlreadyExistsException {
+        synchronized (writeLock) {
+            String userId = storage.register(username, password);
+            log.append(Mutation.register(userId, username, password));
+            return userId;
+        }
+    }
+
+    @Override
+    public String login(String username, String password) throws InvalidCredentials {
+        return storage.login(username, password);
+    }
+
+    @Override
+    public List<Book> getList(String userId, String listName) throws ListNameDoesntExistException {
+        return storage.getList(userId, listName);
+    }
+
+    @Override
+    public Page<Book> getList(String userId, String listName, int offset, int limit)
+            throws ListNameDoesntExistException {
+        return storage.getList(userId, listName, offset, limit);
+    }
+
+    @Override
+    public void createList(String userId, String listName) throws ListNameAlreadyExistsException {
+        synchronized (writeLock) {
+            storage.createList(userId, listName);
+            log.append(Mutation.createList(userId, listName));
+        }
+    }
+
+    @Override
+    public void removeList(String userId, String listName) throws ListNameDoesntExistException {
+        synchronized (writeLock) {
+            storage.removeList(userId, listName);
+            log.append(Mutation.removeList(userId, listName));
+        }
+    }
+
+    @Override
+    public void addToList(String userId, String listName, Book book) throws ListNameDoesntExistException {
+        synchronized (writeLock) {
+            storage.addToList(userId, listName, book);
+            log.append(Mutation.addToList(userId, listName, book));
+        }
+    }
+
+    @Override
+    public void removeFromList(String userId, String listName, int index)
+            throws ListNameDoesntExistException, BookNotInListException {
+        synchronized (writeLock) {
+            storage.removeFromList(userId, listName, index);
+            log.append(Mutation.removeFromList(userId, listName, index));
+        }
+    }
+
+    @Override
+    public boolean containsBook(String userId, String listName, String bookId) throws ListNameDoesntExistException {
+        return storage.containsBook(userId, listName, bookId);
+    }
+
+    @Override
+    public void removeBookFromList(String userId, String listName, String bookId)
+            throws ListNameDoesntExistException, BookNotInListException {
+        synchronized (writeLock) {
+            storage.removeBookFromList(userId, listName, bookId);
+            log.append(Mutation.removeBookFromList(userId, listName, bookId));
+        }
+    }
+
+    @Override
+    public Map<String, List<String>> getFriendsWithBook(String userId, String bookId) {
+        return storage.getFriendsWithBook(userId, bookId);
+    }
+
+    @Override
+    public List<Book> getSimilarBooks(String bookId, int limit) {
+        return storage.getSimilarBooks(bookId, limit);
+    }
+
+    @Override
+    public void addFriend(String userId, String friendUsername) throws UserDoesntExistException {
+        synchronized (writeLock) {
+            storage.addFriend(userId, friendUsername);
+            log.append(Mutation.addFriend(userId, friendUsername));
+        }
+    }
+
+    @Override
+    public List<String> getUserFriends(String userId) {
+        return storage.getUserFriends(userId);
+    }
+
+    @Override
+    public List<FriendSuggestion> suggestFriends(String userId, int limit) {
+        return storage.suggestFriends(userId, limit);
+    }
+
+    @Override
+    public void recommendBook(String userId, Book book) {
+        synchronized (writeLock) {
+            storage.recommendBook(userId, book);
+            log.append(Mutation.recommendBook(userId, book));
+        }
+    }
+
+    @Override
+    public Map<String, List<Book>> getFriendsRecommendations(String userId) {
+        return storage.getFriendsRecommendations(userId);
+    }
+
+    @Override
+    public Page<Recommendation> getFriendsRecommendations(String userId, String cursor, int limit) {
+        return storage.getFriendsRecommendations(userId, cursor, limit);
+    }
+
+    @Override
+    public Page<Recommendation> getRecommendationFeed(String userId, String cursor, int limit) {
+        return storage.getRecommendationFeed(userId, cursor, limit);
+    }
+
+    @Override
+    public List<Book> getUserRecommendations(String userId) {
+        return storage.getUserRecommendations(userId);
+    }
+
+    @Override
+    public Page<Book> getUserRecommendations(String userId, int offset, int limit) {
+        return storage.getUserRecommendations(userId, offset, limit);
+    }
+}
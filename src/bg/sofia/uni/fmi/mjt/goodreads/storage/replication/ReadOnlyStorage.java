@@ -0,0 +1,143 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.replication;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.InvalidCredentials;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameDoesntExistException;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Page;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Storage;
+import bg.sofia.uni.fmi.mjt.goodreads.user.FriendSuggestion;
+import bg.sofia.uni.fmi.mjt.goodreads.user.Recommendation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+// the reads of a follower's current replica; writes only ever come from the primary's log
+public class ReadOnlyStorage implements Storage {
+    private static final String READ_ONLY_MESSAGE = "This is a read-only replica";
+
+    private final Supplier<Storage> replica;
+
+    public ReadOnlyStorage(Supplier<? extends Storage> replica) {
+        this.replica = replica::get;
+    }
+
+    private Storage replica() {
+        Storage storage = replica.get();
+        if (storage == null) {
+            throw new RuntimeException("The replica is not loaded yet");
+        }
+        return storage;
+    }
+
+    @Override
+    public boolean exists(String userId) {
+        return replica().exists(userId);
+    }
+
+    @Override
+    public String register(String username, String password) {
+        throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+    }
+
+    @Override
+    public String login(String username, String password) throws InvalidCredentials {
+        return replica().login(username, password);
+    }
+
+    @Override
+    public List<Book> getList(String userId, String listName) throws ListNameDoesntExistException {
+        return replica().getList(userId, listName);
+    }
+
+    @Override
+    public Page<Book> getList(String userId, String listName, int offset, int limit)
+            throws ListNameDoesntExistException {
+        return replica().getList(userId, listName, offset, limit);
+    }
+
+    @Override
+    public void createList(String userId, String listName) {
+        throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+    }
+
+    @Override
+    public void removeList(String userId, String listName) {
+        throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+    }
+
+    @Override
+    public void addToList(String userId, String listName, Book book) {
+        throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+    }
+
+    @Override
+    public void removeFromList(String userId, String listName, int index) {
+        throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+    }
+
+    @Override
+    public boolean containsBook(String userId, String listName, String bookId) throws ListNameDoesntExistException {
+        return replica().containsBook(userId, listName, bookId);
+    }
+
+    @Override
+    public void removeBookFromList(String userId, String listName, String bookId) {
+        throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+    }
+
+    @Override
+    public Map<String, List<String>> getFriendsWithBook(String userId, String bookId) {
+        return replica().getFriendsWithBook(userId, bookId);
+    }
+
+    @Override
+    public List<Book> getSimilarBooks(String bookId, int limit) {
+        return replica().getSimilarBooks(bookId, limit);
+    }
+
+    @Override
+    public void addFriend(String userId, String friendUsername) {
+        throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+    }
+
+    @Override
+    public List<String> getUserFriends(String userId) {
+        return replica().getUserFriends(userId);
+    }
+
+    @Override
+    public List<FriendSuggestion> suggestFriends(String userId, int limit) {
+        return replica().suggestFriends(userId, limit);
+    }
+
+    @Override
+    public void recommendBook(String userId, Book book) {
+        throw new UnsupportedOperationException(READ_ONLY_MESSAGE);
+    }
+
+    @Override
+    public Map<String, List<Book>> getFriendsRecommendations(String userId) {
+        return replica().getFriendsRecommendations(userId);
+    }
+
+    @Override
+    public Page<Recommendation> getFriendsRecommendations(String userId, String cursor, int limit) {
+        return replica().getFriendsRecommendations(userId, cursor, limit);
+    }
+
+    @Override
+    public Page<Recommendation> getRecommendationFeed(String userId, String cursor, int limit) {
+        return replica().getRecommendationFeed(userId, cursor, limit);
+    }
+
+    @Override
+    public List<Book> getUserRecommendations(String userId) {
+        return replica().getUserRecommendations(userId);
+    }
+
+    @Override
+    public Page<Book> getUserRecommendations(String userId, int offset, int limit) {
+        return replica().getUserRecommendations(userId, offset, limit);
+    }
+}
@@ -0,0 +1,156 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.replication;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Ships the primary's mutation log to followers, one thread per follower. A follower opens with the last sequence
+ * it applied; if the log still holds everything after it the primary just tails the log, otherwise it first
+ * sends a snapshot of both tables straight from disk and tails from the snapshot's sequence.
+ * Every frame carries the primary's newest sequence, and idle followers get heartbeats, so they can tell their lag.
+ */
+public class ReplicationServer implements Closeable {
+    public static final long NEW_FOLLOWER = -1;
+
+    private static final String HOST = "localhost";
+    private static final int BATCH_SIZE = 256;
+    private static final long HEARTBEAT_MILLIS = 500;
+
+    private final PrimaryStorage primary;
+    private final Path snapshotDirectory;
+    private final ServerSocketChannel serverChannel;
+    private final Set<SocketChannel> followers;
+    private final Thread acceptThread;
+    private volatile boolean running;
+
+    // port 0 binds an ephemeral port, see port()
+    public ReplicationServer(int port, PrimaryStorage primary, Path snapshotDirectory) throws IOException {
+        this.primary = primary;
+        this.snapshotDirectory = snapshotDirectory;
+        this.serverChannel = ServerSocketChannel.open().bind(new InetSocketAddress(HOST, port));
+        this.followers = ConcurrentHashMap.newKeySet();
+        this.acceptThread = new Thread(this::acceptFollowers, "replication-accept");
+    }
+
+    public int port() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public int followerCount() {
+        return followers.size();
+    }
+
+    public void start() {
+        running = true;
+        acceptThread.start();
+    }
+
+    private void acceptFollowers() {
+        while (running) {
+            try {
+                SocketChannel follower = serverChannel.accept();
+                followers.add(follower);
+                Thread session = new Thread(() -> serve(follower), "replication-follower");
+                session.setDaemon(true);
+                session.start();
+            } catch (IOException e) {
+                if (running) {
+                    System.out.println("Error occurred while accepting a follower: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(SocketChannel follower) {
+        try (follower) {
+            long position = Frames.read(follower).readLong();
+            if (position == NEW_FOLLOWER || !primary.log().retains(position)) {
+                position = sendSnapshot(follower);
+            } else {
+                Frames.write(follower, out -> out.writeByte(Frames.BOOTSTRAP_TAIL));
+            }
+            tail(follower, position);
+        } catch (IOException e) {
+            System.out.println("Follower disconnected: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            followers.remove(follower);
+        }
+    }
+
+    private long sendSnapshot(SocketChannel follower) throws IOException {
+        Path users = Files.createTempFile(snapshotDirectory, "users", ".json");
+        Path bookshelves = Files.createTempFile(snapshotDirectory, "lists", ".json");
+        try {
+            long sequence;
+            try (OutputStream usersOut = Files.newOutputStream(users);
+                 OutputStream bookshelvesOut = Files.newOutputStream(bookshelves)) {
+                sequence = primary.snapshot(usersOut, bookshelvesOut);
+            }
+            try (FileChannel usersChannel = FileChannel.open(users, StandardOpenOption.READ);
+                 FileChannel bookshelvesChannel = FileChannel.open(bookshelves, StandardOpenOption.READ)) {
+                Frames.write(follower, out -> {
+                    out.writeByte(Frames.BOOTSTRAP_SNAPSHOT);
+                    out.writeLong(sequence);
+                    out.writeLong(usersChannel.size());
+                    out.writeLong(bookshelvesChannel.size());
+                });
+                Frames.sendFile(usersChannel, follower);
+                Frames.sendFile(bookshelvesChannel, follower);
+            }
+            return sequence;
+        } finally {
+            Files.deleteIfExists(users);
+            Files.deleteIfExists(bookshelves);
+        }
+    }
+
+    // returns when the follower falls out of the log, it reconnects and gets a new snapshot
+    private void tail(SocketChannel follower, long position) throws IOException, InterruptedException {
+        MutationLog log = primary.log();
+        while (running) {
+            List<MutationLog.Entry> batch = log.after(position, BATCH_SIZE, HEARTBEAT_MILLIS);
+            if (batch == null) {
+                return;
+            }
+            long head = log.lastSequence();
+            if (batch.isEmpty()) {
+                Frames.write(follower, out -> {
+                    out.writeByte(Frames.HEARTBEAT);
+                    out.writeLong(head);
+                });
+            }
+            for (MutationLog.Entry entry : batch) {
+                Frames.write(follower, out -> {
+                    out.writeByte(Frames.ENTRY);
+                    out.writeLong(head);
+                    out.writeLong(entry.sequence());
+                    out.writeLong(entry.timestampMillis());
+                    entry.mutation().writeTo(out);
+                });
+                position = entry.sequence();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverChannel.close();
+        for (SocketChannel follower : followers) {
+            follower.close();
+        }
+    }
+}
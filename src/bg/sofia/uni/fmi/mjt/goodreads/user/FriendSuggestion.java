@@ -0,0 +1,4 @@
+package bg.sofia.uni.fmi.mjt.goodreads.user;
+
+public record FriendSuggestion(String username, int mutualFriends) {
+}
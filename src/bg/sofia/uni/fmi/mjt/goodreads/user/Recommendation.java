@@ -0,0 +1,6 @@
+package bg.sofia.uni.fmi.mjt.goodreads.user;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+
+public record Recommendation(String friendUsername, Book book) {
+}
@@ -4,6 +4,8 @@ import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
 import bg.sofia.uni.fmi.mjt.goodreads.book.BookDetails;
 import bg.sofia.uni.fmi.mjt.goodreads.book.BookRepository;
 import bg.sofia.uni.fmi.mjt.goodreads.book.BookRequest;
+import bg.sofia.uni.fmi.mjt.goodreads.command.registry.CommandRegistry;
+import bg.sofia.uni.fmi.mjt.goodreads.command.registry.Lane;
 import bg.sofia.uni.fmi.mjt.goodreads.exception.APIResponseException;
 import bg.sofia.uni.fmi.mjt.goodreads.exception.BookNotInListException;
 import bg.sofia.uni.fmi.mjt.goodreads.exception.InvalidCredentials;
@@ -12,7 +14,10 @@ import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameAlreadyExistsException;
 import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameDoesntExistException;
 import bg.sofia.uni.fmi.mjt.goodreads.exception.UserDoesntExistException;
 import bg.sofia.uni.fmi.mjt.goodreads.exception.UsernameAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Page;
 import bg.sofia.uni.fmi.mjt.goodreads.storage.Storage;
+import bg.sofia.uni.fmi.mjt.goodreads.user.FriendSuggestion;
+import bg.sofia.uni.fmi.mjt.goodreads.user.Recommendation;
 import bg.sofia.uni.fmi.mjt.goodreads.user.Session;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -22,9 +27,9 @@ import org.mockito.MockitoAnnotations;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -69,12 +74,28 @@ public class CommandExecutorTest {
                     "add-friend <friend_username>: Add a friend to your network." + System.lineSeparator() +
                     "create-list <list_name>: Create a new list for organizing books." + System.lineSeparator() +
                     "remove-list <list_name>: Remove a list from your collections." + System.lineSeparator() +
-                    "view-list <list_name>: View the contents of a specific list." + System.lineSeparator() +
+                    "view-list <list_name> [offset]: View a page of the contents of a specific list." +
+                    System.lineSeparator() +
                     "remove-book <list_name> <index>: Remove book at given index from a list." +
                     System.lineSeparator() +
+                    "remove-book-id <list_name> <book_id>: Remove book with given id from a list." +
+                    System.lineSeparator() +
                     "recommend-book: Recommend the selected book to friends." + System.lineSeparator() +
-                    "view-friends-recommended: View books recommended by your friends." + System.lineSeparator() +
-                    "view-user-recommended: View books you have recommended." + System.lineSeparator();
+                    "view-friends-recommended [cursor]: View books recommended by your friends." +
+                    System.lineSeparator() +
+                    "view-user-recommended [offset]: View books you have recommended." + System.lineSeparator() +
+                    "view-feed [cursor]: View the latest recommendations of your friends, page by page." +
+                    System.lineSeparator() +
+                    "similar-books: View books that readers of the selected book also shelved." +
+                    System.lineSeparator() +
+                    "trending [hour|day|week]: View the most popular books of the last day or the given window." +
+                    System.lineSeparator() +
+                    "most-shelved [hour|day|week]: View the most shelved books of the last day or the given window." +
+                    System.lineSeparator() +
+                    "friends-with-book: View which of your friends have the selected book on their lists." +
+                    System.lineSeparator() +
+                    "suggest-friends: View friends of your friends, ranked by mutual friends." +
+                    System.lineSeparator();
 
     @Mock
     private BookRepository bookRepository;
@@ -526,6 +547,19 @@ public class CommandExecutorTest {
         verify(storage).addToList("user1", "list1", BOOK1);
     }
 
+    @Test
+    public void testAddToListAlreadyInList() throws ListNameDoesntExistException {
+        Session session = new Session();
+        session.setSelectedBook(BOOK1);
+        session.setLoggedUserId("user1");
+        when(storage.containsBook("user1", "list1", "1")).thenReturn(true);
+
+        String result = commandExecutor.execute(new Command("add-book", new String[]{"list1"}), session);
+
+        assertEquals("Title1 is already in list1", result, "Expected message when book is already in the list");
+        verify(storage, never()).addToList("user1", "list1", BOOK1);
+    }
+
     @Test
     public void testAddToListNotLoggedIn() throws ListNameDoesntExistException {
         Session session = new Session();
@@ -787,6 +821,41 @@ public class CommandExecutorTest {
         verify(storage).removeFromList("user123", "nonexistentList", 0);
     }
 
+    @Test
+    public void testRemoveBookByIdSuccess() throws ListNameDoesntExistException, BookNotInListException {
+        Session session = new Session();
+        session.setLoggedUserId("user123");
+
+        String result = commandExecutor.execute(new Command("remove-book-id", new String[]{"myList", "1"}), session);
+
+        assertEquals("Book removed successfully", result);
+        verify(storage).removeBookFromList("user123", "myList", "1");
+    }
+
+    @Test
+    public void testRemoveBookByIdInvalidArgsCount() throws ListNameDoesntExistException, BookNotInListException {
+        Session session = new Session();
+        session.setLoggedUserId("user123");
+
+        String result = commandExecutor.execute(new Command("remove-book-id", new String[]{"myList"}), session);
+
+        assertEquals("Invalid count of arguments: \"remove-book-id\" expects 2 arguments. " +
+                "Example: \"remove-book-id <list-name> <book-id>\"", result);
+        verify(storage, never()).removeBookFromList(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void testRemoveBookByIdBookNotInList() throws ListNameDoesntExistException, BookNotInListException {
+        Session session = new Session();
+        session.setLoggedUserId("user123");
+        doThrow(new BookNotInListException("Book not in list")).when(storage)
+                .removeBookFromList(anyString(), anyString(), anyString());
+
+        String result = commandExecutor.execute(new Command("remove-book-id", new String[]{"myList", "9"}), session);
+
+        assertEquals("Book not in list", result);
+    }
+
     @Test
     public void testRecommendBookSuccess() throws URISyntaxException, APIResponseException {
         Session session = new Session();
@@ -837,7 +906,7 @@ public class CommandExecutorTest {
     public void testViewUserRecommendedSuccess() {
         Session session = new Session();
         session.setLoggedUserId("user123");
-        when(storage.getUserRecommendations("user123")).thenReturn(BOOKS_LIST);
+        when(storage.getUserRecommendations("user123", 0, 10)).thenReturn(new Page<>(BOOKS_LIST, null));
 
         String result = commandExecutor.execute(new Command("view-user-recommended", new String[]{}), session);
 
@@ -850,14 +919,14 @@ public class CommandExecutorTest {
         String result = commandExecutor.execute(new Command("view-user-recommended", new String[]{}), session);
 
         assertEquals("You aren't logged in the system", result);
-        verify(storage, never()).getUserRecommendations(anyString());
+        verify(storage, never()).getUserRecommendations(anyString(), anyInt(), anyInt());
     }
 
     @Test
     public void testViewUserRecommendedNoRecommendations() {
         Session session = new Session();
         session.setLoggedUserId("user123");
-        when(storage.getUserRecommendations("user123")).thenReturn(new ArrayList<>());
+        when(storage.getUserRecommendations("user123", 0, 10)).thenReturn(new Page<>(new ArrayList<>(), null));
 
         String result = commandExecutor.execute(new Command("view-user-recommended", new String[]{}), session);
 
@@ -866,16 +935,16 @@ public class CommandExecutorTest {
 
     @Test
     public void testViewUserRecommendedInvalidArgsCount() {
-        Command incorrect = new Command("view-user-recommended", new String[]{"extraArg"});
+        Command incorrect = new Command("view-user-recommended", new String[]{"0", "extraArg"});
         Session session = new Session();
         session.setLoggedUserId("user123");
 
         String result = commandExecutor.execute(incorrect, session);
 
         assertEquals(String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT,
-                        "view-user-recommended", 0, "view-user-recommended"),
+                        "view-user-recommended", 1, "view-user-recommended [offset]"),
                 result);
-        verify(storage, never()).getUserRecommendations(anyString());
+        verify(storage, never()).getUserRecommendations(anyString(), anyInt(), anyInt());
     }
 
     @Test
@@ -883,10 +952,9 @@ public class CommandExecutorTest {
         Session session = new Session();
         session.setLoggedUserId("user123");
 
-        Map<String, List<Book>> mockFriendsRecommendations = new HashMap<>();
-        mockFriendsRecommendations.put("friend1", List.of(BOOK1));
-        mockFriendsRecommendations.put("friend2", List.of(BOOK2));
-        when(storage.getFriendsRecommendations("user123")).thenReturn(mockFriendsRecommendations);
+        List<Recommendation> recommendations = List.of(
+                new Recommendation("friend1", BOOK1), new Recommendation("friend2", BOOK2));
+        when(storage.getFriendsRecommendations("user123", null, 10)).thenReturn(new Page<>(recommendations, null));
 
         String result = commandExecutor.execute(new Command("view-friends-recommended", new String[]{}), session);
 
@@ -901,14 +969,14 @@ public class CommandExecutorTest {
         String result = commandExecutor.execute(new Command("view-friends-recommended", new String[]{}), session);
 
         assertEquals("You aren't logged in the system", result);
-        verify(storage, never()).getFriendsRecommendations(anyString());
+        verify(storage, never()).getFriendsRecommendations(anyString(), any(), anyInt());
     }
 
     @Test
     public void testViewFriendsRecommendedNoRecommendations() {
         Session session = new Session();
         session.setLoggedUserId("user123");
-        when(storage.getFriendsRecommendations("user123")).thenReturn(new HashMap<>());
+        when(storage.getFriendsRecommendations("user123", null, 10)).thenReturn(new Page<>(List.of(), null));
 
         String result = commandExecutor.execute(new Command("view-friends-recommended", new String[]{}), session);
 
@@ -921,11 +989,11 @@ public class CommandExecutorTest {
         session.setLoggedUserId("user123");
 
         String result = commandExecutor.execute(
-                new Command("view-friends-recommended", new String[]{"extraArg"}), session);
+                new Command("view-friends-recommended", new String[]{"0:0", "extraArg"}), session);
 
-        assertEquals("Invalid count of arguments: \"view-friends-recommended\" expects 0 arguments. " +
-                "Example: \"view-friends-recommended\"", result);
-        verify(storage, never()).getFriendsRecommendations(anyString());
+        assertEquals("Invalid count of arguments: \"view-friends-recommended\" expects 1 arguments. " +
+                "Example: \"view-friends-recommended [cursor]\"", result);
+        verify(storage, never()).getFriendsRecommendations(anyString(), any(), anyInt());
     }
 
     @Test
@@ -942,7 +1010,7 @@ public class CommandExecutorTest {
         Session session = new Session();
         session.setLoggedUserId("userId");
 
-        when(storage.getList("userId", "listName")).thenReturn(BOOKS_LIST);
+        when(storage.getList("userId", "listName", 0, 10)).thenReturn(new Page<>(BOOKS_LIST, null));
 
         String result = commandExecutor.execute(correct, session);
 
@@ -952,16 +1020,16 @@ public class CommandExecutorTest {
 
     @Test
     public void testViewListWithInvalidArgsCount() throws ListNameDoesntExistException {
-        Command incorrect = new Command("view-list", new String[]{"listName", "invalid"});
+        Command incorrect = new Command("view-list", new String[]{"listName", "0", "invalid"});
         Session session = new Session();
         session.setLoggedUserId("logged-in-user");
 
         String result = commandExecutor.execute(incorrect, session);
 
         assertEquals("Invalid count of arguments: \"view-list\" expects 1 arguments. " +
-                "Example: \"view-list <list-name>\"", result,
+                "Example: \"view-list <list-name> [offset]\"", result,
                 "Expected error message when passing invalid number of arguments");
-        verify(storage, never()).getList(anyString(), anyString());
+        verify(storage, never()).getList(anyString(), anyString(), anyInt(), anyInt());
     }
 
     @Test
@@ -973,7 +1041,7 @@ public class CommandExecutorTest {
 
         assertEquals("You aren't logged in the system", result,
                 "Expected error message when getting list without being logged in");
-        verify(storage, never()).getList(anyString(), anyString());
+        verify(storage, never()).getList(anyString(), anyString(), anyInt(), anyInt());
     }
 
     @Test
@@ -982,7 +1050,7 @@ public class CommandExecutorTest {
         Session session = new Session();
         session.setLoggedUserId("userId");
 
-        when(storage.getList("userId", "nonexistent-list"))
+        when(storage.getList("userId", "nonexistent-list", 0, 10))
                 .thenThrow(new ListNameDoesntExistException("List not found"));
 
         String result = commandExecutor.execute(correct, session);
@@ -991,6 +1059,44 @@ public class CommandExecutorTest {
                 "Expected error message when list isn't found");
     }
 
+    @Test
+    public void testViewListSecondPage() throws ListNameDoesntExistException {
+        Session session = new Session();
+        session.setLoggedUserId("userId");
+        when(storage.getList("userId", "listName", 10, 10)).thenReturn(new Page<>(List.of(BOOK1), "11"));
+
+        String result = commandExecutor.execute(new Command("view-list", new String[]{"listName", "10"}), session);
+
+        assertEquals("10 " + BOOK1 + System.lineSeparator() + "More: view-list listName 11" + System.lineSeparator(),
+                result, "Expected books numbered by their position in the list and a next page hint");
+    }
+
+    @Test
+    public void testViewListInvalidOffset() throws ListNameDoesntExistException {
+        Session session = new Session();
+        session.setLoggedUserId("userId");
+
+        String result = commandExecutor.execute(new Command("view-list", new String[]{"listName", "x"}), session);
+
+        assertEquals("Invalid offset", result, "Expected error message for offset that isn't a number");
+        verify(storage, never()).getList(anyString(), anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    public void testViewFriendsRecommendedGroupsByFriend() {
+        Session session = new Session();
+        session.setLoggedUserId("user123");
+        List<Recommendation> recommendations = List.of(
+                new Recommendation("friend1", BOOK1), new Recommendation("friend1", BOOK2));
+        when(storage.getFriendsRecommendations("user123", "0:0", 10)).thenReturn(new Page<>(recommendations, "1:0"));
+
+        String result = commandExecutor.execute(new Command("view-friends-recommended", new String[]{"0:0"}), session);
+
+        assertEquals("friend1 recommends " + BOOK1 + ", " + BOOK2 + System.lineSeparator() +
+                "More: view-friends-recommended 1:0" + System.lineSeparator(), result,
+                "Expected consecutive recommendations of a friend on one line and a next page hint");
+    }
+
     @Test
     public void testMenuCommand() {
         Session session = new Session();
@@ -1021,4 +1127,233 @@ public class CommandExecutorTest {
         assertEquals(String.format(INVALID_ARGS_COUNT_MESSAGE_FORMAT, "help", 0, "help"), resultMenu,
                 "Expected correct error message when passing invalid number of arguments");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testViewFeedWithNextPage() {
+        Session session = new Session();
+        session.setLoggedUserId("user123");
+        when(storage.getRecommendationFeed("user123", null, 10))
+                .thenReturn(new Page<>(List.of(new Recommendation("friend", BOOK1)), "7"));
+
+        String result = commandExecutor.execute(new Command("view-feed", new String[]{}), session);
+
+        assertEquals("friend recommends " + BOOK1 + System.lineSeparator() +
+                "More: view-feed 7" + System.lineSeparator(), result, "Expected feed page with next page hint");
+    }
+
+    @Test
+    public void testViewFeedWithCursor() {
+        Session session = new Session();
+        session.setLoggedUserId("user123");
+        when(storage.getRecommendationFeed("user123", "7", 10)).thenReturn(new Page<>(List.of(), null));
+
+        String result = commandExecutor.execute(new Command("view-feed", new String[]{"7"}), session);
+
+        assertEquals("", result, "Expected empty result for the end of the feed");
+    }
+
+    @Test
+    public void testViewFeedInvalidCursor() {
+        Session session = new Session();
+        session.setLoggedUserId("user123");
+        when(storage.getRecommendationFeed("user123", "abc", 10)).thenThrow(new NumberFormatException());
+
+        String result = commandExecutor.execute(new Command("view-feed", new String[]{"abc"}), session);
+
+        assertEquals("Invalid cursor", result, "Expected message for invalid cursor");
+    }
+
+    @Test
+    public void testViewFeedNotLoggedIn() {
+        String result = commandExecutor.execute(new Command("view-feed", new String[]{}), new Session());
+
+        assertEquals("You aren't logged in the system", result);
+    }
+
+    @Test
+    public void testSimilarBooks() {
+        Session session = new Session();
+        session.setSelectedBook(BOOK1);
+        when(storage.getSimilarBooks("1", 10)).thenReturn(List.of(BOOK2, BOOK3));
+
+        String result = commandExecutor.execute(new Command("similar-books", new String[]{}), session);
+
+        assertEquals("Readers also shelved:" + System.lineSeparator() + BOOK2 + System.lineSeparator() + BOOK3,
+                result, "Expected similar books of the selected book");
+    }
+
+    @Test
+    public void testSimilarBooksNoneFound() {
+        Session session = new Session();
+        session.setSelectedBook(BOOK1);
+        when(storage.getSimilarBooks("1", 10)).thenReturn(List.of());
+
+        String result = commandExecutor.execute(new Command("similar-books", new String[]{}), session);
+
+        assertEquals("No similar books found", result, "Expected message when there are no similar books");
+    }
+
+    @Test
+    public void testSimilarBooksWithoutSelectedBook() {
+        String result = commandExecutor.execute(new Command("similar-books", new String[]{}), new Session());
+
+        assertEquals("You haven't selected a book, select a book by first searching the Book Repository", result);
+        verify(storage, never()).getSimilarBooks(anyString(), anyInt());
+    }
+
+    @Test
+    public void testMostShelvedAfterAddToList() {
+        Session session = new Session();
+        session.setSelectedBook(BOOK1);
+        session.setLoggedUserId("user1");
+        commandExecutor.execute(new Command("add-book", new String[]{"list1"}), session);
+
+        String result = commandExecutor.execute(new Command("most-shelved", new String[]{"hour"}), session);
+
+        assertEquals("0 " + BOOK1 + " (1)", result, "Expected shelved book with its count");
+    }
+
+    @Test
+    public void testTrendingAfterRecommendation() {
+        Session session = new Session();
+        session.setSelectedBook(BOOK2);
+        session.setLoggedUserId("user1");
+        commandExecutor.execute(new Command("recommend-book", new String[]{}), session);
+
+        String result = commandExecutor.execute(new Command("trending", new String[]{}), session);
+
+        assertEquals("0 " + BOOK2 + " (1)", result, "Expected recommended book to be trending");
+    }
+
+    @Test
+    public void testTrendingWithoutEvents() {
+        String result = commandExecutor.execute(new Command("trending", new String[]{"week"}), new Session());
+
+        assertEquals("No books to show", result, "Expected message when nothing is trending");
+    }
+
+    @Test
+    public void testTrendingInvalidWindow() {
+        String result = commandExecutor.execute(new Command("trending", new String[]{"year"}), new Session());
+
+        assertEquals("Invalid window, expected one of hour, day or week", result,
+                "Expected error message for unknown window");
+    }
+
+    @Test
+    public void testFriendsWithBook() {
+        Session session = new Session();
+        session.setLoggedUserId("user1");
+        session.setSelectedBook(BOOK1);
+        when(storage.getFriendsWithBook("user1", "1")).thenReturn(Map.of("friend", List.of("read", "favourites")));
+
+        String result = commandExecutor.execute(new Command("friends-with-book", new String[]{}), session);
+
+        assertEquals("friend has it on read, favourites" + System.lineSeparator(), result,
+                "Expected friends with the lists holding the selected book");
+    }
+
+    @Test
+    public void testFriendsWithBookNoFriends() {
+        Session session = new Session();
+        session.setLoggedUserId("user1");
+        session.setSelectedBook(BOOK1);
+        when(storage.getFriendsWithBook("user1", "1")).thenReturn(Map.of());
+
+        String result = commandExecutor.execute(new Command("friends-with-book", new String[]{}), session);
+
+        assertEquals("None of your friends have this book", result, "Expected message when no friend has the book");
+    }
+
+    @Test
+    public void testFriendsWithBookNotLoggedIn() {
+        Session session = new Session();
+        session.setSelectedBook(BOOK1);
+
+        String result = commandExecutor.execute(new Command("friends-with-book", new String[]{}), session);
+
+        assertEquals("You aren't logged in the system", result);
+        verify(storage, never()).getFriendsWithBook(anyString(), anyString());
+    }
+
+    @Test
+    public void testSuggestFriends() {
+        Session session = new Session();
+        session.setLoggedUserId("user1");
+        when(storage.suggestFriends("user1", 10))
+                .thenReturn(List.of(new FriendSuggestion("ana", 3), new FriendSuggestion("bob", 1)));
+
+        String result = commandExecutor.execute(new Command("suggest-friends", new String[]{}), session);
+
+        assertEquals("ana (3 mutual)" + System.lineSeparator() + "bob (1 mutual)", result,
+                "Expected suggestions ranked by mutual friends");
+    }
+
+    @Test
+    public void testSuggestFriendsEmpty() {
+        Session session = new Session();
+        session.setLoggedUserId("user1");
+        when(storage.suggestFriends("user1", 10)).thenReturn(List.of());
+
+        String result = commandExecutor.execute(new Command("suggest-friends", new String[]{}), session);
+
+        assertEquals("No friend suggestions yet", result, "Expected message when there are no suggestions");
+    }
+
+    @Test
+    public void testSuggestFriendsNotLoggedIn() {
+        String result = commandExecutor.execute(new Command("suggest-friends", new String[]{}), new Session());
+
+        assertEquals("You aren't logged in the system", result);
+        verify(storage, never()).suggestFriends(anyString(), anyInt());
+    }
+
+    @Test
+    public void testReadOnlyExecutorRejectsWrites() throws Exception {
+        CommandExecutor replicaExecutor = CommandExecutor.readOnly(storage, bookRepository);
+        Session session = new Session();
+        session.setLoggedUserId("user1");
+
+        String result = replicaExecutor.execute(new Command("create-list", new String[]{"listName"}), session);
+
+        assertEquals("This server is a read-only replica, send that command to the primary", result,
+                "Expected writes to be sent to the primary");
+        verify(storage, never()).createList(anyString(), anyString());
+    }
+
+    @Test
+    public void testReadOnlyExecutorServesReads() throws ListNameDoesntExistException {
+        CommandExecutor replicaExecutor = CommandExecutor.readOnly(storage, bookRepository);
+        Session session = new Session();
+        session.setLoggedUserId("user1");
+        when(storage.getList("user1", "listName", 0, 10)).thenReturn(new Page<>(BOOKS_LIST, null));
+
+        String result = replicaExecutor.execute(new Command("view-list", new String[]{"listName"}), session);
+
+        assertEquals(PRINTED_LIST.replace(":", ""), result, "Expected reads to be served by the replica");
+    }
+
+    @Test
+    public void testRemoteCommandsRunInTheBlockingLane() {
+        assertEquals(Lane.BLOCKING, commandExecutor.definition("search-title").lane(),
+                "Expected a search to be routed to the blocking lane");
+        assertEquals(Lane.BLOCKING, commandExecutor.definition("next-page").lane(),
+                "Expected next-page to be routed to the blocking lane");
+        assertEquals(Lane.FAST, commandExecutor.definition("prev-page").lane(),
+                "Expected prev-page to be routed to the fast lane");
+        assertNull(commandExecutor.definition("launch-rockets"), "Expected no definition for an unknown command");
+    }
+
+    @Test
+    public void testCommandStatsCountCalls() {
+        commandExecutor.execute(new Command("help", new String[]{}), new Session());
+        commandExecutor.execute(new Command("menu", new String[]{}), new Session());
+        commandExecutor.execute(new Command("logout", new String[]{"extra"}), new Session());
+
+        Map<String, Long> calls = commandExecutor.commandStats().stream()
+                .collect(Collectors.toMap(CommandRegistry.Stats::name, CommandRegistry.Stats::calls));
+        assertEquals(2, calls.get("help"), "Expected help and its menu alias to be counted together");
+        assertEquals(1, calls.get("logout"), "Expected a call with wrong arguments to be counted");
+        assertEquals(0, calls.get("search-title"), "Expected commands that weren't run to have no calls");
+    }
+}
@@ -0,0 +1,70 @@
+package bg.sofia.uni.fmi.mjt.goodreads.command;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// Request parsing benchmark, run manually: java ... CommandTokenizerBenchmark [requests per round]
+public class CommandTokenizerBenchmark {
+    private static final int DEFAULT_REQUESTS = 2_000_000;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+    private static final List<String> REQUESTS = List.of(
+            "login reader42 secret-password",
+            "search-title-author \"The Left Hand of Darkness\" \"Ursula K. Le Guin\"",
+            "view-list want-to-read 20",
+            "add-friend bookworm",
+            "view-feed 1718034567",
+            "unknown-command with some arguments");
+
+    @FunctionalInterface
+    private interface Parse {
+        Object run(ByteBuffer request);
+    }
+
+    public static void main(String[] args) {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_REQUESTS;
+        ByteBuffer[] buffers = REQUESTS.stream()
+                .map(request -> ByteBuffer.wrap(request.getBytes(StandardCharsets.UTF_8)))
+                .toArray(ByteBuffer[]::new);
+        CommandTokenizer tokenizer = new CommandTokenizer(new CommandExecutor(null, null).definitions());
+
+        measure("string copy + CommandCreator", buffers, requests, CommandTokenizerBenchmark::parseCopy);
+        measure("CommandTokenizer on the buffer", buffers, requests, request -> {
+            tokenizer.tokenize(request);
+            return tokenizer.toCommand();
+        });
+        measure("CommandTokenizer, name only", buffers, requests, request -> {
+            tokenizer.tokenize(request);
+            return tokenizer.commandName();
+        });
+    }
+
+    // what Server did before: copy the bytes out of the buffer into a String and split that
+    private static Object parseCopy(ByteBuffer request) {
+        byte[] bytes = new byte[request.remaining()];
+        request.duplicate().get(bytes);
+        return CommandCreator.newCommand(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    private static void measure(String name, ByteBuffer[] buffers, int requests, Parse parse) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().threadId();
+        int sink = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                sink += System.identityHashCode(parse.run(buffers[i % buffers.length])) & 1;
+            }
+            long nanos = System.nanoTime() - start;
+            long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+            if (round >= WARMUP_ROUNDS) {
+                System.out.printf("%s: %.1f ns/request, %.1f bytes/request%n", name,
+                        (double) nanos / requests, (double) allocated / requests);
+            }
+        }
+        System.out.println("checksum " + sink);
+    }
+}
@@ -0,0 +1,97 @@
+package bg.sofia.uni.fmi.mjt.goodreads.command;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.BookRepository;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Storage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+
+public class CommandTokenizerTest {
+    private List<String> commandNames;
+    private CommandTokenizer tokenizer;
+
+    private static ByteBuffer bytes(String input) {
+        return ByteBuffer.wrap(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @BeforeEach
+    public void setUp() {
+        CommandExecutor commandExecutor = new CommandExecutor(mock(Storage.class), mock(BookRepository.class));
+        commandNames = commandExecutor.commandNames();
+        tokenizer = new CommandTokenizer(commandExecutor.definitions());
+    }
+
+    @Test
+    public void testTokensMatchCommandCreator() {
+        List<String> inputs = List.of("login user pass", "search-title \"The Lord of the Rings\"",
+                "search-title-author \"Под игото\" \"Иван Вазов\"", "view-list  read", "logout", "",
+                "add-book \"want to\"read", "view-list want-to-read 20");
+        for (String input : inputs) {
+            Command expected = CommandCreator.newCommand(input);
+            tokenizer.tokenize(bytes(input));
+            Command actual = tokenizer.toCommand();
+
+            assertEquals(expected.command(), actual.command(), "Expected the same command for " + input);
+            assertArrayEquals(expected.arguments(), actual.arguments(), "Expected the same arguments for " + input);
+        }
+    }
+
+    @Test
+    public void testKnownCommandNameIsTheConstant() {
+        tokenizer.tokenize(bytes("view-feed 42"));
+
+        assertSame(commandNames.get(commandNames.indexOf("view-feed")),
+                tokenizer.commandName(), "Expected the name to be recognised without decoding it");
+    }
+
+    @Test
+    public void testUnknownCommandArgumentsAreNotDecoded() {
+        tokenizer.tokenize(bytes("launch-rockets now please"));
+        Command command = tokenizer.toCommand();
+
+        assertNull(tokenizer.commandName(), "Expected an unknown command not to be recognised");
+        assertEquals("launch-rockets", command.command(), "Expected the unknown name to be kept");
+        assertEquals(0, command.arguments().length, "Expected the arguments of an unknown command to be skipped");
+    }
+
+    @Test
+    public void testArgumentsOfWrongCountAreNotDecoded() {
+        tokenizer.tokenize(bytes("create-list a b c d e f g h i j k l"));
+        Command command = tokenizer.toCommand();
+
+        assertEquals("create-list", command.command(), "Expected the known name");
+        assertEquals(12, command.arguments().length, "Expected the argument count to be kept for the usage message");
+        assertNull(command.arguments()[0], "Expected arguments the command will refuse not to be decoded");
+    }
+
+    @Test
+    public void testTokenizesRemainingBytesInPlace() {
+        ByteBuffer buffer = bytes("xxxxlogin user pass");
+        buffer.position(4);
+        tokenizer.tokenize(buffer);
+
+        assertEquals(3, tokenizer.tokenCount(), "Expected tokens only after the position");
+        assertEquals("login", tokenizer.commandName(), "Expected the name to start at the position");
+        assertEquals(4, buffer.position(), "Expected the buffer position to be left alone");
+    }
+
+    @Test
+    public void testLongTokensAfterShortOnes() {
+        String title = "a".repeat(1000);
+        tokenizer.tokenize(bytes("search-title \"" + title + "\""));
+        assertEquals(title, tokenizer.toCommand().arguments()[0], "Expected a long argument to be decoded whole");
+
+        tokenizer.tokenize(bytes("login user pass"));
+        assertArrayEquals(new String[] {"user", "pass"}, tokenizer.toCommand().arguments(),
+                "Expected the reused arrays to hold the new command only");
+    }
+}
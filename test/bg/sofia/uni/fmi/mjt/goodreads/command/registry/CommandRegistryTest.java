@@ -0,0 +1,106 @@
+package bg.sofia.uni.fmi.mjt.goodreads.command.registry;
+
+import bg.sofia.uni.fmi.mjt.goodreads.command.registry.CommandDefinition.Access;
+import bg.sofia.uni.fmi.mjt.goodreads.command.registry.CommandDefinition.Cost;
+import bg.sofia.uni.fmi.mjt.goodreads.user.Session;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CommandRegistryTest {
+    private static final CommandHandler ECHO = (args, session) -> String.join(" ", args);
+
+    private static Session loggedIn() {
+        Session session = new Session();
+        session.setLoggedUserId("user1");
+        return session;
+    }
+
+    @Test
+    public void testEveryNameFindsItsDefinition() {
+        List<CommandDefinition> definitions = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            definitions.add(CommandDefinition.builder("command-" + i, ECHO).addAlias("alias-" + i).build());
+        }
+        CommandRegistry registry = new CommandRegistry(definitions);
+
+        for (int i = 0; i < 200; i++) {
+            assertSame(definitions.get(i), registry.lookup("command-" + i).definition(),
+                    "Expected each name to hash to its own definition");
+            assertSame(definitions.get(i), registry.lookup("alias-" + i).definition(),
+                    "Expected each alias to hash to its definition");
+        }
+        assertEquals(400, registry.names().size(), "Expected names and aliases to be listed");
+    }
+
+    @Test
+    public void testUnknownNameIsNotFound() {
+        CommandRegistry registry = new CommandRegistry(List.of(CommandDefinition.builder("help", ECHO).build()));
+
+        assertNull(registry.lookup("launch-rockets"), "Expected an unknown name not to be found");
+        assertNull(registry.lookup(""), "Expected an empty name not to be found");
+        assertNotNull(registry.lookup("help"), "Expected the registered name to be found");
+    }
+
+    @Test
+    public void testDuplicateNameIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new CommandRegistry(List.of(
+                CommandDefinition.builder("help", ECHO).build(),
+                CommandDefinition.builder("menu", ECHO).addAlias("help").build())),
+                "Expected a name registered twice to be rejected");
+    }
+
+    @Test
+    public void testArgumentsAndAccessAreCheckedBeforeTheHandler() {
+        CommandDefinition definition = CommandDefinition.builder("view-list", ECHO).setArguments(1, 2)
+                .setUsage("view-list <list-name> [offset]").setAccess(Access.LOGGED_IN).build();
+
+        assertEquals("Invalid count of arguments: \"view-list\" expects 1 arguments. " +
+                "Example: \"view-list <list-name> [offset]\"", definition.run(new String[] {}, loggedIn()),
+                "Expected too few arguments to be rejected");
+        assertEquals("You aren't logged in the system", definition.run(new String[] {"read"}, new Session()),
+                "Expected a logged out user to be rejected");
+        assertEquals("read 2", definition.run(new String[] {"read", "2"}, loggedIn()),
+                "Expected valid arguments to reach the handler");
+        assertEquals("You are already logged in the system", CommandDefinition.builder("login", ECHO)
+                .setAccess(Access.LOGGED_OUT).build().run(new String[] {}, loggedIn()),
+                "Expected a logged in user to be rejected");
+    }
+
+    @Test
+    public void testLaneFollowsCostUnlessSet() {
+        assertEquals(Lane.BLOCKING, CommandDefinition.builder("search", ECHO).setCost(Cost.REMOTE).build().lane(),
+                "Expected remote commands in the blocking lane");
+        assertEquals(Lane.FAST, CommandDefinition.builder("list", ECHO).setCost(Cost.STORAGE).build().lane(),
+                "Expected storage commands in the fast lane");
+        assertEquals(Lane.BLOCKING, CommandDefinition.builder("export", ECHO).setCost(Cost.STORAGE)
+                .setLane(Lane.BLOCKING).build().lane(), "Expected a set lane to win");
+    }
+
+    @Test
+    public void testCallsAreCountedAndTimed() {
+        CommandHandler slow = (args, session) -> {
+            long until = System.nanoTime() + 1_000_000;
+            while (System.nanoTime() < until) {
+                Thread.onSpinWait();
+            }
+            return "done";
+        };
+        CommandRegistry registry = new CommandRegistry(List.of(CommandDefinition.builder("slow", slow).build()));
+        registry.lookup("slow").run(new String[] {}, new Session());
+        registry.lookup("slow").run(new String[] {}, new Session());
+
+        CommandRegistry.Stats stats = registry.stats().getFirst();
+        assertEquals(2, stats.calls(), "Expected both calls to be counted");
+        assertTrue(stats.meanMicros() >= 1_000, "Expected the mean to include the handler's time");
+        assertTrue(stats.maxMicros() >= stats.meanMicros(), "Expected the max to be at least the mean");
+    }
+}
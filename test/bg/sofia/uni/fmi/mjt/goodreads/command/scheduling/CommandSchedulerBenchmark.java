@@ -0,0 +1,86 @@
+package bg.sofia.uni.fmi.mjt.goodreads.command.scheduling;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.BookRepository;
+import bg.sofia.uni.fmi.mjt.goodreads.book.BookRequest;
+import bg.sofia.uni.fmi.mjt.goodreads.command.Command;
+import bg.sofia.uni.fmi.mjt.goodreads.command.CommandExecutor;
+import bg.sofia.uni.fmi.mjt.goodreads.command.registry.Lane;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Storage;
+import bg.sofia.uni.fmi.mjt.goodreads.user.Session;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiFunction;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/*
+ * Latency of in-memory commands while searches wait on a slow book API, run manually:
+ * java ... CommandSchedulerBenchmark [api millis]. Both setups get the same threads in total, the baseline runs
+ * every command in one shared pool the way a single executor would.
+ */
+public class CommandSchedulerBenchmark {
+    private static final long DEFAULT_API_MILLIS = 2_000;
+    private static final int THREADS = 16;
+    private static final int FAST_THREADS = 4;
+    private static final int QUEUE = 100_000;
+    private static final int SEARCHES = 64;
+    private static final int FAST_COMMANDS = 20_000;
+    private static final long PAUSE_NANOS = 50_000;
+    private static final List<Command> FAST = List.of(new Command("help", new String[] {}),
+            new Command("prev-page", new String[] {}), new Command("deselect", new String[] {}),
+            new Command("trending", new String[] {}));
+
+    public static void main(String[] args) throws Exception {
+        long apiMillis = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_API_MILLIS;
+        BookRepository slowApi = mock(BookRepository.class);
+        when(slowApi.searchByRequest(any(BookRequest.class))).thenAnswer(invocation -> {
+            Thread.sleep(apiMillis);
+            return List.of();
+        });
+        CommandExecutor commandExecutor = new CommandExecutor(mock(Storage.class), slowApi);
+
+        try (ExecutorService shared = Executors.newFixedThreadPool(THREADS)) {
+            measure("one shared pool", (command, session) ->
+                    CompletableFuture.supplyAsync(() -> commandExecutor.execute(command, session), shared));
+            shared.shutdownNow();
+        }
+        try (CommandScheduler lanes = new CommandScheduler(commandExecutor, Map.of(
+                Lane.FAST, new CommandScheduler.LaneConfig(FAST_THREADS, QUEUE),
+                Lane.BLOCKING, new CommandScheduler.LaneConfig(THREADS - FAST_THREADS, QUEUE)))) {
+            measure("priority lanes", lanes::submit);
+            for (CommandScheduler.LaneStats stats : lanes.stats()) {
+                System.out.println("  " + stats);
+            }
+        }
+    }
+
+    private static void measure(String name, BiFunction<Command, Session, CompletableFuture<String>> submit)
+            throws Exception {
+        for (int i = 0; i < FAST_COMMANDS; i++) {
+            submit.apply(FAST.get(i % FAST.size()), new Session()).get(1, TimeUnit.MINUTES);
+        }
+        for (int i = 0; i < SEARCHES; i++) {
+            submit.apply(new Command("search-title", new String[] {"title" + i}), new Session());
+        }
+        LatencyHistogram latencies = new LatencyHistogram();
+        // commands keep arriving at a steady rate whether or not the earlier ones were answered
+        CompletableFuture<?>[] answers = new CompletableFuture<?>[FAST_COMMANDS];
+        for (int i = 0; i < FAST_COMMANDS; i++) {
+            long start = System.nanoTime();
+            answers[i] = submit.apply(FAST.get(i % FAST.size()), new Session())
+                    .thenRun(() -> latencies.record(System.nanoTime() - start));
+            LockSupport.parkNanos(PAUSE_NANOS);
+        }
+        CompletableFuture.allOf(answers).get(1, TimeUnit.MINUTES);
+        System.out.printf("%s: p50 %.0f us, p99 %.0f us, max %.0f us%n", name, latencies.percentileMicros(0.5),
+                latencies.percentileMicros(0.99), latencies.maxMicros());
+    }
+}
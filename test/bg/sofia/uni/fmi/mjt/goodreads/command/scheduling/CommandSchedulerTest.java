@@ -0,0 +1,122 @@
+package bg.sofia.uni.fmi.mjt.goodreads.command.scheduling;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.BookRepository;
+import bg.sofia.uni.fmi.mjt.goodreads.book.BookRequest;
+import bg.sofia.uni.fmi.mjt.goodreads.command.Command;
+import bg.sofia.uni.fmi.mjt.goodreads.command.CommandExecutor;
+import bg.sofia.uni.fmi.mjt.goodreads.command.registry.Lane;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Storage;
+import bg.sofia.uni.fmi.mjt.goodreads.user.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CommandSchedulerTest {
+    private static final int BLOCKING_THREADS = 2;
+    private static final int BLOCKING_QUEUE = 2;
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private CountDownLatch apiAnswers;
+    private CommandExecutor commandExecutor;
+    private CommandScheduler scheduler;
+
+    private static Command search(int i) {
+        return new Command("search-title", new String[] {"title" + i});
+    }
+
+    private static CommandScheduler.LaneStats statsOf(CommandScheduler scheduler, Lane lane) {
+        return scheduler.stats().stream().filter(stats -> stats.lane() == lane).findFirst().orElseThrow();
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        apiAnswers = new CountDownLatch(1);
+        BookRepository bookRepository = mock(BookRepository.class);
+        when(bookRepository.searchByRequest(any(BookRequest.class))).thenAnswer(invocation -> {
+            apiAnswers.await();
+            return List.of();
+        });
+        commandExecutor = new CommandExecutor(mock(Storage.class), bookRepository);
+        scheduler = new CommandScheduler(commandExecutor, Map.of(
+                Lane.FAST, new CommandScheduler.LaneConfig(1, 16),
+                Lane.BLOCKING, new CommandScheduler.LaneConfig(BLOCKING_THREADS, BLOCKING_QUEUE)));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        apiAnswers.countDown();
+        scheduler.close();
+    }
+
+    @Test
+    public void testFastCommandsDontWaitForSlowSearches() throws Exception {
+        List<CompletableFuture<String>> searches = new ArrayList<>();
+        for (int i = 0; i < BLOCKING_THREADS + BLOCKING_QUEUE; i++) {
+            searches.add(scheduler.submit(search(i), new Session()));
+        }
+
+        String help = scheduler.submit(new Command("help", new String[] {}), new Session())
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertTrue(help.startsWith("Command Descriptions:"), "Expected help to be answered during the searches");
+        assertFalse(searches.getFirst().isDone(), "Expected the searches to still be waiting on the API");
+        apiAnswers.countDown();
+        for (CompletableFuture<String> search : searches) {
+            assertEquals("No books to show", search.get(TIMEOUT_SECONDS, TimeUnit.SECONDS),
+                    "Expected every search to be answered once the API answers");
+        }
+    }
+
+    @Test
+    public void testFullLaneTurnsCommandsAway() throws Exception {
+        for (int i = 0; i < BLOCKING_THREADS + BLOCKING_QUEUE; i++) {
+            scheduler.submit(search(i), new Session());
+        }
+
+        String rejected = scheduler.submit(search(-1), new Session()).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertEquals(CommandScheduler.BUSY_MESSAGE, rejected, "Expected a full lane to answer busy at once");
+        CommandScheduler.LaneStats blocking = statsOf(scheduler, Lane.BLOCKING);
+        assertEquals(1, blocking.rejected(), "Expected the rejection to be counted");
+        assertEquals(BLOCKING_QUEUE, blocking.maxQueueDepth(), "Expected the queue to have filled up");
+        assertEquals(0, statsOf(scheduler, Lane.FAST).rejected(), "Expected the fast lane to be unaffected");
+    }
+
+    @Test
+    public void testLatenciesArePerLane() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            scheduler.submit(new Command("deselect", new String[] {}), new Session())
+                    .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+        scheduler.submit(new Command("launch-rockets", new String[] {}), new Session())
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        CommandScheduler.LaneStats fast = statsOf(scheduler, Lane.FAST);
+        assertEquals(11, fast.completed(), "Expected unknown commands to be answered in the fast lane");
+        assertTrue(fast.p99Micros() > 0 && fast.p99Micros() <= fast.maxMicros(),
+                "Expected a p99 no larger than the max");
+        assertEquals(0, statsOf(scheduler, Lane.BLOCKING).completed(), "Expected nothing in the blocking lane");
+    }
+
+    @Test
+    public void testEveryLaneNeedsAConfiguration() {
+        assertThrows(IllegalArgumentException.class, () -> new CommandScheduler(commandExecutor,
+                Map.of(Lane.FAST, new CommandScheduler.LaneConfig(1, 1))),
+                "Expected a lane without a configuration to be rejected");
+    }
+}
@@ -0,0 +1,43 @@
+package bg.sofia.uni.fmi.mjt.goodreads.command.scheduling;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+    @Test
+    public void testEmptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.count(), "Expected nothing recorded");
+        assertEquals(0, histogram.percentileMicros(0.99), "Expected no percentile without latencies");
+    }
+
+    @Test
+    public void testPercentilesAreWithinAnEighth() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1_000L);
+        }
+
+        double median = histogram.percentileMicros(0.5);
+        double p99 = histogram.percentileMicros(0.99);
+        assertTrue(median >= 500 && median <= 500 * 1.125, "Expected the median near 500 us, was " + median);
+        assertTrue(p99 >= 990 && p99 <= 1000, "Expected the p99 near 990 us, was " + p99);
+        assertEquals(1000, histogram.maxMicros(), "Expected the exact max");
+        assertEquals(1000, histogram.count(), "Expected every latency counted");
+    }
+
+    @Test
+    public void testOutlierOnlyMovesTheTail() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 999; i++) {
+            histogram.record(100);
+        }
+        histogram.record(5_000_000_000L);
+
+        assertTrue(histogram.percentileMicros(0.99) < 1, "Expected the p99 to ignore a single outlier");
+        assertEquals(5_000_000, histogram.maxMicros(), "Expected the outlier as the max");
+    }
+}
@@ -0,0 +1,66 @@
+package bg.sofia.uni.fmi.mjt.goodreads.popularity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CountMinSketchTest {
+    @Test
+    public void testEstimateNeverUndercounts() {
+        CountMinSketch sketch = new CountMinSketch(64, 4);
+        for (int key = 0; key < 500; key++) {
+            sketch.add(CountMinSketch.hash("book" + key), key % 5 + 1);
+        }
+
+        for (int key = 0; key < 500; key++) {
+            assertTrue(sketch.estimate(CountMinSketch.hash("book" + key)) >= key % 5 + 1,
+                    "Expected estimate of book" + key + " to be at least its real count");
+        }
+    }
+
+    @Test
+    public void testEstimateIsExactWithoutCollisions() {
+        CountMinSketch sketch = new CountMinSketch(1024, 4);
+        sketch.add(CountMinSketch.hash("1"), 3);
+
+        assertEquals(3, sketch.estimate(CountMinSketch.hash("1")), "Expected exact count of a single key");
+        assertEquals(0, sketch.estimate(CountMinSketch.hash("2")), "Expected zero for a key that was never added");
+    }
+
+    @Test
+    public void testConcurrentAddsAreNotLost() throws Exception {
+        CountMinSketch sketch = new CountMinSketch(1024, 4);
+        long hash = CountMinSketch.hash("popular");
+        int threads = 8;
+        int addsPerThread = 10_000;
+        List<Future<?>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    for (int j = 0; j < addsPerThread; j++) {
+                        sketch.add(hash, 1);
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        }
+
+        assertEquals(threads * addsPerThread, sketch.estimate(hash), "Expected every concurrent add to be counted");
+    }
+
+    @Test
+    public void testWidthHasToBePowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new CountMinSketch(100, 4),
+                "Expected IllegalArgumentException for width that isn't a power of two");
+    }
+}
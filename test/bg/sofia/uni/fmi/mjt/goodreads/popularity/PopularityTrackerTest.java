@@ -0,0 +1,131 @@
+package bg.sofia.uni.fmi.mjt.goodreads.popularity;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PopularityTrackerTest {
+    private static final Book BOOK1 = new Book("1", "Title1", List.of("Author1"));
+    private static final Book BOOK2 = new Book("2", "Title2", List.of("Author2"));
+    private static final Book BOOK3 = new Book("3", "Title3", List.of("Author3"));
+
+    private static class ManualClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private ManualClock clock;
+    private PopularityTracker tracker;
+
+    @BeforeEach
+    public void setUp() {
+        clock = new ManualClock();
+        tracker = new PopularityTracker(clock);
+    }
+
+    @Test
+    public void testTrendingCountsEveryEvent() {
+        tracker.bookSelected(BOOK1);
+        tracker.bookShelved(BOOK1);
+        tracker.bookRecommended(BOOK1);
+        tracker.bookSelected(BOOK2);
+
+        assertEquals(List.of(new PopularBook(BOOK1, 3), new PopularBook(BOOK2, 1)),
+                tracker.trending(TimeWindow.HOUR, 10), "Expected books ordered by number of events");
+    }
+
+    @Test
+    public void testMostShelvedCountsOnlyShelving() {
+        tracker.bookSelected(BOOK1);
+        tracker.bookSelected(BOOK1);
+        tracker.bookShelved(BOOK2);
+
+        assertEquals(List.of(new PopularBook(BOOK2, 1)), tracker.mostShelved(TimeWindow.DAY, 10),
+                "Expected only shelved books to be counted");
+    }
+
+    @Test
+    public void testTopIsLimited() {
+        tracker.bookShelved(BOOK1);
+        tracker.bookShelved(BOOK1);
+        tracker.bookShelved(BOOK2);
+        tracker.bookShelved(BOOK3);
+
+        List<PopularBook> top = tracker.mostShelved(TimeWindow.WEEK, 1);
+
+        assertEquals(List.of(new PopularBook(BOOK1, 2)), top, "Expected only the most shelved book");
+    }
+
+    @Test
+    public void testEventsSlideOutOfWindow() {
+        tracker.bookShelved(BOOK1);
+        clock.advance(Duration.ofHours(2));
+        tracker.bookShelved(BOOK2);
+
+        assertEquals(List.of(new PopularBook(BOOK2, 1)), tracker.mostShelved(TimeWindow.HOUR, 10),
+                "Expected events older than an hour to leave the hour window");
+        assertEquals(2, tracker.mostShelved(TimeWindow.DAY, 10).size(),
+                "Expected both events to be in the day window");
+
+        clock.advance(Duration.ofDays(8));
+        assertTrue(tracker.mostShelved(TimeWindow.WEEK, 10).isEmpty(),
+                "Expected week window to be empty after more than a week");
+    }
+
+    @Test
+    public void testCandidatesAreBounded() {
+        for (int i = 0; i < 1000; i++) {
+            tracker.bookSelected(new Book("rare" + i, "Rare", List.of("Author")));
+        }
+        for (int i = 0; i < 5; i++) {
+            tracker.bookSelected(BOOK1);
+        }
+
+        assertEquals(BOOK1, tracker.trending(TimeWindow.HOUR, 1).getFirst().book(),
+                "Expected a frequent book to enter the candidates after many rare ones");
+    }
+
+    @Test
+    public void testNewBooksAreAdmittedAfterOldLeadersSlideOut() {
+        for (int i = 0; i < 200; i++) {
+            Book leader = new Book("old" + i, "Old", List.of("Author"));
+            for (int event = 0; event < 10; event++) {
+                tracker.bookSelected(leader);
+            }
+        }
+        clock.advance(Duration.ofHours(2));
+        tracker.bookSelected(BOOK1);
+        tracker.bookSelected(BOOK1);
+
+        assertEquals(List.of(new PopularBook(BOOK1, 2)), tracker.trending(TimeWindow.HOUR, 10),
+                "Expected a new book to be admitted once the old leaders have left the window");
+    }
+}
@@ -0,0 +1,70 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.user.Recommendation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FriendsCursorTest {
+    private static final Book BOOK1 = new Book("1", "Title1", List.of("Author1"));
+    private static final Book BOOK2 = new Book("2", "Title2", List.of("Author2"));
+    private static final Map<String, List<Book>> RECOMMENDATIONS =
+            Map.of("ann", List.of(BOOK1, BOOK2), "bob", List.of(), "cat", List.of(BOOK2));
+    private static final List<String> FRIENDS = List.of("ann", "bob", "cat");
+
+    @Test
+    public void testPageStopsInsideFriendsRecommendations() {
+        Page<Recommendation> page = FriendsCursor.page(FRIENDS, null, 1, RECOMMENDATIONS::get);
+
+        assertEquals(List.of(new Recommendation("ann", BOOK1)), page.items(), "Expected first recommendation");
+        assertEquals("0:1", page.nextCursor(), "Expected cursor at the friend's next book");
+    }
+
+    @Test
+    public void testPageContinuesFromCursorAndLooksUpEveryFriendOnce() {
+        List<String> lookedUp = new ArrayList<>();
+        Page<Recommendation> page = FriendsCursor.page(FRIENDS, "0:1", 10, friend -> {
+            lookedUp.add(friend);
+            return RECOMMENDATIONS.get(friend);
+        });
+
+        assertEquals(List.of(new Recommendation("ann", BOOK2), new Recommendation("cat", BOOK2)), page.items(),
+                "Expected page to continue after the cursor and skip friends without recommendations");
+        assertFalse(page.hasNext(), "Expected no cursor once the last recommendation is read");
+        assertEquals(FRIENDS, lookedUp, "Expected every friend to be looked up once");
+    }
+
+    @Test
+    public void testPageReadsAtMostTheCapOfFriends() {
+        List<String> friends = new ArrayList<>();
+        for (int i = 0; i <= FriendsCursor.MAX_FRIENDS_PER_PAGE; i++) {
+            friends.add("friend" + i);
+        }
+        List<String> lookedUp = new ArrayList<>();
+        Page<Recommendation> page = FriendsCursor.page(friends, null, 10, friend -> {
+            lookedUp.add(friend);
+            return friend.equals(friends.getLast()) ? List.of(BOOK1) : List.of();
+        });
+
+        assertEquals(List.of(), page.items(), "Expected short page when the capped friends have no recommendations");
+        assertEquals(FriendsCursor.MAX_FRIENDS_PER_PAGE + ":0", page.nextCursor(),
+                "Expected cursor at the first friend not read");
+        assertEquals(FriendsCursor.MAX_FRIENDS_PER_PAGE, lookedUp.size(), "Expected at most the cap of lookups");
+        assertEquals(List.of(new Recommendation(friends.getLast(), BOOK1)),
+                FriendsCursor.page(friends, page.nextCursor(), 10, friend -> List.of(BOOK1)).items(),
+                "Expected next page to continue with the remaining friends");
+    }
+
+    @Test
+    public void testNegativeCursorIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> FriendsCursor.page(FRIENDS, "-1:0", 1, RECOMMENDATIONS::get),
+                "Expected IllegalArgumentException for negative cursor");
+    }
+}
@@ -0,0 +1,698 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.BookNotInListException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.InvalidCredentials;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameDoesntExistException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.UserDoesntExistException;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.UsernameAlreadyExistsException;
+import bg.sofia.uni.fmi.mjt.goodreads.user.FriendSuggestion;
+import bg.sofia.uni.fmi.mjt.goodreads.user.Recommendation;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// behaviour every Storage implementation has to share, run against the same users and bookshelves tables
+public abstract class StorageContractTest {
+    private static final Book BOOK1 = new Book("1", "Title1", List.of("Author1"));
+    private static final Book BOOK2 = new Book("2", "Title2", List.of("Author3"));
+    private static final Book BOOK3 = new Book("3", "Title3", List.of("Author3"));
+    private static final User USER1 = new User("1", "user1", "password",
+            List.of("user2", "user3"), List.of(BOOK1));
+    private static final User USER2 = new User("2", "user2", "password",
+            Collections.emptyList(), Collections.emptyList());
+    private static final User USER3 = new User("3", "user3", "password",
+            List.of("user1"), List.of(BOOK3));
+
+    private static final Map<String, Map<String, List<Book>>> USER_LISTS = Map.of(
+            "1", Map.of("want-to-read", List.of(BOOK2), "read", List.of(BOOK1)),
+            "2", Map.of("want-to-read", List.of(BOOK1, BOOK2))
+    );
+
+    private static final String USER_LIST_JSON = "[" +
+            "{" +
+            "\"id\":\"1\"," +
+            "\"username\":\"user1\"," +
+            "\"password\":\"password\"," +
+            "\"friends\":[\"user2\",\"user3\"]," +
+            "\"recommendedBooks\":[{\"id\":\"1\",\"title\":\"Title1\",\"authors\":[\"Author1\"]}]" +
+            "}," +
+            "{" +
+            "\"id\":\"2\"," +
+            "\"username\":\"user2\"," +
+            "\"password\":\"password\"," +
+            "\"friends\":[]," +
+            "\"recommendedBooks\":[]" +
+            "}," +
+            "{" +
+            "\"id\":\"3\"," +
+            "\"username\":\"user3\"," +
+            "\"password\":\"password\"," +
+            "\"friends\":[\"user1\"]," +
+            "\"recommendedBooks\":[{\"id\":\"3\",\"title\":\"Title3\",\"authors\":[\"Author3\"]}]" +
+            "}" +
+            "]";
+
+    private static final String BOOKSHELFS_JSON = "{" +
+            "\"2\":{" +
+            "\"want-to-read\":[" +
+            "{\"id\":\"1\",\"title\":\"Title1\",\"authors\":[\"Author1\"]}," +
+            "{\"id\":\"2\",\"title\":\"Title2\",\"authors\":[\"Author3\"]}" +
+            "]" +
+            "}," +
+            "\"1\":{" +
+            "\"want-to-read\":[{\"id\":\"2\",\"title\":\"Title2\",\"authors\":[\"Author3\"]}]," +
+            "\"read\":[{\"id\":\"1\",\"title\":\"Title1\",\"authors\":[\"Author1\"]}]" +
+            "}" +
+            "}";
+    protected Storage storage;
+
+    protected abstract Storage createStorage(Reader usersTableReader, Reader bookshelfTableReader) throws IOException;
+
+    @BeforeEach
+    public void setUpStorage() throws IOException {
+        storage = createStorage(new StringReader(USER_LIST_JSON), new StringReader(BOOKSHELFS_JSON));
+    }
+
+    @Test
+    public void testExistsForExistingUser() {
+        assertTrue(storage.exists(USER1.id()), "Exists method should return true for an existing user");
+    }
+
+    @Test
+    public void testExistsForNonexistentUser() {
+        assertFalse(storage.exists("randomId"), "Exists method should return false for a nonexistent user");
+    }
+
+    @Test
+    public void testExistsForEmptyUserId() {
+        assertFalse(storage.exists(""), "Exists method should return false for an empty user id");
+    }
+
+    @Test
+    public void testExistsForNullUserId() {
+        assertFalse(storage.exists(null), "Exists method should return false for a null user id");
+    }
+
+    @Test
+    public void testRegisterNewUserSaveToUpdater() throws Exception {
+        String username = "newUser";
+        String password = "password";
+
+        String userId = storage.register(username, password);
+
+        assertNotNull(userId, "User Id returned from register shouldn't be null");
+        assertFalse(userId.isEmpty(), "User Id returned from register shouldn't be empty");
+        assertTrue(storage.exists(userId), "Expected register to add the new user to storage");
+    }
+
+    @Test
+    public void testRegisterUserWithSameUsername() {
+        assertThrows(UsernameAlreadyExistsException.class,
+                () -> storage.register("user1", "anotherPassword"),
+                "Expected UsernameAlreadyExistsException when registering with used username"
+        );
+    }
+
+    @Test
+    public void testLoginWithValidCredentials() throws Exception {
+        String userId = storage.login("user1", "password");
+
+        assertNotNull(userId, "User Id returned from login shouldn't be null");
+        assertFalse(userId.isEmpty(), "User Id returned from login shouldn't be empty");
+        assertEquals("1", userId, "Expected user Id returned from login to match to the registered user's id");
+    }
+
+    @Test
+    public void testLoginWithInvalidUsername() {
+        assertThrows(InvalidCredentials.class, () -> storage.login("username", "password"),
+                "Expected InvalidCredentials exception when logging in with invalid username");
+    }
+
+    @Test
+    public void testLoginWithInvalidPassword() {
+        assertThrows(InvalidCredentials.class, () -> storage.login("user1", "invalidPassword"),
+                "Expected InvalidCredentials exception when logging in with invalid password");
+    }
+
+    @Test
+    public void testGetListWithValidListName() throws Exception {
+        String userId = "2";
+        String listName = "want-to-read";
+
+        List<Book> list = storage.getList(userId, listName);
+        assertNotNull(list, "Expected returned list to not be null");
+        assertEquals(2, list.size(), "Expected returned list to be the correct size");
+        assertTrue(list.contains(BOOK1), "Expected returned list to have the correct books");
+        assertTrue(list.contains(BOOK2), "Expected returned list to have the correct books");
+    }
+
+    @Test
+    public void testGetListReturnsSnapshot() throws Exception {
+        List<Book> list = storage.getList("2", "want-to-read");
+
+        storage.addToList("2", "want-to-read", BOOK3);
+
+        assertEquals(List.of(BOOK1, BOOK2), list, "Expected returned list not to change after later writes");
+        assertEquals(List.of(BOOK1, BOOK2, BOOK3), storage.getList("2", "want-to-read"),
+                "Expected the next read to see the write");
+        assertThrows(UnsupportedOperationException.class, () -> list.add(BOOK3),
+                "Expected returned list to be unmodifiable");
+    }
+
+    @Test
+    public void testGetListSeesCreatedAndRemovedLists() throws Exception {
+        storage.getList("1", "read");
+        storage.createList("1", "favourites");
+        storage.removeList("1", "read");
+
+        assertTrue(storage.getList("1", "favourites").isEmpty(), "Expected created list to be readable");
+        assertThrows(ListNameDoesntExistException.class, () -> storage.getList("1", "read"),
+                "Expected removed list not to be readable");
+    }
+
+    @Test
+    public void testGetUserFriendsReturnsSnapshot() throws Exception {
+        List<String> friends = storage.getUserFriends("2");
+
+        storage.addFriend("2", "user1");
+
+        assertTrue(friends.isEmpty(), "Expected returned friends not to change after later writes");
+        assertEquals(List.of("user1"), storage.getUserFriends("2"), "Expected the next read to see the new friend");
+    }
+
+    @Test
+    public void testReadsWhileWriting() throws Exception {
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 1000; i++) {
+                try {
+                    storage.addToList("2", "want-to-read", new Book("book" + i, "Title", List.of("Author")));
+                } catch (ListNameDoesntExistException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            List<Book> list = storage.getList("2", "want-to-read");
+            for (Book book : list) {
+                assertNotNull(book, "Expected every book of a snapshot to be readable while writing");
+            }
+        }
+        writer.join();
+
+        assertEquals(1002, storage.getList("2", "want-to-read").size(), "Expected every write to be visible");
+    }
+
+    @Test
+    public void testGetListWithInvalidListName() {
+        String userId = "1";
+        String invalidListName = "nonexistent-list";
+        assertThrows(ListNameDoesntExistException.class, () -> storage.getList(userId, invalidListName),
+                "Expected ListNameDoesntExistException when getting list that doesn't exist");
+    }
+
+    @Test
+    public void testGetListWithNonexistentUser() {
+        String userId = "nonexistent-user";
+        String listName = "want-to-read";
+
+        assertThrows(RuntimeException.class, () -> storage.getList(userId, listName),
+                "Expected RuntimeException when getting list from invalid  id");
+    }
+
+    @Test
+    public void testCreateListSuccessfully() throws Exception {
+        String userId = "1";
+        String newListName = "new-list";
+
+        storage.createList(userId, newListName);
+        assertThrows(ListNameAlreadyExistsException.class, () -> storage.createList(userId, newListName),
+                "Expected new list name to be added for the user");
+    }
+
+    @Test
+    public void testCreateListWithExistingListName() {
+        String userId = "1";
+        String existingListName = "want-to-read";
+
+        assertThrows(ListNameAlreadyExistsException.class, () -> storage.createList(userId, existingListName),
+                "Expected ListNameAlreadyExistsException when creating a list that already exists");
+    }
+
+    @Test
+    public void testCreateListForNonexistentUser() {
+        String userId = "nonexistent-user";
+        String newListName = "new-list";
+
+        assertThrows(RuntimeException.class, () -> storage.createList(userId, newListName),
+                "Expected RuntimeException when passing invalid id");
+    }
+
+    @Test
+    public void testRemoveListSuccessfully() throws Exception {
+        String userId = "1";
+        String listNameToRemove = "read";
+
+        storage.removeList(userId, listNameToRemove);
+
+        assertThrows(ListNameDoesntExistException.class, () -> storage.getList(userId, listNameToRemove),
+                "Expected list to be successfully removed");
+    }
+
+    @Test
+    public void testRemoveListWithNonexistentListName() {
+        String userId = "1";
+        String nonexistentListName = "nonexistent-list";
+
+        assertThrows(ListNameDoesntExistException.class, () -> storage.removeList(userId, nonexistentListName),
+                "Expected ListNameDoesntExistException when removing a list that doesn't exist");
+    }
+
+    @Test
+    public void testRemoveListForNonexistentUser() {
+        String userId = "nonexistent-user";
+        String listNameToRemove = "read";
+
+        assertThrows(RuntimeException.class, () -> storage.removeList(userId, listNameToRemove),
+                "Expected RuntimeException when passing invalid id");
+    }
+
+    @Test
+    public void testRemoveListForUserWithNoLists() {
+        String userId = "3";
+        String listNameToRemove = "read";
+
+        assertThrows(ListNameDoesntExistException.class, () -> storage.removeList(userId, listNameToRemove),
+                "Expected ListNameDoesntExistException exception when removing list for user with no lists");
+    }
+
+    @Test
+    public void testAddToListSuccessfully() throws Exception {
+        String userId = "1";
+        String listName = "want-to-read";
+        Book bookToAdd = new Book("4", "Title4", List.of("Author4"));
+
+        storage.addToList(userId, listName, bookToAdd);
+
+        List<Book> updatedList = storage.getList(userId, listName);
+        assertTrue(updatedList.contains(bookToAdd),
+                "Expected book to be added to the given list name");
+    }
+
+    @Test
+    public void testAddToListForUserWithNoLists() {
+        String userId = "3";
+        String targetList = "read";
+
+        assertThrows(ListNameDoesntExistException.class, () -> storage.addToList(userId, targetList, BOOK1),
+                "Expected ListNameDoesntExistException exception when adding to list for user with no lists");
+    }
+
+    @Test
+    public void testAddToListWithNonexistentListName() {
+        String userId = "1";
+        String nonexistentListName = "nonexistent-list";
+        Book bookToAdd = new Book("4", "Title4", List.of("Author4"));
+
+        assertThrows(ListNameDoesntExistException.class,
+                () -> storage.addToList(userId, nonexistentListName, bookToAdd),
+                "Expected ListNameDoesntExistException when adding to list that doesn't exist");
+    }
+
+    @Test
+    public void testAddToListForNonexistentUser() {
+        String userId = "nonexistent-user";
+        String listName = "want-to-read";
+        Book bookToAdd = new Book("4", "Title4", List.of("Author4"));
+
+        assertThrows(RuntimeException.class, () -> storage.addToList(userId, listName, bookToAdd),
+                "Expected RuntimeException when passing invalid id");
+    }
+
+    @Test
+    public void testRemoveFromListSuccessfully() throws Exception {
+        String userId = "2";
+        String listName = "want-to-read";
+        int indexToRemove = 0;
+
+        storage.removeFromList(userId, listName, indexToRemove);
+
+        List<Book> updatedList = storage.getList(userId, listName);
+        assertEquals(1, updatedList.size(), "Expected list size to change after removing successfully");
+        assertEquals(BOOK2, updatedList.get(0), "Expected correct list after removing book");
+    }
+
+    @Test
+    public void testRemoveFromListForUserWithNoLists() {
+        String userId = "3";
+        String listNameToRemove = "read";
+
+        assertThrows(ListNameDoesntExistException.class, () -> storage.removeFromList(userId, listNameToRemove, 0),
+                "Expected ListNameDoesntExistException exception when removing from list for user with no lists");
+    }
+
+    @Test
+    public void testRemoveFromListWithNonexistentListName() {
+        String userId = "1";
+        String nonexistentListName = "nonexistent-list";
+        int indexToRemove = 0;
+
+        assertThrows(ListNameDoesntExistException.class,
+                () -> storage.removeFromList(userId, nonexistentListName, indexToRemove),
+                "Expected ListNameDoesntExistException when removing from list that doesn't exist");
+    }
+
+    @Test
+    public void testRemoveFromListWithIndexOutOfRange() {
+        String userId = "1";
+        String listName = "want-to-read";
+        int indexOutOfRange = BOOKSHELFS_JSON.length();
+
+        assertThrows(BookNotInListException.class, () -> storage.removeFromList(userId, listName, indexOutOfRange),
+                "Expected BookNotInListException when removing book with index outside list range");
+    }
+
+    @Test
+    public void testRemoveFromListForNonexistentUser() {
+        String userId = "nonexistent-user";
+        String listName = "want-to-read";
+        int indexToRemove = 0;
+
+        assertThrows(RuntimeException.class, () -> storage.removeFromList(userId, listName, indexToRemove),
+                "Expected RuntimeException when passing invalid id");
+    }
+
+    @Test
+    public void testAddToListIgnoresDuplicates() throws Exception {
+        storage.addToList("2", "want-to-read", BOOK1);
+
+        assertEquals(List.of(BOOK1, BOOK2), storage.getList("2", "want-to-read"),
+                "Expected book that is already in the list not to be added again");
+    }
+
+    @Test
+    public void testContainsBook() throws Exception {
+        assertTrue(storage.containsBook("2", "want-to-read", "2"), "Expected book in the list to be found");
+        assertFalse(storage.containsBook("2", "want-to-read", "3"), "Expected book not in the list not to be found");
+    }
+
+    @Test
+    public void testContainsBookWithNonexistentListName() {
+        assertThrows(ListNameDoesntExistException.class, () -> storage.containsBook("1", "nonexistent-list", "1"),
+                "Expected ListNameDoesntExistException when checking list that doesn't exist");
+    }
+
+    @Test
+    public void testRemoveBookFromListSuccessfully() throws Exception {
+        storage.removeBookFromList("2", "want-to-read", "1");
+
+        assertEquals(List.of(BOOK2), storage.getList("2", "want-to-read"),
+                "Expected only the book with the given id to be removed");
+    }
+
+    @Test
+    public void testRemoveBookFromListWithBookNotInList() {
+        assertThrows(BookNotInListException.class, () -> storage.removeBookFromList("1", "want-to-read", "3"),
+                "Expected BookNotInListException when removing book that isn't in the list");
+    }
+
+    @Test
+    public void testRemoveBookFromListWithNonexistentListName() {
+        assertThrows(ListNameDoesntExistException.class,
+                () -> storage.removeBookFromList("1", "nonexistent-list", "1"),
+                "Expected ListNameDoesntExistException when removing from list that doesn't exist");
+    }
+
+    @Test
+    public void testGetSimilarBooksFromLoadedLists() {
+        assertEquals(List.of(BOOK2), storage.getSimilarBooks("1", 10),
+                "Expected books shelved together on load to be similar");
+    }
+
+    @Test
+    public void testGetSimilarBooksFollowsListChanges() throws Exception {
+        storage.addToList("1", "read", BOOK3);
+        assertTrue(storage.getSimilarBooks("3", 10).containsAll(List.of(BOOK1, BOOK2)),
+                "Expected newly shelved book to become similar to the user's other books");
+
+        storage.removeList("1", "read");
+        assertTrue(storage.getSimilarBooks("3", 10).isEmpty(), "Expected books of a removed list to stop counting");
+    }
+
+    @Test
+    public void testGetSimilarBooksForUnknownBook() {
+        assertTrue(storage.getSimilarBooks("unknown", 10).isEmpty(), "Expected no similar books for unknown book");
+    }
+
+    @Test
+    public void testGetFriendsWithBookFromLoadedLists() throws Exception {
+        storage.addFriend("3", "user2");
+
+        assertEquals(Map.of("user1", List.of("read"), "user2", List.of("want-to-read")),
+                storage.getFriendsWithBook("3", "1"), "Expected friends with the lists holding the book");
+    }
+
+    @Test
+    public void testGetFriendsWithBookSkipsNonFriends() {
+        assertTrue(storage.getFriendsWithBook("2", "1").isEmpty(),
+                "Expected users who aren't friends not to be listed");
+    }
+
+    @Test
+    public void testGetFriendsWithBookFollowsListChanges() throws Exception {
+        storage.addToList("1", "want-to-read", BOOK1);
+        assertEquals(Map.of("user1", List.of("read", "want-to-read")), storage.getFriendsWithBook("3", "1"),
+                "Expected newly shelved book to be indexed");
+
+        storage.removeBookFromList("1", "read", "1");
+        storage.removeFromList("1", "want-to-read", 1);
+        assertTrue(storage.getFriendsWithBook("3", "1").isEmpty(), "Expected unshelved book to leave the index");
+    }
+
+    @Test
+    public void testGetFriendsWithBookAfterRemoveList() throws Exception {
+        storage.removeList("1", "read");
+
+        assertTrue(storage.getFriendsWithBook("3", "1").isEmpty(), "Expected books of removed list to leave the index");
+    }
+
+    @Test
+    public void testUsernameFilterKnowsLoadedAndRegisteredUsers() throws Exception {
+        String userId = storage.register("newUser", "password");
+
+        assertEquals(userId, storage.login("newUser", "password"), "Expected registered user to pass the filter");
+        storage.addFriend("1", "newUser");
+        assertTrue(storage.getUserFriends("1").contains("newUser"), "Expected registered user to be added as friend");
+    }
+
+    @Test
+    public void testSuggestFriends() {
+        assertEquals(List.of(new FriendSuggestion("user2", 1)), storage.suggestFriends("3", 10),
+                "Expected friends of friends who aren't friends yet");
+    }
+
+    @Test
+    public void testSuggestFriendsSkipsExistingFriends() throws Exception {
+        storage.addFriend("3", "user2");
+
+        assertTrue(storage.suggestFriends("3", 10).isEmpty(), "Expected existing friends not to be suggested");
+    }
+
+    @Test
+    public void testAddFriendSuccessfully() throws Exception {
+        storage.addFriend("2", "user3");
+        assertTrue(storage.getUserFriends("2").contains("user3"),
+                "Expected correct list of friends after adding friend");
+    }
+
+    @Test
+    public void testAddFriendForNonexistentUser() {
+        assertThrows(RuntimeException.class, () -> storage.addFriend("nonexistent-user", "user2"),
+                "Expected RuntimeException when passing invalid id");
+    }
+
+    @Test
+    public void testAddFriendForNonexistentFriend() {
+        assertThrows(UserDoesntExistException.class, () -> storage.addFriend("1", "nonexistent-friend"),
+                "Expected UserDoesntExistException when passing username that doesn't exist");
+    }
+
+    @Test
+    public void testAddFriendDuplicateFriend() throws Exception {
+        storage.addFriend("1", "user2");
+        List<String> userFriendsSnapshot = storage.getUserFriends("1");
+        storage.addFriend("1", "user2");
+        assertEquals(userFriendsSnapshot, storage.getUserFriends("1"),
+                "Expected to not have duplicate friends");
+    }
+
+    @Test
+    public void testRecommendBookSuccessfully()  {
+        storage.recommendBook("1", BOOK2);
+        assertTrue(storage.getUserRecommendations("1").contains(BOOK2),
+                "Expected book to be added to recommended list.");
+    }
+
+    @Test
+    public void testRecommendBookDuplicateRecommendation() {
+        storage.recommendBook("2", BOOK2);
+        storage.recommendBook("2", BOOK2);
+        assertEquals(1, storage.getUserRecommendations("2").size(),
+                "Expected not to have duplicate recommended books");
+    }
+
+    @Test
+    public void testRecommendBookForNonexistentUser() {
+        assertThrows(RuntimeException.class, () -> storage.recommendBook("nonexistent-user", BOOK2),
+                "Expected RuntimeException when passing invalid id");
+    }
+
+    @Test
+    public void testGetFriendsRecommendationsSuccessfully() {
+        Map<String, List<Book>> friendsRecommendations = storage.getFriendsRecommendations("1");
+        assertTrue(friendsRecommendations.containsKey("user2"),
+                "Expected correct map of friends and recommended books");
+        assertTrue(friendsRecommendations.containsKey("user3"),
+                "Expected correct map of friends and recommended books");
+        assertEquals(0, friendsRecommendations.get("user2").size(),
+                "Expected correct lists for friends' recommendations");
+        assertEquals(1, friendsRecommendations.get("user3").size(),
+                "Expected correct lists for friends' recommendations");
+    }
+
+    @Test
+    public void testGetListPage() throws Exception {
+        Page<Book> first = storage.getList("2", "want-to-read", 0, 1);
+        Page<Book> second = storage.getList("2", "want-to-read", Integer.parseInt(first.nextCursor()), 1);
+
+        assertEquals(List.of(BOOK1), first.items(), "Expected first page to hold the first book");
+        assertEquals(List.of(BOOK2), second.items(), "Expected second page to continue from the offset");
+        assertFalse(second.hasNext(), "Expected no next page after the last book");
+    }
+
+    @Test
+    public void testGetListPageWithNegativeOffset() {
+        assertThrows(IllegalArgumentException.class, () -> storage.getList("2", "want-to-read", -1, 1),
+                "Expected IllegalArgumentException for negative offset");
+    }
+
+    @Test
+    public void testGetUserRecommendationsPage() {
+        storage.recommendBook("1", BOOK2);
+
+        Page<Book> page = storage.getUserRecommendations("1", 1, 1);
+
+        assertEquals(List.of(BOOK2), page.items(), "Expected page to start at the given offset");
+        assertFalse(page.hasNext(), "Expected no next page after the last recommendation");
+    }
+
+    @Test
+    public void testGetFriendsRecommendationsPages() {
+        storage.recommendBook("3", BOOK2);
+
+        Page<Recommendation> page = storage.getFriendsRecommendations("1", null, 2);
+
+        assertEquals(List.of(new Recommendation("user3", BOOK3), new Recommendation("user3", BOOK2)), page.items(),
+                "Expected friends without recommendations to be skipped");
+        assertFalse(page.hasNext(), "Expected no next page when all recommendations fit");
+    }
+
+    @Test
+    public void testGetFriendsRecommendationsPageContinuesFromCursor() {
+        storage.recommendBook("3", BOOK2);
+
+        Page<Recommendation> first = storage.getFriendsRecommendations("1", null, 1);
+        Page<Recommendation> second = storage.getFriendsRecommendations("1", first.nextCursor(), 1);
+
+        assertTrue(first.hasNext(), "Expected next page cursor when recommendations don't fit");
+        assertEquals(List.of(new Recommendation("user3", BOOK2)), second.items(),
+                "Expected next page to continue with the friend's next recommendation");
+    }
+
+    @Test
+    public void testGetFriendsRecommendationsInvalidCursor() {
+        assertThrows(IllegalArgumentException.class, () -> storage.getFriendsRecommendations("1", "abc", 1),
+                "Expected IllegalArgumentException for invalid cursor");
+    }
+
+    @Test
+    public void testRecommendationFeedContainsFriendsRecommendations() {
+        storage.recommendBook("2", BOOK2);
+
+        Page<Recommendation> feed = storage.getRecommendationFeed("1", null, 2);
+
+        assertEquals(List.of(new Recommendation("user2", BOOK2), new Recommendation("user3", BOOK3)), feed.items(),
+                "Expected friends' recommendations in the feed, newest first");
+        assertFalse(feed.hasNext(), "Expected no next page when the whole feed fits");
+    }
+
+    @Test
+    public void testRecommendationFeedPages() {
+        storage.recommendBook("2", BOOK2);
+
+        Page<Recommendation> first = storage.getRecommendationFeed("1", null, 1);
+        Page<Recommendation> second = storage.getRecommendationFeed("1", first.nextCursor(), 1);
+
+        assertTrue(first.hasNext(), "Expected next page cursor when the feed doesn't fit");
+        assertEquals(List.of(new Recommendation("user3", BOOK3)), second.items(),
+                "Expected next page to continue from the cursor");
+        assertFalse(second.hasNext(), "Expected no cursor after the last page");
+    }
+
+    @Test
+    public void testRecommendationFeedAfterAddFriend() throws Exception {
+        storage.addFriend("2", "user1");
+
+        assertEquals(List.of(new Recommendation("user1", BOOK1)), storage.getRecommendationFeed("2", null, 1).items(),
+                "Expected earlier recommendations of the new friend in the feed");
+    }
+
+    @Test
+    public void testRecommendationFeedSkipsNonFollowers() {
+        storage.recommendBook("1", BOOK2);
+
+        assertTrue(storage.getRecommendationFeed("2", null, 1).items().isEmpty(),
+                "Expected recommendation not to reach users who aren't friends with the recommender");
+    }
+
+    @Test
+    public void testGetFriendsRecommendationsForUserWithNoFriends() {
+        Map<String, List<Book>> friendsRecommendations = storage.getFriendsRecommendations("2");
+        assertTrue(friendsRecommendations.isEmpty(),
+                "Expected empty map for user with no friends");
+    }
+
+    @Test
+    public void testGetUserRecommendationsSuccessfully() {
+        List<Book> userRecommendations = storage.getUserRecommendations("1");
+        assertEquals(1, userRecommendations.size(), "Expected correct list of recommendations");
+        assertTrue(userRecommendations.contains(BOOK1), "Expected correct list of recommendations");
+    }
+
+    @Test
+    public void testGetUserRecommendationsForUserWithNoRecommendations() {
+        List<Book> userRecommendations = storage.getUserRecommendations("2");
+        assertTrue(userRecommendations.isEmpty(), "Expected empty list for user with no recommendations");
+    }
+
+    @Test
+    public void testGetUserRecommendationsForNonexistentUser() {
+        assertThrows(RuntimeException.class, () -> storage.getUserRecommendations("nonexistent-user"),
+                "Expeted RuntimeException when getting user that doesn't exist");
+    }
+}
@@ -0,0 +1,121 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.crdt;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CrdtProcessTest {
+    private static final long TIMEOUT_MILLIS = 20_000;
+    private static final long POLL_MILLIS = 50;
+    private static final long PARTITIONED_MILLIS = 500;
+
+    private final List<Process> processes = new ArrayList<>();
+    private final List<TcpProxy> proxies = new ArrayList<>();
+
+    private record Region(BufferedReader output, PrintWriter input) {
+        String send(String command) throws IOException {
+            input.println(command);
+            input.flush();
+            return output.readLine();
+        }
+
+        String awaitList(String userId, String listName, Predicate<String> expected) throws Exception {
+            long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+            String books = send("list " + userId + " " + listName);
+            while (!expected.test(books) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(POLL_MILLIS);
+                books = send("list " + userId + " " + listName);
+            }
+            return books;
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        for (Process process : processes) {
+            process.destroy();
+            process.waitFor();
+        }
+        for (TcpProxy proxy : proxies) {
+            proxy.close();
+        }
+    }
+
+    private Region launchRegion(String replica, int port, int peerPort) throws IOException, URISyntaxException {
+        String classPath = String.join(File.pathSeparator, codeLocation(CrdtStorage.class),
+                codeLocation(RegionProcess.class), codeLocation(Gson.class));
+        Process process = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", classPath, RegionProcess.class.getName(), replica, String.valueOf(port),
+                String.valueOf(peerPort))
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        processes.add(process);
+        Region region = new Region(
+                new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8)),
+                new PrintWriter(process.getOutputStream(), false, StandardCharsets.UTF_8));
+        assertEquals(RegionProcess.READY_MESSAGE, region.output().readLine(), "Expected the region to start");
+        return region;
+    }
+
+    private static String codeLocation(Class<?> type) throws URISyntaxException {
+        return Path.of(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private TcpProxy proxy(int port) throws IOException {
+        TcpProxy proxy = new TcpProxy(new InetSocketAddress("localhost", port));
+        proxies.add(proxy);
+        return proxy;
+    }
+
+    @Test
+    public void testRegionProcessesConvergeAcrossAPartition() throws Exception {
+        int eastPort = freePort();
+        int westPort = freePort();
+        TcpProxy toWest = proxy(westPort);
+        TcpProxy toEast = proxy(eastPort);
+        Region east = launchRegion("east", eastPort, toWest.address().getPort());
+        Region west = launchRegion("west", westPort, toEast.address().getPort());
+
+        String userId = east.send("register reader password");
+        assertEquals("", west.awaitList(userId, "read", String::isEmpty),
+                "Expected the user to reach the other region");
+
+        toWest.cut();
+        toEast.cut();
+        assertEquals("OK", east.send("add " + userId + " read a"), "Expected the write to succeed");
+        assertEquals("OK", west.send("add " + userId + " read b"), "Expected the write to succeed");
+        Thread.sleep(PARTITIONED_MILLIS);
+        assertEquals("b", west.send("list " + userId + " read"), "Expected the partition to hold back the write");
+
+        toWest.heal();
+        toEast.heal();
+        String converged = west.awaitList(userId, "read", books -> books.split(",").length == 2);
+        assertTrue(Set.of("a,b", "b,a").contains(converged), "Expected the writes of both sides, got " + converged);
+        assertEquals(converged, east.awaitList(userId, "read", converged::equals),
+                "Expected both regions to order the list the same way");
+    }
+}
@@ -0,0 +1,150 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.crdt;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.exception.ListNameDoesntExistException;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Storage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.StorageContractTest;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CrdtStorageTest extends StorageContractTest {
+    private static final Book BOOK_A = new Book("a", "TitleA", List.of("AuthorA"));
+    private static final Book BOOK_B = new Book("b", "TitleB", List.of("AuthorB"));
+    private static final Book BOOK_C = new Book("c", "TitleC", List.of("AuthorC"));
+
+    @Override
+    protected Storage createStorage(Reader usersTableReader, Reader bookshelfTableReader) throws IOException {
+        return new CrdtStorage("test", usersTableReader, bookshelfTableReader);
+    }
+
+    // two regions that collect each other's deltas, handed over only when the test says so
+    private final CrdtStorage east = new CrdtStorage("east");
+    private final CrdtStorage west = new CrdtStorage("west");
+    private final List<Delta> fromEast = collect(east);
+    private final List<Delta> fromWest = collect(west);
+
+    private static List<Delta> collect(CrdtStorage storage) {
+        List<Delta> deltas = new ArrayList<>();
+        storage.onDelta(deltas::add);
+        return deltas;
+    }
+
+    private void exchange() {
+        List<Delta> eastDeltas = List.copyOf(fromEast);
+        List<Delta> westDeltas = List.copyOf(fromWest);
+        fromEast.clear();
+        fromWest.clear();
+        eastDeltas.forEach(west::merge);
+        westDeltas.forEach(east::merge);
+        fromEast.clear();
+        fromWest.clear();
+    }
+
+    @Test
+    public void testConcurrentAddsToTheSameListConverge() throws Exception {
+        String userId = east.register("reader", "password");
+        exchange();
+
+        east.addToList(userId, "read", BOOK_A);
+        west.addToList(userId, "read", BOOK_B);
+        west.addToList(userId, "read", BOOK_C);
+        exchange();
+
+        assertEquals(east.getList(userId, "read"), west.getList(userId, "read"),
+                "Expected both regions to show the same list");
+        assertEquals(3, east.getList(userId, "read").size(), "Expected every concurrent add to be kept");
+    }
+
+    @Test
+    public void testListCreatedAgainSurvivesConcurrentRemoval() throws Exception {
+        String userId = east.register("reader", "password");
+        east.createList(userId, "later");
+        east.addToList(userId, "later", BOOK_A);
+        exchange();
+
+        east.removeList(userId, "later");
+        west.removeList(userId, "later");
+        west.createList(userId, "later");
+        west.addToList(userId, "later", BOOK_B);
+        exchange();
+
+        assertEquals(List.of(BOOK_B), east.getList(userId, "later"), "Expected the list added again to win");
+        assertEquals(List.of(BOOK_B), west.getList(userId, "later"), "Expected the list added again to win");
+    }
+
+    @Test
+    public void testRemovedListIsGoneInBothRegions() throws Exception {
+        String userId = east.register("reader", "password");
+        east.createList(userId, "later");
+        exchange();
+
+        west.removeList(userId, "later");
+        exchange();
+
+        assertThrows(ListNameDoesntExistException.class, () -> east.getList(userId, "later"),
+                "Expected the list removed in the other region to be gone");
+    }
+
+    @Test
+    public void testSameBookAddedInBothRegionsShowsOnce() throws Exception {
+        String userId = east.register("reader", "password");
+        exchange();
+
+        east.addToList(userId, "read", BOOK_A);
+        west.addToList(userId, "read", BOOK_A);
+        exchange();
+
+        assertEquals(List.of(BOOK_A), east.getList(userId, "read"), "Expected the book once");
+        east.removeBookFromList(userId, "read", "a");
+        exchange();
+        assertEquals(List.of(), west.getList(userId, "read"), "Expected the book removed from both regions");
+    }
+
+    @Test
+    public void testEarlierRegistrationKeepsTheUsername() throws Exception {
+        String eastId = east.register("same", "east-password");
+        Thread.sleep(2);
+        west.register("same", "west-password");
+        exchange();
+
+        assertEquals(eastId, east.login("same", "east-password"), "Expected the earlier registration to win");
+        assertEquals(eastId, west.login("same", "east-password"), "Expected the earlier registration to win");
+    }
+
+    @Test
+    public void testFriendRecommendationsReachTheFeedAfterMerge() throws Exception {
+        String friendId = east.register("friend", "password");
+        String userId = east.register("user", "password");
+        exchange();
+
+        west.addFriend(userId, "friend");
+        east.recommendBook(friendId, BOOK_A);
+        exchange();
+
+        assertEquals(Map.of("friend", List.of(BOOK_A)), west.getFriendsRecommendations(userId),
+                "Expected the recommendation made in the other region");
+        assertEquals(1, east.getRecommendationFeed(userId, null, 1).items().size(),
+                "Expected the feed to pick up the friend added in the other region");
+    }
+
+    @Test
+    public void testSnapshotBringsAnEmptyRegionUpToDate() throws Exception {
+        String userId = east.register("reader", "password");
+        east.addToList(userId, "read", BOOK_A);
+
+        CrdtStorage fresh = new CrdtStorage("fresh");
+        fresh.merge(east.snapshot());
+
+        assertEquals(List.of(BOOK_A), fresh.getList(userId, "read"), "Expected the snapshot to carry the lists");
+        assertFalse(fresh.merge(east.snapshot()), "Expected merging the same state twice to change nothing");
+    }
+}
@@ -0,0 +1,197 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.crdt;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DeltaSyncTest {
+    private static final int REGION_COUNT = 3;
+    private static final long TIMEOUT_MILLIS = 10_000;
+    private static final long POLL_MILLIS = 20;
+    private static final long PARTITIONED_MILLIS = 500;
+    private static final Book BOOK_A = new Book("a", "TitleA", List.of("AuthorA"));
+    private static final Book BOOK_B = new Book("b", "TitleB", List.of("AuthorB"));
+    private static final Book BOOK_C = new Book("c", "TitleC", List.of("AuthorC"));
+
+    private final CrdtStorage[] regions = new CrdtStorage[REGION_COUNT];
+    private final DeltaSync[] syncs = new DeltaSync[REGION_COUNT];
+    // proxies[from][to] carries the deltas region from sends to region to
+    private final TcpProxy[][] proxies = new TcpProxy[REGION_COUNT][REGION_COUNT];
+    private final int[] ports = new int[REGION_COUNT];
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        for (int region = 0; region < REGION_COUNT; region++) {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                ports[region] = socket.getLocalPort();
+            }
+        }
+        for (int from = 0; from < REGION_COUNT; from++) {
+            for (int to = 0; to < REGION_COUNT; to++) {
+                if (from != to) {
+                    proxies[from][to] = new TcpProxy(new InetSocketAddress("localhost", ports[to]));
+                }
+            }
+        }
+        for (int region = 0; region < REGION_COUNT; region++) {
+            startRegion(region, new CrdtStorage("region" + region));
+        }
+    }
+
+    private void startRegion(int region, CrdtStorage storage) throws IOException {
+        List<InetSocketAddress> peers = new ArrayList<>();
+        for (int to = 0; to < REGION_COUNT; to++) {
+            if (to != region) {
+                peers.add(proxies[region][to].address());
+            }
+        }
+        regions[region] = storage;
+        syncs[region] = new DeltaSync(storage, ports[region], peers);
+        syncs[region].start();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        for (DeltaSync sync : syncs) {
+            sync.close();
+        }
+        for (TcpProxy[] row : proxies) {
+            for (TcpProxy proxy : row) {
+                if (proxy != null) {
+                    proxy.close();
+                }
+            }
+        }
+    }
+
+    private void isolate(int region) throws IOException {
+        for (int other = 0; other < REGION_COUNT; other++) {
+            if (other != region) {
+                proxies[region][other].cut();
+                proxies[other][region].cut();
+            }
+        }
+    }
+
+    private void heal() {
+        for (TcpProxy[] row : proxies) {
+            for (TcpProxy proxy : row) {
+                if (proxy != null) {
+                    proxy.heal();
+                }
+            }
+        }
+    }
+
+    private static <T> T awaitValue(Callable<T> value, T expected) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        T last = null;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                last = value.call();
+                if (expected.equals(last)) {
+                    return last;
+                }
+            } catch (Exception e) {
+                // not replicated yet
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+        return last;
+    }
+
+    @Test
+    public void testWritesInEveryRegionReachEveryRegion() throws Exception {
+        String userId = regions[0].register("reader", "password");
+        for (CrdtStorage region : regions) {
+            assertEquals(userId, awaitValue(() -> region.login("reader", "password"), userId),
+                    "Expected the registration to reach every region");
+        }
+
+        regions[0].addToList(userId, "read", BOOK_A);
+        regions[1].createList(userId, "later");
+        regions[2].recommendBook(userId, BOOK_B);
+
+        for (CrdtStorage region : regions) {
+            assertEquals(List.of(BOOK_A), awaitValue(() -> region.getList(userId, "read"), List.of(BOOK_A)),
+                    "Expected the list from region 0");
+            assertEquals(List.of(), awaitValue(() -> region.getList(userId, "later"), List.of()),
+                    "Expected the list created in region 1");
+            assertEquals(List.of(BOOK_B),
+                    awaitValue(() -> region.getUserRecommendations(userId), List.of(BOOK_B)),
+                    "Expected the recommendation from region 2");
+        }
+    }
+
+    @Test
+    public void testPartitionedRegionsConvergeAfterHealing() throws Exception {
+        String userId = regions[0].register("reader", "password");
+        for (CrdtStorage region : regions) {
+            awaitValue(() -> region.getList(userId, "read"), List.of());
+        }
+
+        isolate(2);
+        regions[0].addToList(userId, "read", BOOK_A);
+        regions[2].addToList(userId, "read", BOOK_B);
+        regions[2].addToList(userId, "read", BOOK_C);
+        assertEquals(List.of(BOOK_A), awaitValue(() -> regions[1].getList(userId, "read"), List.of(BOOK_A)),
+                "Expected the regions on the same side to keep replicating");
+        Thread.sleep(PARTITIONED_MILLIS);
+        assertEquals(List.of(BOOK_B, BOOK_C), regions[2].getList(userId, "read"),
+                "Expected the isolated region to see only its own writes");
+
+        heal();
+        assertEquals(3, awaitValue(() -> regions[2].getList(userId, "read").size(), 3),
+                "Expected the writes of both sides after healing");
+        List<Book> converged = regions[2].getList(userId, "read");
+        for (CrdtStorage region : regions) {
+            assertEquals(converged, awaitValue(() -> region.getList(userId, "read"), converged),
+                    "Expected every region to show the same list in the same order");
+        }
+    }
+
+    @Test
+    public void testRemovalDuringPartitionWinsOnlyOverSeenAdds() throws Exception {
+        String userId = regions[0].register("reader", "password");
+        regions[0].createList(userId, "later");
+        for (CrdtStorage region : regions) {
+            awaitValue(() -> region.getList(userId, "later"), List.of());
+        }
+
+        isolate(1);
+        regions[0].removeList(userId, "later");
+        regions[1].removeList(userId, "later");
+        regions[1].createList(userId, "later");
+        heal();
+
+        for (CrdtStorage region : regions) {
+            assertEquals(List.of(), awaitValue(() -> region.getList(userId, "later"), List.of()),
+                    "Expected the list created again during the partition to survive");
+        }
+    }
+
+    @Test
+    public void testRestartedRegionGetsTheWholeState() throws Exception {
+        String userId = regions[0].register("reader", "password");
+        regions[0].addToList(userId, "read", BOOK_A);
+        awaitValue(() -> regions[1].getList(userId, "read"), List.of(BOOK_A));
+
+        syncs[1].close();
+        startRegion(1, new CrdtStorage("region1"));
+
+        assertEquals(List.of(BOOK_A), awaitValue(() -> regions[1].getList(userId, "read"), List.of(BOOK_A)),
+                "Expected the peers to send the restarted region their whole state");
+        assertTrue(regions[1].exists(userId), "Expected the user to be replicated");
+    }
+}
@@ -0,0 +1,69 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.crdt;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OrSetTest {
+    @Test
+    public void testConcurrentAddWinsOverRemove() {
+        OrSet east = new OrSet();
+        OrSet west = new OrSet();
+        west.merge(east.add("east", "friend"));
+
+        OrSet removal = east.remove("friend");
+        OrSet addition = west.add("west", "friend");
+        east.merge(addition);
+        west.merge(removal);
+
+        assertTrue(east.contains("friend"), "Expected the concurrent add to win");
+        assertTrue(west.contains("friend"), "Expected the concurrent add to win");
+    }
+
+    @Test
+    public void testRemoveOfSeenAddsSticks() {
+        OrSet east = new OrSet();
+        OrSet west = new OrSet();
+        west.merge(east.add("east", "friend"));
+        OrSet removal = west.remove("friend");
+
+        east.merge(removal);
+
+        assertFalse(east.contains("friend"), "Expected the removal to reach the other replica");
+        assertFalse(east.merge(removal), "Expected merging the same delta again to change nothing");
+    }
+
+    @Test
+    public void testDeltasConvergeInAnyOrder() {
+        OrSet source = new OrSet();
+        OrSet first = source.add("a", "x");
+        OrSet second = source.add("a", "y");
+        OrSet third = source.remove("x");
+
+        OrSet forward = new OrSet();
+        forward.merge(first);
+        forward.merge(second);
+        forward.merge(third);
+        OrSet backward = new OrSet();
+        backward.merge(third);
+        backward.merge(second);
+        backward.merge(first);
+
+        assertEquals(List.of("y"), forward.elements(), "Expected the removal to apply");
+        assertEquals(forward.elements(), backward.elements(), "Expected the merge order not to matter");
+    }
+
+    @Test
+    public void testElementsKeepTheirAddOrder() {
+        OrSet set = new OrSet();
+        set.add("a", "first");
+        set.add("a", "second");
+        set.add("a", "third");
+
+        assertEquals(List.of("first", "second", "third"), set.elements(), "Expected elements in add order");
+    }
+}
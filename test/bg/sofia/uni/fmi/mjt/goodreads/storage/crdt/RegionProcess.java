@@ -0,0 +1,56 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.crdt;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/*
+ * One region as its own process for CrdtProcessTest: RegionProcess <replica> <sync port> <peer port>...
+ * Reads commands from stdin and answers each with one line:
+ * register <username> <password>, add <user id> <list> <book id>, list <user id> <list>.
+ */
+public class RegionProcess {
+    public static final String READY_MESSAGE = "Region ready";
+    public static final String ERROR = "ERROR";
+
+    public static void main(String[] args) throws IOException {
+        List<InetSocketAddress> peers = new ArrayList<>();
+        for (int i = 2; i < args.length; i++) {
+            peers.add(new InetSocketAddress("localhost", Integer.parseInt(args[i])));
+        }
+        CrdtStorage storage = new CrdtStorage(args[0]);
+        try (DeltaSync sync = new DeltaSync(storage, Integer.parseInt(args[1]), peers)) {
+            sync.start();
+            System.out.println(READY_MESSAGE);
+            BufferedReader input = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            for (String line = input.readLine(); line != null; line = input.readLine()) {
+                System.out.println(execute(storage, line.split(" ")));
+            }
+        }
+    }
+
+    private static String execute(CrdtStorage storage, String[] command) {
+        try {
+            return switch (command[0]) {
+                case "register" -> storage.register(command[1], command[2]);
+                case "add" -> {
+                    storage.addToList(command[1], command[2], new Book(command[3], "Title", List.of("Author")));
+                    yield "OK";
+                }
+                case "list" -> storage.getList(command[1], command[2]).stream()
+                        .map(Book::id)
+                        .collect(Collectors.joining(","));
+                default -> ERROR;
+            };
+        } catch (Exception e) {
+            return ERROR;
+        }
+    }
+}
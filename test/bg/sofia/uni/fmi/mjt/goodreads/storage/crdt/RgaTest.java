@@ -0,0 +1,79 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.crdt;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class RgaTest {
+    private static final Book BOOK_A = new Book("a", "TitleA", List.of("AuthorA"));
+    private static final Book BOOK_B = new Book("b", "TitleB", List.of("AuthorB"));
+    private static final Book BOOK_C = new Book("c", "TitleC", List.of("AuthorC"));
+
+    private static List<Book> books(Rga rga) {
+        return rga.visible().stream().map(Rga.Node::book).toList();
+    }
+
+    @Test
+    public void testAppendKeepsInsertOrder() {
+        Rga rga = new Rga();
+        rga.append("a", BOOK_A);
+        rga.append("a", BOOK_B);
+        rga.append("a", BOOK_C);
+
+        assertEquals(List.of(BOOK_A, BOOK_B, BOOK_C), books(rga), "Expected books in append order");
+    }
+
+    @Test
+    public void testConcurrentAppendsConvergeInAnyMergeOrder() {
+        Rga base = new Rga();
+        Rga first = base.append("base", BOOK_A);
+        Rga east = new Rga();
+        Rga west = new Rga();
+        east.merge(first);
+        west.merge(first);
+
+        Rga fromEast = east.append("east", BOOK_B);
+        Rga fromWest = west.append("west", BOOK_C);
+        east.merge(fromWest);
+        west.merge(fromEast);
+
+        assertEquals(books(east), books(west), "Expected both replicas to order concurrent appends the same way");
+        assertEquals(3, books(east).size(), "Expected both concurrent appends to be kept");
+    }
+
+    @Test
+    public void testRemoveHidesTheNodeEverywhere() {
+        Rga east = new Rga();
+        Rga west = new Rga();
+        west.merge(east.append("east", BOOK_A));
+        west.merge(east.append("east", BOOK_B));
+
+        Rga removal = west.remove(Set.of(west.visible().getFirst().id()));
+        east.merge(removal);
+
+        assertEquals(List.of(BOOK_B), books(east), "Expected the removed book to be hidden");
+        assertFalse(east.merge(removal), "Expected merging the same removal again to change nothing");
+    }
+
+    @Test
+    public void testInsertAfterRemovedNodeKeepsItsPlace() {
+        Rga east = new Rga();
+        Rga west = new Rga();
+        west.merge(east.append("east", BOOK_A));
+        west.merge(east.append("east", BOOK_B));
+        Dot first = east.visible().getFirst().id();
+
+        Rga removal = east.remove(Set.of(first));
+        Rga insertion = west.insertAfter("west", first, BOOK_C);
+        east.merge(insertion);
+        west.merge(removal);
+
+        assertEquals(List.of(BOOK_C, BOOK_B), books(east), "Expected the insert to stay after the removed book");
+        assertEquals(books(east), books(west), "Expected both replicas to converge");
+    }
+}
@@ -0,0 +1,103 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.crdt;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// forwards connections to a target; cut() drops them and refuses new ones until heal(), like a network partition
+class TcpProxy implements Closeable {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final InetSocketAddress target;
+    private final ServerSocket serverSocket;
+    private final List<Socket> sockets;
+    private volatile boolean cut;
+
+    TcpProxy(InetSocketAddress target) throws IOException {
+        this.target = target;
+        this.serverSocket = new ServerSocket(0);
+        this.sockets = new CopyOnWriteArrayList<>();
+        Thread acceptor = new Thread(this::accept, "proxy-" + target);
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    InetSocketAddress address() {
+        return new InetSocketAddress("localhost", serverSocket.getLocalPort());
+    }
+
+    void cut() throws IOException {
+        cut = true;
+        for (Socket socket : sockets) {
+            socket.close();
+        }
+        sockets.clear();
+    }
+
+    void heal() {
+        cut = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        cut();
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket client = serverSocket.accept();
+                if (cut) {
+                    client.close();
+                    continue;
+                }
+                Socket server;
+                try {
+                    server = new Socket(target.getHostString(), target.getPort());
+                } catch (IOException e) {
+                    client.close();
+                    continue;
+                }
+                sockets.add(client);
+                sockets.add(server);
+                pipe(client, server);
+                pipe(server, client);
+            } catch (IOException e) {
+                // the proxy is closed
+            }
+        }
+    }
+
+    private void pipe(Socket from, Socket to) {
+        Thread pipe = new Thread(() -> {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (InputStream in = from.getInputStream(); OutputStream out = to.getOutputStream()) {
+                for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                    out.write(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                // either side went away
+            } finally {
+                closeQuietly(from);
+                closeQuietly(to);
+            }
+        });
+        pipe.setDaemon(true);
+        pipe.start();
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // already closed
+        }
+    }
+}
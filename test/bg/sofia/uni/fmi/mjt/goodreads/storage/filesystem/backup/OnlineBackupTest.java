@@ -0,0 +1,129 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.backup;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.FileSystemStorage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.format.JsonTableFormat;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater.StringUpdater;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class OnlineBackupTest {
+    private static final int USER_COUNT = 25;
+    private static final int PARALLELISM = 4;
+    private static final int USERS_PER_CHUNK = 3;
+    private static final Book BOOK = new Book("1", "Title1", List.of("Author1"));
+    private static final Book OTHER_BOOK = new Book("2", "Title2", List.of("Author2"));
+
+    private FileSystemStorage storage;
+    private String firstUserId;
+
+    private static FileSystemStorage storage(String usersTable, String bookshelfTable) throws IOException {
+        return new FileSystemStorage(new StringReader(usersTable), new StringReader(bookshelfTable),
+                new StringUpdater(""), new StringUpdater(""), mock(ScheduledExecutorService.class));
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        storage = storage("", "");
+        for (int i = 0; i < USER_COUNT; i++) {
+            String userId = storage.register("user" + i, "password" + i);
+            storage.addToList(userId, "read", BOOK);
+            if (i == 0) {
+                firstUserId = userId;
+            } else {
+                storage.addFriend(userId, "user0");
+            }
+        }
+        storage.recommendBook(firstUserId, OTHER_BOOK);
+    }
+
+    private FileSystemStorage restore(byte[] archive) throws IOException {
+        StringUpdater usersTable = new StringUpdater("");
+        StringUpdater bookshelfTable = new StringUpdater("");
+        new OnlineBackup(PARALLELISM, USERS_PER_CHUNK, OnlineBackup.UNTHROTTLED).restore(
+                new ByteArrayInputStream(archive), new JsonTableFormat(new Gson()), usersTable, bookshelfTable);
+        return storage(usersTable.getData(), bookshelfTable.getData());
+    }
+
+    private byte[] backup(OnlineBackup onlineBackup) throws IOException {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        onlineBackup.backup(storage, archive);
+        return archive.toByteArray();
+    }
+
+    @Test
+    public void testRestoreGivesBackEveryUser() throws Exception {
+        FileSystemStorage restored =
+                restore(backup(new OnlineBackup(PARALLELISM, USERS_PER_CHUNK, OnlineBackup.UNTHROTTLED)));
+
+        for (int i = 0; i < USER_COUNT; i++) {
+            String userId = restored.login("user" + i, "password" + i);
+            assertEquals(List.of(BOOK), restored.getList(userId, "read"), "Expected the lists to be restored");
+        }
+        String userId = restored.login("user1", "password1");
+        assertEquals(List.of("user0"), restored.getUserFriends(userId), "Expected the friends to be restored");
+        assertEquals(List.of(OTHER_BOOK), restored.getUserRecommendations(firstUserId),
+                "Expected the recommendations to be restored");
+    }
+
+    @Test
+    public void testBackupSummaryCountsChunks() throws Exception {
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        OnlineBackup.Summary summary = new OnlineBackup(PARALLELISM, USERS_PER_CHUNK, OnlineBackup.UNTHROTTLED)
+                .backup(storage, archive);
+
+        assertEquals(USER_COUNT, summary.users(), "Expected every user in the backup");
+        assertEquals((USER_COUNT + USERS_PER_CHUNK - 1) / USERS_PER_CHUNK, summary.chunks(),
+                "Expected the users to be cut into chunks");
+        assertEquals(archive.size(), summary.bytes(), "Expected the summary to count the archive bytes");
+    }
+
+    @Test
+    public void testSnapshotIsNotChangedByLaterWrites() throws Exception {
+        TablesSnapshot snapshot = storage.snapshotTables();
+
+        storage.register("late", "password");
+        storage.addToList(firstUserId, "read", OTHER_BOOK);
+
+        assertEquals(USER_COUNT, snapshot.users().size(), "Expected the snapshot to miss later users");
+        assertEquals(List.of(BOOK), snapshot.bookshelves().get(firstUserId).get("read"),
+                "Expected the snapshot to miss later books");
+    }
+
+    @Test
+    public void testThrottleSlowsTheBackupDown() throws Exception {
+        byte[] unthrottled = backup(new OnlineBackup(PARALLELISM, USERS_PER_CHUNK, OnlineBackup.UNTHROTTLED));
+        long bytesPerSecond = unthrottled.length * 5L;
+
+        long start = System.nanoTime();
+        byte[] throttled = backup(new OnlineBackup(PARALLELISM, USERS_PER_CHUNK, bytesPerSecond));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis >= 150, "Expected the throttle to pace the archive, took " + elapsedMillis + " ms");
+        assertEquals(unthrottled.length, throttled.length, "Expected the throttle not to change the archive");
+    }
+
+    @Test
+    public void testRestoreRejectsTruncatedArchive() throws Exception {
+        byte[] archive = backup(new OnlineBackup(PARALLELISM, USERS_PER_CHUNK, OnlineBackup.UNTHROTTLED));
+
+        assertThrows(IOException.class, () -> restore(Arrays.copyOf(archive, archive.length / 2)),
+                "Expected a truncated archive to be rejected");
+        assertThrows(IOException.class, () -> restore("not an archive".getBytes()),
+                "Expected a file that isn't an archive to be rejected");
+    }
+}
@@ -0,0 +1,53 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class BookCatalogTest {
+    @Test
+    public void testInternReturnsSameRefForSameBookId() {
+        BookCatalog catalog = new BookCatalog();
+
+        int first = catalog.intern(new Book("1", "Title1", List.of("Author1")));
+        int second = catalog.intern(new Book("1", "Title1", List.of("Author1")));
+
+        assertEquals(first, second, "Expected books with the same id to share a catalog entry");
+        assertEquals(1, catalog.size(), "Expected one entry per distinct book");
+    }
+
+    @Test
+    public void testInternSharesAuthors() {
+        BookCatalog catalog = new BookCatalog();
+
+        Book first = catalog.get(catalog.intern(new Book("1", "Title1", List.of(new String("Author")))));
+        Book second = catalog.get(catalog.intern(new Book("2", "Title2", List.of(new String("Author")))));
+
+        assertSame(first.authors().get(0), second.authors().get(0), "Expected author names to be shared");
+    }
+
+    @Test
+    public void testFindUnknownBook() {
+        BookCatalog catalog = new BookCatalog();
+        catalog.intern(new Book("1", "Title1", null));
+
+        assertEquals(-1, catalog.find("2"), "Expected -1 for a book that was never interned");
+        assertNull(catalog.get(catalog.find("1")).authors(), "Expected missing authors to stay null");
+    }
+
+    @Test
+    public void testInternGrowsCatalog() {
+        BookCatalog catalog = new BookCatalog();
+        for (int i = 0; i < 1000; i++) {
+            catalog.intern(new Book(String.valueOf(i), "Title" + i, List.of("Author")));
+        }
+
+        assertEquals(1000, catalog.size(), "Expected catalog to hold every interned book");
+        assertEquals("Title999", catalog.get(catalog.find("999")).title(), "Expected refs to stay valid");
+    }
+}
@@ -0,0 +1,146 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BookListTest {
+    private static final Book BOOK1 = new Book("1", "Title1", List.of("Author1"));
+    private static final Book BOOK2 = new Book("2", "Title2", List.of("Author2"));
+    private static final Book BOOK3 = new Book("3", "Title3", List.of("Author3"));
+
+    private BookCatalog catalog;
+    private BookList list;
+
+    @BeforeEach
+    public void setUp() {
+        catalog = new BookCatalog();
+        list = new BookList(catalog);
+    }
+
+    @Test
+    public void testAddAndGet() {
+        list.add(BOOK1);
+        list.add(BOOK2);
+        list.add(BOOK3);
+
+        assertEquals(List.of(BOOK1, BOOK2, BOOK3), list, "Expected books to be kept in insertion order");
+        assertEquals(catalog.find("2"), list.getRef(1), "Expected list to store catalog references");
+    }
+
+    @Test
+    public void testRemoveShiftsFollowingBooks() {
+        list.addAll(List.of(BOOK1, BOOK2, BOOK3));
+
+        assertEquals(BOOK1, list.remove(0), "Expected removed book to be returned");
+        assertEquals(List.of(BOOK2, BOOK3), list, "Expected following books to shift down");
+    }
+
+    @Test
+    public void testContainsMatchesById() {
+        list.add(BOOK1);
+
+        assertTrue(list.contains(new Book("1", "Title1", List.of("Author1"))), "Expected equal book to be found");
+        assertFalse(list.contains(BOOK2), "Expected book that isn't in the list not to be found");
+        assertFalse(list.contains("1"), "Expected non-book objects not to be found");
+    }
+
+    @Test
+    public void testGetOutOfRange() {
+        list.add(BOOK1);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(1),
+                "Expected IndexOutOfBoundsException for an index past the end");
+    }
+
+    @Test
+    public void testAddIgnoresDuplicates() {
+        assertTrue(list.add(BOOK1), "Expected new book to be added");
+        assertFalse(list.add(new Book("1", "Title1", List.of("Author1"))), "Expected duplicate book to be ignored");
+
+        assertEquals(1, list.size(), "Expected duplicate not to change the size");
+    }
+
+    @Test
+    public void testRemoveByIdKeepsOrder() {
+        list.addAll(List.of(BOOK1, BOOK2, BOOK3));
+
+        assertTrue(list.removeById("2"), "Expected book in the list to be removed");
+        assertFalse(list.removeById("2"), "Expected second removal of the same book to do nothing");
+        assertFalse(list.containsId("2"), "Expected removed book not to be found");
+        assertEquals(List.of(BOOK1, BOOK3), list, "Expected remaining books to keep their order");
+        assertEquals(1, list.indexOf(BOOK3), "Expected index to account for the removed book");
+    }
+
+    @Test
+    public void testRemoveByIdOfUnknownBook() {
+        list.add(BOOK1);
+
+        assertFalse(list.removeById("unknown"), "Expected removing unknown book id to do nothing");
+        assertEquals(List.of(BOOK1), list, "Expected list to be unchanged");
+    }
+
+    @Test
+    public void testReAddAfterRemove() {
+        list.addAll(List.of(BOOK1, BOOK2));
+        list.removeById("1");
+        list.add(BOOK1);
+
+        assertEquals(List.of(BOOK2, BOOK1), list, "Expected re-added book to go to the end");
+    }
+
+    @Test
+    public void testManyBooksStayIndexed() {
+        int count = 1000;
+        for (int i = 0; i < count; i++) {
+            list.add(new Book(String.valueOf(i), "Title" + i, List.of("Author")));
+        }
+        for (int i = 0; i < count; i += 2) {
+            list.removeById(String.valueOf(i));
+        }
+
+        assertEquals(count / 2, list.size(), "Expected every other book to be removed");
+        for (int i = 1; i < count; i += 2) {
+            assertTrue(list.containsId(String.valueOf(i)), "Expected remaining book " + i + " to be found");
+        }
+        assertEquals("1", list.get(0).id(), "Expected first remaining book at the front");
+    }
+
+    @Test
+    public void testSnapshotIsNotChangedByLaterWrites() {
+        list.addAll(List.of(BOOK1, BOOK2));
+        List<Book> snapshot = list.snapshot();
+
+        list.add(BOOK3);
+        list.removeById("1");
+
+        assertEquals(List.of(BOOK1, BOOK2), snapshot, "Expected snapshot to keep the books it was taken with");
+        assertEquals(List.of(BOOK2, BOOK3), list.snapshot(), "Expected new snapshot to see the writes");
+    }
+
+    @Test
+    public void testSnapshotAfterClear() {
+        list.addAll(List.of(BOOK1, BOOK2));
+        List<Book> snapshot = list.snapshot();
+
+        list.clear();
+        list.add(BOOK3);
+
+        assertEquals(List.of(BOOK1, BOOK2), snapshot, "Expected snapshot not to see books added after clear");
+    }
+
+    @Test
+    public void testSnapshotIsUnmodifiable() {
+        list.add(BOOK1);
+
+        assertThrows(UnsupportedOperationException.class, () -> list.snapshot().add(BOOK2),
+                "Expected UnsupportedOperationException when modifying a snapshot");
+    }
+}
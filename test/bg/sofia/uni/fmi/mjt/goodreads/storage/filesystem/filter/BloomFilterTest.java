@@ -0,0 +1,67 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.filter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BloomFilterTest {
+    private static final int INSERTIONS = 1000;
+    private static final double RATE = 0.01;
+
+    @Test
+    public void testNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(INSERTIONS, RATE);
+        for (int i = 0; i < INSERTIONS; i++) {
+            filter.add("user" + i);
+        }
+
+        for (int i = 0; i < INSERTIONS; i++) {
+            assertTrue(filter.mightContain("user" + i), "Expected added key to be reported as present");
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRateNearTarget() {
+        BloomFilter filter = new BloomFilter(INSERTIONS, RATE);
+        for (int i = 0; i < INSERTIONS; i++) {
+            filter.add("user" + i);
+        }
+        int falsePositives = 0;
+        int probes = 10 * INSERTIONS;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("missing" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue((double) falsePositives / probes < 2 * RATE, "Expected measured false positives near the target");
+        assertTrue(filter.falsePositiveRate() < 2 * RATE, "Expected estimated rate near the target");
+    }
+
+    @Test
+    public void testEmptyFilter() {
+        BloomFilter filter = new BloomFilter(INSERTIONS, RATE);
+
+        assertFalse(filter.mightContain("user"), "Expected empty filter to contain nothing");
+        assertEquals(0.0, filter.falsePositiveRate(), "Expected no false positives without keys");
+    }
+
+    @Test
+    public void testSizing() {
+        BloomFilter filter = new BloomFilter(INSERTIONS, RATE);
+
+        assertEquals(9586, filter.bitSize(), "Expected about 9.6 bits per key for a 1% rate");
+        assertEquals(7, filter.hashCount(), "Expected the optimal number of hashes");
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, RATE),
+                "Expected positive expected insertions");
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(INSERTIONS, 1),
+                "Expected rate below one");
+    }
+}
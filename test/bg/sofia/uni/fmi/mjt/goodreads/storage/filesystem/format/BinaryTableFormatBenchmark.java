@@ -0,0 +1,92 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.format;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater.FileUpdater;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+import com.google.gson.Gson;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compares table size, save and load time of the JSON and binary formats, run manually:
+// java ... BinaryTableFormatBenchmark [users] [books per list]
+public class BinaryTableFormatBenchmark {
+    private static final int DEFAULT_USERS = 50_000;
+    private static final int DEFAULT_BOOKS_PER_LIST = 20;
+    private static final int ROUNDS = 5;
+    private static final double NANOS_IN_MILLI = 1_000_000.0;
+    private static final double BYTES_IN_MEGABYTE = 1024.0 * 1024.0;
+
+    @FunctionalInterface
+    private interface Action {
+        void run() throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int usersCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_USERS;
+        int booksPerList = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_BOOKS_PER_LIST;
+
+        List<User> users = new ArrayList<>();
+        Map<String, Map<String, List<Book>>> bookshelves = new HashMap<>();
+        generate(usersCount, booksPerList, users, bookshelves);
+
+        Path dir = Files.createTempDirectory("badreads-formats");
+        System.out.printf("users=%d, books per list=%d%n", usersCount, booksPerList);
+        run("json", new JsonTableFormat(new Gson()), dir, users, bookshelves);
+        run("binary", new BinaryTableFormat(), dir, users, bookshelves);
+    }
+
+    private static void run(String name, TableFormat format, Path dir, List<User> users,
+                            Map<String, Map<String, List<Book>>> bookshelves) throws IOException {
+        Path usersTable = dir.resolve(name + "_users");
+        Path listsTable = dir.resolve(name + "_lists");
+        FileUpdater usersUpdater = new FileUpdater(usersTable.toFile());
+        FileUpdater listsUpdater = new FileUpdater(listsTable.toFile());
+
+        double save = best(() -> {
+            usersUpdater.update(out -> format.writeUsers(users, out));
+            listsUpdater.update(out -> format.writeBookshelves(bookshelves, out));
+        });
+        double load = best(() -> {
+            format.readUsers(usersTable, new BookCatalog());
+            format.readBookshelves(listsTable, new BookCatalog());
+        });
+        double size = (Files.size(usersTable) + Files.size(listsTable)) / BYTES_IN_MEGABYTE;
+        System.out.printf("%-8s size %8.1f MB, save %8.1f ms, load %8.1f ms%n", name, size, save, load);
+    }
+
+    private static double best(Action action) throws IOException {
+        long bestNanos = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            action.run();
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+        }
+        return bestNanos / NANOS_IN_MILLI;
+    }
+
+    private static void generate(int usersCount, int booksPerList, List<User> users,
+                                 Map<String, Map<String, List<Book>>> bookshelves) {
+        for (int i = 0; i < usersCount; i++) {
+            String id = "user-id-" + i;
+            List<Book> read = new ArrayList<>();
+            List<Book> wantToRead = new ArrayList<>();
+            for (int j = 0; j < booksPerList; j++) {
+                read.add(book(i + j));
+                wantToRead.add(book(i * booksPerList + j));
+            }
+            users.add(new User(id, "user" + i, "password", List.of("user" + (i + 1)), List.of(book(i))));
+            bookshelves.put(id, Map.of(User.READ_LIST_NAME, read, User.WANT_TO_READ_LIST_NAME, wantToRead));
+        }
+    }
+
+    private static Book book(int id) {
+        return new Book("book-" + id, "Title of book " + id, List.of("Author " + id % 1000));
+    }
+}
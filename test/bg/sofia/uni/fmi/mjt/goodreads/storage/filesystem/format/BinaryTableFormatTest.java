@@ -0,0 +1,145 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.format;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.loader.UsersTable;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BinaryTableFormatTest {
+    private static final Book BOOK1 = new Book("1", "Title1", List.of("Author1"));
+    private static final Book BOOK2 = new Book("2", "Заглавие", List.of("Author1", "Автор"));
+    private static final Book BOOK_WITHOUT_AUTHORS = new Book("3", "Title3", null);
+    private static final List<User> USERS = List.of(
+            new User("1", "user1", "password", List.of("user2"), List.of(BOOK1, BOOK_WITHOUT_AUTHORS)),
+            new User("2", "user2", "pass", List.of(), List.of())
+    );
+    private static final Map<String, Map<String, List<Book>>> BOOKSHELVES = Map.of(
+            "1", Map.of("read", List.of(BOOK1, BOOK2), "want-to-read", List.of()),
+            "2", Map.of("read", List.of(BOOK_WITHOUT_AUTHORS))
+    );
+
+    @TempDir
+    private Path tempDir;
+
+    private final BinaryTableFormat format = new BinaryTableFormat();
+
+    @Test
+    public void testUsersRoundTrip() throws IOException {
+        Path table = write(out -> format.writeUsers(USERS, out));
+
+        UsersTable loaded = format.readUsers(table, new BookCatalog());
+
+        assertEquals(USERS, loaded.users(), "Expected users to survive a binary round trip");
+        assertSame(loaded.users().get(1), loaded.usersByUsername().get("user2"),
+                "Expected loaded users to be indexed by username");
+    }
+
+    @Test
+    public void testLoadedUserListsAreMutable() throws IOException {
+        Path table = write(out -> format.writeUsers(USERS, out));
+
+        User user = format.readUsers(table, new BookCatalog()).usersById().get("2");
+        user.friends().add("user1");
+        user.recommendedBooks().add(BOOK1);
+
+        assertEquals(List.of("user1"), user.friends(), "Expected loaded friends list to accept new friends");
+    }
+
+    @Test
+    public void testBookshelvesRoundTrip() throws IOException {
+        Path table = write(out -> format.writeBookshelves(BOOKSHELVES, out));
+
+        Map<String, Map<String, List<Book>>> loaded = format.readBookshelves(table, new BookCatalog());
+
+        assertEquals(BOOKSHELVES, loaded, "Expected bookshelves to survive a binary round trip");
+        assertNull(loaded.get("2").get("read").get(0).authors(), "Expected missing authors to stay null");
+    }
+
+    @Test
+    public void testBooksAreSharedThroughTheCatalog() throws IOException {
+        Path users = write(out -> format.writeUsers(USERS, out));
+        Path bookshelves = tempDir.resolve("lists.bin");
+        try (OutputStream out = Files.newOutputStream(bookshelves)) {
+            format.writeBookshelves(BOOKSHELVES, out);
+        }
+        BookCatalog catalog = new BookCatalog();
+
+        Book recommended = format.readUsers(users, catalog).usersById().get("1").recommendedBooks().get(0);
+        Book shelved = format.readBookshelves(bookshelves, catalog).get("1").get("read").get(0);
+
+        assertSame(recommended, shelved, "Expected the same book to be loaded as a single canonical instance");
+        assertEquals(3, catalog.size(), "Expected the catalog to hold every distinct book once");
+    }
+
+    @Test
+    public void testReadMissingOrEmptyTable() throws IOException {
+        Path empty = Files.createFile(tempDir.resolve("empty.bin"));
+
+        assertTrue(format.readUsers(tempDir.resolve("missing.bin"), new BookCatalog()).users().isEmpty(),
+                "Expected missing table to load as empty");
+        assertTrue(format.readBookshelves(empty, new BookCatalog()).isEmpty(),
+                "Expected empty table to load as empty");
+    }
+
+    @Test
+    public void testReadWrongTableKind() throws IOException {
+        Path table = write(out -> format.writeUsers(USERS, out));
+
+        assertThrows(IOException.class, () -> format.readBookshelves(table, new BookCatalog()),
+                "Expected users table to be rejected when reading bookshelves");
+    }
+
+    @Test
+    public void testReadNonBinaryTable() throws IOException {
+        Path table = Files.writeString(tempDir.resolve("table.bin"), "[{\"id\":\"1\"}]");
+
+        assertThrows(IOException.class, () -> format.readUsers(table, new BookCatalog()),
+                "Expected JSON table to be rejected by the binary format");
+    }
+
+    @Test
+    public void testBinaryTableIsSmallerThanJson() throws IOException {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            users.add(new User(String.valueOf(i), "user" + i, "password", List.of("user1"), List.of(BOOK1, BOOK2)));
+        }
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+
+        new JsonTableFormat(new Gson()).writeUsers(users, json);
+        format.writeUsers(users, binary);
+
+        assertTrue(binary.size() < json.size() / 2, "Expected binary table to be much more compact than JSON");
+    }
+
+    private Path write(TableWriter writer) throws IOException {
+        Path table = tempDir.resolve("table.bin");
+        try (OutputStream out = Files.newOutputStream(table)) {
+            writer.write(out);
+        }
+        return table;
+    }
+
+    @FunctionalInterface
+    private interface TableWriter {
+        void write(OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,85 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.format;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater.FileUpdater;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MappedBookshelvesTest {
+    private static final Book BOOK1 = new Book("1", "Title1", List.of("Author1"));
+    private static final Book BOOK2 = new Book("2", "Title2", List.of("Author2"));
+    private static final Map<String, Map<String, List<Book>>> BOOKSHELVES = Map.of(
+            "1", Map.of("read", List.of(BOOK1), "want-to-read", List.of(BOOK2)),
+            "2", Map.of("read", List.of(BOOK2))
+    );
+
+    @TempDir
+    private Path tempDir;
+
+    private BinaryTableFormat format;
+    private FileUpdater updater;
+    private MappedBookshelves bookshelves;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Path segment = tempDir.resolve("lists_table.bin");
+        format = new BinaryTableFormat(true);
+        updater = new FileUpdater(segment.toFile());
+        updater.update(out -> format.writeBookshelves(BOOKSHELVES, out));
+        bookshelves = (MappedBookshelves) format.readBookshelves(segment, new BookCatalog());
+    }
+
+    @Test
+    public void testNothingIsDecodedUpFront() {
+        assertTrue(bookshelves.containsKey("1"), "Expected users in the segment to be known");
+        assertFalse(bookshelves.containsKey("3"), "Expected users missing from the segment to be unknown");
+        assertEquals(2, bookshelves.size(), "Expected size to count every user in the segment");
+        assertEquals(0, bookshelves.residentCount(), "Expected no bookshelf to be decoded before it's accessed");
+    }
+
+    @Test
+    public void testGetDecodesOnFirstAccess() {
+        assertEquals(BOOKSHELVES.get("1"), bookshelves.get("1"), "Expected lists to be decoded from the segment");
+        assertEquals(1, bookshelves.residentCount(), "Expected only the accessed user to become resident");
+        assertNull(bookshelves.get("3"), "Expected null for users missing from the segment");
+    }
+
+    @Test
+    public void testIterationDoesNotMakeUsersResident() {
+        Map<String, Map<String, List<Book>>> copy = new HashMap<>(bookshelves);
+
+        assertEquals(BOOKSHELVES, copy, "Expected iteration to visit every user in the segment");
+        assertEquals(0, bookshelves.residentCount(), "Expected iteration to leave cold users in the segment");
+    }
+
+    @Test
+    public void testSaveWritesChangesAndReleasesResidentUsers() throws IOException {
+        bookshelves.get("2").get("read").add(BOOK1);
+        Map<String, List<Book>> newUserLists = new HashMap<>();
+        newUserLists.put("read", new ArrayList<>(List.of(BOOK2)));
+        bookshelves.put("3", newUserLists);
+
+        updater.update(out -> format.writeBookshelves(bookshelves, out));
+        format.bookshelvesSaved(bookshelves);
+
+        assertEquals(0, bookshelves.residentCount(), "Expected saved users to be released from the working set");
+        assertEquals(List.of(BOOK2, BOOK1), bookshelves.get("2").get("read"),
+                "Expected changes to survive being written to the segment");
+        assertEquals(List.of(BOOK2), bookshelves.get("3").get("read"),
+                "Expected new users to be written to the segment");
+    }
+}
@@ -0,0 +1,59 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BookPostingsTest {
+    private BookPostings postings;
+
+    @BeforeEach
+    public void setUp() {
+        postings = new BookPostings();
+        postings.add(0, 1, "read");
+        postings.add(0, 1, "want-to-read");
+        postings.add(0, 2, "read");
+        postings.add(1, 3, "read");
+    }
+
+    @Test
+    public void testHolders() {
+        assertEquals(Map.of(1, List.of("read", "want-to-read"), 2, List.of("read")), postings.holders(0),
+                "Expected every user and list holding the book");
+        assertTrue(postings.holders(5).isEmpty(), "Expected no holders for unknown book");
+    }
+
+    @Test
+    public void testAddSameListTwice() {
+        postings.add(1, 3, "read");
+
+        assertEquals(Map.of(3, List.of("read")), postings.holders(1), "Expected list to be posted only once");
+    }
+
+    @Test
+    public void testRemove() {
+        postings.remove(0, 1, "read");
+        postings.remove(0, 2, "read");
+
+        assertEquals(Map.of(1, List.of("want-to-read")), postings.holders(0),
+                "Expected user to stay while another list holds the book");
+    }
+
+    @Test
+    public void testHoldersAmongFewerUsers() {
+        assertEquals(Map.of(2, List.of("read")), postings.holdersAmong(0, Set.of(2)),
+                "Expected only holders in the given set");
+    }
+
+    @Test
+    public void testHoldersAmongMoreUsers() {
+        assertEquals(Map.of(2, List.of("read")), postings.holdersAmong(0, Set.of(2, 3, 4, 5)),
+                "Expected only holders in the given set");
+    }
+}
@@ -0,0 +1,46 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FriendGraphTest {
+    private FriendGraph graph;
+
+    @BeforeEach
+    public void setUp() {
+        graph = new FriendGraph();
+    }
+
+    @Test
+    public void testAddUserIsIdempotent() {
+        int node = graph.addUser("1");
+
+        assertEquals(node, graph.addUser("1"), "Expected the same node for the same user id");
+        assertEquals(1, graph.size(), "Expected user to be added only once");
+        assertEquals("1", graph.userId(node), "Expected node to map back to the user id");
+    }
+
+    @Test
+    public void testNodeOfUnknownUser() {
+        assertEquals(FriendGraph.NO_NODE, graph.node("unknown"), "Expected NO_NODE for unknown user id");
+    }
+
+    @Test
+    public void testFollowKeepsBothDirections() {
+        int user = graph.addUser("1");
+        int friend = graph.addUser("2");
+
+        assertTrue(graph.follow(user, friend), "Expected new friendship to be added");
+        assertFalse(graph.follow(user, friend), "Expected existing friendship not to be added again");
+
+        assertEquals(Set.of(friend), graph.following(user), "Expected friend in the user's following set");
+        assertEquals(Set.of(user), graph.followers(friend), "Expected user in the friend's followers set");
+        assertTrue(graph.following(friend).isEmpty(), "Expected friendship to be one directional");
+    }
+}
@@ -0,0 +1,73 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FriendsOfFriendsTest {
+    private static final int BUDGET = 100;
+
+    private FriendGraph graph;
+
+    @BeforeEach
+    public void setUp() {
+        graph = new FriendGraph();
+        for (int i = 0; i < 6; i++) {
+            graph.addUser(String.valueOf(i));
+        }
+        // 0 follows 1 and 2, both follow 3, only 2 follows 4 and both follow 0 back
+        graph.follow(0, 1);
+        graph.follow(0, 2);
+        graph.follow(1, 3);
+        graph.follow(2, 3);
+        graph.follow(2, 4);
+        graph.follow(1, 0);
+        graph.follow(2, 0);
+        graph.follow(1, 2);
+    }
+
+    @Test
+    public void testRankByMutualFriends() {
+        assertEquals(List.of(new FriendsOfFriends.Candidate(3, 2), new FriendsOfFriends.Candidate(4, 1)),
+                FriendsOfFriends.rank(graph, 0, 10, BUDGET),
+                "Expected second degree connections ranked by mutual friends, without self and friends");
+    }
+
+    @Test
+    public void testRankLimit() {
+        assertEquals(List.of(new FriendsOfFriends.Candidate(3, 2)), FriendsOfFriends.rank(graph, 0, 1, BUDGET),
+                "Expected only the best candidates up to the limit");
+    }
+
+    @Test
+    public void testRankTiesByNode() {
+        graph.follow(1, 5);
+
+        assertEquals(List.of(new FriendsOfFriends.Candidate(3, 2), new FriendsOfFriends.Candidate(4, 1),
+                        new FriendsOfFriends.Candidate(5, 1)), FriendsOfFriends.rank(graph, 0, 10, BUDGET),
+                "Expected ties to be broken by node id");
+    }
+
+    @Test
+    public void testRankStopsAtBudget() {
+        // friend 1 is visited first and its three edges use up the budget
+        assertEquals(List.of(new FriendsOfFriends.Candidate(3, 1)), FriendsOfFriends.rank(graph, 0, 10, 3),
+                "Expected traversal to stop after the budget of edges");
+    }
+
+    @Test
+    public void testRankWithoutFriends() {
+        assertTrue(FriendsOfFriends.rank(graph, 5, 10, BUDGET).isEmpty(), "Expected no candidates without friends");
+    }
+
+    @Test
+    public void testRankNegativeLimit() {
+        assertThrows(IllegalArgumentException.class, () -> FriendsOfFriends.rank(graph, 0, -1, BUDGET),
+                "Expected negative limit to be rejected");
+    }
+}
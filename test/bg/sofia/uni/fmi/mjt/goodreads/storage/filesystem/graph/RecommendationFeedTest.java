@@ -0,0 +1,66 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.graph;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RecommendationFeedTest {
+    private static final int CAPACITY = 3;
+
+    private RecommendationFeed feed;
+
+    @BeforeEach
+    public void setUp() {
+        feed = new RecommendationFeed(CAPACITY);
+    }
+
+    @Test
+    public void testPageReturnsNewestFirst() {
+        feed.publish(0, 1, 10);
+        feed.publish(0, 2, 20);
+
+        List<RecommendationFeed.Entry> page = feed.page(0, RecommendationFeed.FROM_NEWEST, CAPACITY);
+
+        assertEquals(List.of(20, 10), page.stream().map(RecommendationFeed.Entry::bookRef).toList(),
+                "Expected newest entries first");
+        assertEquals(2, page.getFirst().author(), "Expected author to be kept with the entry");
+    }
+
+    @Test
+    public void testPageStartsBeforeCursor() {
+        feed.publish(0, 1, 10);
+        feed.publish(0, 1, 20);
+        feed.publish(0, 1, 30);
+
+        List<RecommendationFeed.Entry> first = feed.page(0, RecommendationFeed.FROM_NEWEST, 2);
+        List<RecommendationFeed.Entry> second = feed.page(0, first.getLast().sequence(), 2);
+
+        assertEquals(List.of(10), second.stream().map(RecommendationFeed.Entry::bookRef).toList(),
+                "Expected next page to continue after the last returned entry");
+    }
+
+    @Test
+    public void testFeedIsBounded() {
+        for (int book = 0; book < CAPACITY * 2; book++) {
+            feed.publish(0, 1, book);
+        }
+
+        List<RecommendationFeed.Entry> page = feed.page(0, RecommendationFeed.FROM_NEWEST, CAPACITY * 2);
+
+        assertEquals(CAPACITY, feed.size(0), "Expected feed to keep at most capacity entries");
+        assertEquals(List.of(5, 4, 3), page.stream().map(RecommendationFeed.Entry::bookRef).toList(),
+                "Expected oldest entries to be dropped");
+    }
+
+    @Test
+    public void testFeedsAreSeparatePerRecipient() {
+        feed.publish(0, 1, 10);
+
+        assertTrue(feed.page(1, RecommendationFeed.FROM_NEWEST, CAPACITY).isEmpty(),
+                "Expected empty feed for user without recommendations");
+    }
+}
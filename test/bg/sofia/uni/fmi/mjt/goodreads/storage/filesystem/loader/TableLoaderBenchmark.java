@@ -0,0 +1,142 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.loader;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+// Startup benchmark, run manually: java ... TableLoaderBenchmark [users] [books per list]
+public class TableLoaderBenchmark {
+    private static final int DEFAULT_USERS = 50_000;
+    private static final int DEFAULT_BOOKS_PER_LIST = 20;
+    private static final int ROUNDS = 5;
+    private static final double NANOS_IN_MILLI = 1_000_000.0;
+    private static final double BYTES_IN_MEGABYTE = 1024.0 * 1024.0;
+
+    private static final Type USERS_TYPE = new TypeToken<List<User>>() { }.getType();
+    private static final Type LISTS_TYPE = new TypeToken<Map<String, Map<String, List<Book>>>>() { }.getType();
+
+    @FunctionalInterface
+    private interface Load {
+        Object run(Path usersTable, Path listsTable) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int usersCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_USERS;
+        int booksPerList = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_BOOKS_PER_LIST;
+
+        Path dir = Files.createTempDirectory("badreads-startup");
+        Path usersTable = dir.resolve("users_table.json");
+        Path listsTable = dir.resolve("lists_table.json");
+        generateTables(usersCount, booksPerList, usersTable, listsTable);
+        System.out.printf("users=%d, users table=%.1f MB, lists table=%.1f MB%n", usersCount,
+                Files.size(usersTable) / BYTES_IN_MEGABYTE, Files.size(listsTable) / BYTES_IN_MEGABYTE);
+
+        measure("gson reflection, sequential", usersTable, listsTable, TableLoaderBenchmark::loadWithReflection);
+        measure("streaming loader, parallel", usersTable, listsTable, TableLoaderBenchmark::loadStreaming);
+    }
+
+    private static Object loadWithReflection(Path usersTable, Path listsTable) throws IOException {
+        Gson gson = new Gson();
+        try (Reader users = new FileReader(usersTable.toFile()); Reader lists = new FileReader(listsTable.toFile())) {
+            List<User> loadedUsers = gson.fromJson(users, USERS_TYPE);
+            Map<String, Map<String, List<Book>>> loadedLists = gson.fromJson(lists, LISTS_TYPE);
+            return List.of(loadedUsers, loadedLists);
+        }
+    }
+
+    private static Object loadStreaming(Path usersTable, Path listsTable) throws Exception {
+        BookCatalog catalog = new BookCatalog();
+        try (Reader users = TableLoader.openTable(usersTable); Reader lists = TableLoader.openTable(listsTable)) {
+            CompletableFuture<UsersTable> loadedUsers = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return TableLoader.readUsers(users, catalog);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            Map<String, Map<String, List<Book>>> loadedLists = TableLoader.readBookshelves(lists, catalog);
+            return List.of(loadedUsers.join(), loadedLists);
+        }
+    }
+
+    private static void measure(String name, Path usersTable, Path listsTable, Load load) throws Exception {
+        long bestNanos = Long.MAX_VALUE;
+        long peakHeap = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            System.gc();
+            resetPeakHeap();
+            long start = System.nanoTime();
+            Object loaded = load.run(usersTable, listsTable);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+            peakHeap = Math.max(peakHeap, peakHeap());
+            if (loaded == null) {
+                throw new IllegalStateException("Nothing loaded");
+            }
+        }
+        System.out.printf("%-32s best load %8.1f ms, peak heap %8.1f MB%n", name,
+                bestNanos / NANOS_IN_MILLI, peakHeap / BYTES_IN_MEGABYTE);
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    private static void generateTables(int usersCount, int booksPerList, Path usersTable, Path listsTable)
+            throws IOException {
+        List<User> users = new ArrayList<>();
+        Map<String, Map<String, List<Book>>> bookshelves = new HashMap<>();
+        for (int i = 0; i < usersCount; i++) {
+            String id = "user-id-" + i;
+            List<Book> read = new ArrayList<>();
+            List<Book> wantToRead = new ArrayList<>();
+            for (int j = 0; j < booksPerList; j++) {
+                read.add(book(i + j));
+                wantToRead.add(book(i * booksPerList + j));
+            }
+            users.add(new User(id, "user" + i, "password", List.of("user" + (i + 1)), List.of(book(i))));
+            bookshelves.put(id, Map.of(User.READ_LIST_NAME, read, User.WANT_TO_READ_LIST_NAME, wantToRead));
+        }
+        Gson gson = new Gson();
+        try (Writer usersWriter = Files.newBufferedWriter(usersTable);
+             Writer listsWriter = Files.newBufferedWriter(listsTable)) {
+            gson.toJson(users, USERS_TYPE, usersWriter);
+            gson.toJson(bookshelves, LISTS_TYPE, listsWriter);
+        }
+    }
+
+    private static Book book(int id) {
+        return new Book("book-" + id, "Title of book " + id, List.of("Author " + id % 1000));
+    }
+}
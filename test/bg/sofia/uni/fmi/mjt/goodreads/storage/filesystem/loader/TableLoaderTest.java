@@ -0,0 +1,80 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.loader;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TableLoaderTest {
+    private static final Book BOOK1 = new Book("1", "Title1", List.of("Author1"));
+    private static final Book BOOK2 = new Book("2", "Title2", List.of("Author2", "Author3"));
+
+    private static final String USERS_JSON = "[" +
+            "{\"id\":\"1\",\"username\":\"user1\",\"password\":\"password\",\"friends\":[\"user2\"]," +
+            "\"recommendedBooks\":[{\"id\":\"1\",\"title\":\"Title1\",\"authors\":[\"Author1\"]}]}," +
+            "{\"id\":\"2\",\"username\":\"user2\",\"password\":\"pass\",\"friends\":[],\"recommendedBooks\":[]}" +
+            "]";
+
+    private static final String BOOKSHELVES_JSON = "{" +
+            "\"1\":{\"read\":[{\"id\":\"1\",\"title\":\"Title1\",\"authors\":[\"Author1\"]}]," +
+            "\"want-to-read\":[{\"id\":\"2\",\"title\":\"Title2\",\"authors\":[\"Author2\",\"Author3\"]}]}," +
+            "\"2\":{\"read\":[],\"want-to-read\":[]}" +
+            "}";
+
+    @Test
+    public void testReadUsers() throws IOException {
+        UsersTable table = TableLoader.readUsers(new StringReader(USERS_JSON), new BookCatalog());
+
+        User expected = new User("1", "user1", "password", List.of("user2"), List.of(BOOK1));
+        assertEquals(2, table.users().size(), "Expected every user in the table to be loaded");
+        assertEquals(expected, table.users().get(0), "Expected user fields to be decoded correctly");
+    }
+
+    @Test
+    public void testReadUsersBuildsIndexes() throws IOException {
+        UsersTable table = TableLoader.readUsers(new StringReader(USERS_JSON), new BookCatalog());
+
+        assertSame(table.users().get(1), table.usersById().get("2"), "Expected users to be indexed by id");
+        assertSame(table.users().get(1), table.usersByUsername().get("user2"),
+                "Expected users to be indexed by username");
+    }
+
+    @Test
+    public void testReadUsersFromEmptyTable() throws IOException {
+        UsersTable table = TableLoader.readUsers(new StringReader(""), new BookCatalog());
+
+        assertTrue(table.users().isEmpty(), "Expected empty table to produce no users");
+        assertTrue(table.usersById().isEmpty(), "Expected empty table to produce an empty index");
+    }
+
+    @Test
+    public void testReadBookshelves() throws IOException {
+        Map<String, Map<String, List<Book>>> bookshelves =
+                TableLoader.readBookshelves(new StringReader(BOOKSHELVES_JSON), new BookCatalog());
+
+        assertEquals(2, bookshelves.size(), "Expected every user's bookshelf to be loaded");
+        assertEquals(List.of(BOOK1), bookshelves.get("1").get("read"), "Expected list books to be decoded");
+        assertEquals(List.of(BOOK2), bookshelves.get("1").get("want-to-read"), "Expected list books to be decoded");
+        assertTrue(bookshelves.get("2").get("read").isEmpty(), "Expected empty lists to be kept");
+    }
+
+    @Test
+    public void testReadBookWithNullAuthors() throws IOException {
+        String json = "{\"1\":{\"read\":[{\"id\":\"1\",\"title\":\"Title1\",\"authors\":null}]}}";
+
+        Map<String, Map<String, List<Book>>> bookshelves =
+                TableLoader.readBookshelves(new StringReader(json), new BookCatalog());
+
+        assertNull(bookshelves.get("1").get("read").get(0).authors(), "Expected missing authors to stay null");
+    }
+}
@@ -0,0 +1,67 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.similarity;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookList;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+// Similar books benchmark, run manually: java ... CoOccurrenceIndexBenchmark [users] [books] [books per user]
+public class CoOccurrenceIndexBenchmark {
+    private static final int DEFAULT_USERS = 50_000;
+    private static final int DEFAULT_BOOKS = 20_000;
+    private static final int DEFAULT_BOOKS_PER_USER = 30;
+    private static final int QUERIES = 10_000;
+    private static final int LIMIT = 10;
+    private static final long SEED = 42;
+    private static final double NANOS_IN_MILLI = 1_000_000.0;
+
+    public static void main(String[] args) {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_USERS;
+        int books = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_BOOKS;
+        int booksPerUser = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_BOOKS_PER_USER;
+
+        BookCatalog catalog = new BookCatalog();
+        Map<String, Map<String, List<Book>>> bookshelves = generateBookshelves(catalog, users, books, booksPerUser);
+
+        long start = System.nanoTime();
+        CoOccurrenceIndex index = CoOccurrenceIndex.build(bookshelves, catalog);
+        System.out.printf("full build: %.1f ms%n", (System.nanoTime() - start) / NANOS_IN_MILLI);
+
+        Random random = new Random(SEED);
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            index.similar(random.nextInt(catalog.size()), LIMIT);
+        }
+        System.out.printf("similar: %.3f ms per query%n", (System.nanoTime() - start) / NANOS_IN_MILLI / QUERIES);
+
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            String user = "user" + random.nextInt(users);
+            int ref = random.nextInt(catalog.size());
+            index.add(user, ref);
+            index.remove(user, ref);
+        }
+        System.out.printf("incremental add and remove: %.3f ms%n",
+                (System.nanoTime() - start) / NANOS_IN_MILLI / QUERIES);
+    }
+
+    // popular books are shelved more often, so the rows have a realistic skew
+    private static Map<String, Map<String, List<Book>>> generateBookshelves(BookCatalog catalog, int users,
+                                                                           int books, int booksPerUser) {
+        Random random = new Random(SEED);
+        Map<String, Map<String, List<Book>>> bookshelves = new HashMap<>();
+        for (int user = 0; user < users; user++) {
+            BookList read = new BookList(catalog);
+            while (read.size() < Math.min(booksPerUser, books)) {
+                int book = (int) (books * Math.pow(random.nextDouble(), 2));
+                read.add(new Book("book" + book, "Title " + book, List.of("Author " + book % LIMIT)));
+            }
+            bookshelves.put("user" + user, Map.of("read", read));
+        }
+        return bookshelves;
+    }
+}
@@ -0,0 +1,112 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.similarity;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.catalog.BookCatalog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CoOccurrenceIndexTest {
+    private static final Book BOOK1 = new Book("1", "Title1", List.of("Author1"));
+    private static final Book BOOK2 = new Book("2", "Title2", List.of("Author2"));
+    private static final Book BOOK3 = new Book("3", "Title3", List.of("Author3"));
+    private static final Book BOOK4 = new Book("4", "Title4", List.of("Author4"));
+
+    private BookCatalog catalog;
+    private Map<String, Map<String, List<Book>>> bookshelves;
+
+    @BeforeEach
+    public void setUp() {
+        catalog = new BookCatalog();
+        bookshelves = new HashMap<>();
+        bookshelves.put("a", Map.of("read", List.of(BOOK1, BOOK2), "want-to-read", List.of(BOOK3)));
+        bookshelves.put("b", Map.of("read", List.of(BOOK1, BOOK2)));
+        bookshelves.put("c", Map.of("read", List.of(BOOK1, BOOK4), "want-to-read", List.of(BOOK4)));
+        for (Book book : List.of(BOOK1, BOOK2, BOOK3, BOOK4)) {
+            catalog.intern(book);
+        }
+    }
+
+    @Test
+    public void testBuildCountsUsersSharingBooks() {
+        CoOccurrenceIndex index = CoOccurrenceIndex.build(bookshelves, catalog);
+
+        assertEquals(2, index.coOccurrences(ref(BOOK1), ref(BOOK2)), "Expected two users to have books 1 and 2");
+        assertEquals(1, index.coOccurrences(ref(BOOK1), ref(BOOK4)),
+                "Expected a book on two lists of the same user to be counted once");
+        assertEquals(0, index.coOccurrences(ref(BOOK2), ref(BOOK4)), "Expected no users to have books 2 and 4");
+    }
+
+    @Test
+    public void testSimilarOrdersByScore() {
+        CoOccurrenceIndex index = CoOccurrenceIndex.build(bookshelves, catalog);
+
+        assertEquals(List.of(BOOK2, BOOK3, BOOK4), index.similar(ref(BOOK1), 3),
+                "Expected the book shelved with book 1 by most of its readers first");
+        assertEquals(List.of(BOOK2), index.similar(ref(BOOK1), 1), "Expected result to be limited");
+        assertTrue(index.similar(-1, 3).isEmpty(), "Expected no similar books for an unknown book");
+    }
+
+    @Test
+    public void testIncrementalUpdatesMatchFullBuild() {
+        CoOccurrenceIndex index = CoOccurrenceIndex.build(Map.of(), catalog);
+        for (Map.Entry<String, Map<String, List<Book>>> bookshelf : bookshelves.entrySet()) {
+            for (List<Book> list : bookshelf.getValue().values()) {
+                for (Book book : list) {
+                    index.add(bookshelf.getKey(), ref(book));
+                }
+            }
+        }
+        CoOccurrenceIndex built = CoOccurrenceIndex.build(bookshelves, catalog);
+
+        for (Book book : List.of(BOOK1, BOOK2, BOOK3, BOOK4)) {
+            assertEquals(built.similar(ref(book), 3), index.similar(ref(book), 3),
+                    "Expected incremental index to match the full build for book " + book.id());
+        }
+    }
+
+    @Test
+    public void testRemoveOnlyWhenLastListDropsTheBook() {
+        CoOccurrenceIndex index = CoOccurrenceIndex.build(bookshelves, catalog);
+
+        index.remove("c", ref(BOOK4));
+        assertEquals(1, index.coOccurrences(ref(BOOK1), ref(BOOK4)),
+                "Expected book still on another list of the user to keep counting");
+
+        index.remove("c", ref(BOOK4));
+        assertEquals(0, index.coOccurrences(ref(BOOK1), ref(BOOK4)),
+                "Expected count to drop when the book leaves the user's last list");
+    }
+
+    @Test
+    public void testParallelBuildOfManyBooks() {
+        Map<String, Map<String, List<Book>>> many = new HashMap<>();
+        int users = 200;
+        int booksPerUser = 20;
+        for (int user = 0; user < users; user++) {
+            List<Book> read = new ArrayList<>();
+            for (int i = 0; i < booksPerUser; i++) {
+                read.add(new Book("book" + (user + i), "Title", List.of("Author")));
+            }
+            many.put("user" + user, Map.of("read", read));
+        }
+
+        CoOccurrenceIndex index = CoOccurrenceIndex.build(many, catalog);
+
+        int first = catalog.find("book50");
+        int second = catalog.find("book51");
+        assertEquals(booksPerUser - 1, index.coOccurrences(first, second),
+                "Expected adjacent books to be shared by all but one of their readers");
+    }
+
+    private int ref(Book book) {
+        return catalog.find(book.id());
+    }
+}
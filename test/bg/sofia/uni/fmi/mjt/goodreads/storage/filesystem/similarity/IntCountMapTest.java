@@ -0,0 +1,52 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.similarity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class IntCountMapTest {
+    @Test
+    public void testIncrementAndGet() {
+        IntCountMap map = new IntCountMap();
+
+        map.increment(7, 2);
+        map.increment(7, 1);
+
+        assertEquals(3, map.get(7), "Expected increments to add up");
+        assertEquals(0, map.get(8), "Expected zero for missing key");
+    }
+
+    @Test
+    public void testCountDroppingToZeroRemovesKey() {
+        IntCountMap map = new IntCountMap();
+        map.increment(1, 1);
+        map.increment(2, 1);
+
+        assertEquals(0, map.increment(1, -1), "Expected count to drop to zero");
+        assertEquals(1, map.size(), "Expected key with zero count to be removed");
+        assertArrayEquals(new int[] {2}, map.keys(), "Expected only the remaining key");
+    }
+
+    @Test
+    public void testManyKeysSurviveResizeAndRemoval() {
+        IntCountMap map = new IntCountMap();
+        int count = 1000;
+        for (int key = 0; key < count; key++) {
+            map.increment(key, key + 1);
+        }
+        for (int key = 0; key < count; key += 2) {
+            map.increment(key, -(key + 1));
+        }
+
+        assertEquals(count / 2, map.size(), "Expected every other key to be removed");
+        for (int key = 1; key < count; key += 2) {
+            assertEquals(key + 1, map.get(key), "Expected count of remaining key " + key + " to be kept");
+        }
+        int[] keys = map.keys();
+        Arrays.sort(keys);
+        assertEquals(1, keys[0], "Expected smallest remaining key to be 1");
+    }
+}
@@ -0,0 +1,194 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.tiering;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.FileSystemStorage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.backup.TablesSnapshot;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater.StringUpdater;
+import bg.sofia.uni.fmi.mjt.goodreads.user.Recommendation;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class ColdTierTest {
+    private static final Duration INACTIVITY = Duration.ofDays(30);
+    private static final Book BOOK = new Book("1", "Title1", List.of("Author1"));
+    private static final Book OTHER_BOOK = new Book("2", "Title2", List.of("Author2"));
+
+    private static class ManualClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    @TempDir
+    private Path directory;
+    private ManualClock clock;
+    private UserSegments segments;
+    private FileSystemStorage storage;
+    private String activeId;
+    private String idleId;
+
+    private FileSystemStorage openStorage() throws IOException {
+        return new FileSystemStorage(new StringReader(""), new StringReader(""), new StringUpdater(""),
+                new StringUpdater(""), mock(ScheduledExecutorService.class),
+                new ColdTier(segments, INACTIVITY, clock));
+    }
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        clock = new ManualClock();
+        segments = new UserSegments(directory, UserSegments.DEFAULT_SEGMENT_BYTES);
+        storage = openStorage();
+        activeId = storage.register("active", "password");
+        idleId = storage.register("idle", "password");
+        storage.addToList(idleId, "read", BOOK);
+        storage.recommendBook(idleId, OTHER_BOOK);
+        storage.addFriend(idleId, "active");
+        storage.addFriend(activeId, "idle");
+
+        clock.advance(INACTIVITY.dividedBy(2));
+        storage.login("active", "password");
+        clock.advance(INACTIVITY.dividedBy(2));
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        segments.close();
+    }
+
+    @Test
+    public void testOnlyInactiveUsersAreArchived() {
+        assertEquals(1, storage.archiveInactiveUsers(), "Expected only the idle user to be archived");
+        assertEquals(1, storage.coldTierStats().coldUsers(), "Expected one cold user");
+        assertTrue(storage.exists(idleId), "Expected a cold user to still exist");
+        assertEquals(List.of(activeId, idleId), storage.userIds(), "Expected cold users among the user ids");
+    }
+
+    @Test
+    public void testFriendsReadColdUserWithoutRehydrating() {
+        storage.archiveInactiveUsers();
+
+        assertEquals(Map.of("idle", List.of("read")), storage.getFriendsWithBook(activeId, BOOK.id()),
+                "Expected the cold friend's books to stay indexed");
+        assertEquals(Map.of("idle", List.of(OTHER_BOOK)), storage.getFriendsRecommendations(activeId),
+                "Expected the cold friend's recommendations to be read from the segment");
+        assertEquals(1, storage.getRecommendationFeed(activeId, null, 1).items().size(),
+                "Expected the cold friend's recommendations in the feed");
+        assertEquals(1, storage.coldTierStats().coldUsers(), "Expected the friend to stay cold");
+    }
+
+    @Test
+    public void testLoginRehydratesUser() throws Exception {
+        storage.archiveInactiveUsers();
+
+        assertEquals(idleId, storage.login("idle", "password"), "Expected a cold user to log in");
+        assertEquals(0, storage.coldTierStats().coldUsers(), "Expected the user to be hot again");
+        assertEquals(1, storage.coldTierStats().misses(), "Expected the rehydration to count as a miss");
+        assertEquals(List.of(BOOK), storage.getList(idleId, "read"), "Expected the lists to come back");
+        assertEquals(List.of("active"), storage.getUserFriends(idleId), "Expected the friends to come back");
+        assertEquals(List.of(OTHER_BOOK), storage.getUserRecommendations(idleId),
+                "Expected the recommendations to come back");
+        storage.addToList(idleId, "read", OTHER_BOOK);
+        assertEquals(List.of(BOOK, OTHER_BOOK), storage.getList(idleId, "read"),
+                "Expected a rehydrated user to take writes");
+    }
+
+    @Test
+    public void testBeingAddedAsFriendRehydratesUser() throws Exception {
+        storage.archiveInactiveUsers();
+        String newId = storage.register("new", "password");
+        storage.addFriend(newId, "idle");
+
+        assertEquals(0, storage.coldTierStats().coldUsers(), "Expected the new friend to be hot again");
+        assertEquals(Map.of("idle", List.of(OTHER_BOOK)), storage.getFriendsRecommendations(newId),
+                "Expected the friend's recommendations after following them");
+    }
+
+    @Test
+    public void testSnapshotIncludesColdUsers() {
+        storage.archiveInactiveUsers();
+        TablesSnapshot snapshot = storage.snapshotTables();
+
+        assertEquals(List.of("active", "idle"), snapshot.users().stream().map(User::username).toList(),
+                "Expected cold users in the snapshot");
+        assertEquals(List.of(BOOK), snapshot.bookshelves().get(idleId).get("read"),
+                "Expected cold users' lists in the snapshot");
+    }
+
+    @Test
+    public void testInactivityClockSurvivesRestart() throws Exception {
+        storage.archiveInactiveUsers();
+        clock.advance(INACTIVITY.dividedBy(2));
+
+        ColdTier reopened = new ColdTier(segments, INACTIVITY, clock);
+        reopened.load(Set.of(activeId));
+
+        assertTrue(reopened.inactive(activeId), "Expected the saved last activity to count after a restart");
+    }
+
+    @Test
+    public void testActivitySavedBetweenSweepsSurvivesRestart() throws Exception {
+        storage.saveActivity();
+        clock.advance(INACTIVITY.dividedBy(2));
+
+        ColdTier reopened = new ColdTier(segments, INACTIVITY, clock);
+        reopened.load(Set.of(activeId, idleId));
+
+        assertTrue(reopened.inactive(activeId), "Expected the activity saved with the tables to count");
+    }
+
+    @Test
+    public void testColdUsersSurviveRestart() throws Exception {
+        storage.archiveInactiveUsers();
+        storage.archiveInactiveUsers();
+        clock.advance(INACTIVITY);
+        storage.archiveInactiveUsers();
+
+        storage = openStorage();
+
+        assertEquals(2, storage.coldTierStats().coldUsers(), "Expected the archived users to be loaded cold");
+        assertEquals(Map.of("idle", List.of("read")), storage.getFriendsWithBook(activeId, BOOK.id()),
+                "Expected cold users to be indexed on load");
+        assertEquals(List.of(new Recommendation("idle", OTHER_BOOK)),
+                storage.getRecommendationFeed(activeId, null, 1).items(),
+                "Expected the feeds of cold users to be rebuilt on load");
+        assertEquals(idleId, storage.login("idle", "password"), "Expected a cold user to log in after restart");
+        assertEquals(List.of(BOOK), storage.getList(idleId, "read"), "Expected the lists after restart");
+    }
+}
@@ -0,0 +1,85 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.tiering;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UserSegmentsTest {
+    private static final int SMALL_SEGMENT_BYTES = 256;
+    private static final int TORN_BYTES = 5;
+
+    @TempDir
+    private Path directory;
+
+    private static byte[] data(String text) {
+        return text.repeat(20).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testAppendedRecordsReadBack() throws IOException {
+        try (UserSegments segments = new UserSegments(directory, UserSegments.DEFAULT_SEGMENT_BYTES)) {
+            long first = segments.append("1", "user1", data("first"));
+            long second = segments.append("2", "user2", data("second"));
+
+            assertArrayEquals(data("first"), segments.read(first), "Expected the first record back");
+            assertArrayEquals(data("second"), segments.read(second), "Expected the second record back");
+            assertTrue(segments.sizeBytes() < 2 * data("second").length, "Expected records to be compressed");
+        }
+    }
+
+    @Test
+    public void testScanFindsRecordsAcrossSegmentsAfterReopening() throws IOException {
+        try (UserSegments segments = new UserSegments(directory, SMALL_SEGMENT_BYTES)) {
+            for (int i = 0; i < 10; i++) {
+                segments.append(String.valueOf(i), "user" + i, data("record" + i));
+            }
+            segments.force();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertTrue(files.count() > 1, "Expected the records to roll over to new segments");
+        }
+        try (UserSegments segments = new UserSegments(directory, SMALL_SEGMENT_BYTES)) {
+            List<UserSegments.Entry> entries = segments.scan();
+
+            assertEquals(10, entries.size(), "Expected every record to be found");
+            assertEquals("user7", entries.get(7).username(), "Expected records in append order");
+            assertArrayEquals(data("record7"), segments.read(entries.get(7).location()),
+                    "Expected a scanned location to read its record");
+        }
+    }
+
+    @Test
+    public void testTornRecordIsTruncated() throws IOException {
+        try (UserSegments segments = new UserSegments(directory, UserSegments.DEFAULT_SEGMENT_BYTES)) {
+            segments.append("1", "user1", data("first"));
+            segments.append("2", "user2", data("second"));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - TORN_BYTES);
+        }
+        try (UserSegments segments = new UserSegments(directory, UserSegments.DEFAULT_SEGMENT_BYTES)) {
+            assertEquals(1, segments.scan().size(), "Expected the torn record to be dropped");
+            long third = segments.append("3", "user3", data("third"));
+
+            assertEquals(List.of("1", "3"), segments.scan().stream().map(UserSegments.Entry::userId).toList(),
+                    "Expected new records to follow the last complete one");
+            assertArrayEquals(data("third"), segments.read(third), "Expected the new record back");
+        }
+    }
+}
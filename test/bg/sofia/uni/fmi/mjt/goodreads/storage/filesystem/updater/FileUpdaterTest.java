@@ -0,0 +1,60 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FileUpdaterTest {
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    public void testUpdateReplacesFileContent() throws IOException {
+        Path table = Files.writeString(tempDir.resolve("table.json"), "old content");
+        FileUpdater updater = new FileUpdater(table.toFile());
+
+        updater.update("new content");
+
+        assertEquals("new content", Files.readString(table),
+                "Expected update to replace the content of the table");
+        assertFalse(Files.exists(tempDir.resolve("table.json.tmp")),
+                "Expected temporary snapshot file to be renamed over the table");
+    }
+
+    @Test
+    public void testUpdateWithSnapshotWriter() throws IOException {
+        Path table = tempDir.resolve("table.json");
+        FileUpdater updater = new FileUpdater(table.toFile());
+
+        updater.update(out -> {
+            out.write("[".getBytes(StandardCharsets.UTF_8));
+            out.write("]".getBytes(StandardCharsets.UTF_8));
+        });
+
+        assertEquals("[]", updater.getData(), "Expected streamed snapshot to be written to the table");
+    }
+
+    @Test
+    public void testFailedUpdateKeepsPreviousContent() throws IOException {
+        Path table = Files.writeString(tempDir.resolve("table.json"), "old content");
+        FileUpdater updater = new FileUpdater(table.toFile());
+
+        assertThrows(RuntimeException.class, () -> updater.update(out -> {
+            out.write("partial".getBytes(StandardCharsets.UTF_8));
+            throw new IOException("disk full");
+        }), "Expected failing snapshot writer to be reported");
+
+        assertEquals("old content", Files.readString(table),
+                "Expected table to be untouched when the snapshot fails midway");
+        assertFalse(Files.exists(tempDir.resolve("table.json.tmp")),
+                "Expected temporary snapshot file to be cleaned up");
+    }
+}
@@ -2,7 +2,11 @@ package bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class StringUpdaterTest {
     @Test
@@ -30,4 +34,32 @@ public class StringUpdaterTest {
         // Then
         assertEquals(newData, stringUpdater.getData());
     }
+
+    @Test
+    public void testUpdateWithSnapshotWriter() {
+        // Given
+        StringUpdater stringUpdater = new StringUpdater("initial data");
+
+        // When
+        stringUpdater.update(out -> out.write("streamed data".getBytes(StandardCharsets.UTF_8)));
+
+        // Then
+        assertEquals("streamed data", stringUpdater.getData());
+    }
+
+    @Test
+    public void testUpdateWithFailingSnapshotWriterKeepsData() {
+        // Given
+        String initialData = "initial data";
+        StringUpdater stringUpdater = new StringUpdater(initialData);
+
+        // When
+        assertThrows(RuntimeException.class, () -> stringUpdater.update(out -> {
+            out.write("partial".getBytes(StandardCharsets.UTF_8));
+            throw new IOException("disk full");
+        }));
+
+        // Then
+        assertEquals(initialData, stringUpdater.getData());
+    }
 }
@@ -0,0 +1,114 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.jdbc;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GroupCommitterTest {
+    private static final String URL = "jdbc:h2:mem:group-committer;DB_CLOSE_DELAY=-1";
+    private static final long QUEUE_DELAY_MILLIS = 200;
+
+    private GroupCommitter committer;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        committer = new GroupCommitter(new PooledConnection(DriverManager.getConnection(URL)));
+        committer.submit(connection -> connection.prepare("CREATE TABLE items (id INT PRIMARY KEY)").execute());
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        committer.submit(connection -> connection.prepare("DROP TABLE items").execute());
+        committer.close();
+    }
+
+    @Test
+    public void testFailedWriteDoesntRollBackItsGroup() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        // holds the writer so the next writes queue up behind it and are committed together
+        CompletableFuture<Void> blocker = CompletableFuture.runAsync(() -> committer.submit(connection -> {
+            awaitQuietly(release);
+            return null;
+        }));
+        CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> insert(1));
+        CompletableFuture<Integer> duplicate = CompletableFuture.supplyAsync(() -> insert(1));
+        CompletableFuture<Integer> second = CompletableFuture.supplyAsync(() -> insert(2));
+        Thread.sleep(QUEUE_DELAY_MILLIS);
+        release.countDown();
+        blocker.get();
+        CompletableFuture.allOf(first, duplicate, second).handle((ignored, failure) -> null).join();
+
+        assertTrue(first.isCompletedExceptionally() != duplicate.isCompletedExceptionally(),
+                "Expected exactly one of the two inserts of the same row to fail");
+        assertEquals(1, second.get(), "Expected other insert of the group to be committed");
+        assertEquals(2, count(), "Expected both valid rows in the table");
+        assertTrue(committer.groups() < committer.writes(), "Expected some writes to share a commit");
+    }
+
+    @Test
+    public void testCommittedActionSeesTheRowAndRunsBeforeTheCallerReturns() {
+        List<Integer> counted = new ArrayList<>();
+        committer.submit(connection -> {
+            var statement = connection.prepare("INSERT INTO items (id) VALUES (?)");
+            statement.setInt(1, 1);
+            return statement.executeUpdate();
+        }, inserted -> counted.add(countCommitted()));
+
+        assertEquals(List.of(1), counted, "Expected committed action to run once the row is committed");
+    }
+
+    @Test
+    public void testWriteExceptionReachesCaller() {
+        assertThrows(IllegalStateException.class, () -> committer.submit(connection -> {
+            throw new IllegalStateException("failed");
+        }), "Expected exception of the write to be thrown to the caller");
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int insert(int id) {
+        return committer.submit(connection -> {
+            var statement = connection.prepare("INSERT INTO items (id) VALUES (?)");
+            statement.setInt(1, id);
+            return statement.executeUpdate();
+        });
+    }
+
+    // reads on its own connection, so it only sees committed rows
+    private static int countCommitted() {
+        try (var connection = DriverManager.getConnection(URL);
+             ResultSet rows = connection.prepareStatement("SELECT COUNT(*) FROM items").executeQuery()) {
+            rows.next();
+            return rows.getInt(1);
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private int count() {
+        return committer.submit(connection -> {
+            try (ResultSet rows = connection.prepare("SELECT COUNT(*) FROM items").executeQuery()) {
+                rows.next();
+                return rows.getInt(1);
+            }
+        });
+    }
+}
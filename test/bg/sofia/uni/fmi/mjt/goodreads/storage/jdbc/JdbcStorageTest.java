@@ -0,0 +1,96 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.jdbc;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Storage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.StorageContractTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JdbcStorageTest extends StorageContractTest {
+    private static final int SESSIONS = 8;
+    private static final int WRITES_PER_SESSION = 50;
+
+    @TempDir
+    private Path directory;
+    private JdbcStorage jdbcStorage;
+
+    @Override
+    protected Storage createStorage(Reader usersTableReader, Reader bookshelfTableReader) throws IOException {
+        try {
+            jdbcStorage = new JdbcStorage(url(), usersTableReader, bookshelfTableReader);
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+        return jdbcStorage;
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        jdbcStorage.close();
+    }
+
+    @Test
+    public void testDataSurvivesReopening() throws Exception {
+        Book book = new Book("4", "Title4", List.of("Author4"));
+        String userId = jdbcStorage.register("newUser", "password");
+        jdbcStorage.addToList(userId, "read", book);
+        jdbcStorage.addFriend(userId, "user1");
+        jdbcStorage.close();
+
+        jdbcStorage = new JdbcStorage(url());
+
+        assertEquals(userId, jdbcStorage.login("newUser", "password"), "Expected user to be stored");
+        assertEquals(List.of(book), jdbcStorage.getList(userId, "read"), "Expected list to be stored");
+        assertEquals(List.of("user1"), jdbcStorage.getUserFriends(userId), "Expected friends to be stored");
+        assertEquals(1, jdbcStorage.getRecommendationFeed(userId, null, 1).items().size(),
+                "Expected feed to be rebuilt from the stored recommendations");
+    }
+
+    @Test
+    public void testConcurrentWritesAreGroupCommitted() throws Exception {
+        long writesBefore = jdbcStorage.committedWrites();
+        ExecutorService sessions = Executors.newFixedThreadPool(SESSIONS);
+        List<Future<?>> done = new ArrayList<>();
+        for (int session = 0; session < SESSIONS; session++) {
+            String listName = "list" + session;
+            done.add(sessions.submit(() -> {
+                jdbcStorage.createList("1", listName);
+                for (int i = 0; i < WRITES_PER_SESSION; i++) {
+                    jdbcStorage.addToList("1", listName, new Book("book" + i, "Title", List.of("Author")));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : done) {
+            future.get();
+        }
+        sessions.shutdown();
+
+        for (int session = 0; session < SESSIONS; session++) {
+            assertEquals(WRITES_PER_SESSION, jdbcStorage.getList("1", "list" + session).size(),
+                    "Expected every write of every session to be committed");
+        }
+        assertEquals(SESSIONS * (WRITES_PER_SESSION + 1), jdbcStorage.committedWrites() - writesBefore,
+                "Expected every write to go through the group committer");
+        assertTrue(jdbcStorage.committedGroups() <= jdbcStorage.committedWrites(),
+                "Expected no more commits than writes");
+    }
+
+    private String url() {
+        return "jdbc:h2:file:" + directory.resolve("goodreads").toAbsolutePath();
+    }
+}
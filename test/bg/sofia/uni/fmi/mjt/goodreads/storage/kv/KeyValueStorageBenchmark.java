@@ -0,0 +1,92 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.kv;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Storage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.FileSystemStorage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater.StringUpdater;
+
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+// Key-value against file system storage, run manually: java ... KeyValueStorageBenchmark [users] [books per user]
+public class KeyValueStorageBenchmark {
+    private static final int DEFAULT_USERS = 5_000;
+    private static final int DEFAULT_BOOKS_PER_USER = 20;
+    private static final int BOOKS = 10_000;
+    private static final int QUERIES = 50_000;
+    private static final long SEED = 42;
+    private static final double NANOS_IN_MILLI = 1_000_000.0;
+
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_USERS;
+        int booksPerUser = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_BOOKS_PER_USER;
+
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        try {
+            run("file system", new FileSystemStorage(new StringReader("[]"), new StringReader("{}"),
+                    new StringUpdater(""), new StringUpdater(""), executor), users, booksPerUser);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Path directory = Files.createTempDirectory("kv-benchmark");
+        Path file = directory.resolve("goodreads.db");
+        try (KeyValueStorage storage = new KeyValueStorage(file)) {
+            run("key-value", storage, users, booksPerUser);
+        }
+        long start = System.nanoTime();
+        try (KeyValueStorage reopened = new KeyValueStorage(file)) {
+            System.out.printf("key-value reopen: %.1f ms, %d users, %d MB file%n",
+                    (System.nanoTime() - start) / NANOS_IN_MILLI, reopened.userIds().size(), Files.size(file) >> 20);
+        }
+        Files.delete(file);
+        Files.delete(directory);
+    }
+
+    private static void run(String name, Storage storage, int users, int booksPerUser) throws Exception {
+        Random random = new Random(SEED);
+        List<String> userIds = new ArrayList<>(users);
+        long start = System.nanoTime();
+        for (int i = 0; i < users; i++) {
+            userIds.add(storage.register("user" + i, "password"));
+        }
+        System.out.printf("%s register: %.3f ms per user%n", name, elapsed(start) / users);
+
+        start = System.nanoTime();
+        for (String userId : userIds) {
+            for (int i = 0; i < booksPerUser; i++) {
+                int book = random.nextInt(BOOKS);
+                storage.addToList(userId, "read", new Book("book" + book, "Title " + book, List.of("Author")));
+            }
+        }
+        System.out.printf("%s add to list: %.3f ms per book%n", name, elapsed(start) / users / booksPerUser);
+
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            storage.getList(userIds.get(random.nextInt(users)), "read");
+        }
+        System.out.printf("%s get list: %.4f ms per read%n", name, elapsed(start) / QUERIES);
+
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            storage.containsBook(userIds.get(random.nextInt(users)), "read", "book" + random.nextInt(BOOKS));
+        }
+        System.out.printf("%s contains book: %.4f ms per lookup%n", name, elapsed(start) / QUERIES);
+
+        start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            storage.login("user" + random.nextInt(users), "password");
+        }
+        System.out.printf("%s login: %.4f ms per login%n", name, elapsed(start) / QUERIES);
+    }
+
+    private static double elapsed(long start) {
+        return (System.nanoTime() - start) / NANOS_IN_MILLI;
+    }
+}
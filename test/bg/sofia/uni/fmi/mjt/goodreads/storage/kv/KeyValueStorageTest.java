@@ -0,0 +1,78 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.kv;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Storage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.StorageContractTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KeyValueStorageTest extends StorageContractTest {
+    @TempDir
+    private Path directory;
+    private KeyValueStorage keyValueStorage;
+
+    @Override
+    protected Storage createStorage(Reader usersTableReader, Reader bookshelfTableReader) throws IOException {
+        keyValueStorage = new KeyValueStorage(directory.resolve("goodreads.db"),
+                usersTableReader, bookshelfTableReader);
+        return keyValueStorage;
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        keyValueStorage.close();
+    }
+
+    @Test
+    public void testDataSurvivesReopening() throws Exception {
+        Book book = new Book("4", "Title4", List.of("Author4"));
+        String userId = keyValueStorage.register("newUser", "password");
+        keyValueStorage.addToList(userId, "read", book);
+        keyValueStorage.addFriend(userId, "user1");
+        keyValueStorage.close();
+
+        keyValueStorage = new KeyValueStorage(directory.resolve("goodreads.db"));
+
+        assertEquals(userId, keyValueStorage.login("newUser", "password"), "Expected user to be stored");
+        assertEquals(List.of(book), keyValueStorage.getList(userId, "read"), "Expected list to be stored");
+        assertEquals(List.of("user1"), keyValueStorage.getUserFriends(userId), "Expected friends to be stored");
+        assertEquals(Map.of("user1", List.of("read")), keyValueStorage.getFriendsWithBook(userId, "1"),
+                "Expected book indexes to be rebuilt from the stored lists");
+        assertEquals(1, keyValueStorage.getRecommendationFeed(userId, null, 1).items().size(),
+                "Expected feed to be rebuilt from the stored recommendations");
+    }
+
+    @Test
+    public void testListOrderAndMembershipSurviveRemovalAndReopening() throws Exception {
+        Book book4 = new Book("4", "Title4", List.of("Author4"));
+        Book book5 = new Book("5", "Title5", List.of("Author5"));
+        Book book6 = new Book("6", "Title6", List.of("Author6"));
+        String userId = keyValueStorage.register("newUser", "password");
+        keyValueStorage.createList(userId, "favourites");
+        keyValueStorage.addToList(userId, "favourites", book4);
+        keyValueStorage.addToList(userId, "favourites", book5);
+        keyValueStorage.addToList(userId, "favourites", book6);
+        keyValueStorage.removeFromList(userId, "favourites", 1);
+        keyValueStorage.addToList(userId, "favourites", book5);
+        keyValueStorage.removeBookFromList(userId, "favourites", "4");
+        keyValueStorage.close();
+
+        keyValueStorage = new KeyValueStorage(directory.resolve("goodreads.db"));
+
+        assertEquals(List.of(book6, book5), keyValueStorage.getList(userId, "favourites"),
+                "Expected entries in the order they were added after the removals");
+        assertTrue(keyValueStorage.containsBook(userId, "favourites", "5"), "Expected re-added book in the list");
+        assertFalse(keyValueStorage.containsBook(userId, "favourites", "4"), "Expected removed book not in the list");
+    }
+}
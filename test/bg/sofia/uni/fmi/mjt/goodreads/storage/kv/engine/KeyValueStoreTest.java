@@ -0,0 +1,140 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.kv.engine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class KeyValueStoreTest {
+    private static final int KEYS = 5000;
+    private static final int POOL_PAGES = 16;
+
+    @TempDir
+    private Path directory;
+    private KeyValueStore store;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        store = new KeyValueStore(directory.resolve("store.db"), POOL_PAGES);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        store.close();
+    }
+
+    @Test
+    public void testPutAndGet() {
+        store.putString("user/1", "ana");
+
+        assertEquals("ana", store.getString("user/1"), "Expected stored value");
+        assertNull(store.get("user/2"), "Expected no value for missing key");
+    }
+
+    @Test
+    public void testOverwrite() {
+        store.putString("user/1", "ana");
+        store.putString("user/1", "bob");
+
+        assertEquals("bob", store.getString("user/1"), "Expected latest value");
+    }
+
+    @Test
+    public void testDelete() {
+        store.putString("user/1", "ana");
+
+        assertTrue(store.delete("user/1"), "Expected existing key to be deleted");
+        assertFalse(store.delete("user/1"), "Expected missing key not to be deleted");
+        assertNull(store.get("user/1"), "Expected deleted key to be gone");
+    }
+
+    @Test
+    public void testManyKeysSplitPagesThroughSmallPool() {
+        for (int i = 0; i < KEYS; i++) {
+            store.putString(key(i), "value" + i);
+        }
+
+        for (int i = 0; i < KEYS; i++) {
+            assertEquals("value" + i, store.getString(key(i)), "Expected every key to survive splits and evictions");
+        }
+        assertTrue(store.pageCount() > POOL_PAGES, "Expected tree to be bigger than the pool");
+    }
+
+    @Test
+    public void testScanPrefixInOrder() {
+        store.putString("list/2/read", "c");
+        store.putString("list/1/want-to-read", "b");
+        store.putString("list/1/read", "a");
+        store.putString("user/1", "d");
+
+        Map<String, byte[]> lists = store.scan("list/1/");
+
+        assertEquals(List.of("list/1/read", "list/1/want-to-read"), new ArrayList<>(lists.keySet()),
+                "Expected keys with the prefix in order");
+    }
+
+    @Test
+    public void testScanAcrossLeaves() {
+        for (int i = 0; i < KEYS; i++) {
+            store.putString(key(i), "value" + i);
+        }
+
+        assertEquals(KEYS, store.scan("key/").size(), "Expected scan to follow the sibling links");
+    }
+
+    @Test
+    public void testLargeValuesUseOverflowPages() {
+        byte[] value = new byte[3 * PageFile.PAGE_SIZE];
+        Arrays.fill(value, (byte) 7);
+        store.put("big", value);
+        store.put("big", value);
+        int pages = store.pageCount();
+
+        assertArrayEquals(value, store.get("big"), "Expected value spread over overflow pages");
+        store.put("big", value);
+        assertEquals(pages, store.pageCount(), "Expected overwritten overflow pages to be reused");
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        for (int i = 0; i < KEYS; i++) {
+            store.putString(key(i), "value" + i);
+        }
+        store.close();
+
+        store = new KeyValueStore(directory.resolve("store.db"), POOL_PAGES);
+
+        assertEquals("value42", store.getString(key(42)), "Expected values to be read back from the file");
+        assertEquals(KEYS, store.scan("key/").size(), "Expected every key to be read back");
+    }
+
+    @Test
+    public void testTooLongKey() {
+        assertThrows(IllegalArgumentException.class, () -> store.putString("k".repeat(1000), "value"),
+                "Expected keys longer than a page quarter to be rejected");
+    }
+
+    @Test
+    public void testTooSmallPool() {
+        assertThrows(IllegalArgumentException.class, () -> new KeyValueStore(directory.resolve("small.db"), 1),
+                "Expected pool smaller than the tree depth to be rejected");
+    }
+
+    private static String key(int i) {
+        return String.format("key/%06d", i);
+    }
+}
@@ -0,0 +1,145 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.migration;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.FileSystemStorage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater.StringUpdater;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.kv.KeyValueStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class MigratingStorageTest {
+    private static final int USER_COUNT = 40;
+    private static final int THREADS = 4;
+    private static final int BATCH_SIZE = 7;
+    private static final Book BOOK = new Book("1", "Title1", List.of("Author1"));
+    private static final Book OTHER_BOOK = new Book("2", "Title2", List.of("Author2"));
+
+    @TempDir
+    private Path directory;
+    private FileSystemStorage source;
+    private KeyValueStorage target;
+    private MigratingStorage<FileSystemStorage, KeyValueStorage> storage;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        source = new FileSystemStorage(new StringReader(""), new StringReader(""),
+                new StringUpdater(""), new StringUpdater(""), mock(ScheduledExecutorService.class));
+        for (int i = 0; i < USER_COUNT; i++) {
+            String userId = source.register("user" + i, "password" + i);
+            source.addToList(userId, "read", BOOK);
+            source.recommendBook(userId, OTHER_BOOK);
+            if (i > 0) {
+                source.addFriend(userId, "user" + (i - 1));
+            }
+        }
+        target = new KeyValueStorage(directory.resolve("goodreads.db"));
+        storage = new MigratingStorage<>(source, target, THREADS, BATCH_SIZE);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        target.close();
+    }
+
+    private void assertSameOnBothSides() {
+        for (String userId : source.userIds()) {
+            UserRecord expected = source.exportUser(userId);
+            UserRecord actual = target.exportUser(userId);
+            assertNotNull(actual, "Expected user " + userId + " to be copied");
+            assertEquals(expected.checksum(), actual.checksum(), "Expected user " + userId + " to match");
+        }
+    }
+
+    @Test
+    public void testMigrateCopiesEveryUserAndCutsOver() {
+        List<MigratingStorage.Progress> reports = new ArrayList<>();
+        storage.migrate(reports::add);
+
+        assertSameOnBothSides();
+        assertEquals(MigratingStorage.Phase.CUT_OVER, storage.phase(), "Expected the migration to cut over");
+        MigratingStorage.Progress last = reports.getLast();
+        assertEquals(USER_COUNT, last.copiedUsers(), "Expected every user to be copied");
+        assertEquals(USER_COUNT, last.verifiedUsers(), "Expected every user to be verified");
+        assertEquals(0, last.recopiedUsers(), "Expected no user to need copying again");
+        assertTrue(reports.stream().anyMatch(progress -> progress.phase() == MigratingStorage.Phase.COPYING),
+                "Expected progress to be reported while copying");
+    }
+
+    @Test
+    public void testWritesAfterCutOverGoOnlyToTarget() throws Exception {
+        storage.migrate(progress -> { });
+        String userId = storage.login("user0", "password0");
+        storage.addToList(userId, "read", OTHER_BOOK);
+
+        assertEquals(List.of(BOOK, OTHER_BOOK), storage.getList(userId, "read"), "Expected reads from the target");
+        assertEquals(List.of(BOOK), source.getList(userId, "read"), "Expected the source to be left behind");
+    }
+
+    @Test
+    public void testWritesBeforeMigrationReachBothBackends() throws Exception {
+        String userId = storage.register("newUser", "password");
+        storage.addToList(userId, "read", OTHER_BOOK);
+
+        assertEquals(List.of(OTHER_BOOK), target.getList(userId, "read"), "Expected the write to reach the target");
+        assertEquals(userId, target.login("newUser", "password"), "Expected the user to keep their id");
+    }
+
+    @Test
+    public void testWritesTheTargetRejectsAreCopiedAtCutOver() throws Exception {
+        String userId = storage.register("newUser", "password");
+        // user0 isn't copied yet, so the target can't follow them
+        storage.addFriend(userId, "user0");
+        storage.migrate(progress -> { });
+
+        assertEquals(List.of("user0"), target.getUserFriends(userId), "Expected the friend to be copied later");
+        assertSameOnBothSides();
+    }
+
+    @Test
+    public void testWritesDuringMigrationAreNotLost() throws Exception {
+        AtomicBoolean migrating = new AtomicBoolean(true);
+        CountDownLatch firstWrite = new CountDownLatch(1);
+        List<String> written = new ArrayList<>();
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; migrating.get(); i++) {
+                    String userId = storage.login("user" + (i % USER_COUNT), "password" + (i % USER_COUNT));
+                    String listName = "list" + i;
+                    storage.createList(userId, listName);
+                    storage.addToList(userId, listName, OTHER_BOOK);
+                    written.add(userId + "/" + listName);
+                    firstWrite.countDown();
+                }
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        writer.start();
+        firstWrite.await();
+        storage.migrate(progress -> { });
+        migrating.set(false);
+        writer.join();
+
+        for (String list : written) {
+            String[] userAndList = list.split("/");
+            assertEquals(List.of(OTHER_BOOK), storage.getList(userAndList[0], userAndList[1]),
+                    "Expected " + list + " to survive the migration");
+        }
+    }
+}
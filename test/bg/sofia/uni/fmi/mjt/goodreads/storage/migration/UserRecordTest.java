@@ -0,0 +1,50 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.migration;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.user.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+public class UserRecordTest {
+    private static final Book BOOK1 = new Book("1", "Title1", List.of("Author1"));
+    private static final Book BOOK2 = new Book("2", "Title2", null);
+    private static final User USER = new User("1", "user1", "password", List.of("user2"), List.of(BOOK1));
+
+    private static Map<String, List<Book>> lists(String firstName, List<Book> first,
+                                                 String secondName, List<Book> second) {
+        Map<String, List<Book>> lists = new LinkedHashMap<>();
+        lists.put(firstName, first);
+        lists.put(secondName, second);
+        return lists;
+    }
+
+    @Test
+    public void testChecksumIgnoresListOrder() {
+        UserRecord record = new UserRecord(USER, lists("read", List.of(BOOK1), "want-to-read", List.of(BOOK2)));
+        UserRecord reordered = new UserRecord(USER, lists("want-to-read", List.of(BOOK2), "read", List.of(BOOK1)));
+
+        assertEquals(record.checksum(), reordered.checksum(), "Expected the order of the lists not to matter");
+    }
+
+    @Test
+    public void testChecksumDiffersWhenBooksMoveBetweenLists() {
+        UserRecord record = new UserRecord(USER, lists("read", List.of(BOOK1), "want-to-read", List.of(BOOK2)));
+        UserRecord moved = new UserRecord(USER, lists("read", List.of(BOOK1, BOOK2), "want-to-read", List.of()));
+
+        assertNotEquals(record.checksum(), moved.checksum(), "Expected a moved book to change the checksum");
+    }
+
+    @Test
+    public void testChecksumDiffersWhenAFriendIsMissing() {
+        User withoutFriend = new User("1", "user1", "password", List.of(), List.of(BOOK1));
+
+        assertNotEquals(new UserRecord(USER, Map.of()).checksum(), new UserRecord(withoutFriend, Map.of()).checksum(),
+                "Expected a missing friend to change the checksum");
+    }
+}
@@ -0,0 +1,71 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.partition;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConsistentHashRingTest {
+    private static final int KEYS = 10_000;
+
+    private static ConsistentHashRing ringOf(int nodes) {
+        ConsistentHashRing ring = new ConsistentHashRing(64);
+        for (int node = 0; node < nodes; node++) {
+            ring.addNode(node);
+        }
+        return ring;
+    }
+
+    @Test
+    public void testKeysAreSpreadEvenly() {
+        ConsistentHashRing ring = ringOf(4);
+        int[] counts = new int[4];
+        for (int i = 0; i < KEYS; i++) {
+            counts[ring.nodeFor("user-" + i)]++;
+        }
+
+        for (int count : counts) {
+            assertTrue(count > KEYS / 8 && count < KEYS / 2, "Expected every node to own a fair share of the keys");
+        }
+    }
+
+    @Test
+    public void testAddingANodeOnlyMovesKeysToIt() {
+        ConsistentHashRing ring = ringOf(4);
+        Map<String, Integer> before = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            before.put("user-" + i, ring.nodeFor("user-" + i));
+        }
+
+        ring.addNode(4);
+        int moved = 0;
+        for (Map.Entry<String, Integer> key : before.entrySet()) {
+            int owner = ring.nodeFor(key.getKey());
+            if (owner != key.getValue()) {
+                assertEquals(4, owner, "Expected keys to move only to the new node");
+                moved++;
+            }
+        }
+        assertTrue(moved > 0 && moved < KEYS / 3, "Expected about a fifth of the keys to move");
+    }
+
+    @Test
+    public void testRemovingANodeReturnsItsKeysToTheOthers() {
+        ConsistentHashRing ring = ringOf(3);
+        ring.removeNode(1);
+
+        for (int i = 0; i < KEYS; i++) {
+            assertTrue(ring.nodeFor("user-" + i) != 1, "Expected the removed node to own no keys");
+        }
+    }
+
+    @Test
+    public void testEmptyRingThrows() {
+        assertThrows(IllegalStateException.class, () -> new ConsistentHashRing(1).nodeFor("user"),
+                "Expected a ring without nodes to own no keys");
+    }
+}
@@ -0,0 +1,122 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.partition;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.Storage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.StorageContractTest;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.partition.rpc.Operation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PartitionedStorageTest extends StorageContractTest {
+    private static final int NODE_COUNT = 3;
+
+    @TempDir
+    private Path directory;
+    private List<StorageNode> storageNodes;
+    private PartitionedStorage partitionedStorage;
+
+    @Override
+    protected Storage createStorage(Reader usersTableReader, Reader bookshelfTableReader) throws IOException {
+        storageNodes = new ArrayList<>();
+        for (int i = 0; i < NODE_COUNT; i++) {
+            startNode(i);
+        }
+        partitionedStorage = connect();
+        partitionedStorage.importTables(usersTableReader, bookshelfTableReader);
+        return partitionedStorage;
+    }
+
+    private void startNode(int index) throws IOException {
+        StorageNode node = new StorageNode(0, new PartitionStore(directory.resolve("node" + index + ".db")));
+        node.start();
+        storageNodes.add(index, node);
+    }
+
+    private PartitionedStorage connect() {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (StorageNode node : storageNodes) {
+            addresses.add(new InetSocketAddress("localhost", node.port()));
+        }
+        return new PartitionedStorage(addresses);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        partitionedStorage.close();
+        for (StorageNode node : storageNodes) {
+            node.close();
+        }
+    }
+
+    @Test
+    public void testUsersAreSpreadOverAllNodes() throws Exception {
+        List<String> usernames = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            usernames.add("spread" + i);
+            partitionedStorage.register("spread" + i, "password");
+        }
+
+        int total = 0;
+        for (StorageNode node : storageNodes) {
+            try (NodeClient client = new NodeClient(new InetSocketAddress("localhost", node.port()))) {
+                int found = client.call(NodeClient.request(Operation.FIND_USERS).putStrings(usernames)).getInt();
+                assertTrue(found > 0, "Expected every node to hold some of the users");
+                total += found;
+            }
+        }
+        assertEquals(usernames.size(), total, "Expected every user to be stored on exactly one node");
+    }
+
+    @Test
+    public void testFriendsOnOtherNodesAreFound() throws Exception {
+        Book book = new Book("42", "Title42", List.of("Author42"));
+        List<String> userIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            userIds.add(partitionedStorage.register("reader" + i, "password"));
+        }
+        for (int i = 1; i < 10; i++) {
+            partitionedStorage.addFriend(userIds.getFirst(), "reader" + i);
+            partitionedStorage.addToList(userIds.get(i), "read", book);
+        }
+
+        Map<String, List<String>> friendsWithBook = partitionedStorage.getFriendsWithBook(userIds.getFirst(), "42");
+
+        assertEquals(9, friendsWithBook.size(), "Expected friends on every node to be found");
+    }
+
+    @Test
+    public void testDataSurvivesRestartingTheNodes() throws Exception {
+        Book book = new Book("4", "Title4", List.of("Author4"));
+        Book other = new Book("5", "Title5", List.of("Author5"));
+        String userId = partitionedStorage.register("newUser", "password");
+        partitionedStorage.addToList(userId, "read", book);
+        partitionedStorage.addToList(userId, "want-to-read", other);
+        partitionedStorage.addFriend(userId, "user1");
+        tearDown();
+
+        storageNodes = new ArrayList<>();
+        for (int i = 0; i < NODE_COUNT; i++) {
+            startNode(i);
+        }
+        partitionedStorage = connect();
+
+        assertEquals(userId, partitionedStorage.login("newUser", "password"), "Expected user to be stored");
+        assertEquals(List.of(book), partitionedStorage.getList(userId, "read"), "Expected list to be stored");
+        assertEquals(Map.of("user1", List.of("read")), partitionedStorage.getFriendsWithBook(userId, "1"),
+                "Expected friends' lists to be found after the restart");
+        assertEquals(List.of(other), partitionedStorage.getSimilarBooks("4", 1),
+                "Expected co-occurrences to be rebuilt from the stored lists");
+    }
+}
@@ -0,0 +1,88 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.partition;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.user.Recommendation;
+import com.google.gson.Gson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StorageNodeProcessTest {
+    private static final int NODE_COUNT = 3;
+
+    @TempDir
+    private Path directory;
+    private final List<Process> processes = new ArrayList<>();
+
+    @AfterEach
+    public void tearDown() throws InterruptedException {
+        for (Process process : processes) {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private InetSocketAddress launchNode(int index) throws IOException, URISyntaxException {
+        String classPath = codeLocation(StorageNodeMain.class) + File.pathSeparator + codeLocation(Gson.class);
+        Process process = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", classPath, StorageNodeMain.class.getName(), "0",
+                directory.resolve("node" + index + ".db").toString())
+                .redirectErrorStream(true)
+                .start();
+        processes.add(process);
+
+        BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8));
+        String line = output.readLine();
+        assertTrue(line != null && line.startsWith(StorageNodeMain.READY_MESSAGE),
+                "Expected the node to report its port, got " + line);
+        int port = Integer.parseInt(line.substring(StorageNodeMain.READY_MESSAGE.length()));
+        return new InetSocketAddress("localhost", port);
+    }
+
+    private static String codeLocation(Class<?> type) throws URISyntaxException {
+        return Path.of(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+    }
+
+    @Test
+    public void testStorageWorksAcrossNodeProcesses() throws Exception {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (int i = 0; i < NODE_COUNT; i++) {
+            addresses.add(launchNode(i));
+        }
+
+        Book book = new Book("1", "Title1", List.of("Author1"));
+        try (PartitionedStorage storage = new PartitionedStorage(addresses)) {
+            List<String> userIds = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                userIds.add(storage.register("user" + i, "password"));
+            }
+            for (int i = 1; i < 6; i++) {
+                storage.addFriend(userIds.getFirst(), "user" + i);
+                storage.addToList(userIds.get(i), "read", book);
+            }
+            storage.recommendBook(userIds.get(1), book);
+
+            assertEquals(userIds.get(3), storage.login("user3", "password"), "Expected users to be found");
+            assertEquals(5, storage.getFriendsWithBook(userIds.getFirst(), "1").size(),
+                    "Expected friends on all nodes to be found");
+            assertEquals(List.of(new Recommendation("user1", book)),
+                    storage.getRecommendationFeed(userIds.getFirst(), null, 10).items(),
+                    "Expected the recommendation to reach the feed on another process");
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package bg.sofia.uni.fmi.mjt.goodreads.storage.replication;
+
+import bg.sofia.uni.fmi.mjt.goodreads.book.Book;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.FileSystemStorage;
+import bg.sofia.uni.fmi.mjt.goodreads.storage.filesystem.updater.StringUpdater;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class ReplicationTest {
+    private static final Book BOOK1 = new Book("1", "Title1", List.of("Author1"));
+    private static final Book BOOK2 = new Book("2", "Title2", List.of("Author2"));
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    @TempDir
+    private Path directory;
+    private PrimaryStorage primary;
+    private ReplicationServer replicationServer;
+    private Follower follower;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        FileSystemStorage storage = new FileSystemStorage(new StringReader("[]"), new StringReader("{}"),
+                new StringUpdater(""), new StringUpdater(""), mock(ScheduledExecutorService.class));
+        primary = new PrimaryStorage(storage, new MutationLog(1000));
+        replicationServer = new ReplicationServer(0, primary, directory);
+        replicationServer.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (follower != null) {
+            follower.close();
+        }
+        replicationServer.close();
+    }
+
+    private void startFollower() {
+        follower = new Follower(new InetSocketAddress("localhost", replicationServer.port()),
+                directory.resolve("replica"));
+        follower.start();
+    }
+
+    private void awaitCatchUp() throws InterruptedException {
+        assertTrue(follower.awaitSequence(primary.log().lastSequence(), TIMEOUT_MILLIS),
+                "Expected the follower to catch up with the primary");
+    }
+
+    @Test
+    public void testFollowerBootstrapsFromSnapshot() throws Exception {
+        String alice = primary.register("alice", "password");
+        primary.addToList(alice, "read", BOOK1);
+        primary.recommendBook(alice, BOOK2);
+
+        startFollower();
+        awaitCatchUp();
+
+        assertEquals(alice, follower.storage().login("alice", "password"), "Expected the user in the snapshot");
+        assertEquals(List.of(BOOK1), follower.storage().getList(alice, "read"), "Expected the list in the snapshot");
+        assertEquals(List.of(BOOK2), follower.storage().getUserRecommendations(alice),
+                "Expected the recommendations in the snapshot");
+    }
+
+    @Test
+    public void testFollowerAppliesLaterWrites() throws Exception {
+        String alice = primary.register("alice", "password");
+        startFollower();
+        awaitCatchUp();
+
+        String bob = primary.register("bob", "password");
+        primary.addFriend(alice, "bob");
+        primary.recommendBook(bob, BOOK1);
+        primary.createList(alice, "favourites");
+        primary.addToList(alice, "favourites", BOOK1);
+        primary.addToList(alice, "favourites", BOOK2);
+        primary.removeFromList(alice, "favourites", 0);
+        awaitCatchUp();
+
+        assertEquals(bob, follower.storage().login("bob", "password"), "Expected the registration to be replayed");
+        assertEquals(List.of(BOOK2), follower.storage().getList(alice, "favourites"),
+                "Expected the list writes to be replayed in order");
+        assertEquals(List.of(BOOK1), follower.storage().getFriendsRecommendations(alice).get("bob"),
+                "Expected the friendship and the recommendation to be replayed");
+        assertEquals(0, follower.sequenceLag(), "Expected no lag after catching up");
+        assertTrue(follower.lastApplyDelayMillis() >= 0, "Expected the apply delay to be measured");
+    }
+
+    @Test
+    public void testFollowerRejectsWrites() throws Exception {
+        primary.register("alice", "password");
+        startFollower();
+        awaitCatchUp();
+
+        assertThrows(UnsupportedOperationException.class, () -> follower.storage().register("bob", "password"),
+                "Expected writes to a replica to be rejected");
+    }
+
+    @Test
+    public void testLogDropsEntriesBeyondItsCapacity() throws Exception {
+        MutationLog log = new MutationLog(2);
+        for (int i = 0; i < 3; i++) {
+            log.append(Mutation.createList("user", "list" + i));
+        }
+
+        assertFalse(log.retains(0), "Expected the oldest entry to be dropped");
+        assertNull(log.after(0, 10, 0), "Expected no tail for a position outside the log");
+        assertEquals(2, log.after(1, 10, 0).size(), "Expected the retained entries after the position");
+    }
+
+    @Test
+    public void testMutationSurvivesEncoding() throws Exception {
+        Mutation mutation = Mutation.addToList("user", "read", new Book("1", "Title1", null));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        mutation.writeTo(new DataOutputStream(bytes));
+
+        Mutation decoded = Mutation.readFrom(new DataInputStream(
+                new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(mutation, decoded, "Expected the mutation to be decoded as it was encoded");
+    }
+}